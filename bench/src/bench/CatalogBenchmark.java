@@ -0,0 +1,348 @@
+package bench;
+
+import cinereviews.CineReviews;
+import cinereviews.CineReviewsClass;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline of every operation of CineReviewsClass, over a generated catalog whose numbers of artists and shows,
+ * reviews per show and cast size are parameters, to be swept with -p, as in -p shows=1000,10000.
+ * Each operation is measured as throughput and as average time, and running the main method of this class
+ * also reports the allocation rate of each one through the GC profiler, as -prof gc does.
+ * The catalog is built again before each iteration, so the new users, shows and reviews that the changes add
+ * on every call only grow it during that iteration. Anything a change needs other than the change itself is done
+ * outside of the measured call: the reviewers are registered with the catalog, and the avoiders are searched after
+ * a new artist is added before each call, as repeated searches are answered by the cache.
+ * The exact search of the avoiders can take minutes on these catalogs, so they are searched within a time budget,
+ * and a search that gets faster either takes less than the budget or returns larger groups.
+ * The exact search is measured on its own small catalog instead, built again before each call, so that
+ * every call searches the same graph
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+
+    private static final String[] CLASSIFICATIONS = {"excellent", "good", "average", "poor", "terrible"};
+    private static final String[] GENRES = {"Drama", "Comedy", "Horror", "Action", "Sci-Fi", "Crime"};
+    private static final String ADMIN = "admin";
+    private static final String PASSWORD = "1234";
+    private static final int FIRST_YEAR = 1950;
+    private static final int YEARS = 75;
+    private static final long SEED = 42;
+    private static final int MAX_REVIEWS = 2_000_000;
+
+    /**
+     * Number of distinct artists the casts and directors are drawn from
+     */
+    @Param({"2000"})
+    private int artists;
+
+    /**
+     * Number of shows in the catalog
+     */
+    @Param({"1000"})
+    private int shows;
+
+    /**
+     * Number of reviews of each show
+     */
+    @Param({"10", "100"})
+    private int reviewsPerShow;
+
+    /**
+     * Number of artists in the cast of each show
+     */
+    @Param({"6"})
+    private int castSize;
+
+    /**
+     * Time budget of the search of the avoiders, in milliseconds
+     */
+    @Param({"100"})
+    private int avoidersBudget;
+
+    /**
+     * Catalog the operations run on
+     */
+    private CineReviews catalog;
+
+    /**
+     * Random source of the changes and queries, seeded so that every run makes the same ones
+     */
+    private Random random;
+
+    /**
+     * Number of changes made by the benchmarks, from which new users, shows and artists are named
+     */
+    private int changes;
+
+    /**
+     * Builds the catalog, with the shows as movies or series at random, two genres each, and a critic
+     * for every fifth reviewer, and registers the users that review every show in reviewShow, enough for
+     * MAX_REVIEWS reviews, several times what an iteration makes
+     *
+     * @throws Exception never, the generated catalog is valid
+     */
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        random = new Random(SEED);
+        changes = 0;
+        catalog = new CineReviewsClass();
+        catalog.registerUser(ADMIN, ADMIN, PASSWORD);
+        int users = 2 * reviewsPerShow;
+        for (int u = 0; u < users; u++)
+            catalog.registerUser(u % 5 == 0 ? "critic" : "audience", "User" + u, null);
+        for (int i = 0; i < shows; i++) {
+            addShow("Show" + i);
+            int firstReviewer = random.nextInt(users);
+            for (int j = 0; j < reviewsPerShow; j++)
+                catalog.reviewShow("User" + (firstReviewer + j) % users, "review", "Show" + i,
+                        CLASSIFICATIONS[random.nextInt(CLASSIFICATIONS.length)]);
+        }
+        for (int r = 0; r <= MAX_REVIEWS / shows; r++)
+            catalog.registerUser("audience", "Reviewer" + r, null);
+    }
+
+    @Benchmark
+    public int registerUser() throws Exception {
+        catalog.registerUser("audience", "Newcomer" + changes++, null);
+        return changes;
+    }
+
+    @Benchmark
+    public int addMovie() throws Exception {
+        String director = randomArtist();
+        return catalog.addMovie(ADMIN, PASSWORD, "Movie" + changes++, director, 120, "12+", randomYear(),
+                randomGenres().iterator(), randomCast(director).iterator());
+    }
+
+    @Benchmark
+    public int addSeries() throws Exception {
+        String director = randomArtist();
+        return catalog.addSeries(ADMIN, PASSWORD, "Series" + changes++, director, 3, "16+", randomYear(),
+                randomGenres().iterator(), randomCast(director).iterator());
+    }
+
+    @Benchmark
+    public int reviewShow() throws Exception {
+        // Each reviewer registered by the setup reviews every show once, in order
+        String user = "Reviewer" + changes / shows;
+        String show = "Show" + changes++ % shows;
+        return catalog.reviewShow(user, "review", show, CLASSIFICATIONS[random.nextInt(CLASSIFICATIONS.length)]);
+    }
+
+    @Benchmark
+    public int getReviewsOfShow() throws Exception {
+        return count(catalog.getReviewsOfShow("Show" + random.nextInt(shows)));
+    }
+
+    @Benchmark
+    public int getShowsByGenre() {
+        return count(catalog.getShowsByGenre(List.of(GENRES[random.nextInt(GENRES.length)]).iterator()));
+    }
+
+    @Benchmark
+    public int getShowsByTwoGenres() {
+        return count(catalog.getShowsByGenre(randomGenres().iterator()));
+    }
+
+    @Benchmark
+    public int getShowsByYear() {
+        return count(catalog.getShowsByYear(randomYear()));
+    }
+
+    @Benchmark
+    public int getAllFriends() throws Exception {
+        return count(catalog.getAllFriends());
+    }
+
+    @Benchmark
+    public int getAvoiders(NewArtist newArtist) throws Exception {
+        return catalog.getAvoiders(avoidersBudget).getSize();
+    }
+
+    @Benchmark
+    public int getExactAvoiders(SmallCatalog small) throws Exception {
+        return small.catalog.getAvoiders().getSize();
+    }
+
+    @Benchmark
+    public int listAllShows() {
+        return count(catalog.listAllShows());
+    }
+
+    /**
+     * Runs every benchmark of the class with the GC profiler, which adds the allocation rate and the bytes
+     * allocated per operation to the results
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmarks can not be run
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CatalogBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * Adds a show with a random director, year, genres and cast, as a movie or a series at random
+     *
+     * @param title title of the show
+     * @throws Exception never, the title is new
+     */
+    private void addShow(String title) throws Exception {
+        String director = randomArtist();
+        if (random.nextBoolean())
+            catalog.addMovie(ADMIN, PASSWORD, title, director, 120, "12+", randomYear(),
+                    randomGenres().iterator(), randomCast(director).iterator());
+        else
+            catalog.addSeries(ADMIN, PASSWORD, title, director, 3, "16+", randomYear(),
+                    randomGenres().iterator(), randomCast(director).iterator());
+    }
+
+    /**
+     * Gets the name of a random artist of the catalog
+     *
+     * @return the name of the artist
+     */
+    private String randomArtist() {
+        return "Artist" + random.nextInt(artists);
+    }
+
+    /**
+     * Gets a random year of release
+     *
+     * @return the year
+     */
+    private int randomYear() {
+        return FIRST_YEAR + random.nextInt(YEARS);
+    }
+
+    /**
+     * Gets two different random genres
+     *
+     * @return the genres
+     */
+    private List<String> randomGenres() {
+        int first = random.nextInt(GENRES.length);
+        return List.of(GENRES[first], GENRES[(first + 1 + random.nextInt(GENRES.length - 1)) % GENRES.length]);
+    }
+
+    /**
+     * Gets a random cast of different artists, without the director of the show
+     *
+     * @param director name of the director of the show
+     * @return the names of the artists of the cast
+     */
+    private List<String> randomCast(String director) {
+        return randomArtists(random, artists, castSize, director);
+    }
+
+    /**
+     * Gets different random artists other than one, in the order they were drawn
+     *
+     * @param random  random source
+     * @param pool    number of distinct artists to draw from
+     * @param amount  number of artists to draw
+     * @param exclude name of the artist that must not be drawn
+     * @return the names of the artists
+     * @pre amount < pool
+     */
+    private static List<String> randomArtists(Random random, int pool, int amount, String exclude) {
+        Set<String> chosen = new LinkedHashSet<>();
+        while (chosen.size() < amount) {
+            String artist = "Artist" + random.nextInt(pool);
+            if (!artist.equals(exclude)) chosen.add(artist);
+        }
+        return new ArrayList<>(chosen);
+    }
+
+    /**
+     * Counts the elements of a result, so that every one of them is read
+     *
+     * @param it  iterator of the result
+     * @param <T> type of the elements
+     * @return the number of elements
+     */
+    private static <T> int count(Iterator<T> it) {
+        int count = 0;
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * New artist added to the catalog before each search of the avoiders, so that the search is not answered
+     * from the cache, without timing the addition
+     */
+    @State(Scope.Thread)
+    public static class NewArtist {
+
+        /**
+         * Adds an artist with a bio, who has not worked with anyone
+         *
+         * @param benchmark state with the catalog
+         * @throws Exception never, the name of the artist is new
+         */
+        @Setup(Level.Invocation)
+        public void setUp(CatalogBenchmark benchmark) throws Exception {
+            benchmark.catalog.addArtistBio("Newcomer" + benchmark.changes++, "01-01-2000", "Lisbon");
+        }
+    }
+
+    /**
+     * Small catalog on which the avoiders are searched exactly. It is built again before each call with the same
+     * seed, as a search answered from the cache or run on a catalog that grew would not measure the same work
+     */
+    @State(Scope.Thread)
+    public static class SmallCatalog {
+
+        private static final int ARTISTS = 100;
+        private static final int SHOWS = 50;
+        private static final int CAST_SIZE = 6;
+
+        /**
+         * Catalog the exact search runs on
+         */
+        private CineReviews catalog;
+
+        /**
+         * Builds the catalog, with movies of a random director each and a cast of other different random artists
+         *
+         * @throws Exception never, the generated catalog is valid
+         */
+        @Setup(Level.Invocation)
+        public void setUp() throws Exception {
+            Random random = new Random(SEED);
+            catalog = new CineReviewsClass();
+            catalog.registerUser(ADMIN, ADMIN, PASSWORD);
+            for (int i = 0; i < SHOWS; i++) {
+                String director = "Artist" + random.nextInt(ARTISTS);
+                catalog.addMovie(ADMIN, PASSWORD, "Show" + i, director, 120, "12+",
+                        FIRST_YEAR + random.nextInt(YEARS), List.of(GENRES[i % GENRES.length]).iterator(),
+                        randomArtists(random, ARTISTS, CAST_SIZE, director).iterator());
+            }
+        }
+    }
+}
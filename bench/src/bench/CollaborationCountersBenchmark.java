@@ -0,0 +1,180 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import util.IntIntHashMap;
+
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares the collaboration counters of the artists as boxed maps from artists to counts, as they were first kept,
+ * with the IntIntHashMap keyed by artist id that replaced them. The benchmarks time an increment of a count
+ * of each one, and the GC profiler run by the main method gives the bytes each increment allocates.
+ * The main method first measures the heap each collaboration keeps, by building many counters of each kind
+ * and comparing the used heap after a collection. The counts start above the cache of Integer,
+ * as those of frequent collaborators are, so that the boxed counters keep an Integer for each one
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollaborationCountersBenchmark {
+
+    private static final int FIRST_COUNT = 1000;
+    private static final int COUNTERS = 2000;
+    private static final int GC_ROUNDS = 5;
+
+    /**
+     * Number of collaborators of each artist
+     */
+    @Param({"16", "256"})
+    private int collaborators;
+
+    /**
+     * Objects that stand for the artists, the keys of the boxed counters
+     */
+    private Object[] artists;
+
+    /**
+     * Counters of an artist as a boxed map. artist -> count
+     */
+    private Map<Object, Integer> boxed;
+
+    /**
+     * Counters of an artist by id. id -> count
+     */
+    private IntIntHashMap primitive;
+
+    /**
+     * Number of increments made, from which the next collaborator is chosen
+     */
+    private int increments;
+
+    /**
+     * Creates the counters of an artist with every collaborator
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        artists = newArtists(collaborators);
+        boxed = newBoxedCounters(artists);
+        primitive = newPrimitiveCounters(collaborators);
+    }
+
+    @Benchmark
+    public int boxedIncrement() {
+        return boxed.merge(artists[increments++ % collaborators], 1, Integer::sum);
+    }
+
+    @Benchmark
+    public int primitiveIncrement() {
+        return primitive.increment(increments++ % collaborators, 1);
+    }
+
+    /**
+     * Prints the heap kept per collaboration by each kind of counters and then runs every benchmark of the class
+     * with the GC profiler
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmarks can not be run
+     */
+    public static void main(String[] args) throws RunnerException {
+        for (int collaborators : new int[]{16, 256}) {
+            Object[] artists = newArtists(collaborators);
+            long entries = (long) COUNTERS * collaborators;
+            long boxedBytes = keptBytes(() -> {
+                Object[] counters = new Object[COUNTERS];
+                for (int i = 0; i < COUNTERS; i++)
+                    counters[i] = newBoxedCounters(artists);
+                return counters;
+            });
+            long primitiveBytes = keptBytes(() -> {
+                Object[] counters = new Object[COUNTERS];
+                for (int i = 0; i < COUNTERS; i++)
+                    counters[i] = newPrimitiveCounters(collaborators);
+                return counters;
+            });
+            System.out.printf("%d collaborators: boxed %.1f bytes, primitive %.1f bytes per collaboration%n",
+                    collaborators, (double) boxedBytes / entries, (double) primitiveBytes / entries);
+        }
+        new Runner(new OptionsBuilder()
+                .include(CollaborationCountersBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * Creates the objects that stand for the artists
+     *
+     * @param collaborators number of artists
+     * @return the artists
+     */
+    private static Object[] newArtists(int collaborators) {
+        Object[] artists = new Object[collaborators];
+        for (int i = 0; i < collaborators; i++)
+            artists[i] = new Object();
+        return artists;
+    }
+
+    /**
+     * Creates boxed counters with every artist
+     *
+     * @param artists collaborators of the counters
+     * @return the counters
+     */
+    private static Map<Object, Integer> newBoxedCounters(Object[] artists) {
+        Map<Object, Integer> counters = new HashMap<>();
+        for (int i = 0; i < artists.length; i++)
+            counters.put(artists[i], FIRST_COUNT + i);
+        return counters;
+    }
+
+    /**
+     * Creates counters by id with every artist
+     *
+     * @param collaborators number of collaborators of the counters
+     * @return the counters
+     */
+    private static IntIntHashMap newPrimitiveCounters(int collaborators) {
+        IntIntHashMap counters = new IntIntHashMap();
+        for (int i = 0; i < collaborators; i++)
+            counters.increment(i, FIRST_COUNT + i);
+        return counters;
+    }
+
+    /**
+     * Measures the heap kept by the objects built by a supplier, as the growth of the used heap after a collection
+     *
+     * @param build builds the objects
+     * @return the number of bytes kept by the objects
+     */
+    private static long keptBytes(Supplier<Object> build) {
+        long before = usedHeap();
+        Object kept = build.get();
+        long after = usedHeap();
+        Reference.reachabilityFence(kept);
+        return after - before;
+    }
+
+    /**
+     * Gets the used heap after a few collections, so that only the objects still reachable are counted
+     *
+     * @return the number of bytes of the heap in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_ROUNDS; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,144 @@
+package bench;
+
+import cinereviews.ConcurrentCineReviewsClass;
+import cinereviews.PartitionedCineReviewsClass;
+import org.openjdk.jmh.annotations.*;
+import show.Show;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how the reviews and the queries of the shows by score scale with the number of partitions of the shows,
+ * against the striped locks of ConcurrentCineReviewsClass, which is measured as 0 partitions.
+ * Each thread reviews the shows in turn as users of its own, so reviews of every thread spread over every partition,
+ * while the queries are sent to every partition and merged. The number of threads can be changed with -t,
+ * and reviews only scale out with the cores, as each partition has one thread
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PartitionBenchmark {
+
+    private static final String ADMIN = "Admin";
+    private static final String PASSWORD = "1234";
+    private static final String[] CLASSIFICATIONS = {"excellent", "good", "average", "poor", "terrible"};
+    private static final String[] GENRES = {"Drama", "Comedy", "Horror", "Action", "Romance"};
+    private static final int YEARS = 50;
+
+    /**
+     * Number of partitions of the shows, 0 for the striped locks of ConcurrentCineReviewsClass
+     */
+    @Param({"0", "1", "2", "4", "8"})
+    private int partitions;
+
+    /**
+     * Number of shows in the catalog
+     */
+    @Param({"10000"})
+    private int shows;
+
+    /**
+     * Catalog shared by the threads
+     */
+    private ConcurrentCineReviewsClass catalog;
+
+    /**
+     * Number of threads that have started so far, from which each one gets its own users
+     */
+    private final AtomicInteger clients = new AtomicInteger();
+
+    /**
+     * Builds the catalog, with two genres per show and an even spread of years of release
+     *
+     * @throws Exception if the catalog can not be built
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        catalog = partitions == 0 ? new ConcurrentCineReviewsClass() : new PartitionedCineReviewsClass(partitions);
+        catalog.registerUser("admin", ADMIN, PASSWORD);
+        for (int i = 0; i < shows; i++)
+            catalog.addMovie(ADMIN, PASSWORD, "Show" + i, "Director" + i, 120, "12+", 1970 + i % YEARS,
+                    List.of(GENRES[i % GENRES.length], GENRES[i / GENRES.length % GENRES.length]).iterator(),
+                    List.of("Actor" + i).iterator());
+    }
+
+    /**
+     * Stops the threads of the partitions
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (catalog instanceof PartitionedCineReviewsClass partitioned) partitioned.close();
+    }
+
+    /**
+     * Users of a thread and the next show it reviews
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        /**
+         * Number of the thread
+         */
+        private int id;
+
+        /**
+         * Number of reviews made by the thread, each user of the thread reviewing every show once
+         */
+        private int reviews;
+
+        /**
+         * Gets the number of the thread
+         *
+         * @param benchmark state of the catalog
+         */
+        @Setup(Level.Trial)
+        public void setUp(PartitionBenchmark benchmark) {
+            id = benchmark.clients.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    public int reviews(Client client) throws Exception {
+        String user = "User" + client.id + "_" + client.reviews / shows;
+        int show = client.reviews % shows;
+        if (show == 0) catalog.registerUser(client.reviews / shows % 5 == 0 ? "critic" : "audience", user, null);
+        client.reviews++;
+        // Consecutive reviews of a thread land on different partitions, as the hashes of the titles are spread
+        return catalog.reviewShow(user, "review", "Show" + show, CLASSIFICATIONS[(show + client.id) % 5]);
+    }
+
+    @Benchmark
+    public int showsByYear(Client client) {
+        return count(catalog.getShowsByYear(1970 + client.reviews++ % YEARS));
+    }
+
+    @Benchmark
+    public int showsByGenre(Client client) {
+        int genre = client.reviews++ % GENRES.length;
+        return count(catalog.getShowsByGenre(List.of(GENRES[genre], GENRES[(genre + 1) % GENRES.length]).iterator()));
+    }
+
+    /**
+     * Counts the shows of a query, so that every one of them is read
+     *
+     * @param shows iterator of the shows
+     * @return the number of shows
+     */
+    private static int count(Iterator<Show> shows) {
+        int count = 0;
+        while (shows.hasNext()) {
+            shows.next();
+            count++;
+        }
+        return count;
+    }
+}
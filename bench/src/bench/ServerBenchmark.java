@@ -0,0 +1,261 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the throughput and the latency, up to the 99th percentile, of the commands served by the app
+ * running as a server in a process of its own, to many local clients at the same time, each one on its own
+ * connection, over TCP or a Unix-domain socket. Each operation is a round trip of a batch of reviews,
+ * sent at once when pipelined, so one review per operation measures the latency of a single command.
+ * The number of clients is the number of threads, which can be changed with -t
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerBenchmark {
+
+    private static final String ADMIN = "admin";
+    private static final String PASSWORD = "1234";
+    private static final String SERVING = "Serving on ";
+    private static final String UNIX = "unix:";
+    private static final String TCP = "tcp:";
+    private static final int SHOWS = 1000;
+    private static final long STOP_TIMEOUT = 30;
+
+    /**
+     * Transport of the connections: tcp or unix
+     */
+    @Param({"tcp", "unix"})
+    private String transport;
+
+    /**
+     * Number of reviews sent at once in each operation
+     */
+    @Param({"1", "16"})
+    private int pipeline;
+
+    /**
+     * Process of the server
+     */
+    private Process server;
+
+    /**
+     * Address the server listens on
+     */
+    private String address;
+
+    /**
+     * Socket file of a Unix-domain server, null for TCP
+     */
+    private Path socketFile;
+
+    /**
+     * Number of clients connected so far, from which each one gets its own users
+     */
+    private final AtomicInteger clients = new AtomicInteger();
+
+    /**
+     * Starts the server and uploads the shows that the clients review
+     *
+     * @throws Exception if the server can not be started
+     */
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        String listen = TCP + "0";
+        if (transport.equals("unix")) {
+            socketFile = Files.createTempDirectory("cinereviews").resolve("server.sock");
+            listen = UNIX + socketFile;
+        }
+        server = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), "Main", "serve", listen)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String line = new BufferedReader(new InputStreamReader(server.getInputStream())).readLine();
+        if (line == null || !line.startsWith(SERVING)) throw new IllegalStateException("server did not start: " + line);
+        address = line.substring(SERVING.length(), line.length() - 1);
+
+        try (Connection setup = new Connection(address)) {
+            StringBuilder commands = new StringBuilder("register admin " + ADMIN + " " + PASSWORD + "\n");
+            for (int i = 0; i < SHOWS; i++)
+                commands.append("movie ").append(ADMIN).append(' ').append(PASSWORD).append("\nShow").append(i)
+                        .append("\nDirector").append(i).append("\n120\n12+\n2000\n1\nDrama\n1\nActor").append(i)
+                        .append('\n');
+            setup.send(commands);
+            setup.skipLines(SHOWS + 1);
+        }
+    }
+
+    /**
+     * Stops the server through its console
+     *
+     * @throws Exception if the server does not stop
+     */
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception {
+        try (OutputStream console = server.getOutputStream()) {
+            console.write("exit\n".getBytes());
+        }
+        if (!server.waitFor(STOP_TIMEOUT, TimeUnit.SECONDS))
+            server.destroyForcibly();
+        if (socketFile != null) {
+            Files.deleteIfExists(socketFile);
+            Files.deleteIfExists(socketFile.getParent());
+        }
+    }
+
+    /**
+     * Connection of a client, with the user it reviews as and the next show it reviews
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        /**
+         * Connection to the server
+         */
+        private Connection connection;
+
+        /**
+         * Number of the client
+         */
+        private int id;
+
+        /**
+         * Number of reviews made by the client, each user of the client reviewing every show once
+         */
+        private int reviews;
+
+        /**
+         * Connects to the server
+         *
+         * @param benchmark state of the server
+         * @throws IOException if the client can not connect
+         */
+        @Setup(Level.Trial)
+        public void connect(ServerBenchmark benchmark) throws IOException {
+            connection = new Connection(benchmark.address);
+            id = benchmark.clients.getAndIncrement();
+        }
+
+        /**
+         * Ends the session of the client
+         *
+         * @throws IOException if the connection can not be closed
+         */
+        @TearDown(Level.Trial)
+        public void disconnect() throws IOException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public int reviews(Client client) throws IOException {
+        StringBuilder commands = new StringBuilder();
+        int lines = pipeline;
+        for (int i = 0; i < pipeline; i++, client.reviews++) {
+            String user = "User" + client.id + "_" + client.reviews / SHOWS;
+            if (client.reviews % SHOWS == 0) {
+                commands.append("register audience ").append(user).append('\n');
+                lines++;
+            }
+            commands.append("review ").append(user).append(" Show").append(client.reviews % SHOWS)
+                    .append("\nreview\ngood\n");
+        }
+        client.connection.send(commands);
+        return client.connection.skipLines(lines);
+    }
+
+    /**
+     * Connection to the server, over TCP or a Unix-domain socket
+     */
+    private static class Connection implements AutoCloseable {
+
+        /**
+         * Channel of the connection
+         */
+        private final SocketChannel channel;
+
+        /**
+         * Writer of the commands
+         */
+        private final Writer out;
+
+        /**
+         * Reader of the output
+         */
+        private final BufferedReader in;
+
+        /**
+         * Connects to the server
+         *
+         * @param address address of the server, as tcp:host:port or unix:path
+         * @throws IOException if the server can not be reached
+         */
+        Connection(String address) throws IOException {
+            if (address.startsWith(UNIX)) {
+                channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+                channel.connect(UnixDomainSocketAddress.of(address.substring(UNIX.length())));
+            } else {
+                int separator = address.lastIndexOf(':');
+                channel = SocketChannel.open(new InetSocketAddress(address.substring(TCP.length(), separator),
+                        Integer.parseInt(address.substring(separator + 1))));
+            }
+            out = Channels.newWriter(channel, Charset.defaultCharset());
+            in = new BufferedReader(Channels.newReader(channel, Charset.defaultCharset()));
+        }
+
+        /**
+         * Sends commands at once
+         *
+         * @param commands commands to send
+         * @throws IOException if the commands can not be sent
+         */
+        void send(CharSequence commands) throws IOException {
+            out.append(commands);
+            out.flush();
+        }
+
+        /**
+         * Reads lines of output
+         *
+         * @param lines number of lines to read
+         * @return total length of the lines
+         * @throws IOException if the server closed the connection before writing them
+         */
+        int skipLines(int lines) throws IOException {
+            int length = 0;
+            for (int i = 0; i < lines; i++) {
+                String line = in.readLine();
+                if (line == null) throw new IOException("server closed the connection");
+                length += line.length();
+            }
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            send("exit\n");
+            channel.close();
+        }
+    }
+}
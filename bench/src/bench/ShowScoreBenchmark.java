@@ -0,0 +1,152 @@
+package bench;
+
+import artist.Artist;
+import artist.ArtistClass;
+import artist.BestFriendsIndex;
+import org.openjdk.jmh.annotations.*;
+import review.Review;
+import review.ReviewClass;
+import show.MovieClass;
+import show.Show;
+import show.comparators.ShowComparatorByScore;
+import user.AudienceUserClass;
+import user.CriticUserClass;
+import user.OrdinaryUser;
+import util.Classification;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the score of a show kept as running sums with the score recomputed from every review,
+ * as it was done before, both read alone and through the sorting of the shows by score
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShowScoreBenchmark {
+
+    private static final String[] CLASSIFICATIONS = {"excellent", "good", "average", "poor", "terrible"};
+    private static final long SEED = 42;
+
+    /**
+     * Number of shows in the catalog
+     */
+    @Param({"1000"})
+    private int shows;
+
+    /**
+     * Number of reviews of each show
+     */
+    @Param({"1", "10", "100"})
+    private int reviewsPerShow;
+
+    /**
+     * Catalog of shows with their reviews
+     */
+    private List<Show> catalog;
+
+    /**
+     * Builds the catalog, with a critic for every fifth review
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        BestFriendsIndex bestFriends = new BestFriendsIndex();
+        Artist director = new ArtistClass(0, "Director", bestFriends);
+        List<OrdinaryUser> users = new ArrayList<>();
+        for (int i = 0; i < reviewsPerShow; i++)
+            users.add(i % 5 == 0 ? new CriticUserClass("User" + i) : new AudienceUserClass("User" + i));
+
+        catalog = new ArrayList<>();
+        for (int i = 0; i < shows; i++) {
+            Show show = new MovieClass("Show" + i, director, 120, "12+", 1950 + random.nextInt(75),
+                    List.of("Drama").iterator(), Collections.emptyIterator());
+            for (OrdinaryUser user : users)
+                show.addReview(new ReviewClass(user, "review",
+                        CLASSIFICATIONS[random.nextInt(CLASSIFICATIONS.length)]));
+            catalog.add(show);
+        }
+    }
+
+    @Benchmark
+    public float incrementalScore() {
+        float total = 0;
+        for (Show show : catalog)
+            total += show.getScore();
+        return total;
+    }
+
+    @Benchmark
+    public float recomputedScore() {
+        float total = 0;
+        for (Show show : catalog)
+            total += recomputeScore(show);
+        return total;
+    }
+
+    @Benchmark
+    public Set<Show> sortByIncrementalScore() {
+        Set<Show> sorted = new TreeSet<>(new ShowComparatorByScore());
+        sorted.addAll(catalog);
+        return sorted;
+    }
+
+    @Benchmark
+    public Set<Show> sortByRecomputedScore() {
+        Set<Show> sorted = new TreeSet<>(new RecomputedScoreComparator());
+        sorted.addAll(catalog);
+        return sorted;
+    }
+
+    /**
+     * Computes the score of a show the way AbstractShow did before keeping running sums:
+     * every review is visited and its classification is parsed again
+     *
+     * @param show show to score
+     * @return the score of the show, rounded to one decimal place
+     */
+    private static float recomputeScore(Show show) {
+        Iterator<Review> reviews = show.getReviews();
+        if (!reviews.hasNext()) return 0;
+
+        float totalscore = 0;
+        int divider = 0;
+        while (reviews.hasNext()) {
+            Review review = reviews.next();
+            int multiplier = 1;
+            if (review.madeByCritic())
+                multiplier = 5;
+            totalscore += Classification.valueOf(review.getClassification().toUpperCase()).getValue() * multiplier;
+            divider += multiplier;
+        }
+        totalscore = totalscore / divider;
+        totalscore = (float) Math.round(totalscore * 10) / 10;
+        return totalscore;
+    }
+
+    /**
+     * ShowComparatorByScore with the score recomputed on every comparison
+     */
+    private static class RecomputedScoreComparator implements Comparator<Show> {
+
+        @Override
+        public int compare(Show o1, Show o2) {
+            float s1 = recomputeScore(o1);
+            float s2 = recomputeScore(o2);
+            if (s1 == s2) {
+                if (o1.getYearOfRelease() == o2.getYearOfRelease())
+                    return o1.getTitle().compareTo(o2.getTitle());
+                else
+                    return o2.getYearOfRelease() - o1.getYearOfRelease();
+            } else {
+                return s1 > s2 ? -1 : 1;
+            }
+        }
+    }
+}
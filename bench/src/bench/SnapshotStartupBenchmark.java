@@ -0,0 +1,166 @@
+package bench;
+
+import cinereviews.CineReviews;
+import cinereviews.CineReviewsClass;
+import show.Show;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the startup of the application from a binary snapshot with the replay of every command
+ * that built the same catalog, which was the only way to restart before the snapshots.
+ * A snapshot is either loaded entirely or opened, mapping the file and reading only what the first query uses
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotStartupBenchmark {
+
+    private static final String[] CLASSIFICATIONS = {"excellent", "good", "average", "poor", "terrible"};
+    private static final String[] GENRES = {"Drama", "Comedy", "Horror", "Action", "Sci-Fi", "Crime"};
+    private static final String ADMIN = "admin";
+    private static final String PASSWORD = "1234";
+    private static final int CAST_SIZE = 6;
+    private static final int REVIEWS_PER_SHOW = 5;
+    private static final int USERS = 200;
+    private static final long SEED = 42;
+
+    /**
+     * Number of shows in the catalog
+     */
+    @Param({"1000", "10000"})
+    private int shows;
+
+    /**
+     * Number of distinct artists the casts are drawn from
+     */
+    @Param({"2000"})
+    private int artists;
+
+    /**
+     * Cast of each show, as names
+     */
+    private List<List<String>> casts;
+
+    /**
+     * Director of each show
+     */
+    private String[] directors;
+
+    /**
+     * Release year of each show
+     */
+    private int[] years;
+
+    /**
+     * Reviewers and classification of each review, REVIEWS_PER_SHOW per show
+     */
+    private int[] reviewers;
+
+    /**
+     * Classification of each review
+     */
+    private String[] classifications;
+
+    /**
+     * Snapshot of the catalog
+     */
+    private Path snapshot;
+
+    /**
+     * Generates the commands of the catalog and saves the catalog they build
+     *
+     * @throws Exception if the snapshot can not be saved
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Random random = new Random(SEED);
+        casts = new ArrayList<>();
+        directors = new String[shows];
+        years = new int[shows];
+        reviewers = new int[shows * REVIEWS_PER_SHOW];
+        classifications = new String[shows * REVIEWS_PER_SHOW];
+        for (int i = 0; i < shows; i++) {
+            List<String> cast = new ArrayList<>();
+            for (int j = 0; j < CAST_SIZE; j++)
+                cast.add("Artist" + random.nextInt(artists));
+            casts.add(cast);
+            directors[i] = "Artist" + random.nextInt(artists);
+            years[i] = 1950 + random.nextInt(75);
+            for (int j = 0; j < REVIEWS_PER_SHOW; j++) {
+                reviewers[i * REVIEWS_PER_SHOW + j] = (random.nextInt(USERS / REVIEWS_PER_SHOW) * REVIEWS_PER_SHOW) + j;
+                classifications[i * REVIEWS_PER_SHOW + j] = CLASSIFICATIONS[random.nextInt(CLASSIFICATIONS.length)];
+            }
+        }
+        snapshot = Files.createTempFile("catalog", ".snapshot");
+        replay().saveSnapshot(snapshot.toString());
+    }
+
+    /**
+     * Deletes the snapshot
+     *
+     * @throws IOException if the snapshot can not be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public CineReviews replayCommands() throws Exception {
+        return replay();
+    }
+
+    @Benchmark
+    public CineReviews loadSnapshot() throws Exception {
+        return CineReviewsClass.loadSnapshot(snapshot.toString());
+    }
+
+    @Benchmark
+    public CineReviews openSnapshot() throws Exception {
+        return CineReviewsClass.openSnapshot(snapshot.toString());
+    }
+
+    @Benchmark
+    public Show openSnapshotAndQuery() throws Exception {
+        CineReviews cine = CineReviewsClass.openSnapshot(snapshot.toString());
+        cine.getReviewsOfShow("Show" + (shows / 2)).forEachRemaining(review -> { });
+        return cine.getArtistCredits(directors[shows / 2]).next();
+    }
+
+    /**
+     * Builds the catalog through the same operations as the commands that created it
+     *
+     * @return the catalog
+     * @throws Exception never, the generated commands are all valid
+     */
+    private CineReviews replay() throws Exception {
+        CineReviews cine = new CineReviewsClass();
+        cine.registerUser(ADMIN, ADMIN, PASSWORD);
+        for (int u = 0; u < USERS; u++)
+            cine.registerUser(u % 5 == 0 ? "critic" : "audience", "User" + u, null);
+        for (int i = 0; i < shows; i++) {
+            List<String> genres = List.of(GENRES[i % GENRES.length], GENRES[(i / GENRES.length) % GENRES.length]);
+            if (i % 2 == 0)
+                cine.addMovie(ADMIN, PASSWORD, "Show" + i, directors[i], 120, "12+", years[i],
+                        genres.iterator(), casts.get(i).iterator());
+            else
+                cine.addSeries(ADMIN, PASSWORD, "Show" + i, directors[i], 3, "16+", years[i],
+                        genres.iterator(), casts.get(i).iterator());
+            for (int j = 0; j < REVIEWS_PER_SHOW; j++)
+                cine.reviewShow("User" + reviewers[i * REVIEWS_PER_SHOW + j], "review", "Show" + i,
+                        classifications[i * REVIEWS_PER_SHOW + j]);
+        }
+        return cine;
+    }
+}
@@ -0,0 +1,603 @@
+package bench;
+
+import util.Command;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generator of command streams in the grammar of Main, for workloads far larger than the test files.
+ * The same settings and seed always write the same stream, which is written as it is generated, so streams of
+ * millions of commands take no memory. The shows reviewed and queried follow a Zipf distribution, the oldest shows
+ * being the most popular, the casts are drawn from clusters of artists that tend to work together, and the sizes of
+ * the casts and the share of critics among the users can be changed, as can the mix of commands.
+ * Every command is valid, except for reviews of a show a user already reviewed, which are more frequent the more
+ * skewed the popularity is and the fewer users there are, about one in seven with the defaults.
+ * The output of the searches by genre and year of release grows with the catalog, so their weights are best lowered
+ * for replays of millions of commands. It can be run with settings as key=value arguments, such as
+ * {@code java bench.WorkloadGenerator commands=1000000 zipfExponent=1.2 out=workload.txt}, and the stream
+ * then replayed with {@code java Main < workload.txt} or sent to a server
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class WorkloadGenerator {
+
+    /**
+     * Distribution of the sizes of the casts around their mean
+     */
+    public enum CastSizes {
+        FIXED, UNIFORM, POISSON, GEOMETRIC
+    }
+
+    private static final String[] GENRES = {"Drama", "Comedy", "Action", "Thriller", "Horror", "Romance", "Sci-Fi",
+            "Crime", "Documentary", "Animation", "Fantasy", "Western"};
+    private static final String[] CERTIFICATIONS = {"G", "PG", "12+", "16+", "18+"};
+    private static final String[] CLASSIFICATIONS = {"excellent", "good", "average", "poor", "terrible"};
+    private static final String[] PLACES = {"Lisbon, Portugal", "London, UK", "Paris, France", "Seoul, South Korea",
+            "Los Angeles, USA", "Mumbai, India", "Lagos, Nigeria", "Mexico City, Mexico"};
+    private static final String PASSWORD = "pw";
+    private static final int FIRST_YEAR = 1950;
+    private static final int YEARS = 75;
+    private static final int DECADE = 10;
+    private static final int MAX_GENRES = 3;
+    private static final int TOP_AMOUNT = 10;
+
+    /**
+     * Seed of the random source
+     */
+    private long seed = 42;
+
+    /**
+     * Number of commands to write, before the final exit
+     */
+    private long commands = 100_000;
+
+    /**
+     * Number of admins, which are registered first and upload the shows
+     */
+    private int admins = 5;
+
+    /**
+     * Number of distinct artists the casts and directors are drawn from
+     */
+    private int artists = 10_000;
+
+    /**
+     * Share of critics among the users that review
+     */
+    private double criticRatio = 0.2;
+
+    /**
+     * Exponent of the Zipf distribution of the popularity of the shows, 0 for a uniform one
+     */
+    private double zipfExponent = 1.0;
+
+    /**
+     * Distribution of the sizes of the casts
+     */
+    private CastSizes castSizes = CastSizes.POISSON;
+
+    /**
+     * Mean size of the casts
+     */
+    private double meanCastSize = 6;
+
+    /**
+     * Largest size of a cast
+     */
+    private int maxCastSize = 40;
+
+    /**
+     * Number of artists in each cluster of artists that tend to work together
+     */
+    private int clusterSize = 50;
+
+    /**
+     * Probability of each artist of a show being drawn from the cluster of the show instead of from every artist
+     */
+    private double clustering = 0.8;
+
+    /**
+     * Time budget of the avoiders commands, in milliseconds, as the exact search does not end on large catalogs
+     */
+    private int avoidersBudget = 100;
+
+    /**
+     * Relative weight of each command in the stream
+     */
+    private final Map<Command, Double> weights;
+
+    /**
+     * Random source of the stream
+     */
+    private Random random;
+
+    /**
+     * Number of ordinary users registered so far
+     */
+    private long users;
+
+    /**
+     * Number of shows uploaded so far
+     */
+    private long shows;
+
+    /**
+     * Creates a generator with the default settings and mix of commands, mostly reviews and queries of the shows
+     */
+    public WorkloadGenerator() {
+        weights = new EnumMap<>(Command.class);
+        weights.put(Command.REVIEW, 60.0);
+        weights.put(Command.REVIEWS, 8.0);
+        weights.put(Command.GENRE, 6.0);
+        weights.put(Command.RELEASED, 6.0);
+        weights.put(Command.REGISTER, 5.0);
+        weights.put(Command.MOVIE, 3.0);
+        weights.put(Command.SERIES, 2.0);
+        weights.put(Command.CREDITS, 3.0);
+        weights.put(Command.ARTIST, 2.0);
+        weights.put(Command.FRIENDS, 2.0);
+        weights.put(Command.USERS, 0.01);
+        weights.put(Command.SHOWS, 0.01);
+        weights.put(Command.AVOIDERS, 0.001);
+    }
+
+    /**
+     * Writes a stream to a file, or to the standard output, with the settings given as key=value arguments,
+     * whose keys are the names of the setters, as well as weight.command for the weight of a command
+     * and out for the file
+     *
+     * @param args settings of the stream
+     * @throws IOException if the stream can not be written
+     */
+    public static void main(String[] args) throws IOException {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        String file = null;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) throw new IllegalArgumentException("expected key=value: " + arg);
+            String key = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            if (key.equals("out")) file = value;
+            else generator.set(key, value);
+        }
+        try (Writer out = file == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), 1 << 16)
+                : Files.newBufferedWriter(Path.of(file))) {
+            generator.generate(out);
+        }
+    }
+
+    /**
+     * Sets the seed of the random source
+     *
+     * @param seed seed of the stream
+     * @return this generator
+     */
+    public WorkloadGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets the number of commands to write, before the final exit
+     *
+     * @param commands number of commands
+     * @return this generator
+     */
+    public WorkloadGenerator commands(long commands) {
+        this.commands = commands;
+        return this;
+    }
+
+    /**
+     * Sets the number of admins
+     *
+     * @param admins number of admins, at least 1
+     * @return this generator
+     */
+    public WorkloadGenerator admins(int admins) {
+        this.admins = Math.max(1, admins);
+        return this;
+    }
+
+    /**
+     * Sets the number of distinct artists
+     *
+     * @param artists number of artists, at least 1
+     * @return this generator
+     */
+    public WorkloadGenerator artists(int artists) {
+        this.artists = Math.max(1, artists);
+        return this;
+    }
+
+    /**
+     * Sets the share of critics among the users
+     *
+     * @param criticRatio share of critics, from 0 to 1
+     * @return this generator
+     */
+    public WorkloadGenerator criticRatio(double criticRatio) {
+        this.criticRatio = criticRatio;
+        return this;
+    }
+
+    /**
+     * Sets the exponent of the Zipf distribution of the popularity of the shows
+     *
+     * @param zipfExponent exponent, 0 for a uniform popularity and larger for a more skewed one
+     * @return this generator
+     */
+    public WorkloadGenerator zipfExponent(double zipfExponent) {
+        this.zipfExponent = zipfExponent;
+        return this;
+    }
+
+    /**
+     * Sets the distribution of the sizes of the casts
+     *
+     * @param castSizes distribution of the sizes
+     * @return this generator
+     */
+    public WorkloadGenerator castSizes(CastSizes castSizes) {
+        this.castSizes = castSizes;
+        return this;
+    }
+
+    /**
+     * Sets the mean size of the casts
+     *
+     * @param meanCastSize mean size
+     * @return this generator
+     */
+    public WorkloadGenerator meanCastSize(double meanCastSize) {
+        this.meanCastSize = meanCastSize;
+        return this;
+    }
+
+    /**
+     * Sets the largest size of a cast
+     *
+     * @param maxCastSize largest size
+     * @return this generator
+     */
+    public WorkloadGenerator maxCastSize(int maxCastSize) {
+        this.maxCastSize = maxCastSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of artists in each cluster of artists that tend to work together
+     *
+     * @param clusterSize number of artists of a cluster, at least 1
+     * @return this generator
+     */
+    public WorkloadGenerator clusterSize(int clusterSize) {
+        this.clusterSize = Math.max(1, clusterSize);
+        return this;
+    }
+
+    /**
+     * Sets how much the artists of a show come from its cluster
+     *
+     * @param clustering probability of each artist being drawn from the cluster of the show, from 0 to 1
+     * @return this generator
+     */
+    public WorkloadGenerator clustering(double clustering) {
+        this.clustering = clustering;
+        return this;
+    }
+
+    /**
+     * Sets the time budget of the avoiders commands
+     *
+     * @param avoidersBudget time budget, in milliseconds, or 0 for the exact search
+     * @return this generator
+     */
+    public WorkloadGenerator avoidersBudget(int avoidersBudget) {
+        this.avoidersBudget = avoidersBudget;
+        return this;
+    }
+
+    /**
+     * Sets the relative weight of a command in the stream
+     *
+     * @param command command of the app
+     * @param weight  relative weight, 0 to leave the command out
+     * @return this generator
+     */
+    public WorkloadGenerator weight(Command command, double weight) {
+        weights.put(command, weight);
+        return this;
+    }
+
+    /**
+     * Sets a setting by its name, as given to main
+     *
+     * @param key   name of the setter, or weight.command
+     * @param value value of the setting
+     */
+    public void set(String key, String value) {
+        if (key.startsWith("weight.")) {
+            weight(Command.valueOf(key.substring("weight.".length()).toUpperCase()), Double.parseDouble(value));
+            return;
+        }
+        switch (key) {
+            case "seed" -> seed(Long.parseLong(value));
+            case "commands" -> commands(Long.parseLong(value));
+            case "admins" -> admins(Integer.parseInt(value));
+            case "artists" -> artists(Integer.parseInt(value));
+            case "criticRatio" -> criticRatio(Double.parseDouble(value));
+            case "zipfExponent" -> zipfExponent(Double.parseDouble(value));
+            case "castSizes" -> castSizes(CastSizes.valueOf(value.toUpperCase()));
+            case "meanCastSize" -> meanCastSize(Double.parseDouble(value));
+            case "maxCastSize" -> maxCastSize(Integer.parseInt(value));
+            case "clusterSize" -> clusterSize(Integer.parseInt(value));
+            case "clustering" -> clustering(Double.parseDouble(value));
+            case "avoidersBudget" -> avoidersBudget(Integer.parseInt(value));
+            default -> throw new IllegalArgumentException("unknown setting: " + key);
+        }
+    }
+
+    /**
+     * Writes the stream: the admins first, then the commands drawn from the mix, and exit.
+     * A review or query drawn before there is anything for it to use adds a user or a show instead
+     *
+     * @param out where the stream is written
+     * @throws IOException if the stream can not be written
+     */
+    public void generate(Appendable out) throws IOException {
+        random = new Random(seed);
+        users = 0;
+        shows = 0;
+        Command[] mix = weights.keySet().toArray(new Command[0]);
+        double[] cumulative = new double[mix.length];
+        double total = 0;
+        for (int i = 0; i < mix.length; i++)
+            cumulative[i] = total += Math.max(0, weights.get(mix[i]));
+
+        long written = 0;
+        for (int a = 0; a < admins && written < commands; a++, written++)
+            out.append("register admin Admin").append(String.valueOf(a)).append(' ').append(PASSWORD)
+                    .append(String.valueOf(a)).append('\n');
+        for (; written < commands; written++)
+            write(draw(mix, cumulative, total), out);
+        out.append("exit\n");
+    }
+
+    /**
+     * Draws the next command from the mix
+     *
+     * @param mix        commands of the mix
+     * @param cumulative cumulative weights of the commands
+     * @param total      sum of the weights
+     * @return the command
+     */
+    private Command draw(Command[] mix, double[] cumulative, double total) {
+        double point = random.nextDouble() * total;
+        for (int i = 0; i < mix.length; i++)
+            if (point < cumulative[i]) return mix[i];
+        return Command.REVIEW;
+    }
+
+    /**
+     * Writes a command with its arguments, or the user or show it needs first
+     *
+     * @param command command to write
+     * @param out     where the stream is written
+     * @throws IOException if the stream can not be written
+     */
+    private void write(Command command, Appendable out) throws IOException {
+        boolean needsShow = command == Command.REVIEW || command == Command.REVIEWS;
+        if (command == Command.REVIEW && users == 0) command = Command.REGISTER;
+        else if (needsShow && shows == 0) command = Command.MOVIE;
+        switch (command) {
+            case REGISTER -> writeRegister(out);
+            case MOVIE -> writeShow(true, out);
+            case SERIES -> writeShow(false, out);
+            case ARTIST -> out.append("artist ").append(randomArtist()).append('\n')
+                    .append(String.format("%02d-%02d-%d", 1 + random.nextInt(28), 1 + random.nextInt(12),
+                            FIRST_YEAR - 30 + random.nextInt(YEARS)))
+                    .append('\n').append(PLACES[random.nextInt(PLACES.length)]).append('\n');
+            case CREDITS -> out.append("credits ").append(randomArtist()).append('\n');
+            case REVIEW -> writeReview(out);
+            case REVIEWS -> out.append("reviews ").append(popularShow()).append('\n');
+            case GENRE -> writeGenre(out);
+            case RELEASED -> writeReleased(out);
+            case FRIENDS -> writeFriends(out);
+            case AVOIDERS -> out.append(avoidersBudget > 0 ? "avoiders " + avoidersBudget + "\n" : "avoiders\n");
+            default -> out.append(command.name().toLowerCase()).append('\n');
+        }
+    }
+
+    /**
+     * Writes the registration of a new critic or audience user
+     *
+     * @param out where the stream is written
+     * @throws IOException if the stream can not be written
+     */
+    private void writeRegister(Appendable out) throws IOException {
+        String type = random.nextDouble() < criticRatio ? "critic" : "audience";
+        out.append("register ").append(type).append(" User").append(String.valueOf(users++)).append('\n');
+    }
+
+    /**
+     * Writes the upload of a new show by a random admin. The director and the cast are different artists,
+     * so the cast is never larger than the other artists
+     *
+     * @param movie true for a movie, false for a series
+     * @param out   where the stream is written
+     * @throws IOException if the stream can not be written
+     */
+    private void writeShow(boolean movie, Appendable out) throws IOException {
+        int admin = random.nextInt(admins);
+        int cluster = random.nextInt(Math.max(1, artists / clusterSize));
+        Set<String> taken = new HashSet<>();
+        out.append(movie ? "movie" : "series").append(" Admin").append(String.valueOf(admin)).append(' ')
+                .append(PASSWORD).append(String.valueOf(admin)).append('\n')
+                .append("Show ").append(String.valueOf(shows++)).append('\n')
+                .append(castMember(cluster, taken)).append('\n')
+                .append(String.valueOf(movie ? 80 + random.nextInt(100) : 1 + random.nextInt(10))).append('\n')
+                .append(CERTIFICATIONS[random.nextInt(CERTIFICATIONS.length)]).append('\n')
+                .append(String.valueOf(FIRST_YEAR + random.nextInt(YEARS))).append('\n');
+        int genres = 1 + random.nextInt(MAX_GENRES);
+        out.append(String.valueOf(genres)).append('\n');
+        int firstGenre = random.nextInt(GENRES.length);
+        for (int g = 0; g < genres; g++)
+            out.append(GENRES[(firstGenre + g) % GENRES.length]).append('\n');
+        int castSize = Math.min(castSize(), artists - 1);
+        out.append(String.valueOf(castSize)).append('\n');
+        for (int c = 0; c < castSize; c++)
+            out.append(castMember(cluster, taken)).append('\n');
+    }
+
+    /**
+     * Writes a review of a popular show by a random user
+     *
+     * @param out where the stream is written
+     * @throws IOException if the stream can not be written
+     */
+    private void writeReview(Appendable out) throws IOException {
+        String show = popularShow();
+        String classification = CLASSIFICATIONS[random.nextInt(CLASSIFICATIONS.length)];
+        out.append("review User").append(String.valueOf((long) (random.nextDouble() * users))).append(' ')
+                .append(show).append('\n')
+                .append("The show ").append(show).append(" was ").append(classification).append('\n')
+                .append(classification).append('\n');
+    }
+
+    /**
+     * Writes a search of the shows of one to three genres
+     *
+     * @param out where the stream is written
+     * @throws IOException if the stream can not be written
+     */
+    private void writeGenre(Appendable out) throws IOException {
+        int genres = 1 + random.nextInt(MAX_GENRES);
+        out.append("genre\n").append(String.valueOf(genres)).append('\n');
+        int firstGenre = random.nextInt(GENRES.length);
+        for (int g = 0; g < genres; g++)
+            out.append(GENRES[(firstGenre + g) % GENRES.length]).append('\n');
+    }
+
+    /**
+     * Writes a search of the shows released on a year, a range of years or a decade
+     *
+     * @param out where the stream is written
+     * @throws IOException if the stream can not be written
+     */
+    private void writeReleased(Appendable out) throws IOException {
+        int year = FIRST_YEAR + random.nextInt(YEARS);
+        out.append("released ");
+        switch (random.nextInt(3)) {
+            case 0 -> out.append(String.valueOf(year));
+            case 1 -> out.append(String.valueOf(year)).append('-').append(String.valueOf(year + random.nextInt(DECADE)));
+            default -> out.append(String.valueOf(year - year % DECADE)).append('s');
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Writes a search of the best friends, of the top collaborations or of the top collaborators of an artist
+     *
+     * @param out where the stream is written
+     * @throws IOException if the stream can not be written
+     */
+    private void writeFriends(Appendable out) throws IOException {
+        switch (random.nextInt(3)) {
+            case 0 -> out.append("friends\n");
+            case 1 -> out.append("friends ").append(String.valueOf(1 + random.nextInt(TOP_AMOUNT))).append('\n');
+            default -> out.append("friends ").append(String.valueOf(1 + random.nextInt(TOP_AMOUNT))).append(' ')
+                    .append(randomArtist()).append('\n');
+        }
+    }
+
+    /**
+     * Draws a show uploaded so far by its popularity, which follows a Zipf distribution over the order of upload,
+     * drawn by inverting the distribution of its continuous approximation
+     *
+     * @return the title of the show
+     */
+    private String popularShow() {
+        double u = random.nextDouble();
+        double rank;
+        if (zipfExponent == 0) rank = u * shows;
+        else if (zipfExponent == 1) rank = Math.pow(shows + 1, u) - 1;
+        else {
+            double power = 1 - zipfExponent;
+            rank = Math.pow((Math.pow(shows + 1, power) - 1) * u + 1, 1 / power) - 1;
+        }
+        return "Show " + Math.min(shows - 1, (long) rank);
+    }
+
+    /**
+     * Draws an artist of a show that is not yet in it, from its cluster or from every artist.
+     * An artist drawn again is replaced by one drawn from every artist, so a cluster smaller than the show
+     * can not keep the draw from ending
+     *
+     * @param cluster cluster of the show
+     * @param taken   artists already in the show, to which the artist drawn is added
+     * @return the name of the artist
+     * @pre taken has fewer artists than there are
+     */
+    private String castMember(int cluster, Set<String> taken) {
+        String artist;
+        if (random.nextDouble() >= clustering) artist = randomArtist();
+        else artist = "Artist " + Math.min(cluster * clusterSize + random.nextInt(clusterSize), artists - 1);
+        while (!taken.add(artist))
+            artist = randomArtist();
+        return artist;
+    }
+
+    /**
+     * Draws any artist
+     *
+     * @return the name of the artist
+     */
+    private String randomArtist() {
+        return "Artist " + random.nextInt(artists);
+    }
+
+    /**
+     * Draws the size of a cast from its distribution, between 1 and the largest size
+     *
+     * @return the size of the cast
+     */
+    private int castSize() {
+        int size = switch (castSizes) {
+            case FIXED -> (int) Math.round(meanCastSize);
+            case UNIFORM -> 1 + random.nextInt(Math.max(1, (int) Math.round(2 * meanCastSize - 1)));
+            case POISSON -> poisson(meanCastSize);
+            case GEOMETRIC -> 1 + (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - 1 / Math.max(1, meanCastSize)));
+        };
+        return Math.max(1, Math.min(maxCastSize, size));
+    }
+
+    /**
+     * Draws a number from a Poisson distribution, by multiplying uniform numbers until they fall below e^-mean
+     *
+     * @param mean mean of the distribution
+     * @return the number
+     */
+    private int poisson(double mean) {
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+}
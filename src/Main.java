@@ -1,11 +1,26 @@
 import artist.Artist;
+import artist.ArtistPair;
 import artist.exceptions.AlreadyHasBioException;
 import artist.exceptions.UnknownArtistException;
 import cinereviews.CineReviews;
 import cinereviews.CineReviewsClass;
+import cinereviews.ConcurrentCineReviewsClass;
+import cinereviews.PartitionedCineReviewsClass;
+import cinereviews.avoiders.AvoidersResult;
+import cinereviews.bulk.ImportReport;
+import cinereviews.exceptions.InvalidAddressException;
+import cinereviews.exceptions.InvalidJournalException;
+import cinereviews.exceptions.InvalidSnapshotException;
+import cinereviews.exceptions.JournalFailedException;
 import cinereviews.exceptions.NoArtistException;
 import cinereviews.exceptions.NoCollaborationsException;
+import cinereviews.exceptions.NoJournalException;
+import cinereviews.exceptions.UnreadableFileException;
+import cinereviews.exceptions.UnwritableFileException;
+import cinereviews.journal.FsyncPolicy;
+import cinereviews.server.CommandServer;
 import review.Review;
+import review.exceptions.InvalidClassificationException;
 import review.exceptions.UserAlreadyReviewedException;
 import show.Movie;
 import show.Series;
@@ -17,7 +32,15 @@ import user.OrdinaryUser;
 import user.User;
 import user.exceptions.*;
 import util.Command;
+import util.CommandReader;
+import util.OutputRenderer;
+import util.OutputRenderer.Template;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
 import java.util.*;
 
 /**
@@ -34,189 +57,470 @@ public class Main {
 
     // Constant Message
     private static final String BYE = "Bye!";
-    private static final String LIST_COMMAND = "%s - %s\n";
+    private static final Template LIST_COMMAND = Template.of("%s - %s\n");
     private static final String UNKNOWN_COMMAND = "Unknown command. Type help to see available commands.";
+    private static final String MALFORMED_COMMAND = "Malformed command, a number was expected!";
     private static final String UNKNOWN_USER_TYPE = "Unknown user type!";
-    private static final String USER_ALREADY_EXISTS = "User %s already exists!\n";
-    private static final String USER_REGISTERED = "User %s was registered as %s.\n";
-    private static final String LIST_ADMIN = "Admin %s has uploaded %d shows\n";
-    private static final String LIST_ORDINARY = "User %s has posted %d reviews\n";
+    private static final Template USER_ALREADY_EXISTS = Template.of("User %s already exists!\n");
+    private static final Template USER_REGISTERED = Template.of("User %s was registered as %s.\n");
+    private static final Template LIST_ADMIN = Template.of("Admin %s has uploaded %d shows\n");
+    private static final Template LIST_ORDINARY = Template.of("User %s has posted %d reviews\n");
     private static final String NO_USERS = "No users registered.";
-    private static final String NOT_AN_ADMIN = "Admin %s does not exist!\n";
+    private static final Template NOT_AN_ADMIN = Template.of("Admin %s does not exist!\n");
     private static final String WRONG_PASSWORD = "Invalid authentication!";
-    private static final String SHOW_ALREADY_EXISTS = "Show %s already exists!\n";
-    private static final String MOVIE_ADDED = "Movie %s (%d) was uploaded [%d new artists were created].\n";
-    private static final String SERIES_ADDED = "Series %s (%d) was uploaded [%d new artists were created].\n";
+    private static final Template SHOW_ALREADY_EXISTS = Template.of("Show %s already exists!\n");
+    private static final Template MOVIE_ADDED = Template.of("Movie %s (%d) was uploaded [%d new artists were created].\n");
+    private static final Template SERIES_ADDED = Template.of("Series %s (%d) was uploaded [%d new artists were created].\n");
     private static final String ALL_USERS = "All registered users:";
     private static final String ALL_SHOWS = "All shows:";
     private static final String NO_SHOWS = "No shows have been uploaded.";
-    private static final String ALREADY_HAS_BIO = "Bio of %s is already available!\n";
-    private static final String BIO_CREATED = "%s bio was created.\n";
-    private static final String BIO_UPDATED = "%s bio was updated.\n";
-    private static final String UNKNOWN_ARTIST = "No information about %s!\n";
-    private static final String SHOW_CREDIT = "%s; %d; %s [%s]\n";
-    private static final String ADMIN_CANT_REVIEW = "Admin %s cannot review shows!\n";
-    private static final String ALREADY_REVIEWED = "%s has already reviewed %s!\n";
-    private static final String REVIEW_REGISTERED = "Review for %s was registered [%d reviews].\n";
-    private static final String UNKNOWN_SHOW = "Show %s does not exist!\n";
-    private static final String UNKNOWN_USER = "User %s does not exist!\n";
-    private static final String SHOW_HAS_NO_REVIEWS = "Show %s has no reviews.\n";
-    private static final String REVIEWS_OF = "Reviews of %s [%.1f]:\n";
-    private static final String REVIEW_OF_USER = "Review of %s (%s): %s [%s]\n";
+    private static final Template ALREADY_HAS_BIO = Template.of("Bio of %s is already available!\n");
+    private static final Template BIO_CREATED = Template.of("%s bio was created.\n");
+    private static final Template BIO_UPDATED = Template.of("%s bio was updated.\n");
+    private static final Template UNKNOWN_ARTIST = Template.of("No information about %s!\n");
+    private static final Template SHOW_CREDIT = Template.of("%s; %d; %s [%s]\n");
+    private static final Template ADMIN_CANT_REVIEW = Template.of("Admin %s cannot review shows!\n");
+    private static final Template ALREADY_REVIEWED = Template.of("%s has already reviewed %s!\n");
+    private static final Template INVALID_CLASSIFICATION = Template.of("%s is not a valid classification!\n");
+    private static final Template REVIEW_REGISTERED = Template.of("Review for %s was registered [%d reviews].\n");
+    private static final Template UNKNOWN_SHOW = Template.of("Show %s does not exist!\n");
+    private static final Template UNKNOWN_USER = Template.of("User %s does not exist!\n");
+    private static final Template SHOW_HAS_NO_REVIEWS = Template.of("Show %s has no reviews.\n");
+    private static final Template REVIEWS_OF = Template.of("Reviews of %s [%.1f]:\n");
+    private static final Template REVIEW_OF_USER = Template.of("Review of %s (%s): %s [%s]\n");
     private static final String NO_SHOWS_IN_YEAR = "No show was found within the criteria.";
-    private static final String RELEASED_HEADER = "Shows released on %d:\n";
-    private static final String RELEASED_MOVIE = "Movie %s by %s released on %d [%.1f]\n";
-    private static final String RELEASED_SERIES = "Series %s by %s released on %d [%.1f]\n";
+    private static final Template RELEASED_HEADER = Template.of("Shows released on %d:\n");
+    private static final Template RELEASED_RANGE_HEADER = Template.of("Shows released between %d and %d:\n");
+    private static final Template RELEASED_DECADE_HEADER = Template.of("Shows released in the %ds:\n");
+    private static final String DECADE_SUFFIX = "s";
+    private static final char RANGE_SEPARATOR = '-';
+    private static final int DECADE_LENGTH = 10;
+    private static final Template INVALID_YEARS = Template.of("%s is not a valid year, range or decade!\n");
+    private static final Template RELEASED_MOVIE = Template.of("Movie %s by %s released on %d [%.1f]\n");
+    private static final Template RELEASED_SERIES = Template.of("Series %s by %s released on %d [%.1f]\n");
     private static final String NO_ARTISTS = "No artists yet!";
-    private static final String NO_COLLABORATIONS = "No collaborations yet!\n";
-    private static final String FRIENDS_HEADER = "These artists have worked on %d projects together:\n";
-    private static final String FRIENDS_PRINTER = "%s and %s\n";
+    private static final Template NO_COLLABORATIONS = Template.of("No collaborations yet!\n");
+    private static final Template FRIENDS_HEADER = Template.of("These artists have worked on %d projects together:\n");
+    private static final Template FRIENDS_PRINTER = Template.of("%s and %s\n");
+    private static final String TOP_COLLABORATIONS = "Artists that have worked together the most:";
+    private static final Template TOP_COLLABORATION_PRINTER = Template.of("%s and %s [%d]\n");
+    private static final Template TOP_COLLABORATORS = Template.of("Artists that have worked the most with %s:\n");
+    private static final Template TOP_COLLABORATOR_PRINTER = Template.of("%s [%d]\n");
+    private static final Template NO_COLLABORATIONS_OF = Template.of("%s has not worked with anyone yet!\n");
     private static final String NO_SHOWS_WITH_CRITERIA = "No show was found within the criteria.";
     private static final String SHOWS_BY_GENRE = "Search by genre:";
     private static final String SMALL_WORLD = "It is a small world!";
-    private static final String NEVER_WORKED = "These %d artists never worked together:\n";
-    private static final String PRINT_SHOW = "%s; %s; %d; %s; %d; %s; %s\n";
+    private static final Template NEVER_WORKED = Template.of("These %d artists never worked together:\n");
+    private static final String NOT_OPTIMAL = "Search stopped early, larger groups may exist.";
+    private static final String INVALID_TIME_BUDGET = "Invalid time budget!";
+    private static final String INVALID_AMOUNT = "Invalid amount!";
+    private static final Template CATALOG_IMPORTED = Template.of("Imported %d shows, %d bios and %d reviews from %d rows [%d rejected].\n");
+    private static final Template UNREADABLE_FILE = Template.of("Could not read %s!\n");
+    private static final Template SNAPSHOT_SAVED = Template.of("Catalog was saved to %s.\n");
+    private static final Template SNAPSHOT_LOADED = Template.of("Catalog was loaded from %s.\n");
+    private static final Template SNAPSHOT_OPENED = Template.of("Catalog was opened from %s.\n");
+    private static final Template UNWRITABLE_FILE = Template.of("Could not write %s!\n");
+    private static final Template INVALID_SNAPSHOT = Template.of("%s is not a valid snapshot!\n");
+    private static final Template JOURNAL_RECOVERED = Template.of("Catalog was recovered from %s.\n");
+    private static final Template CHECKPOINT_SAVED = Template.of("Catalog was checkpointed to %s.\n");
+    private static final Template INVALID_JOURNAL = Template.of("%s is not a valid journal!\n");
+    private static final String NO_JOURNAL = "No journal is open!";
+    private static final Template JOURNAL_FAILED = Template.of("The change could not be written to the journal %s!\n");
+    private static final String UNKNOWN_POLICY = "Unknown fsync policy!";
+    private static final String SERVE = "serve";
+    private static final String PARTITIONS = "cinereviews.partitions";
+    private static final Template SERVING = Template.of("Serving on %s.\n");
+    private static final Template INVALID_ADDRESS = Template.of("%s is not a valid address!\n");
+    private static final Template CANNOT_LISTEN = Template.of("Could not listen on %s!\n");
+    private static final String SHARED_CATALOG = "The catalog is shared by the server and can not be replaced!";
+    private static final Template PRINT_SHOW = Template.of("%s; %s; %d; %s; %d; %s; %s\n");
 
+    /**
+     * Runs the app over the standard input and output or, given serve and an address, as a server
+     * whose clients share one catalog
+     *
+     * @param args nothing, or serve followed by the address and, optionally, the fsync policy and directory of a journal
+     */
     public static void main(String[] args) {
-        executeCommands();
+        if (args.length >= 2 && args[0].equalsIgnoreCase(SERVE)) serve(args);
+        else executeCommands();
     }
 
     /**
-     * Executes the commands of the app
+     * Executes the commands of the app.
+     * The output is buffered and written whenever the input that was already read runs out,
+     * so that it is written in large chunks when replaying a file and after every command when typing them
      */
     private static void executeCommands() {
-        Scanner in = new Scanner(System.in);
-        CineReviews cine = new CineReviewsClass();
+        OutputRenderer out = new OutputRenderer(System.out);
+        CommandReader in = new CommandReader(System.in, out);
+
+        try {
+            CineReviews cine = executeSession(in, new CineReviewsClass(), out, false);
+            closeJournal(cine, out);
+        } finally {
+            out.flush();
+        }
 
+        in.close();
+    }
+
+    /**
+     * Executes the commands of a session until the exit command.
+     * A command with a malformed number is reported and the session goes on with the next line
+     *
+     * @param in     reader of the commands
+     * @param cine   object of the system class
+     * @param out    renderer of the output
+     * @param shared true if the catalog is shared with the other sessions of a server, so it can not be replaced
+     * @return the catalog at the end of the session, which the commands may have replaced
+     */
+    private static CineReviews executeSession(CommandReader in, CineReviews cine, OutputRenderer out, boolean shared) {
         Command command;
 
         do {
             command = getCommand(in);
-            switch (command) {
-                case HELP -> executeHelp();
-                case EXIT -> System.out.println(BYE);
-                case REGISTER -> executeRegister(in, cine);
-                case USERS -> executeUsers(cine);
-                case MOVIE -> executeMovie(in, cine);
-                case SERIES -> executeSeries(in, cine);
-                case SHOWS -> executeShows(cine);
-                case ARTIST -> executeArtist(in, cine);
-                case CREDITS -> executeCredits(in, cine);
-                case REVIEW -> executeReview(in, cine);
-                case REVIEWS -> executeReviews(in, cine);
-                case GENRE -> executeGenre(in, cine);
-                case RELEASED -> executeReleased(in, cine);
-                case AVOIDERS -> executeAvoiders(cine);
-                case FRIENDS -> executeFriends(cine);
-                default -> System.out.println(UNKNOWN_COMMAND);
+            if (shared && replacesCatalog(command)) {
+                in.nextLine();
+                out.line(SHARED_CATALOG);
+                continue;
+            }
+            try {
+                switch (command) {
+                    case HELP -> executeHelp(out);
+                    case EXIT -> out.line(BYE);
+                    case REGISTER -> executeRegister(in, cine, out);
+                    case USERS -> executeUsers(cine, out);
+                    case MOVIE -> executeMovie(in, cine, out);
+                    case SERIES -> executeSeries(in, cine, out);
+                    case SHOWS -> executeShows(cine, out);
+                    case ARTIST -> executeArtist(in, cine, out);
+                    case CREDITS -> executeCredits(in, cine, out);
+                    case REVIEW -> executeReview(in, cine, out);
+                    case REVIEWS -> executeReviews(in, cine, out);
+                    case GENRE -> executeGenre(in, cine, out);
+                    case RELEASED -> executeReleased(in, cine, out);
+                    case AVOIDERS -> executeAvoiders(in, cine, out);
+                    case FRIENDS -> executeFriends(in, cine, out);
+                    case IMPORT -> executeImport(in, cine, out);
+                    case SAVE -> executeSave(in, cine, out);
+                    case LOAD -> cine = executeLoad(in, cine, out);
+                    case OPEN -> cine = executeOpen(in, cine, out);
+                    case JOURNAL -> cine = executeJournal(in, cine, out);
+                    case CHECKPOINT -> executeCheckpoint(cine, out);
+                    default -> out.line(UNKNOWN_COMMAND);
+                }
+            } catch (InputMismatchException e) {
+                // Only the command with the malformed number fails, and the rest of its line is skipped
+                if (in.hasNextLine()) in.nextLine();
+                out.line(MALFORMED_COMMAND);
             }
         } while (!command.name().equals(Command.EXIT.name()));
+        return cine;
+    }
 
-        in.close();
+    /**
+     * Checks if a command replaces the catalog, which the sessions of a server can not do
+     *
+     * @param command command to check
+     * @return true if the command replaces the catalog
+     */
+    private static boolean replacesCatalog(Command command) {
+        return command == Command.LOAD || command == Command.OPEN || command == Command.JOURNAL;
+    }
+
+    /**
+     * Serves the commands to the clients of a local TCP port or Unix-domain socket, each one in a session
+     * of its own, all sharing one catalog, recovered from a journal if one is given, and partitioned if
+     * -Dcinereviews.partitions is set. The server runs until exit is read from the standard input, or it ends
+     *
+     * @param args serve, the address and, optionally, the fsync policy and directory of a journal
+     */
+    private static void serve(String[] args) {
+        OutputRenderer out = new OutputRenderer(System.out);
+        CommandReader console = new CommandReader(System.in, out);
+        try {
+            ConcurrentCineReviewsClass cine = recoverShared(args, out);
+            if (cine == null) return;
+            try (CommandServer server = CommandServer.open(args[1], connection -> serveSession(connection, cine))) {
+                server.start();
+                out.format(SERVING).text(server.getAddress()).end();
+                while (console.hasNextLine() && !console.nextLine().trim().equalsIgnoreCase(Command.EXIT.name())) {
+                    // Only exit is read from the console of the server
+                }
+            } catch (InvalidAddressException e) {
+                out.format(INVALID_ADDRESS).text(e.getAddress()).end();
+            } catch (IOException e) {
+                out.format(CANNOT_LISTEN).text(args[1]).end();
+            }
+            closeJournal(cine, out);
+            out.line(BYE);
+        } finally {
+            out.flush();
+        }
     }
 
     /**
-     * List the artists that have no common projects
+     * Creates the catalog shared by the sessions of the server, recovered from a journal if the arguments give one,
+     * with its shows split into as many partitions as the cinereviews.partitions system property asks for, if any
      *
+     * @param args serve, the address and, optionally, the fsync policy and directory of a journal
+     * @param out  renderer of the output
+     * @return the catalog, or null if the journal could not be recovered
+     */
+    private static ConcurrentCineReviewsClass recoverShared(String[] args, OutputRenderer out) {
+        int partitions = Integer.getInteger(PARTITIONS, 0);
+        if (args.length < 4)
+            return partitions > 0 ? new PartitionedCineReviewsClass(partitions) : new ConcurrentCineReviewsClass();
+        String directory = args[3];
+        try {
+            FsyncPolicy policy = FsyncPolicy.valueOf(args[2].toUpperCase());
+            ConcurrentCineReviewsClass recovered = partitions > 0
+                    ? PartitionedCineReviewsClass.recover(directory, policy, partitions)
+                    : ConcurrentCineReviewsClass.recover(directory, policy);
+            out.format(JOURNAL_RECOVERED).text(directory).end();
+            return recovered;
+        } catch (IllegalArgumentException e) {
+            out.line(UNKNOWN_POLICY);
+        } catch (UnreadableFileException e) {
+            out.format(UNREADABLE_FILE).text(e.getFile()).end();
+        } catch (InvalidSnapshotException | InvalidJournalException e) {
+            out.format(INVALID_JOURNAL).text(directory).end();
+        }
+        return null;
+    }
+
+    /**
+     * Executes the commands of a client of the server over its connection, until it exits or closes the connection.
+     * The output is written whenever the commands the client has already sent run out, so a client that sends
+     * several commands at once gets their output at once
+     *
+     * @param connection connection to the client
+     * @param cine       catalog shared by the sessions
+     */
+    private static void serveSession(ByteChannel connection, CineReviews cine) {
+        OutputRenderer out = new OutputRenderer(
+                new PrintStream(Channels.newOutputStream(connection), false, Charset.defaultCharset()));
+        CommandReader in = new CommandReader(connection, out);
+        try {
+            executeSession(in, cine, out, true);
+        } catch (NoSuchElementException e) {
+            // The client closed the connection without exiting
+        } finally {
+            out.flush();
+        }
+    }
+
+    /**
+     * List the artists that have no common projects.
+     * An optional time budget, in milliseconds, may follow the command
+     *
+     * @param in   reader of the commands
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeAvoiders(CineReviews cine) {
+    private static void executeAvoiders(CommandReader in, CineReviews cine, OutputRenderer out) {
+        String timeBudget = in.hasNextLine() ? in.nextLine().trim() : "";
+        int millis = timeBudget.isEmpty() ? 0 : parseCount(timeBudget);
+        if (millis < 0) {
+            out.line(INVALID_TIME_BUDGET);
+            return;
+        }
         try {
-            Iterator<Set<Artist>> it = cine.getAvoiders();
-            if (!it.hasNext()) System.out.println(SMALL_WORLD);
-            else printAvoiders(cine, it);
+            AvoidersResult avoiders;
+            if (timeBudget.isEmpty()) avoiders = cine.getAvoiders();
+            else avoiders = cine.getAvoiders(millis);
+            if (avoiders.getSize() == 0) out.line(SMALL_WORLD);
+            else printAvoiders(avoiders, out);
+            if (!avoiders.isOptimal()) out.line(NOT_OPTIMAL);
         } catch (NoArtistException e) {
-            System.out.println(NO_ARTISTS);
+            out.line(NO_ARTISTS);
         }
     }
 
     /**
      * Prints the avoiders
      *
-     * @param it   iterator of the set of avoiders
-     * @param cine object of the system class
+     * @param avoiders groups of avoiders with their size
+     * @param out      renderer of the output
      */
-    private static void printAvoiders(CineReviews cine, Iterator<Set<Artist>> it) {
-        System.out.printf(NEVER_WORKED, cine.getLastAvoidersSize());
+    private static void printAvoiders(AvoidersResult avoiders, OutputRenderer out) {
+        out.format(NEVER_WORKED).number(avoiders.getSize()).end();
+        Iterator<Set<Artist>> it = avoiders.getGroups();
         while (it.hasNext()) {
             Set<Artist> nextSet = it.next();
             Iterator<Artist> artistIt = nextSet.iterator();
             StringBuilder cast = getCommaListOfArtists(artistIt, ", ");
-            System.out.println(cast);
+            out.line(cast);
         }
     }
 
     /**
-     * List the artists that have more projects together
+     * List the artists that have more projects together.
+     * An optional amount may follow the command to list the top pairs instead,
+     * and a name after the amount lists the top collaborators of that artist
      *
+     * @param in   reader of the commands
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeFriends(CineReviews cine) {
+    private static void executeFriends(CommandReader in, CineReviews cine, OutputRenderer out) {
+        String arguments = in.hasNextLine() ? in.nextLine().trim() : "";
+        if (arguments.isEmpty()) {
+            printBestFriends(cine, out);
+            return;
+        }
+        int separator = arguments.indexOf(' ');
+        int amount = parseCount(separator < 0 ? arguments : arguments.substring(0, separator));
+        if (amount <= 0) out.line(INVALID_AMOUNT);
+        else if (separator < 0) printTopCollaborations(cine, amount, out);
+        else printTopCollaborators(cine, arguments.substring(separator + 1).trim(), amount, out);
+    }
+
+    /**
+     * Prints the pairs of artists that have more projects together
+     *
+     * @param cine object of the system class
+     * @param out  renderer of the output
+     */
+    private static void printBestFriends(CineReviews cine, OutputRenderer out) {
         try {
-            Iterator<Artist> allFriendsIt = cine.getAllFriends();
-            Artist friend = allFriendsIt.next();
-            System.out.printf(FRIENDS_HEADER, friend.getMostTimesWorked());
-            allFriendsIt = cine.getAllFriends();
-            while (allFriendsIt.hasNext()) {
-                friend = allFriendsIt.next();
-                Iterator<Artist> friendsOf = cine.getFriendsOf(friend.getName());
-                while (friendsOf.hasNext()) {
-                    Artist nextArtist = friendsOf.next();
-                    System.out.printf(FRIENDS_PRINTER, friend.getName(), nextArtist.getName());
-                }
+            Iterator<ArtistPair> it = cine.getBestFriends();
+            ArtistPair pair = it.next();
+            out.format(FRIENDS_HEADER).number(pair.getTimesWorked()).end();
+            out.format(FRIENDS_PRINTER).text(pair.getFirst().getName()).text(pair.getSecond().getName()).end();
+            while (it.hasNext()) {
+                pair = it.next();
+                out.format(FRIENDS_PRINTER).text(pair.getFirst().getName()).text(pair.getSecond().getName()).end();
             }
         } catch (NoArtistException e) {
-            System.out.println(NO_ARTISTS);
+            out.line(NO_ARTISTS);
         } catch (NoCollaborationsException e) {
-            System.out.printf(NO_COLLABORATIONS);
+            out.format(NO_COLLABORATIONS).end();
         }
     }
 
     /**
-     * Lists shows released on a given year
+     * Prints the pairs of artists that have worked together the most times
      *
-     * @param in   scanner object
+     * @param cine   object of the system class
+     * @param amount maximum number of pairs
+     * @param out    renderer of the output
+     */
+    private static void printTopCollaborations(CineReviews cine, int amount, OutputRenderer out) {
+        try {
+            Iterator<ArtistPair> it = cine.getTopCollaborations(amount);
+            out.line(TOP_COLLABORATIONS);
+            while (it.hasNext()) {
+                ArtistPair pair = it.next();
+                out.format(TOP_COLLABORATION_PRINTER).text(pair.getFirst().getName()).text(pair.getSecond().getName())
+                        .number(pair.getTimesWorked()).end();
+            }
+        } catch (NoArtistException e) {
+            out.line(NO_ARTISTS);
+        } catch (NoCollaborationsException e) {
+            out.format(NO_COLLABORATIONS).end();
+        }
+    }
+
+    /**
+     * Prints the artists that have worked the most times with an artist
+     *
+     * @param cine       object of the system class
+     * @param artistName name of the artist
+     * @param amount     maximum number of artists
+     * @param out        renderer of the output
+     */
+    private static void printTopCollaborators(CineReviews cine, String artistName, int amount, OutputRenderer out) {
+        try {
+            Iterator<ArtistPair> it = cine.getTopCollaboratorsOf(artistName, amount);
+            out.format(TOP_COLLABORATORS).text(artistName).end();
+            while (it.hasNext()) {
+                ArtistPair pair = it.next();
+                Artist other = pair.getFirst().getName().equals(artistName) ? pair.getSecond() : pair.getFirst();
+                out.format(TOP_COLLABORATOR_PRINTER).text(other.getName()).number(pair.getTimesWorked()).end();
+            }
+        } catch (UnknownArtistException e) {
+            out.format(UNKNOWN_ARTIST).text(artistName).end();
+        } catch (NoCollaborationsException e) {
+            out.format(NO_COLLABORATIONS_OF).text(artistName).end();
+        }
+    }
+
+    /**
+     * Lists shows released on a given year.
+     * A range of years (1990-1999) or a decade (1990s) may be given instead of the year.
+     * Years that are not numbers and decades that do not start on a multiple of ten are reported
+     *
+     * @param in   reader of the commands
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeReleased(Scanner in, CineReviews cine) {
-        int year = in.nextInt();
+    private static void executeReleased(CommandReader in, CineReviews cine, OutputRenderer out) {
+        String years = in.next();
         in.nextLine();
-        Iterator<Show> it = cine.getShowsByYear(year);
-        if (!it.hasNext()) System.out.println(NO_SHOWS_IN_YEAR);
-        else {
-            System.out.printf(RELEASED_HEADER, year);
-            printReleasedShow(it);
+        // The separator is searched after the first character so that it is not taken for a minus sign
+        int separator = years.indexOf(RANGE_SEPARATOR, 1);
+        Iterator<Show> it;
+        try {
+            if (years.endsWith(DECADE_SUFFIX)) {
+                int decade = Integer.parseInt(years.substring(0, years.length() - DECADE_SUFFIX.length()));
+                if (decade % DECADE_LENGTH != 0) {
+                    out.format(INVALID_YEARS).text(years).end();
+                    return;
+                }
+                it = cine.getShowsByYears(decade, decade + DECADE_LENGTH - 1);
+                if (it.hasNext()) out.format(RELEASED_DECADE_HEADER).number(decade).end();
+            } else if (separator > 0) {
+                int from = Integer.parseInt(years.substring(0, separator));
+                int to = Integer.parseInt(years.substring(separator + 1));
+                it = cine.getShowsByYears(from, to);
+                if (it.hasNext()) out.format(RELEASED_RANGE_HEADER).number(from).number(to).end();
+            } else {
+                int year = Integer.parseInt(years);
+                it = cine.getShowsByYear(year);
+                if (it.hasNext()) out.format(RELEASED_HEADER).number(year).end();
+            }
+        } catch (NumberFormatException e) {
+            out.format(INVALID_YEARS).text(years).end();
+            return;
         }
+        if (!it.hasNext()) out.line(NO_SHOWS_IN_YEAR);
+        else printReleasedShow(it, out);
     }
 
     /**
      * Lists shows of given genres
      *
-     * @param in   scanner object
+     * @param in   reader of the commands
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeGenre(Scanner in, CineReviews cine) {
+    private static void executeGenre(CommandReader in, CineReviews cine, OutputRenderer out) {
         List<String> genres = readSequenceOfStrings(in);
         Iterator<Show> it = cine.getShowsByGenre(genres.iterator());
-        if (!it.hasNext()) System.out.println(NO_SHOWS_WITH_CRITERIA);
+        if (!it.hasNext()) out.line(NO_SHOWS_WITH_CRITERIA);
         else {
-            System.out.println(SHOWS_BY_GENRE);
-            printReleasedShow(it);
+            out.line(SHOWS_BY_GENRE);
+            printReleasedShow(it, out);
         }
     }
 
     /**
      * Prints the released shows given the iterator
      *
-     * @param it iterator of the shows
+     * @param it  iterator of the shows
+     * @param out renderer of the output
      */
-    private static void printReleasedShow(Iterator<Show> it) {
+    private static void printReleasedShow(Iterator<Show> it, OutputRenderer out) {
         while (it.hasNext()) {
             Show show = it.next();
             if (show instanceof Movie) {
-                System.out.printf(RELEASED_MOVIE, show.getTitle(), show.getDirectorName(), show.getYearOfRelease(), show.getScore());
+                out.format(RELEASED_MOVIE).text(show.getTitle()).text(show.getDirectorName())
+                        .number(show.getYearOfRelease()).score(show.getScore()).end();
             } else {
-                System.out.printf(RELEASED_SERIES, show.getTitle(), show.getDirectorName(), show.getYearOfRelease(), show.getScore());
+                out.format(RELEASED_SERIES).text(show.getTitle()).text(show.getDirectorName())
+                        .number(show.getYearOfRelease()).score(show.getScore()).end();
             }
 
         }
@@ -225,35 +529,38 @@ public class Main {
     /**
      * Lists the reviews of a show
      *
-     * @param in   scanner object
+     * @param in   reader of the commands
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeReviews(Scanner in, CineReviews cine) {
+    private static void executeReviews(CommandReader in, CineReviews cine, OutputRenderer out) {
         String show = in.nextLine().trim();
 
         try {
             Iterator<Review> it = cine.getReviewsOfShow(show);
-            if (!it.hasNext()) System.out.printf(SHOW_HAS_NO_REVIEWS, show);
+            if (!it.hasNext()) out.format(SHOW_HAS_NO_REVIEWS).text(show).end();
             else {
-                System.out.printf(REVIEWS_OF, show, cine.getScoreOfShow(show));
+                out.format(REVIEWS_OF).text(show).score(cine.getScoreOfShow(show)).end();
                 while (it.hasNext()) {
                     Review next = it.next();
-                    System.out.printf(REVIEW_OF_USER, next.getReviewer().getName(),
-                            next.getReviewer().getUserType(), next.getDescription(), next.getClassification());
+                    out.format(REVIEW_OF_USER).text(next.getReviewer().getName())
+                            .text(next.getReviewer().getUserType()).text(next.getDescription())
+                            .text(next.getClassification()).end();
                 }
             }
         } catch (UnknownShowException e) {
-            System.out.printf(UNKNOWN_SHOW, show);
+            out.format(UNKNOWN_SHOW).text(show).end();
         }
     }
 
     /**
      * Adds a review to a show
      *
-     * @param in   scanner object
+     * @param in   reader of the commands
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeReview(Scanner in, CineReviews cine) {
+    private static void executeReview(CommandReader in, CineReviews cine, OutputRenderer out) {
         String username = in.next();
         String show = in.nextLine().trim();
         String review = in.nextLine();
@@ -261,65 +568,73 @@ public class Main {
 
         try {
             int reviewNum = cine.reviewShow(username, review, show, score);
-            System.out.printf(REVIEW_REGISTERED, show, reviewNum);
+            out.format(REVIEW_REGISTERED).text(show).number(reviewNum).end();
         } catch (UnknownUserException e) {
-            System.out.printf(UNKNOWN_USER, username);
+            out.format(UNKNOWN_USER).text(username).end();
         } catch (IsAdminException e) {
-            System.out.printf(ADMIN_CANT_REVIEW, username);
+            out.format(ADMIN_CANT_REVIEW).text(username).end();
         } catch (UnknownShowException e) {
-            System.out.printf(UNKNOWN_SHOW, show);
+            out.format(UNKNOWN_SHOW).text(show).end();
         } catch (UserAlreadyReviewedException e) {
-            System.out.printf(ALREADY_REVIEWED, username, show);
+            out.format(ALREADY_REVIEWED).text(username).text(show).end();
+        } catch (InvalidClassificationException e) {
+            out.format(INVALID_CLASSIFICATION).text(score).end();
+        } catch (JournalFailedException e) {
+            out.format(JOURNAL_FAILED).text(e.getDirectory()).end();
         }
     }
 
     /**
      * Lists the bio and credits of an artist
      *
-     * @param in   scanner object
+     * @param in   reader of the commands
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeCredits(Scanner in, CineReviews cine) {
+    private static void executeCredits(CommandReader in, CineReviews cine, OutputRenderer out) {
         String artistName = in.nextLine().trim();
 
         try {
             Iterator<Show> credits = cine.getArtistCredits(artistName);
             if (cine.artistHasBio(artistName)) {
-                System.out.println(cine.getDateOfBirthOfArtist(artistName));
-                System.out.println(cine.getPlaceOfBirthOfArtist(artistName));
+                out.line(cine.getDateOfBirthOfArtist(artistName));
+                out.line(cine.getPlaceOfBirthOfArtist(artistName));
             }
             while (credits.hasNext()) {
                 Show next = credits.next();
                 if (next instanceof Movie movie)
-                    System.out.printf(SHOW_CREDIT, movie.getTitle(), movie.getYearOfRelease(),
-                            cine.getArtistRole(artistName, movie.getTitle()), MOVIE);
+                    out.format(SHOW_CREDIT).text(movie.getTitle()).number(movie.getYearOfRelease())
+                            .text(cine.getArtistRole(artistName, movie.getTitle())).text(MOVIE).end();
                 else if (next instanceof Series series)
-                    System.out.printf(SHOW_CREDIT, series.getTitle(), series.getYearOfRelease(),
-                            cine.getArtistRole(artistName, series.getTitle()), SERIES);
+                    out.format(SHOW_CREDIT).text(series.getTitle()).number(series.getYearOfRelease())
+                            .text(cine.getArtistRole(artistName, series.getTitle())).text(SERIES).end();
             }
         } catch (UnknownArtistException e) {
-            System.out.printf(UNKNOWN_ARTIST, artistName);
+            out.format(UNKNOWN_ARTIST).text(artistName).end();
         }
     }
 
     /**
      * Adds bio information about an artist
      *
-     * @param in   scanner object
+     * @param in   reader of the commands
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeArtist(Scanner in, CineReviews cine) {
+    private static void executeArtist(CommandReader in, CineReviews cine, OutputRenderer out) {
         String name = in.nextLine().trim();
         String dateOfBirth = in.nextLine();
         String placeOfBirth = in.nextLine();
 
         try {
             boolean wasCreated = cine.addArtistBio(name, dateOfBirth, placeOfBirth);
-            if (wasCreated) System.out.printf(BIO_CREATED, name);
+            if (wasCreated) out.format(BIO_CREATED).text(name).end();
             else
-                System.out.printf(BIO_UPDATED, name);
+                out.format(BIO_UPDATED).text(name).end();
         } catch (AlreadyHasBioException e) {
-            System.out.printf(ALREADY_HAS_BIO, name);
+            out.format(ALREADY_HAS_BIO).text(name).end();
+        } catch (JournalFailedException e) {
+            out.format(JOURNAL_FAILED).text(e.getDirectory()).end();
         }
     }
 
@@ -327,35 +642,214 @@ public class Main {
      * Lists all shows
      *
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeShows(CineReviews cine) {
+    private static void executeShows(CineReviews cine, OutputRenderer out) {
         Iterator<Show> it = cine.listAllShows();
-        if (!it.hasNext()) System.out.println(NO_SHOWS);
+        if (!it.hasNext()) out.line(NO_SHOWS);
         else {
-            System.out.println(ALL_SHOWS);
+            out.line(ALL_SHOWS);
             while (it.hasNext()) {
                 Show next = it.next();
                 Iterator<Artist> castIt = next.getCast();
                 StringBuilder cast = getCommaListOfArtists(castIt, "; ");
                 if (next instanceof Series series)
-                    System.out.printf(PRINT_SHOW, series.getTitle(), series.getDirectorName(),
-                            series.getNumberOfSeasons(), series.getAgeCertification(), series.getYearOfRelease(),
-                            series.getMainGenre(), cast);
+                    out.format(PRINT_SHOW).text(series.getTitle()).text(series.getDirectorName())
+                            .number(series.getNumberOfSeasons()).text(series.getAgeCertification())
+                            .number(series.getYearOfRelease()).text(series.getMainGenre()).text(cast).end();
                 else if (next instanceof Movie movie)
-                    System.out.printf(PRINT_SHOW, movie.getTitle(), movie.getDirectorName(),
-                            movie.getDuration(), movie.getAgeCertification(), movie.getYearOfRelease(),
-                            movie.getMainGenre(), cast);
+                    out.format(PRINT_SHOW).text(movie.getTitle()).text(movie.getDirectorName())
+                            .number(movie.getDuration()).text(movie.getAgeCertification())
+                            .number(movie.getYearOfRelease()).text(movie.getMainGenre()).text(cast).end();
             }
         }
     }
 
+    /**
+     * Imports shows, artist bios and reviews from catalog files. The counters are part of the output,
+     * while the throughput changes from run to run and is reported to the standard error
+     *
+     * @param in   reader of the commands
+     * @param cine object of the system class
+     * @param out  renderer of the output
+     */
+    private static void executeImport(CommandReader in, CineReviews cine, OutputRenderer out) {
+        String adminName = in.next();
+        String password = in.next();
+        in.nextLine();
+
+        List<String> files = readSequenceOfStrings(in);
+
+        try {
+            ImportReport report = cine.importCatalog(adminName, password, files.iterator());
+            out.format(CATALOG_IMPORTED).number(report.getShows()).number(report.getBios()).number(report.getReviews())
+                    .number(report.getRows()).number(report.getRejected()).end();
+        } catch (NotAnAdminException e) {
+            out.format(NOT_AN_ADMIN).text(adminName).end();
+        } catch (WrongPasswordException e) {
+            out.line(WRONG_PASSWORD);
+        } catch (UnreadableFileException e) {
+            out.format(UNREADABLE_FILE).text(e.getFile()).end();
+        } catch (JournalFailedException e) {
+            out.format(JOURNAL_FAILED).text(e.getDirectory()).end();
+        }
+    }
+
+    /**
+     * Saves the catalog to a snapshot file
+     *
+     * @param in   reader of the commands
+     * @param cine object of the system class
+     * @param out  renderer of the output
+     */
+    private static void executeSave(CommandReader in, CineReviews cine, OutputRenderer out) {
+        String file = in.nextLine().trim();
+        try {
+            cine.saveSnapshot(file);
+            out.format(SNAPSHOT_SAVED).text(file).end();
+        } catch (UnwritableFileException e) {
+            out.format(UNWRITABLE_FILE).text(e.getFile()).end();
+        }
+    }
+
+    /**
+     * Replaces the catalog with the one saved in a snapshot file.
+     * The current catalog is kept if the snapshot can not be loaded
+     *
+     * @param in   reader of the commands
+     * @param cine object of the system class
+     * @param out  renderer of the output
+     * @return the catalog of the snapshot, or the current one if the snapshot could not be loaded
+     */
+    private static CineReviews executeLoad(CommandReader in, CineReviews cine, OutputRenderer out) {
+        String file = in.nextLine().trim();
+        try {
+            CineReviews loaded = CineReviewsClass.loadSnapshot(file);
+            out.format(SNAPSHOT_LOADED).text(file).end();
+            moveJournal(cine, loaded, out);
+            return loaded;
+        } catch (UnreadableFileException e) {
+            out.format(UNREADABLE_FILE).text(e.getFile()).end();
+        } catch (InvalidSnapshotException e) {
+            out.format(INVALID_SNAPSHOT).text(file).end();
+        }
+        return cine;
+    }
+
+    /**
+     * Replaces the catalog with the one of a snapshot file that is read only as it is used.
+     * The current catalog is kept if the snapshot can not be opened
+     *
+     * @param in   reader of the commands
+     * @param cine object of the system class
+     * @param out  renderer of the output
+     * @return the catalog of the snapshot, or the current one if the snapshot could not be opened
+     */
+    private static CineReviews executeOpen(CommandReader in, CineReviews cine, OutputRenderer out) {
+        String file = in.nextLine().trim();
+        try {
+            CineReviews opened = CineReviewsClass.openSnapshot(file);
+            out.format(SNAPSHOT_OPENED).text(file).end();
+            moveJournal(cine, opened, out);
+            return opened;
+        } catch (UnreadableFileException e) {
+            out.format(UNREADABLE_FILE).text(e.getFile()).end();
+        } catch (InvalidSnapshotException e) {
+            out.format(INVALID_SNAPSHOT).text(file).end();
+        }
+        return cine;
+    }
+
+    /**
+     * Replaces the catalog with the one recovered from a journal directory, whose changes are logged to it from then on.
+     * The journal of the current catalog is closed first, and the current catalog is kept, without a journal,
+     * if the journal can not be recovered
+     *
+     * @param in   reader of the commands
+     * @param cine object of the system class
+     * @param out  renderer of the output
+     * @return the recovered catalog, or the current one if the journal could not be recovered
+     */
+    private static CineReviews executeJournal(CommandReader in, CineReviews cine, OutputRenderer out) {
+        String policyName = in.next();
+        String directory = in.nextLine().trim();
+        FsyncPolicy policy;
+        try {
+            policy = FsyncPolicy.valueOf(policyName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            out.line(UNKNOWN_POLICY);
+            return cine;
+        }
+        if (!closeJournal(cine, out)) return cine;
+        try {
+            CineReviews recovered = CineReviewsClass.recover(directory, policy);
+            out.format(JOURNAL_RECOVERED).text(directory).end();
+            return recovered;
+        } catch (UnreadableFileException e) {
+            out.format(UNREADABLE_FILE).text(e.getFile()).end();
+        } catch (InvalidSnapshotException | InvalidJournalException e) {
+            out.format(INVALID_JOURNAL).text(directory).end();
+        }
+        return cine;
+    }
+
+    /**
+     * Saves the catalog to a snapshot of its journal and compacts the journal
+     *
+     * @param cine object of the system class
+     * @param out  renderer of the output
+     */
+    private static void executeCheckpoint(CineReviews cine, OutputRenderer out) {
+        try {
+            String directory = cine.checkpoint();
+            out.format(CHECKPOINT_SAVED).text(directory).end();
+        } catch (NoJournalException e) {
+            out.line(NO_JOURNAL);
+        } catch (UnwritableFileException e) {
+            out.format(UNWRITABLE_FILE).text(e.getFile()).end();
+        }
+    }
+
+    /**
+     * Moves the journal of the catalog being replaced, if it has one, to the catalog that replaces it
+     *
+     * @param previous catalog being replaced
+     * @param next     catalog that replaces it
+     * @param out      renderer of the output
+     */
+    private static void moveJournal(CineReviews previous, CineReviews next, OutputRenderer out) {
+        try {
+            next.attachJournal(previous.detachJournal());
+        } catch (UnwritableFileException e) {
+            out.format(UNWRITABLE_FILE).text(e.getFile()).end();
+        }
+    }
+
+    /**
+     * Closes the journal of the catalog, if it has one
+     *
+     * @param cine object of the system class
+     * @param out  renderer of the output
+     * @return true if the journal was closed or there was none
+     */
+    private static boolean closeJournal(CineReviews cine, OutputRenderer out) {
+        try {
+            cine.closeJournal();
+            return true;
+        } catch (UnwritableFileException e) {
+            out.format(UNWRITABLE_FILE).text(e.getFile()).end();
+            return false;
+        }
+    }
+
     /**
      * Uploads a new series
      *
-     * @param in   scanner object
+     * @param in   reader of the commands
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeSeries(Scanner in, CineReviews cine) {
+    private static void executeSeries(CommandReader in, CineReviews cine, OutputRenderer out) {
         String adminName = in.next();
         String password = in.next();
         in.nextLine();
@@ -374,13 +868,15 @@ public class Main {
         try {
             int artistsAdded = cine.addSeries(adminName, password, title, directorName, seasonAmount, ageOfCertification,
                     releaseYear, genres.iterator(), cast.iterator());
-            System.out.printf(SERIES_ADDED, title, releaseYear, artistsAdded);
+            out.format(SERIES_ADDED).text(title).number(releaseYear).number(artistsAdded).end();
         } catch (NotAnAdminException e) {
-            System.out.printf(NOT_AN_ADMIN, adminName);
+            out.format(NOT_AN_ADMIN).text(adminName).end();
         } catch (ShowAlreadyExistsException e) {
-            System.out.printf(SHOW_ALREADY_EXISTS, title);
+            out.format(SHOW_ALREADY_EXISTS).text(title).end();
         } catch (WrongPasswordException e) {
-            System.out.println(WRONG_PASSWORD);
+            out.line(WRONG_PASSWORD);
+        } catch (JournalFailedException e) {
+            out.format(JOURNAL_FAILED).text(e.getDirectory()).end();
         }
 
     }
@@ -388,10 +884,11 @@ public class Main {
     /**
      * Uploads a new movie
      *
-     * @param in   scanner object
+     * @param in   reader of the commands
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeMovie(Scanner in, CineReviews cine) {
+    private static void executeMovie(CommandReader in, CineReviews cine, OutputRenderer out) {
         String adminName = in.next();
         String password = in.next();
         in.nextLine();
@@ -410,13 +907,15 @@ public class Main {
         try {
             int artistsAdded = cine.addMovie(adminName, password, title, directorName, duration,
                     ageOfCertification, releaseYear, genres.iterator(), cast.iterator());
-            System.out.printf(MOVIE_ADDED, title, releaseYear, artistsAdded);
+            out.format(MOVIE_ADDED).text(title).number(releaseYear).number(artistsAdded).end();
         } catch (NotAnAdminException e) {
-            System.out.printf(NOT_AN_ADMIN, adminName);
+            out.format(NOT_AN_ADMIN).text(adminName).end();
         } catch (WrongPasswordException e) {
-            System.out.println(WRONG_PASSWORD);
+            out.line(WRONG_PASSWORD);
         } catch (ShowAlreadyExistsException e) {
-            System.out.printf(SHOW_ALREADY_EXISTS, title);
+            out.format(SHOW_ALREADY_EXISTS).text(title).end();
+        } catch (JournalFailedException e) {
+            out.format(JOURNAL_FAILED).text(e.getDirectory()).end();
         }
     }
 
@@ -424,18 +923,19 @@ public class Main {
      * Lists all registered users
      *
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeUsers(CineReviews cine) {
+    private static void executeUsers(CineReviews cine, OutputRenderer out) {
         Iterator<User> it = cine.getAllUsers();
-        if (!it.hasNext()) System.out.println(NO_USERS);
+        if (!it.hasNext()) out.line(NO_USERS);
         else {
-            System.out.println(ALL_USERS);
+            out.line(ALL_USERS);
             while (it.hasNext()) {
                 User next = it.next();
                 if (next instanceof AdminUser admin)
-                    System.out.printf(LIST_ADMIN, admin.getName(), admin.getNumberOfPostedShows());
+                    out.format(LIST_ADMIN).text(admin.getName()).number(admin.getNumberOfPostedShows()).end();
                 else if (next instanceof OrdinaryUser ordinary)
-                    System.out.printf(LIST_ORDINARY, ordinary.getName(), ordinary.getReviewsCount());
+                    out.format(LIST_ORDINARY).text(ordinary.getName()).number(ordinary.getReviewsCount()).end();
             }
         }
 
@@ -444,10 +944,11 @@ public class Main {
     /**
      * Registers a user in the system
      *
-     * @param in   scanner object
+     * @param in   reader of the commands
      * @param cine object of the system class
+     * @param out  renderer of the output
      */
-    private static void executeRegister(Scanner in, CineReviews cine) {
+    private static void executeRegister(CommandReader in, CineReviews cine, OutputRenderer out) {
         String type = in.next();
         String username = in.next();
         String password = "";
@@ -456,23 +957,27 @@ public class Main {
 
         try {
             cine.registerUser(type, username, password);
-            System.out.printf(USER_REGISTERED, username, type);
+            out.format(USER_REGISTERED).text(username).text(type).end();
         } catch (UnknownUserTypeException e) {
-            System.out.println(UNKNOWN_USER_TYPE);
+            out.line(UNKNOWN_USER_TYPE);
         } catch (UserAlreadyExistsException e) {
-            System.out.printf(USER_ALREADY_EXISTS, username);
+            out.format(USER_ALREADY_EXISTS).text(username).end();
+        } catch (JournalFailedException e) {
+            out.format(JOURNAL_FAILED).text(e.getDirectory()).end();
         }
     }
 
     /**
      * Shows the available commands
+     *
+     * @param out renderer of the output
      */
-    private static void executeHelp() {
+    private static void executeHelp(OutputRenderer out) {
         for (Command command : Command.values()) {
             if (command != Command.UNKNOWN) {
                 String name = command.name().toLowerCase();
                 String description = command.getDescription();
-                System.out.printf(LIST_COMMAND, name, description);
+                out.format(LIST_COMMAND).text(name).text(description).end();
             }
         }
     }
@@ -480,25 +985,20 @@ public class Main {
     /**
      * Reads a command and checks for the Command enum
      *
-     * @param in scanner object
+     * @param in reader of the commands
      * @return the command name
      */
-    private static Command getCommand(Scanner in) {
-        try {
-            String command = in.next().toUpperCase();
-            return Command.valueOf(command);
-        } catch (IllegalArgumentException e) {
-            return Command.UNKNOWN;
-        }
+    private static Command getCommand(CommandReader in) {
+        return in.nextCommand();
     }
 
     /**
      * Reads a sequence of Strings returning them in a list
      *
-     * @param in scanner object
+     * @param in reader of the commands
      * @return list of the read Strings
      */
-    private static List<String> readSequenceOfStrings(Scanner in) {
+    private static List<String> readSequenceOfStrings(CommandReader in) {
         List<String> list = new ArrayList<>();
         int n = in.nextInt();
         in.nextLine();
@@ -509,6 +1009,21 @@ public class Main {
         return list;
     }
 
+    /**
+     * Reads a whole number given as the argument of a command
+     *
+     * @param text text of the number
+     * @return the number, or -1 if the text is not a whole number or is negative
+     */
+    private static int parseCount(String text) {
+        try {
+            int count = Integer.parseInt(text);
+            return count < 0 ? -1 : count;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     /**
      * Gets the comma list of Artists of an iteration
      *
@@ -1,12 +1,77 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.InputMismatchException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import artist.Artist;
+import artist.exceptions.AlreadyHasBioException;
+import artist.exceptions.UnknownArtistException;
+import cinereviews.AsyncCineReviews;
+import cinereviews.AsyncCineReviewsClass;
+import cinereviews.CineReviews;
+import cinereviews.CineReviewsClass;
+import cinereviews.ConcurrentCineReviewsClass;
+import cinereviews.PartitionedCineReviewsClass;
+import cinereviews.exceptions.InvalidJournalException;
+import cinereviews.exceptions.JournalFailedException;
+import cinereviews.exceptions.UnreadableFileException;
+import cinereviews.avoiders.AvoidersGraph;
+import cinereviews.avoiders.AvoidersResult;
+import cinereviews.avoiders.BitsetCliqueSearch;
+import cinereviews.avoiders.ParallelCliqueSearch;
+import cinereviews.journal.FsyncPolicy;
+import cinereviews.journal.Journal;
+import cinereviews.journal.JournalEntry;
+import review.Review;
+import review.comparators.ReviewComparator;
+import review.exceptions.InvalidClassificationException;
+import review.exceptions.UserAlreadyReviewedException;
+import show.Show;
+import show.comparators.ShowComparatorByScore;
+import user.OrdinaryUser;
+import user.User;
+import util.CommandReader;
+import util.CompressedBitmap;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -32,14 +97,14 @@ import org.junit.Test;
 public class Tests {
     /**
      * Use the following lines to specify the tests you want to perform.
-     * In this example file, created for the Gossip project, we have 17 tests to perform.
+     * In this example file, created for the Gossip project, we have 19 tests to perform.
      * For each input file, there is a corresponding output file. For example, the expected
      * result for the test 1_in.txt is 1_out.txt. You do not need to do anything else in the
      * rest of the class. Just configure this sequence of tests! This is already done for
      * this project. For the other projects, you must configure the tests.
      *
      * Use as linhas que se seguem para especificar os testes que vai realizar.
-     * Neste ficheiro de exemplo, criado para o projecto Gossip, temos 17 testes a realizar.
+     * Neste ficheiro de exemplo, criado para o projecto Gossip, temos 19 testes a realizar.
      * Para cada ficheiro de input, existe um ficheiro de output correspondente. Por exemplo,
      * o resultado esperado para o teste 1_in.txt e 1_out.txt . Nao tem de fazer mais nada no
      * resto da classe. Basta configurar esta sequencia de testes! Isto ja esta feito para este
@@ -57,6 +122,1004 @@ public class Tests {
     @Test public void test10() { test("10_in.txt","10_out.txt"); }
     @Test public void test11() { test("11_in.txt","11_out.txt"); }
     @Test public void test12() { test("12_in.txt","12_out.txt"); }
+    @Test public void test13() { test("13_in.txt","13_out.txt"); }
+    @Test public void test14() { test("14_in.txt","14_out.txt"); }
+    @Test public void test15() { test("15_in.txt","15_out.txt"); }
+    @Test public void test16() { test("16_in.txt","16_out.txt"); }
+    @Test public void test17() { test("17_in.txt","17_out.txt"); }
+    @Test public void test18() { test("18_in.txt","18_out.txt"); }
+    @Test public void test19() { test("19_in.txt","19_out.txt"); }
+
+    /**
+     * The parallelAvoiders test searches random graphs of artists that never worked together, with at least
+     * as many artists as the catalog needs to use the parallel search, on a pool of several workers.
+     * The parallel search must find exactly the groups of the sequential one, which finds them in another order.
+     */
+    @Test public void parallelAvoiders() {
+        final int artists = 160, graphs = 6;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Random random = new Random(5);
+        try {
+            for (int g = 0; g < graphs; g++) {
+                // Denser graphs have larger groups and take longer, so the density grows with the graphs
+                double density = 0.3 + 0.05 * g;
+                AvoidersGraph graph = new AvoidersGraph(artists + g);
+                for (int i = 0; i < graph.size(); i++)
+                    for (int j = i + 1; j < graph.size(); j++)
+                        if (random.nextDouble() < density) graph.addEdge(i, j);
+                List<int[]> sequential = new BitsetCliqueSearch().findMaximumCliques(graph);
+                sequential.sort(Arrays::compare);
+                List<int[]> parallel = new ParallelCliqueSearch(pool).findMaximumCliques(graph);
+                assertTrue(!sequential.isEmpty());
+                assertEquals(groups(sequential), groups(parallel));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Gets the groups found by a search as lists, so that they can be compared
+     *
+     * @param groups groups of artist ids
+     * @return the groups as lists of ids, in order
+     */
+    private static List<List<Integer>> groups(List<int[]> groups) {
+        List<List<Integer>> lists = new ArrayList<>();
+        for (int[] group : groups) {
+            List<Integer> list = new ArrayList<>();
+            for (int id : group)
+                list.add(id);
+            lists.add(list);
+        }
+        return lists;
+    }
+
+    /**
+     * The avoidersCache test makes random shows and bios in a catalog and asks for its avoiders after each one,
+     * so that they are answered from the cache, repaired by the shows of artists that already existed, or searched
+     * again. Every answer must be the one of a new catalog with the same shows and bios that searches from scratch,
+     * and some answers must come from a repaired cache, as well as from new searches.
+     */
+    @Test public void avoidersCache() throws Exception {
+        final int steps = 80, names = 14, directors = 4;
+        Random random = new Random(11);
+        CineReviews cached = new CineReviewsClass();
+        cached.registerUser("admin", "Admin", "1234");
+        List<String[]> changes = new ArrayList<>();
+        int repairedHits = 0;
+        for (int step = 0; step < steps; step++) {
+            String[] change;
+            if (random.nextInt(4) == 0) {
+                change = new String[]{"Artist" + random.nextInt(names + 2)};
+            } else {
+                int first = random.nextInt(names), second = (first + 1 + random.nextInt(names - 1)) % names;
+                change = new String[]{"Show" + step, "Director" + random.nextInt(directors), "Artist" + first,
+                        "Artist" + second};
+            }
+            boolean knownCast = change.length > 1 && knownArtists(cached, change);
+            int hits = cached.getAvoidersCacheHits();
+            apply(cached, change);
+            changes.add(change);
+
+            CineReviews fresh = new CineReviewsClass();
+            fresh.registerUser("admin", "Admin", "1234");
+            for (String[] previous : changes)
+                apply(fresh, previous);
+            AvoidersResult expected = fresh.getAvoiders(), actual = cached.getAvoiders();
+            assertEquals(avoiderNames(expected.getGroups()), avoiderNames(actual.getGroups()));
+            assertEquals(expected.getSize(), actual.getSize());
+            assertEquals(0, fresh.getAvoidersCacheHits());
+            if (knownCast && step > 0 && cached.getAvoidersCacheHits() > hits) repairedHits++;
+        }
+        assertTrue(repairedHits > 0);
+        assertTrue(cached.getAvoidersCacheMisses() > 1);
+        assertEquals(steps, cached.getAvoidersCacheHits() + cached.getAvoidersCacheMisses());
+    }
+
+    /**
+     * Makes a change of the avoidersCache test: a bio, given only the name of its artist, or else a movie,
+     * given its title, director and cast
+     *
+     * @param cine   catalog to change
+     * @param change the change
+     */
+    private static void apply(CineReviews cine, String[] change) throws Exception {
+        if (change.length == 1) {
+            try {
+                cine.addArtistBio(change[0], "01-01-1970", "Lisbon");
+            } catch (AlreadyHasBioException e) {
+                // Bios are only added once, as in the catalog that searches from scratch
+            }
+        } else {
+            cine.addMovie("Admin", "1234", change[0], change[1], 100, "12+", 2000, List.of("Drama").iterator(),
+                    List.of(change[2], change[3]).iterator());
+        }
+    }
+
+    /**
+     * Checks if the director and cast of a movie of the avoidersCache test are already artists of a catalog
+     *
+     * @param cine   catalog of the artists
+     * @param change the movie
+     * @return true if every artist of the movie already exists
+     */
+    private static boolean knownArtists(CineReviews cine, String[] change) {
+        for (int i = 1; i < change.length; i++)
+            try {
+                cine.getArtistCredits(change[i]);
+            } catch (UnknownArtistException e) {
+                return false;
+            }
+        return true;
+    }
+
+    /**
+     * Gets the names of the artists of groups of avoiders
+     *
+     * @param it iterator of the groups
+     * @return the names of the artists of each group, in order
+     */
+    private static List<List<String>> avoiderNames(Iterator<Set<Artist>> it) {
+        List<List<String>> names = new ArrayList<>();
+        while (it.hasNext()) {
+            List<String> group = new ArrayList<>();
+            for (Artist artist : it.next())
+                group.add(artist.getName());
+            names.add(group);
+        }
+        return names;
+    }
+
+    /**
+     * The avoidersBudget test asks for the avoiders of a catalog with thousands of artists, whose exact search takes
+     * minutes, within time budgets. Each search, including the graph it builds, must end soon after its budget,
+     * and still give a group of avoiders, even with no budget at all.
+     */
+    @Test public void avoidersBudget() throws Exception {
+        final int slackMillis = 150;
+        CineReviews cine = new CineReviewsClass();
+        addManyArtists(cine);
+        for (int budget : new int[]{0, 100, 250}) {
+            // A new artist drops the cached avoiders, so that every budget runs a new search
+            cine.addArtistBio("Newcomer" + budget, "01-01-1970", "Lisbon");
+            long start = System.nanoTime();
+            AvoidersResult avoiders = cine.getAvoiders(budget);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(elapsed < budget + slackMillis);
+            assertTrue(avoiders.getGroups().hasNext());
+            assertTrue(avoiders.getSize() > 0);
+            assertTrue(!avoiders.isOptimal());
+        }
+    }
+
+    /**
+     * The avoidersCancel test asks for the avoiders of a shared catalog with thousands of artists from a thread,
+     * with a budget of minutes, and cancels the search from another thread. The search must then stop soon after,
+     * with the best group found so far and without claiming it is the largest.
+     */
+    @Test public void avoidersCancel() throws Exception {
+        ConcurrentCineReviewsClass cine = new ConcurrentCineReviewsClass();
+        addManyArtists(cine);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            long start = System.nanoTime();
+            Future<AvoidersResult> search = pool.submit(() -> cine.getAvoiders(600_000));
+            // The search may not have started yet, in which case there is nothing to cancel
+            while (!search.isDone() && (System.nanoTime() - start) / 1_000_000 < 5_000) {
+                Thread.sleep(20);
+                cine.cancelAvoiders();
+            }
+            assertTrue(search.isDone());
+            assertTrue(search.get().getGroups().hasNext());
+            assertTrue(!search.get().isOptimal());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Adds thousands of artists to a catalog, a third of them from bios, in shows with random casts,
+     * so that its avoiders take minutes to be proven the largest
+     *
+     * @param cine catalog to add the artists to
+     */
+    private static void addManyArtists(CineReviews cine) throws Exception {
+        final int artists = 3000, shows = 1500, castSize = 6;
+        cine.registerUser("admin", "Admin", "1234");
+        Random random = new Random(17);
+        for (int i = 0; i < artists; i += 3)
+            cine.addArtistBio("Artist" + i, "01-01-1970", "Lisbon");
+        for (int i = 0; i < shows; i++) {
+            List<String> cast = new ArrayList<>();
+            for (int j = 0; j < castSize; j++)
+                cast.add("Artist" + random.nextInt(artists));
+            cine.addMovie("Admin", "1234", "Show" + i, "Director" + random.nextInt(artists), 100, "12+", 2000,
+                    List.of("Drama").iterator(), cast.iterator());
+        }
+    }
+
+    /**
+     * The concurrentReviews test reviews a few shows from several threads at the same time, while another thread
+     * keeps reading them. Each show must end with one review per user that reviewed it, the counts returned by
+     * the reviews of a show must be exactly 1 to its number of reviews, as if they were made one at a time,
+     * each user must count the reviews that it made, and every query by score made during the reviews must find
+     * every show once.
+     */
+    @Test public void concurrentReviews() throws Exception {
+        final int shows = 8, users = 200, threads = 8, attempts = 5000;
+        CineReviews cine = new ConcurrentCineReviewsClass();
+        cine.registerUser("admin", "Admin", "1234");
+        for (int i = 0; i < shows; i++)
+            cine.addMovie("Admin", "1234", "Show" + i, "Director" + i, 100, "12+", 2000 + i % 2,
+                    List.of("Drama").iterator(), List.of("Actor" + i, "Actor" + (i + 1)).iterator());
+        for (int i = 0; i < users; i++)
+            cine.registerUser(i % 5 == 0 ? "critic" : "audience", "User" + i, null);
+
+        ConcurrentHashMap<String, ConcurrentLinkedQueue<Integer>> counts = new ConcurrentHashMap<>();
+        for (int i = 0; i < shows; i++)
+            counts.put("Show" + i, new ConcurrentLinkedQueue<>());
+        AtomicInteger[] made = new AtomicInteger[users];
+        for (int i = 0; i < users; i++)
+            made[i] = new AtomicInteger();
+        AtomicBoolean reviewing = new AtomicBoolean(true);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        Future<?> reader = pool.submit(() -> {
+            while (reviewing.get()) {
+                for (int i = 0; i < shows; i++)
+                    for (Iterator<?> it = cine.getReviewsOfShow("Show" + i); it.hasNext(); )
+                        it.next();
+                // Every show is found by every query, once, even while reviews move it
+                Set<String> found = new HashSet<>();
+                for (Iterator<Show> it = cine.getShowsByYears(2000, 2001); it.hasNext(); )
+                    assertTrue(found.add(it.next().getTitle()));
+                assertEquals(shows, found.size());
+                found.clear();
+                for (Iterator<Show> it = cine.getShowsByGenre(List.of("Drama").iterator()); it.hasNext(); )
+                    assertTrue(found.add(it.next().getTitle()));
+                assertEquals(shows, found.size());
+                found.clear();
+                for (Iterator<Show> it = cine.getShowsByYear(2000); it.hasNext(); )
+                    assertTrue(found.add(it.next().getTitle()));
+                assertEquals(shows / 2, found.size());
+            }
+            return null;
+        });
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            writers.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                for (int a = 0; a < attempts; a++) {
+                    int user = random.nextInt(users);
+                    String show = "Show" + random.nextInt(shows);
+                    try {
+                        counts.get(show).add(cine.reviewShow("User" + user, "Review", show, "good"));
+                        made[user].incrementAndGet();
+                    } catch (UserAlreadyReviewedException e) {
+                        // Another thread, or this one, already reviewed the show as this user
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> writer : writers)
+            writer.get();
+        reviewing.set(false);
+        reader.get();
+        pool.shutdown();
+
+        for (int i = 0; i < shows; i++) {
+            List<Integer> returned = new ArrayList<>(counts.get("Show" + i));
+            returned.sort(null);
+            int reviews = 0;
+            for (Iterator<?> it = cine.getReviewsOfShow("Show" + i); it.hasNext(); it.next())
+                reviews++;
+            assertEquals(reviews, returned.size());
+            for (int k = 0; k < returned.size(); k++)
+                assertEquals(k + 1, (int) returned.get(k));
+        }
+        for (Iterator<User> it = cine.getAllUsers(); it.hasNext(); ) {
+            User user = it.next();
+            if (user.getName().startsWith("User"))
+                assertEquals(made[Integer.parseInt(user.getName().substring(4))].get(),
+                        ((OrdinaryUser) user).getReviewsCount());
+        }
+    }
+
+    /**
+     * The lockFreeIngestion test ingests reviews of a few shows from several threads at the same time, without the
+     * locks of the shows. Each user must be accepted at most once per show, the counts returned by the reviews of
+     * a show must be exactly 1 to its number of reviews, which are listed in order, its score must be the one of the accepted reviews, and
+     * the shows must then be listed by that score. Queries by score made during the reviews must find every show once.
+     */
+    @Test public void lockFreeIngestion() throws Exception {
+        final int shows = 8, users = 200, threads = 8, attempts = 5000;
+        final String[] classifications = {"excellent", "good", "average", "poor", "terrible"};
+        ConcurrentCineReviewsClass cine = new ConcurrentCineReviewsClass();
+        cine.registerUser("admin", "Admin", "1234");
+        for (int i = 0; i < shows; i++)
+            cine.addMovie("Admin", "1234", "Show" + i, "Director" + i, 100, "12+", 2000,
+                    List.of("Drama").iterator(), List.of("Actor" + i).iterator());
+        for (int i = 0; i < users; i++)
+            cine.registerUser(i % 5 == 0 ? "critic" : "audience", "User" + i, null);
+
+        ConcurrentHashMap<String, ConcurrentLinkedQueue<Integer>> counts = new ConcurrentHashMap<>();
+        for (int i = 0; i < shows; i++)
+            counts.put("Show" + i, new ConcurrentLinkedQueue<>());
+        Set<String> accepted = ConcurrentHashMap.newKeySet();
+        AtomicBoolean ingesting = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        // Queries by score move the ingested shows while the reviews go on, and still find every show once
+        Future<?> reader = pool.submit(() -> {
+            while (ingesting.get()) {
+                Set<String> found = new HashSet<>();
+                for (Iterator<Show> it = cine.getShowsByYear(2000); it.hasNext(); )
+                    assertTrue(found.add(it.next().getTitle()));
+                assertEquals(shows, found.size());
+            }
+            return null;
+        });
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            writers.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                for (int a = 0; a < attempts; a++) {
+                    int user = random.nextInt(users);
+                    int index = random.nextInt(shows);
+                    String show = "Show" + index;
+                    try {
+                        // Each show is given a different range of classifications, so that their scores differ
+                        counts.get(show).add(cine.ingestReview("User" + user, "Review", show,
+                                classifications[user / 2 % (index % 5 + 1)]));
+                        assertTrue(accepted.add(user + "@" + show));
+                    } catch (UserAlreadyReviewedException e) {
+                        // Another thread, or this one, already reviewed the show as this user
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> writer : writers)
+            writer.get();
+        ingesting.set(false);
+        reader.get();
+        pool.shutdown();
+
+        int found = 0;
+        Show previous = null;
+        for (Iterator<Show> it = cine.getShowsByYear(2000); it.hasNext(); ) {
+            Show show = it.next();
+            List<Integer> returned = new ArrayList<>(counts.get(show.getTitle()));
+            returned.sort(null);
+            for (int k = 0; k < returned.size(); k++)
+                assertEquals(k + 1, (int) returned.get(k));
+            int index = Integer.parseInt(show.getTitle().substring(4));
+            int reviews = 0, weightedScore = 0, totalWeight = 0;
+            for (int user = 0; user < users; user++)
+                if (accepted.contains(user + "@" + show.getTitle())) {
+                    int weight = user % 5 == 0 ? 5 : 1;
+                    weightedScore += (5 - user / 2 % (index % 5 + 1)) * weight;
+                    totalWeight += weight;
+                    reviews++;
+                }
+            assertEquals(reviews, returned.size());
+            assertEquals(reviews, show.getReviewsCount());
+            Review last = null;
+            for (Iterator<Review> reviewIt = cine.getReviewsOfShow(show.getTitle()); reviewIt.hasNext(); reviews--) {
+                Review review = reviewIt.next();
+                assertTrue(last == null || new ReviewComparator().compare(last, review) < 0);
+                last = review;
+            }
+            assertEquals(0, reviews);
+            float score = (float) Math.round((float) weightedScore / totalWeight * 10) / 10;
+            assertEquals(score, cine.getScoreOfShow(show.getTitle()), 0);
+            assertTrue(previous == null || new ShowComparatorByScore().compare(previous, show) < 0);
+            previous = show;
+            found++;
+        }
+        assertEquals(shows, found);
+    }
+
+    /**
+     * The ingestionJournal test makes several threads review a show as the same users at the same time without locks,
+     * each with its own text and classification, over a journal. Recovering the journal must give every user
+     * the review that was accepted, and not one that lost the race.
+     */
+    @Test public void ingestionJournal() throws Exception {
+        final int users = 300, threads = 4;
+        final String[] classifications = {"excellent", "good", "poor", "terrible"};
+        Path directory = Files.createTempDirectory("journal");
+        ConcurrentCineReviewsClass cine = ConcurrentCineReviewsClass.recover(directory.toString(), FsyncPolicy.INTERVAL);
+        cine.registerUser("admin", "Admin", "1234");
+        cine.addMovie("Admin", "1234", "Film", "Director", 100, "12+", 2000, List.of("Drama").iterator(),
+                List.of("Actor").iterator());
+        for (int i = 0; i < users; i++)
+            cine.registerUser("audience", "User" + i, null);
+
+        ConcurrentHashMap<String, String> accepted = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            writers.add(pool.submit(() -> {
+                for (int user = 0; user < users; user++)
+                    try {
+                        cine.ingestReview("User" + user, "Review" + thread, "Film", classifications[thread]);
+                        assertTrue(accepted.put("User" + user, "Review" + thread) == null);
+                    } catch (UserAlreadyReviewedException e) {
+                        // Another thread reviewed the show as this user first
+                    }
+                return null;
+            }));
+        }
+        for (Future<?> writer : writers)
+            writer.get();
+        pool.shutdown();
+        float score = cine.getScoreOfShow("Film");
+        cine.closeJournal();
+
+        CineReviews recovered = CineReviewsClass.recover(directory.toString(), FsyncPolicy.INTERVAL);
+        int reviews = 0;
+        for (Iterator<Review> it = recovered.getReviewsOfShow("Film"); it.hasNext(); reviews++) {
+            Review review = it.next();
+            assertEquals(accepted.get(review.getUserName()), review.getDescription());
+        }
+        assertEquals(users, reviews);
+        assertEquals(score, recovered.getScoreOfShow("Film"), 0);
+        recovered.closeJournal();
+    }
+
+    /**
+     * The asyncFacade test makes reviews through the asynchronous app from several threads without waiting for them.
+     * The counts they complete with must be exactly 1 to the number of reviews of each show, the other ones must fail
+     * as repeated, a query chained to a review must see it, every expensive query must either complete or be counted
+     * as rejected, and nothing may be accepted once the app is closed.
+     */
+    @Test public void asyncFacade() throws Exception {
+        final int shows = 4, users = 50, threads = 8, attempts = 500, queries = 200;
+        AsyncCineReviews cine = new AsyncCineReviewsClass(new ConcurrentCineReviewsClass(), 2, 4);
+        cine.registerUser("admin", "Admin", "1234");
+        for (int i = 0; i < shows; i++)
+            cine.addMovie("Admin", "1234", "Show" + i, "Director" + i, 100, "12+", 2000,
+                    List.of("Drama").iterator(), List.of("Actor" + i).iterator());
+        for (int i = 0; i < users; i++)
+            cine.registerUser("audience", "User" + i, null);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<List<CompletableFuture<Integer>>>> made = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            made.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                List<CompletableFuture<Integer>> reviews = new ArrayList<>();
+                for (int a = 0; a < attempts; a++)
+                    reviews.add(cine.reviewShow("User" + random.nextInt(users), "Review", "Show" + a % shows, "good"));
+                return reviews;
+            }));
+        }
+        List<CompletableFuture<Iterator<Show>>> scans = new ArrayList<>();
+        for (int q = 0; q < queries; q++)
+            scans.add(cine.getShowsByGenre(List.of("Drama").iterator()));
+        pool.shutdown();
+
+        List<List<Integer>> counts = new ArrayList<>();
+        for (int i = 0; i < shows; i++)
+            counts.add(new ArrayList<>());
+        for (Future<List<CompletableFuture<Integer>>> thread : made)
+            for (int a = 0; a < attempts; a++)
+                try {
+                    counts.get(a % shows).add(thread.get().get(a).join());
+                } catch (CompletionException e) {
+                    assertTrue(e.getCause() instanceof UserAlreadyReviewedException);
+                }
+        for (int i = 0; i < shows; i++) {
+            counts.get(i).sort(null);
+            for (int k = 0; k < counts.get(i).size(); k++)
+                assertEquals(k + 1, (int) counts.get(i).get(k));
+        }
+        int completed = 0;
+        for (CompletableFuture<Iterator<Show>> scan : scans)
+            try {
+                scan.join();
+                completed++;
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        assertEquals(queries, completed + cine.getRejectedReads());
+
+        cine.registerUser("critic", "Late", null);
+        Iterator<Review> reviews = cine.reviewShow("Late", "Chained", "Show0", "excellent")
+                .thenCompose(count -> cine.getReviewsOfShow("Show0")).join();
+        assertEquals("Late", reviews.next().getReviewer().getName());
+
+        cine.close();
+        assertEquals(0, cine.getWriteQueueDepth());
+        try {
+            cine.registerUser("audience", "Closed", null).join();
+            fail("change accepted after close");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    /**
+     * The asyncClose test registers users through the asynchronous app from several threads while it is closed.
+     * Every change must complete, applied or rejected, without any of them left waiting, and the catalog must
+     * have exactly the users whose registration completed normally.
+     */
+    @Test public void asyncClose() throws Exception {
+        final int threads = 4, registrations = 2000;
+        ConcurrentCineReviewsClass catalog = new ConcurrentCineReviewsClass();
+        AsyncCineReviews cine = new AsyncCineReviewsClass(catalog, 1, 16);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch halfway = new CountDownLatch(threads);
+        List<Future<List<CompletableFuture<Void>>>> submitted = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            submitted.add(pool.submit(() -> {
+                List<CompletableFuture<Void>> futures = new ArrayList<>();
+                for (int i = 0; i < registrations; i++) {
+                    if (i == registrations / 2) halfway.countDown();
+                    futures.add(cine.registerUser("audience", "User" + thread + "-" + i, null));
+                }
+                return futures;
+            }));
+        }
+        // The app is closed while the threads are still making changes
+        halfway.await();
+        cine.close();
+        int registered = 0;
+        for (Future<List<CompletableFuture<Void>>> futures : submitted)
+            for (CompletableFuture<Void> future : futures.get())
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                    registered++;
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof RejectedExecutionException);
+                }
+        pool.shutdown();
+        int users = 0;
+        for (Iterator<User> it = catalog.getAllUsers(); it.hasNext(); it.next())
+            users++;
+        assertEquals(registered, users);
+    }
+
+    /**
+     * The partitionedCatalog test makes the same shows and reviews, some of them repeated, in a catalog and in
+     * a partitioned one. Every review must get the same count or exception from both, and every show, year and genre
+     * query the same shows in the same order. Reviews made from several threads must then leave the partitioned
+     * catalog with every show in order of its new score. Changes applied in batches by the asynchronous app over
+     * a partitioned catalog must reach its partitions.
+     */
+    @Test public void partitionedCatalog() throws Exception {
+        final int shows = 40, users = 60, reviews = 3000, threads = 4;
+        final String[] classifications = {"excellent", "good", "average", "poor", "terrible"};
+        final String[] genres = {"Drama", "Comedy", "Horror", "Action"};
+        CineReviews plain = new CineReviewsClass();
+        PartitionedCineReviewsClass partitioned = new PartitionedCineReviewsClass(4);
+        Random random = new Random(23);
+        for (CineReviews cine : List.of(plain, partitioned)) {
+            cine.registerUser("admin", "Admin", "1234");
+            for (int i = 0; i < users; i++)
+                cine.registerUser(i % 4 == 0 ? "critic" : "audience", "User" + i, null);
+            for (int i = 0; i < shows; i++)
+                cine.addMovie("Admin", "1234", "Show" + i, "Director" + i, 100, "12+", 2000 + i % 5,
+                        List.of(genres[i % 4], genres[i / 4 % 4]).iterator(), List.of("Actor" + i).iterator());
+        }
+        for (int r = 0; r < reviews; r++) {
+            String user = "User" + random.nextInt(users), show = "Show" + random.nextInt(shows + 1);
+            String classification = classifications[random.nextInt(classifications.length)];
+            String expected, actual;
+            try {
+                expected = String.valueOf(plain.reviewShow(user, "Review", show, classification));
+            } catch (Exception e) {
+                expected = e.getClass().getName();
+            }
+            try {
+                actual = String.valueOf(partitioned.reviewShow(user, "Review", show, classification));
+            } catch (Exception e) {
+                actual = e.getClass().getName();
+            }
+            assertEquals(expected, actual);
+        }
+
+        assertEquals(titles(plain.listAllShows()), titles(partitioned.listAllShows()));
+        for (int year = 1999; year <= 2005; year++) {
+            assertEquals(titles(plain.getShowsByYear(year)), titles(partitioned.getShowsByYear(year)));
+            assertEquals(titles(plain.getShowsByYears(year, year + 2)), titles(partitioned.getShowsByYears(year, year + 2)));
+        }
+        List<List<String>> genreQueries = List.of(List.of(), List.of("Drama"), List.of("Comedy", "Horror"),
+                List.of("Action", "Drama", "Comedy"), List.of("Western"));
+        for (List<String> query : genreQueries)
+            assertEquals(titles(plain.getShowsByGenre(query.iterator())),
+                    titles(partitioned.getShowsByGenre(query.iterator())));
+
+        for (int t = 0; t < threads; t++)
+            partitioned.registerUser("audience", "Late" + t, null);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int first = t;
+            writers.add(pool.submit(() -> {
+                for (int i = 0; i < shows; i++)
+                    partitioned.reviewShow("Late" + first, "Review", "Show" + i, classifications[(i + first) % 5]);
+                return null;
+            }));
+        }
+        for (Future<?> writer : writers)
+            writer.get();
+        pool.shutdown();
+        List<Show> byScore = new ArrayList<>();
+        partitioned.listAllShows().forEachRemaining(byScore::add);
+        byScore.sort(new ShowComparatorByScore());
+        assertEquals(titles(byScore.iterator()), titles(partitioned.getShowsByGenre(List.<String>of().iterator())));
+        partitioned.close();
+
+        PartitionedCineReviewsClass batched = new PartitionedCineReviewsClass(2);
+        AsyncCineReviews async = new AsyncCineReviewsClass(batched, 2, 16);
+        async.registerUser("admin", "Admin", "1234");
+        async.registerUser("critic", "Critic", null);
+        for (int i = 0; i < 4; i++)
+            async.addMovie("Admin", "1234", "Film" + i, "Director", 100, "12+", 2000,
+                    List.of("Drama").iterator(), List.of("Actor" + i).iterator());
+        assertEquals(1, (int) async.reviewShow("Critic", "Review", "Film2", "excellent").get(10, TimeUnit.SECONDS));
+        assertEquals(List.of("Film2", "Film0", "Film1", "Film3"),
+                titles(async.getShowsByYear(2000).get(10, TimeUnit.SECONDS)));
+        // A later batch only reviews a show, which must still move in its partition
+        assertEquals(1, (int) async.reviewShow("Critic", "Review", "Film3", "excellent").get(10, TimeUnit.SECONDS));
+        assertEquals(List.of("Film2", "Film3", "Film0", "Film1"),
+                titles(async.getShowsByYear(2000).get(10, TimeUnit.SECONDS)));
+        async.close();
+        batched.close();
+    }
+
+    /**
+     * Gets the titles of shows, in order
+     *
+     * @param it iterator of the shows
+     * @return the titles of the shows
+     */
+    private static List<String> titles(Iterator<Show> it) {
+        List<String> titles = new ArrayList<>();
+        while (it.hasNext())
+            titles.add(it.next().getTitle());
+        return titles;
+    }
+
+    /**
+     * The serverSessions test runs the app as a server on a free local port and connects several clients to it
+     * at the same time, each one sending all of its commands at once. Each client must get the output of every
+     * command, in order, a client that sends malformed input must get an error and go on with its session,
+     * the reviews of all of them must be counted as if they were made one at a time,
+     * and the server must stop when exit is read from its console.
+     */
+    @Test public void serverSessions() throws Exception {
+        final int clients = 16;
+        PipedOutputStream console = new PipedOutputStream();
+        System.setIn(new PipedInputStream(console));
+        Thread server = new Thread(() -> Main.main(new String[]{"serve", "tcp:0"}));
+        server.start();
+        String serving = "";
+        for (int i = 0; i < 500 && !serving.endsWith(".\n"); i++) {
+            Thread.sleep(10);
+            serving = removeCarriages(outContent.toString());
+        }
+        assertTrue(serving.startsWith("Serving on tcp:"));
+        int port = Integer.parseInt(serving.substring(serving.lastIndexOf(':') + 1, serving.length() - 2));
+
+        assertEquals("User Boss was registered as admin.\nMovie Film (2001) was uploaded [2 new artists were created].\n"
+                        + "The catalog is shared by the server and can not be replaced!\nBye!\n",
+                session(port, "register admin Boss 1234\nmovie Boss 1234\nFilm\nDirector\n100\n12+\n2001\n1\nDrama\n"
+                        + "1\nActor\nload catalog.snapshot\nexit\n"));
+        // Malformed input is answered and the session goes on
+        assertEquals("User A was registered as audience.\nInvalid amount!\nAll registered users:\n"
+                        + "User A has posted 0 reviews\nAdmin Boss has uploaded 1 shows\n"
+                        + "Malformed command, a number was expected!\nBye!\n",
+                session(port, "register audience A\nfriends abc\nusers\nmovie Boss 1234\nBroken\nDirector\n100\n"
+                        + "12+\nlater\nexit\n"));
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<String>> outputs = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            final String user = "User" + c;
+            outputs.add(pool.submit(() -> session(port, "register audience " + user + "\nreview " + user
+                    + " Film\nGreat\ngood\nexit\n")));
+        }
+        List<Integer> counts = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            String[] lines = outputs.get(c).get().split("\n");
+            assertEquals(3, lines.length);
+            assertEquals("User User" + c + " was registered as audience.", lines[0]);
+            assertTrue(lines[1].startsWith("Review for Film was registered ["));
+            counts.add(Integer.parseInt(lines[1].replaceAll("\\D", "")));
+            assertEquals("Bye!", lines[2]);
+        }
+        pool.shutdown();
+        counts.sort(null);
+        for (int c = 0; c < clients; c++)
+            assertEquals(c + 1, (int) counts.get(c));
+
+        console.write("exit\n".getBytes());
+        console.flush();
+        server.join();
+        assertTrue(removeCarriages(outContent.toString()).endsWith("Bye!\n"));
+    }
+
+    /**
+     * Sends commands to the server at once and reads their output until the server closes the connection
+     *
+     * @param port     port of the server
+     * @param commands commands to send
+     * @return the output of the commands
+     */
+    private static String session(int port, String commands) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.getOutputStream().write(commands.getBytes());
+            return removeCarriages(new String(socket.getInputStream().readAllBytes()));
+        }
+    }
+
+    /**
+     * The journalFailure test closes the journal of a catalog behind its back. Every change after that must fail
+     * with a JournalFailedException and leave the catalog as it was, and recovering the journal must give
+     * the catalog with only the changes made before. An import of a file that can not be read must still report
+     * that file, with the failure of the journal suppressed in its exception.
+     */
+    @Test public void journalFailure() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        CineReviews cine = new CineReviewsClass();
+        Journal journal = Journal.open(directory, FsyncPolicy.ALWAYS);
+        journal.replay(entry -> { });
+        cine.attachJournal(journal);
+        cine.registerUser("admin", "Boss", "1234");
+        cine.registerUser("audience", "Fan", null);
+        cine.addMovie("Boss", "1234", "Film", "Director", 100, "12+", 2001, List.of("Drama").iterator(),
+                List.of("Actor").iterator());
+        journal.close();
+
+        try {
+            cine.registerUser("critic", "Late", null);
+            fail("user registered after the journal failed");
+        } catch (JournalFailedException e) {
+            assertEquals(directory.toString(), e.getDirectory());
+        }
+        try {
+            cine.reviewShow("Fan", "Great", "Film", "good");
+            fail("review added after the journal failed");
+        } catch (JournalFailedException e) {
+            assertTrue(!cine.getReviewsOfShow("Film").hasNext());
+        }
+        try {
+            cine.addArtistBio("Newcomer", "01-01-2000", "Lisbon");
+            fail("bio added after the journal failed");
+        } catch (JournalFailedException e) {
+            assertTrue(!cine.artistHasBio("Actor"));
+        }
+        try {
+            cine.getArtistCredits("Newcomer");
+            fail("artist created by a failed bio");
+        } catch (UnknownArtistException expected) {
+        }
+        String missing = directory.resolve("missing.csv").toString();
+        try {
+            cine.importCatalog("Boss", "1234", List.of(missing).iterator());
+            fail("missing file imported");
+        } catch (UnreadableFileException e) {
+            assertEquals(missing, e.getFile());
+            assertTrue(e.getSuppressed()[0] instanceof JournalFailedException);
+        }
+        List<String> names = new ArrayList<>();
+        cine.getAllUsers().forEachRemaining(user -> names.add(user.getName()));
+        assertEquals(List.of("Boss", "Fan"), names);
+
+        CineReviews recovered = CineReviewsClass.recover(directory.toString(), FsyncPolicy.ALWAYS);
+        names.clear();
+        recovered.getAllUsers().forEachRemaining(user -> names.add(user.getName()));
+        assertEquals(List.of("Boss", "Fan"), names);
+        assertEquals(List.of("Film"), titles(recovered.listAllShows()));
+        recovered.closeJournal();
+    }
+
+    /**
+     * The invalidClassification test reviews a show of a journaled catalog with a classification that does not exist.
+     * The review must be rejected before it is logged, so the journal must still be recovered with the changes made
+     * after it, and a journal with such a review must not be recovered.
+     */
+    @Test public void invalidClassification() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        CineReviews cine = CineReviewsClass.recover(directory.toString(), FsyncPolicy.ALWAYS);
+        cine.registerUser("admin", "Boss", "1234");
+        cine.registerUser("audience", "Fan", null);
+        cine.addMovie("Boss", "1234", "Film", "Director", 100, "12+", 2001, List.of("Drama").iterator(),
+                List.of("Actor").iterator());
+        try {
+            cine.reviewShow("Fan", "Great", "Film", "superb");
+            fail("review added with a classification that does not exist");
+        } catch (InvalidClassificationException e) {
+            assertTrue(!cine.getReviewsOfShow("Film").hasNext());
+        }
+        cine.registerUser("critic", "Late", null);
+        cine.closeJournal();
+
+        CineReviews recovered = CineReviewsClass.recover(directory.toString(), FsyncPolicy.ALWAYS);
+        List<String> names = new ArrayList<>();
+        recovered.getAllUsers().forEachRemaining(user -> names.add(user.getName()));
+        assertEquals(List.of("Boss", "Fan", "Late"), names);
+        assertTrue(!recovered.getReviewsOfShow("Film").hasNext());
+        recovered.closeJournal();
+
+        Journal journal = Journal.open(directory, FsyncPolicy.ALWAYS);
+        journal.replay(entry -> { });
+        journal.sync(journal.append(JournalEntry.review("Fan", "Great", "Film", "superb")));
+        journal.close();
+        try {
+            CineReviewsClass.recover(directory.toString(), FsyncPolicy.ALWAYS);
+            fail("journal with a classification that does not exist recovered");
+        } catch (InvalidJournalException expected) {
+        }
+    }
+
+    /**
+     * The compressedBitmap test builds bitmaps with chunks of every size, from a few values to most of the chunk,
+     * so that some chunks stay arrays, some cross the 4096 values after which they become bitmaps, and the values
+     * are added in ascending and in random order. Every bitmap and the intersection of every two of them,
+     * which meets each pair of chunk kinds and turns dense bitmaps back into arrays, must hold the same values
+     * as a BitSet.
+     */
+    @Test public void compressedBitmap() {
+        final int[] chunkSizes = {0, 1, 100, 4095, 4096, 4097, 6000, 30000, 60000};
+        Random random = new Random(29);
+        List<CompressedBitmap> bitmaps = new ArrayList<>();
+        List<BitSet> expected = new ArrayList<>();
+        for (int b = 0; b < 8; b++) {
+            CompressedBitmap bitmap = new CompressedBitmap();
+            BitSet values = new BitSet();
+            for (int chunk = 0; chunk < 5; chunk++) {
+                int size = chunkSizes[random.nextInt(chunkSizes.length)];
+                List<Integer> chunkValues = new ArrayList<>();
+                for (int k = 0; k < size; k++)
+                    chunkValues.add(chunk << 16 | random.nextInt(1 << 16));
+                if (b % 2 == 0) chunkValues.sort(null);
+                for (int value : chunkValues) {
+                    bitmap.add(value);
+                    values.set(value);
+                }
+            }
+            for (int probe = 0; probe < 5000; probe++) {
+                int value = random.nextInt(6 << 16);
+                assertEquals(values.get(value), bitmap.contains(value));
+            }
+            assertBitmap(values, bitmap);
+            bitmaps.add(bitmap);
+            expected.add(values);
+        }
+        for (int i = 0; i < bitmaps.size(); i++)
+            for (int j = 0; j < bitmaps.size(); j++) {
+                BitSet values = (BitSet) expected.get(i).clone();
+                values.and(expected.get(j));
+                assertBitmap(values, bitmaps.get(i).and(bitmaps.get(j)));
+            }
+    }
+
+    /**
+     * Checks that a bitmap holds the values of a BitSet
+     *
+     * @param expected values the bitmap must hold
+     * @param bitmap   bitmap to check
+     */
+    private static void assertBitmap(BitSet expected, CompressedBitmap bitmap) {
+        assertEquals(expected.cardinality(), bitmap.cardinality());
+        assertEquals(expected.isEmpty(), bitmap.isEmpty());
+        assertTrue(Arrays.equals(expected.stream().toArray(), bitmap.toArray()));
+    }
+
+    /**
+     * The commandReader test reads random commands with a CommandReader and with a Scanner, calling the same
+     * next, nextInt, nextLine and hasNextLine on both, which must give the same values or throw the same exceptions.
+     * The lines end in LF, CRLF or a lone CR, some are blank, and the titles have multi-byte UTF-8 characters.
+     * The input comes from a channel that gives a few bytes at a time, so that CRLF and the bytes of a character
+     * are split across reads, and from a plain stream, large enough to be split at the end of the 64 KiB buffer.
+     */
+    @Test public void commandReader() {
+        final String[] words = {"review", "Movie", "Amélie", "東京物語", "Ça", "naïve", "🎬Film", "42", "-7", "0",
+                "2147483647", "2147483648", "-2147483648", "12+", "x"};
+        final String[] separators = {" ", "  ", "\t"};
+        final String[] terminators = {"\n", "\r\n", "\r"};
+        Random random = new Random(31);
+        for (int round = 0; round < 300; round++) {
+            StringBuilder text = new StringBuilder();
+            int lines = round % 10 == 0 ? 20000 : random.nextInt(40);
+            for (int l = 0; l < lines; l++) {
+                int length = random.nextInt(4) == 0 ? 0 : random.nextInt(5);
+                for (int w = 0; w < length; w++) {
+                    if (w > 0 || random.nextInt(6) == 0) text.append(separators[random.nextInt(separators.length)]);
+                    text.append(words[random.nextInt(words.length)]);
+                }
+                if (l < lines - 1 || random.nextBoolean()) text.append(terminators[random.nextInt(terminators.length)]);
+            }
+            byte[] bytes = text.toString().getBytes(Charset.defaultCharset());
+            ReadableByteChannel channel = round % 10 == 0
+                    ? Channels.newChannel(new ByteArrayInputStream(bytes)) : new TrickleChannel(bytes, random);
+            CommandReader reader = new CommandReader(channel, () -> { });
+            Scanner scanner = new Scanner(new ByteArrayInputStream(bytes));
+            for (int op = 0; op < 100000; op++) {
+                int kind = random.nextInt(4);
+                String expected, actual;
+                try {
+                    expected = kind == 0 ? scanner.next() : kind == 1 ? String.valueOf(scanner.nextInt())
+                            : kind == 2 ? scanner.nextLine() : String.valueOf(scanner.hasNextLine());
+                } catch (RuntimeException e) {
+                    expected = e.getClass().getName();
+                }
+                try {
+                    actual = kind == 0 ? reader.next() : kind == 1 ? String.valueOf(reader.nextInt())
+                            : kind == 2 ? reader.nextLine() : String.valueOf(reader.hasNextLine());
+                } catch (RuntimeException e) {
+                    actual = e.getClass().getName();
+                }
+                assertEquals(expected, actual);
+                // Scanner keeps a token that is not an int while the reader drops it, so the inputs part here
+                if (expected.equals(InputMismatchException.class.getName())) break;
+                if (!scanner.hasNextLine()) {
+                    assertTrue(!reader.hasNextLine());
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Channel over some bytes that gives a random small number of them, or none, at each read
+     */
+    private static class TrickleChannel implements ReadableByteChannel {
+
+        /**
+         * Bytes of the channel
+         */
+        private final byte[] bytes;
+
+        /**
+         * Source of the number of bytes given at each read
+         */
+        private final Random random;
+
+        /**
+         * Position of the next byte to give
+         */
+        private int position;
+
+        /**
+         * Creates a new channel
+         *
+         * @param bytes  bytes of the channel
+         * @param random source of the number of bytes given at each read
+         */
+        private TrickleChannel(byte[] bytes, Random random) {
+            this.bytes = bytes;
+            this.random = random;
+            this.position = 0;
+        }
+
+        @Override
+        public int read(ByteBuffer destination) {
+            if (position == bytes.length) return -1;
+            int length = Math.min(Math.min(random.nextInt(8), bytes.length - position), destination.remaining());
+            destination.put(bytes, position, length);
+            position += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 
     /**
      * The BASE constant specifies the directory where the test files are located.
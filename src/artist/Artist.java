@@ -12,6 +12,13 @@ import java.util.Iterator;
  */
 public interface Artist extends Comparable<Artist> {
 
+    /**
+     * Gets the dense id of the artist, given in order of creation
+     *
+     * @return the id of the artist
+     */
+    int getId();
+
     /**
      * Gets the artist name
      *
@@ -64,6 +71,24 @@ public interface Artist extends Comparable<Artist> {
      */
     void addShow(Show show);
 
+    /**
+     * Adds a show to the credits of the artist without counting the collaborations with its cast,
+     * used when the collaborations are restored from a snapshot
+     *
+     * @param show show that will be added to the artist
+     */
+    void addCredit(Show show);
+
+    /**
+     * Restores the number of times this artist has worked with another, from a snapshot.
+     * It must be called at most once for each artist it has worked with, and the pair
+     * is not reported to the BestFriendsIndex, which is restored with all the pairs at once
+     *
+     * @param artist      artist it has worked with
+     * @param timesWorked number of times they have worked together
+     */
+    void restoreCollaboration(Artist artist, int timesWorked);
+
     /**
      * Returns the maximum amount of times that this artist has worked with another
      *
@@ -77,4 +102,13 @@ public interface Artist extends Comparable<Artist> {
      * @return the iterator of artist that this artist has worked with
      */
     Iterator<Artist> getFriends();
+
+    /**
+     * Gets the artists this artist has worked with the most times, up to a given number of artists
+     *
+     * @param amount maximum number of artists
+     * @return the iterator of the pairs of this artist with each of the top collaborators,
+     * from the most to the least times worked together
+     */
+    Iterator<ArtistPair> getTopCollaborators(int amount);
 }
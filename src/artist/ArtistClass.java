@@ -2,7 +2,9 @@ package artist;
 
 import artist.exceptions.AlreadyHasBioException;
 import show.Show;
+import artist.comparators.ArtistPairComparatorByTimes;
 import show.comparators.ShowComparatorByYear;
+import util.IntIntHashMap;
 
 import java.util.*;
 
@@ -16,6 +18,11 @@ public class ArtistClass implements Artist {
     private static final int INITIAL_COLLAB_NUM = 1;
     private static final int COLLAB_INCREMENTER = 1;
 
+    /**
+     * Dense id of the artist, given in order of creation
+     */
+    private final int id;
+
     /**
      * String storing the name of the artist
      */
@@ -43,50 +50,75 @@ public class ArtistClass implements Artist {
 
     /**
      * Collection of times an artist has worked with this artist.
-     * Artist -> number of times has worked with this artist
+     * Artist id -> number of times has worked with this artist
      */
-    private final Map<Artist, Integer> cooperatedTimes;
+    private final IntIntHashMap cooperatedTimes;
 
     /**
-     * Collection of artists this artist has worked with
+     * Collection of the artists this artist has worked with the most times
      */
-    private final Set<Artist> friends;
+    private final List<Artist> friends;
+
+    /**
+     * Collection of every artist this artist has worked with, in order of the first collaboration
+     */
+    private final List<Artist> collaborators;
 
     /**
      * Integer storing the maximum number of times this artist has collaborated with some other artist
      */
     private int mostTimesCollaborated;
 
+    /**
+     * Index of the pairs of artists that have worked together the most times, shared by all artists
+     */
+    private final BestFriendsIndex bestFriends;
+
     /**
      * Creates a new artist without any bio
      *
-     * @param name name of the artist
+     * @param id          dense id of the artist
+     * @param name        name of the artist
+     * @param bestFriends index of the pairs of artists that have worked together the most times
      */
-    public ArtistClass(String name) {
+    public ArtistClass(int id, String name, BestFriendsIndex bestFriends) {
+        this.id = id;
+        this.bestFriends = bestFriends;
         this.name = name;
         this.hasBio = false;
-        cooperatedTimes = new HashMap<>();
-        friends = new HashSet<>();
+        cooperatedTimes = new IntIntHashMap();
+        friends = new ArrayList<>();
+        collaborators = new ArrayList<>();
         shows = new TreeSet<>(new ShowComparatorByYear());
     }
 
     /**
      * Creates a new artist with bio
      *
+     * @param id           dense id of the artist
      * @param name         name of the artist
      * @param dateOfBirth  date of birth of the artist
      * @param placeOfBirth place of birth of the artist
+     * @param bestFriends  index of the pairs of artists that have worked together the most times
      */
-    public ArtistClass(String name, String dateOfBirth, String placeOfBirth) {
+    public ArtistClass(int id, String name, String dateOfBirth, String placeOfBirth, BestFriendsIndex bestFriends) {
+        this.id = id;
+        this.bestFriends = bestFriends;
         this.name = name;
         this.dateOfBirth = dateOfBirth;
         this.placeOfBirth = placeOfBirth;
         this.hasBio = true;
-        cooperatedTimes = new HashMap<>();
-        friends = new HashSet<>();
+        cooperatedTimes = new IntIntHashMap();
+        friends = new ArrayList<>();
+        collaborators = new ArrayList<>();
         shows = new TreeSet<>(new ShowComparatorByYear());
     }
 
+    @Override
+    public int getId() {
+        return id;
+    }
+
     @Override
     public String getName() {
         return name;
@@ -135,6 +167,22 @@ public class ArtistClass implements Artist {
         }
     }
 
+    @Override
+    public void addCredit(Show show) {
+        shows.add(show);
+    }
+
+    @Override
+    public void restoreCollaboration(Artist artist, int timesWorked) {
+        cooperatedTimes.increment(artist.getId(), timesWorked);
+        collaborators.add(artist);
+        if (timesWorked > mostTimesCollaborated) {
+            friends.clear();
+            mostTimesCollaborated = timesWorked;
+        }
+        if (timesWorked == mostTimesCollaborated) friends.add(artist);
+    }
+
     @Override
     public int getMostTimesWorked() {
         return mostTimesCollaborated;
@@ -145,6 +193,25 @@ public class ArtistClass implements Artist {
         return friends.iterator();
     }
 
+    /**
+     * Keeps the top collaborators in a heap bounded by the amount, so it takes O(n log amount)
+     * for n collaborators without keeping a second ordered copy of the counts of every artist
+     */
+    @Override
+    public Iterator<ArtistPair> getTopCollaborators(int amount) {
+        Comparator<ArtistPair> order = new ArtistPairComparatorByTimes();
+        PriorityQueue<ArtistPair> top = new PriorityQueue<>(order.reversed());
+        for (Artist artist : collaborators) {
+            if (amount <= 0) break;
+            int times = cooperatedTimes.get(artist.getId());
+            top.add(compareTo(artist) < 0 ? new ArtistPair(this, artist, times) : new ArtistPair(artist, this, times));
+            if (top.size() > amount) top.poll();
+        }
+        List<ArtistPair> result = new ArrayList<>(top);
+        result.sort(order);
+        return result.iterator();
+    }
+
     @Override
     public int compareTo(Artist o) {
         return this.getName().compareTo(o.getName());
@@ -156,18 +223,19 @@ public class ArtistClass implements Artist {
      * @return true if the artist is on the friend list
      */
     private boolean hasArtistAsFriend(Artist artist) {
-        return cooperatedTimes.containsKey(artist);
+        return cooperatedTimes.containsKey(artist.getId());
     }
 
     /**
      * Increases the times that the artist has collaborated with another, if the new value
      * is equal to the most times someone has collaborated they are added to the best friend list
-     * if its greater the best friends list is cleared and they are added to it
+     * if its greater the best friends list is cleared and they are added to it.
+     * The new value is also reported to the index of the best friends among all artists
      * @param artist artist wich the colaboration times of will be increased
      */
     private void updateCooperatedTimes(Artist artist) {
-        int temp = cooperatedTimes.get(artist) + COLLAB_INCREMENTER;
-        cooperatedTimes.put(artist, temp);
+        int temp = cooperatedTimes.increment(artist.getId(), COLLAB_INCREMENTER);
+        bestFriends.update(this, artist, temp);
         if (temp == mostTimesCollaborated) {
             friends.add(artist);
         }
@@ -184,7 +252,9 @@ public class ArtistClass implements Artist {
      * @param artist artist that will be added to the friend list
      */
     private void addArtistToFriends(Artist artist) {
-        cooperatedTimes.put(artist, INITIAL_COLLAB_NUM);
+        cooperatedTimes.increment(artist.getId(), INITIAL_COLLAB_NUM);
+        collaborators.add(artist);
+        bestFriends.update(this, artist, INITIAL_COLLAB_NUM);
         if (mostTimesCollaborated <= INITIAL_COLLAB_NUM) {
             friends.add(artist);
             mostTimesCollaborated = INITIAL_COLLAB_NUM;
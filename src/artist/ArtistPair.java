@@ -0,0 +1,65 @@
+package artist;
+
+/**
+ * Class that stores two artists that have worked together and how many times they did.
+ * The first artist is always the one with the smaller name
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ArtistPair {
+
+    /**
+     * Artist of the pair with the smaller name
+     */
+    private final Artist first;
+
+    /**
+     * Artist of the pair with the larger name
+     */
+    private final Artist second;
+
+    /**
+     * Number of times the artists have worked together
+     */
+    private final int timesWorked;
+
+    /**
+     * Creates a new pair of artists
+     *
+     * @param first       artist with the smaller name
+     * @param second      artist with the larger name
+     * @param timesWorked number of times the artists have worked together
+     */
+    public ArtistPair(Artist first, Artist second, int timesWorked) {
+        this.first = first;
+        this.second = second;
+        this.timesWorked = timesWorked;
+    }
+
+    /**
+     * Gets the artist of the pair with the smaller name
+     *
+     * @return the artist of the pair with the smaller name
+     */
+    public Artist getFirst() {
+        return first;
+    }
+
+    /**
+     * Gets the artist of the pair with the larger name
+     *
+     * @return the artist of the pair with the larger name
+     */
+    public Artist getSecond() {
+        return second;
+    }
+
+    /**
+     * Gets the number of times the artists have worked together
+     *
+     * @return the number of times the artists have worked together
+     */
+    public int getTimesWorked() {
+        return timesWorked;
+    }
+}
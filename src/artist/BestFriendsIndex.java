@@ -0,0 +1,236 @@
+package artist;
+
+import artist.comparators.ArtistPairComparator;
+import util.LongIntHashMap;
+
+import java.util.*;
+
+/**
+ * Index of the pairs of artists that have worked together the most times among all artists.
+ * The artists report each new collaboration count, and since the counts only grow one at a time, each pair moves
+ * from the bucket of its previous count to the bucket of the next one. The buckets keep the pairs as the ids of
+ * their artists packed in a long, and the slot of each pair in its bucket is kept in a map of primitives,
+ * so that an update moves the pair without allocating anything nor comparing any names.
+ * The pairs of a bucket are only ordered by the names of their artists when they are listed
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class BestFriendsIndex {
+
+    private static final int ID_BITS = 32;
+    private static final long ID_MASK = 0xFFFFFFFFL;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_BUCKET_CAPACITY = 4;
+
+    /**
+     * Largest number of times any two artists have worked together
+     */
+    private int mostTimesWorked;
+
+    /**
+     * Pairs of artists with each number of times worked together, as packed ids in the first positions.
+     * times worked -> pairs, null if no pair ever had that number
+     */
+    private long[][] buckets;
+
+    /**
+     * Number of pairs in each bucket
+     */
+    private int[] bucketSizes;
+
+    /**
+     * Slot of each pair in the bucket of its number of times worked together. packed ids -> slot
+     */
+    private final LongIntHashMap slots;
+
+    /**
+     * Artists of the pairs. id -> artist
+     */
+    private Artist[] artists;
+
+    /**
+     * Pairs of artists that have worked together mostTimesWorked times, sorted by the ArtistPairComparator,
+     * or null if they changed since they were last listed
+     */
+    private List<ArtistPair> bestPairs;
+
+    /**
+     * Creates a new index without any collaborations
+     */
+    public BestFriendsIndex() {
+        mostTimesWorked = 0;
+        buckets = new long[INITIAL_CAPACITY][];
+        bucketSizes = new int[INITIAL_CAPACITY];
+        slots = new LongIntHashMap();
+        artists = new Artist[INITIAL_CAPACITY];
+        bestPairs = null;
+    }
+
+    /**
+     * Updates the index with the new number of times two artists have worked together.
+     * Both artists of a pair report the same count, so only the report of the artist with the smaller name is used.
+     * The count grows by one at a time, so the pair is moved from the bucket of the previous count
+     *
+     * @param artist      artist that reports the count
+     * @param other       artist it has worked with
+     * @param timesWorked number of times they have worked together
+     */
+    public void update(Artist artist, Artist other, int timesWorked) {
+        if (artist.compareTo(other) >= 0) return;
+        long pair = pack(artist, other);
+        if (timesWorked > 1) removeFromBucket(timesWorked - 1, slots.get(pair));
+        addToBucket(timesWorked, pair);
+        if (timesWorked >= mostTimesWorked) {
+            mostTimesWorked = timesWorked;
+            bestPairs = null;
+        }
+    }
+
+    /**
+     * Restores a pair of artists that have worked together, saved in a snapshot.
+     * The pair goes straight into the bucket of its count, so the index is built in linear time
+     *
+     * @param artist      an artist of the pair
+     * @param other       the other artist of the pair
+     * @param timesWorked number of times they have worked together
+     * @pre the pair has not been restored nor updated before
+     */
+    public void restore(Artist artist, Artist other, int timesWorked) {
+        long pair = artist.compareTo(other) < 0 ? pack(artist, other) : pack(other, artist);
+        addToBucket(timesWorked, pair);
+        if (timesWorked >= mostTimesWorked) {
+            mostTimesWorked = timesWorked;
+            bestPairs = null;
+        }
+    }
+
+    /**
+     * Gets the pairs of artists that have worked together the most times, up to a given number of pairs.
+     * Buckets are taken whole from the largest count down, and only the pairs of the last one are chosen
+     * by name, in a heap bounded by the pairs still missing
+     *
+     * @param amount maximum number of pairs
+     * @return the iterator of the top pairs, from the most to the least times worked together
+     */
+    public Iterator<ArtistPair> getTopPairs(int amount) {
+        Comparator<ArtistPair> byNames = new ArtistPairComparator();
+        List<ArtistPair> top = new ArrayList<>();
+        for (int times = mostTimesWorked; times > 0 && top.size() < amount; times--) {
+            int missing = amount - top.size();
+            PriorityQueue<ArtistPair> chosen = new PriorityQueue<>(byNames.reversed());
+            for (int slot = 0; slot < bucketSizes[times]; slot++) {
+                chosen.add(unpack(buckets[times][slot], times));
+                if (chosen.size() > missing) chosen.poll();
+            }
+            List<ArtistPair> bucket = new ArrayList<>(chosen);
+            bucket.sort(byNames);
+            top.addAll(bucket);
+        }
+        return top.iterator();
+    }
+
+    /**
+     * Gets the largest number of times any two artists have worked together
+     *
+     * @return the largest number of times any two artists have worked together or 0 if there are no collaborations
+     */
+    public int getMostTimesWorked() {
+        return mostTimesWorked;
+    }
+
+    /**
+     * Checks if any two artists have worked together
+     *
+     * @return true if there are no collaborations, false otherwise
+     */
+    public boolean isEmpty() {
+        return mostTimesWorked == 0;
+    }
+
+    /**
+     * Gets the pairs of artists that have worked together the most times, sorted by the names of the artists
+     *
+     * @return the iterator of the pairs of artists that have worked together the most times
+     */
+    public Iterator<ArtistPair> getPairs() {
+        if (bestPairs == null) {
+            bestPairs = new ArrayList<>();
+            for (int slot = 0; slot < bucketSizes[mostTimesWorked]; slot++)
+                bestPairs.add(unpack(buckets[mostTimesWorked][slot], mostTimesWorked));
+            bestPairs.sort(new ArtistPairComparator());
+        }
+        return Collections.unmodifiableList(bestPairs).iterator();
+    }
+
+    /**
+     * Packs the ids of the artists of a pair in a long, remembering the artists
+     *
+     * @param first  artist with the smaller name
+     * @param second artist with the larger name
+     * @return the ids of the artists packed in a long
+     */
+    private long pack(Artist first, Artist second) {
+        remember(first);
+        remember(second);
+        return (long) first.getId() << ID_BITS | second.getId();
+    }
+
+    /**
+     * Creates the pair of the artists of packed ids
+     *
+     * @param pair        ids of the artists packed in a long
+     * @param timesWorked number of times they have worked together
+     * @return the pair of the artists
+     */
+    private ArtistPair unpack(long pair, int timesWorked) {
+        return new ArtistPair(artists[(int) (pair >>> ID_BITS)], artists[(int) (pair & ID_MASK)], timesWorked);
+    }
+
+    /**
+     * Keeps an artist by its id, so that its pairs can be unpacked
+     *
+     * @param artist artist of a pair
+     */
+    private void remember(Artist artist) {
+        int id = artist.getId();
+        if (id >= artists.length) artists = Arrays.copyOf(artists, Math.max(id + 1, artists.length * 2));
+        artists[id] = artist;
+    }
+
+    /**
+     * Adds a pair to the bucket of its number of times worked together
+     *
+     * @param timesWorked number of times the artists of the pair have worked together
+     * @param pair        ids of the artists packed in a long
+     */
+    private void addToBucket(int timesWorked, long pair) {
+        if (timesWorked >= buckets.length) {
+            int capacity = Math.max(timesWorked + 1, buckets.length * 2);
+            buckets = Arrays.copyOf(buckets, capacity);
+            bucketSizes = Arrays.copyOf(bucketSizes, capacity);
+        }
+        long[] bucket = buckets[timesWorked];
+        int size = bucketSizes[timesWorked];
+        if (bucket == null) bucket = buckets[timesWorked] = new long[INITIAL_BUCKET_CAPACITY];
+        else if (size == bucket.length) bucket = buckets[timesWorked] = Arrays.copyOf(bucket, size * 2);
+        bucket[size] = pair;
+        bucketSizes[timesWorked] = size + 1;
+        slots.put(pair, size);
+    }
+
+    /**
+     * Removes a pair from the bucket of its previous number of times worked together,
+     * moving the last pair of the bucket into its slot
+     *
+     * @param timesWorked previous number of times the artists of the pair worked together
+     * @param slot        slot of the pair in its bucket
+     */
+    private void removeFromBucket(int timesWorked, int slot) {
+        long[] bucket = buckets[timesWorked];
+        int last = --bucketSizes[timesWorked];
+        if (slot != last) {
+            bucket[slot] = bucket[last];
+            slots.put(bucket[slot], slot);
+        }
+    }
+}
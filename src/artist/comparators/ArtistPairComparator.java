@@ -0,0 +1,20 @@
+package artist.comparators;
+
+import artist.ArtistPair;
+
+import java.util.Comparator;
+
+/**
+ * Class that compares two pairs of artists by the name of the first artist and then by the name of the second
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ArtistPairComparator implements Comparator<ArtistPair> {
+
+    @Override
+    public int compare(ArtistPair o1, ArtistPair o2) {
+        int comp = o1.getFirst().compareTo(o2.getFirst());
+        if (comp == 0) comp = o1.getSecond().compareTo(o2.getSecond());
+        return comp;
+    }
+}
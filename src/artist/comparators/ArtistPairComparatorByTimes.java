@@ -0,0 +1,23 @@
+package artist.comparators;
+
+import artist.ArtistPair;
+
+import java.util.Comparator;
+
+/**
+ * Class that compares two pairs of artists by the number of times they have worked together, from the most to
+ * the least. In case of a draw, it compares them by the names of the artists
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ArtistPairComparatorByTimes implements Comparator<ArtistPair> {
+
+    private final Comparator<ArtistPair> byNames = new ArtistPairComparator();
+
+    @Override
+    public int compare(ArtistPair o1, ArtistPair o2) {
+        int comp = o2.getTimesWorked() - o1.getTimesWorked();
+        if (comp == 0) comp = byNames.compare(o1, o2);
+        return comp;
+    }
+}
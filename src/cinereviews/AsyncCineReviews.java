@@ -0,0 +1,318 @@
+package cinereviews;
+
+import artist.Artist;
+import artist.ArtistPair;
+import cinereviews.avoiders.AvoidersResult;
+import cinereviews.bulk.ImportReport;
+import review.Review;
+import show.Show;
+import user.User;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous version of CineReviews, where every operation returns at once with a future of its result.
+ * A future that fails completes exceptionally with the exception the operation of CineReviews throws,
+ * and one that could not even be started, because the app is closed or too busy, with a RejectedExecutionException.
+ * Changes are applied in the order they are made, but queries do not wait for them, so a query only sees
+ * a change that it is chained to, as in reviewShow(...).thenCompose(count -> getReviewsOfShow(...))
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public interface AsyncCineReviews extends AutoCloseable {
+
+    /**
+     * Registers a new User to the application
+     *
+     * @param type     type of the user (Critic, Audience or Admin)
+     * @param name     name of the user
+     * @param password password (in case it's an admin) of the user
+     * @return future completed once the user is registered, or with UnknownUserTypeException or
+     * UserAlreadyExistsException
+     */
+    CompletableFuture<Void> registerUser(String type, String name, String password);
+
+    /**
+     * Gets all the users registered in the application
+     *
+     * @return future of the iterator of the users
+     */
+    CompletableFuture<Iterator<User>> getAllUsers();
+
+    /**
+     * Adds a new movie to the application
+     *
+     * @param adminName        name of the admin
+     * @param password         password of the admin
+     * @param title            title of the movie
+     * @param director         director of the movie
+     * @param duration         duration of the movie
+     * @param ageCertification age certification of the movie
+     * @param releaseYear      release year of the movie
+     * @param genres           genres of the movie
+     * @param cast             cast of the movie
+     * @return future of the number of artists created, or completed with NotAnAdminException, WrongPasswordException
+     * or ShowAlreadyExistsException
+     */
+    CompletableFuture<Integer> addMovie(String adminName, String password, String title, String director, int duration,
+                                        String ageCertification, int releaseYear, Iterator<String> genres,
+                                        Iterator<String> cast);
+
+    /**
+     * Adds a new series to the application
+     *
+     * @param adminName        name of the admin
+     * @param password         password of the admin
+     * @param title            title of the series
+     * @param director         creator of the series
+     * @param seasonAmount     number of seasons of the series
+     * @param ageCertification age certification of the series
+     * @param releaseYear      release year of the series
+     * @param genres           genres of the series
+     * @param cast             cast of the series
+     * @return future of the number of artists created, or completed with NotAnAdminException, WrongPasswordException
+     * or ShowAlreadyExistsException
+     */
+    CompletableFuture<Integer> addSeries(String adminName, String password, String title, String director,
+                                         int seasonAmount, String ageCertification, int releaseYear,
+                                         Iterator<String> genres, Iterator<String> cast);
+
+    /**
+     * Imports the shows, bios and reviews of catalog files
+     *
+     * @param adminName name of the admin that uploads the shows
+     * @param password  password of the admin
+     * @param files     paths of the catalog files
+     * @return future of the report of the import, or completed with NotAnAdminException, WrongPasswordException
+     * or UnreadableFileException
+     */
+    CompletableFuture<ImportReport> importCatalog(String adminName, String password, Iterator<String> files);
+
+    /**
+     * Saves the catalog, with every change made before, to a snapshot file
+     *
+     * @param file path of the snapshot file
+     * @return future completed once the snapshot is saved, or with UnwritableFileException
+     */
+    CompletableFuture<Void> saveSnapshot(String file);
+
+    /**
+     * Saves the catalog to a snapshot of its journal and compacts the journal
+     *
+     * @return future of the directory of the journal, or completed with NoJournalException or UnwritableFileException
+     */
+    CompletableFuture<String> checkpoint();
+
+    /**
+     * Gets all the shows of the application
+     *
+     * @return future of the iterator of the shows
+     */
+    CompletableFuture<Iterator<Show>> listAllShows();
+
+    /**
+     * Adds or updates the bio of an artist
+     *
+     * @param name         name of the artist
+     * @param dateOfBirth  date of birth of the artist
+     * @param placeOfBirth place of birth of the artist
+     * @return future of true if the artist was created, or completed with AlreadyHasBioException
+     */
+    CompletableFuture<Boolean> addArtistBio(String name, String dateOfBirth, String placeOfBirth);
+
+    /**
+     * Gets the shows an artist worked on
+     *
+     * @param artistName name of the artist
+     * @return future of the iterator of the shows, or completed with UnknownArtistException
+     */
+    CompletableFuture<Iterator<Show>> getArtistCredits(String artistName);
+
+    /**
+     * Checks if an artist has a bio
+     *
+     * @param artist name of the artist
+     * @return future of true if the artist has a bio
+     */
+    CompletableFuture<Boolean> artistHasBio(String artist);
+
+    /**
+     * Gets the place of birth of an artist
+     *
+     * @param artist name of the artist
+     * @return future of the place of birth
+     */
+    CompletableFuture<String> getPlaceOfBirthOfArtist(String artist);
+
+    /**
+     * Gets the date of birth of an artist
+     *
+     * @param artist name of the artist
+     * @return future of the date of birth
+     */
+    CompletableFuture<String> getDateOfBirthOfArtist(String artist);
+
+    /**
+     * Gets the role of an artist in a show
+     *
+     * @param artistName name of the artist
+     * @param show       title of the show
+     * @return future of the role
+     */
+    CompletableFuture<String> getArtistRole(String artistName, String show);
+
+    /**
+     * Adds a review to a show
+     *
+     * @param username name of the user
+     * @param review   text of the review
+     * @param showName title of the show
+     * @param score    classification of the review
+     * @return future of the number of reviews of the show, or completed with UnknownUserException, IsAdminException,
+     * UnknownShowException, UserAlreadyReviewedException or InvalidClassificationException
+     */
+    CompletableFuture<Integer> reviewShow(String username, String review, String showName, String score);
+
+    /**
+     * Gets the reviews of a show
+     *
+     * @param showName title of the show
+     * @return future of the iterator of the reviews, or completed with UnknownShowException
+     */
+    CompletableFuture<Iterator<Review>> getReviewsOfShow(String showName);
+
+    /**
+     * Gets the score of a show
+     *
+     * @param showName title of the show
+     * @return future of the score
+     */
+    CompletableFuture<Float> getScoreOfShow(String showName);
+
+    /**
+     * Gets the shows released in a year, by score
+     *
+     * @param year release year
+     * @return future of the iterator of the shows
+     */
+    CompletableFuture<Iterator<Show>> getShowsByYear(int year);
+
+    /**
+     * Gets the shows released in a range of years, by score
+     *
+     * @param from first year of the range
+     * @param to   last year of the range
+     * @return future of the iterator of the shows
+     */
+    CompletableFuture<Iterator<Show>> getShowsByYears(int from, int to);
+
+    /**
+     * Gets the shows that have every given genre, by score
+     *
+     * @param genres genres of the shows
+     * @return future of the iterator of the shows
+     */
+    CompletableFuture<Iterator<Show>> getShowsByGenre(Iterator<String> genres);
+
+    /**
+     * Gets every artist of the pairs that have worked together the most times
+     *
+     * @return future of the iterator of the artists, or completed with NoArtistException or NoCollaborationsException
+     */
+    CompletableFuture<Iterator<Artist>> getAllFriends();
+
+    /**
+     * Gets the pairs of artists that have worked together the most times
+     *
+     * @return future of the iterator of the pairs, or completed with NoArtistException or NoCollaborationsException
+     */
+    CompletableFuture<Iterator<ArtistPair>> getBestFriends();
+
+    /**
+     * Gets the pairs of artists that have worked together the most times, up to an amount
+     *
+     * @param amount maximum number of pairs
+     * @return future of the iterator of the pairs, or completed with NoArtistException or NoCollaborationsException
+     */
+    CompletableFuture<Iterator<ArtistPair>> getTopCollaborations(int amount);
+
+    /**
+     * Gets the artists that have worked the most times with an artist, up to an amount
+     *
+     * @param name   name of the artist
+     * @param amount maximum number of artists
+     * @return future of the iterator of the pairs, or completed with UnknownArtistException or NoCollaborationsException
+     */
+    CompletableFuture<Iterator<ArtistPair>> getTopCollaboratorsOf(String name, int amount);
+
+    /**
+     * Gets the artists an artist has worked with
+     *
+     * @param name name of the artist
+     * @return future of the iterator of the artists
+     */
+    CompletableFuture<Iterator<Artist>> getFriendsOf(String name);
+
+    /**
+     * Gets the largest groups of artists that never worked together
+     *
+     * @return future of the groups with their size, or completed with NoArtistException
+     */
+    CompletableFuture<AvoidersResult> getAvoiders();
+
+    /**
+     * Gets the largest groups of artists that never worked together found within a time budget
+     *
+     * @param timeBudget time budget of the search, in milliseconds
+     * @return future of the groups with their size and whether they are optimal, or completed with NoArtistException
+     */
+    CompletableFuture<AvoidersResult> getAvoiders(int timeBudget);
+
+    /**
+     * Stops the search of the avoiders that is running, which then returns the best groups found so far
+     */
+    void cancelAvoiders();
+
+    /**
+     * Gets the number of changes waiting to be applied
+     *
+     * @return the number of changes in the queue of the writer
+     */
+    int getWriteQueueDepth();
+
+    /**
+     * Gets the number of expensive queries waiting for a thread of their executor
+     *
+     * @return the number of queries in the queue of the executor
+     */
+    int getReadQueueDepth();
+
+    /**
+     * Gets the number of expensive queries running
+     *
+     * @return the number of threads of the executor running a query
+     */
+    int getActiveReads();
+
+    /**
+     * Gets the fraction of the executor of the expensive queries in use, counting its queue
+     *
+     * @return 0 when it is idle, 1 when every thread is busy and the queue is full, and new queries are rejected
+     */
+    float getReadSaturation();
+
+    /**
+     * Gets the number of expensive queries rejected because their executor was saturated
+     *
+     * @return the number of rejected queries
+     */
+    long getRejectedReads();
+
+    /**
+     * Applies the changes already made and stops the writer and the executor of the queries.
+     * Changes and queries made afterwards are rejected
+     */
+    @Override
+    void close();
+}
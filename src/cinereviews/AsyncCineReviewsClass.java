@@ -0,0 +1,525 @@
+package cinereviews;
+
+import artist.Artist;
+import artist.ArtistPair;
+import cinereviews.avoiders.AvoidersResult;
+import cinereviews.bulk.ImportReport;
+import review.Review;
+import show.Show;
+import user.User;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AsyncCineReviews over the catalog of a ConcurrentCineReviewsClass.
+ * Every change is put in a queue and applied by a single writer thread, which takes as many changes as are waiting
+ * and applies them together, holding the write lock of the catalog once for the whole batch, so changes never wait
+ * for each other's locks and callers never wait for a change. Expensive queries, which read many shows or artists,
+ * run on a bounded executor of their own, whose queue rejects them once it is full instead of letting them pile up,
+ * while cheap queries, which read a single show, user or artist, run at once in the thread that makes them
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class AsyncCineReviewsClass implements AsyncCineReviews {
+
+    private static final int MAX_BATCH = 1024;
+    private static final int DEFAULT_READ_QUEUE = 1024;
+    private static final long CLOSE_TIMEOUT = 30;
+
+    /**
+     * Catalog of the app
+     */
+    private final ConcurrentCineReviewsClass catalog;
+
+    /**
+     * Changes waiting to be applied, in the order they were made
+     */
+    private final BlockingQueue<Change<?>> changes;
+
+    /**
+     * Thread that applies the changes
+     */
+    private final Thread writer;
+
+    /**
+     * Executor of the expensive queries
+     */
+    private final ThreadPoolExecutor reads;
+
+    /**
+     * Number of expensive queries rejected because their executor was saturated
+     */
+    private final LongAdder rejectedReads;
+
+    /**
+     * true once the app is closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates a new asynchronous CineReviews app with an empty catalog, whose expensive queries run on one thread
+     * per core
+     */
+    public AsyncCineReviewsClass() {
+        this(new ConcurrentCineReviewsClass(), Runtime.getRuntime().availableProcessors(), DEFAULT_READ_QUEUE);
+    }
+
+    /**
+     * Creates a new asynchronous CineReviews app over a catalog, which from then on must only be used through it
+     *
+     * @param catalog     catalog of the app
+     * @param readThreads number of threads of the expensive queries
+     * @param readQueue   number of expensive queries that may wait for a thread before new ones are rejected
+     */
+    public AsyncCineReviewsClass(ConcurrentCineReviewsClass catalog, int readThreads, int readQueue) {
+        this.catalog = catalog;
+        this.changes = new LinkedBlockingQueue<>();
+        this.rejectedReads = new LongAdder();
+        this.reads = new ThreadPoolExecutor(readThreads, readThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(readQueue), task -> {
+            Thread thread = new Thread(task, "cinereviews-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::applyChanges, "cinereviews-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public CompletableFuture<Void> registerUser(String type, String name, String password) {
+        return change(cine -> {
+            cine.registerUser(type, name, password);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Iterator<User>> getAllUsers() {
+        return expensiveQuery(catalog::getAllUsers);
+    }
+
+    @Override
+    public CompletableFuture<Integer> addMovie(String adminName, String password, String title, String director,
+                                               int duration, String ageCertification, int releaseYear,
+                                               Iterator<String> genres, Iterator<String> cast) {
+        List<String> genreList = toList(genres);
+        List<String> castList = toList(cast);
+        return change(cine -> cine.addMovie(adminName, password, title, director, duration, ageCertification,
+                releaseYear, genreList.iterator(), castList.iterator()));
+    }
+
+    @Override
+    public CompletableFuture<Integer> addSeries(String adminName, String password, String title, String director,
+                                                int seasonAmount, String ageCertification, int releaseYear,
+                                                Iterator<String> genres, Iterator<String> cast) {
+        List<String> genreList = toList(genres);
+        List<String> castList = toList(cast);
+        return change(cine -> cine.addSeries(adminName, password, title, director, seasonAmount, ageCertification,
+                releaseYear, genreList.iterator(), castList.iterator()));
+    }
+
+    @Override
+    public CompletableFuture<ImportReport> importCatalog(String adminName, String password, Iterator<String> files) {
+        List<String> fileList = toList(files);
+        return change(cine -> cine.importCatalog(adminName, password, fileList.iterator()));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveSnapshot(String file) {
+        return change(cine -> {
+            cine.saveSnapshot(file);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> checkpoint() {
+        return change(CineReviewsClass::checkpoint);
+    }
+
+    @Override
+    public CompletableFuture<Iterator<Show>> listAllShows() {
+        return expensiveQuery(catalog::listAllShows);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addArtistBio(String name, String dateOfBirth, String placeOfBirth) {
+        return change(cine -> cine.addArtistBio(name, dateOfBirth, placeOfBirth));
+    }
+
+    @Override
+    public CompletableFuture<Iterator<Show>> getArtistCredits(String artistName) {
+        return cheapQuery(() -> catalog.getArtistCredits(artistName));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> artistHasBio(String artist) {
+        return cheapQuery(() -> catalog.artistHasBio(artist));
+    }
+
+    @Override
+    public CompletableFuture<String> getPlaceOfBirthOfArtist(String artist) {
+        return cheapQuery(() -> catalog.getPlaceOfBirthOfArtist(artist));
+    }
+
+    @Override
+    public CompletableFuture<String> getDateOfBirthOfArtist(String artist) {
+        return cheapQuery(() -> catalog.getDateOfBirthOfArtist(artist));
+    }
+
+    @Override
+    public CompletableFuture<String> getArtistRole(String artistName, String show) {
+        return cheapQuery(() -> catalog.getArtistRole(artistName, show));
+    }
+
+    @Override
+    public CompletableFuture<Integer> reviewShow(String username, String review, String showName, String score) {
+        return change(cine -> cine.reviewShow(username, review, showName, score));
+    }
+
+    @Override
+    public CompletableFuture<Iterator<Review>> getReviewsOfShow(String showName) {
+        return cheapQuery(() -> catalog.getReviewsOfShow(showName));
+    }
+
+    @Override
+    public CompletableFuture<Float> getScoreOfShow(String showName) {
+        return cheapQuery(() -> catalog.getScoreOfShow(showName));
+    }
+
+    @Override
+    public CompletableFuture<Iterator<Show>> getShowsByYear(int year) {
+        return cheapQuery(() -> catalog.getShowsByYear(year));
+    }
+
+    @Override
+    public CompletableFuture<Iterator<Show>> getShowsByYears(int from, int to) {
+        return expensiveQuery(() -> catalog.getShowsByYears(from, to));
+    }
+
+    @Override
+    public CompletableFuture<Iterator<Show>> getShowsByGenre(Iterator<String> genres) {
+        List<String> genreList = toList(genres);
+        return expensiveQuery(() -> catalog.getShowsByGenre(genreList.iterator()));
+    }
+
+    @Override
+    public CompletableFuture<Iterator<Artist>> getAllFriends() {
+        return expensiveQuery(catalog::getAllFriends);
+    }
+
+    @Override
+    public CompletableFuture<Iterator<ArtistPair>> getBestFriends() {
+        return expensiveQuery(catalog::getBestFriends);
+    }
+
+    @Override
+    public CompletableFuture<Iterator<ArtistPair>> getTopCollaborations(int amount) {
+        return expensiveQuery(() -> catalog.getTopCollaborations(amount));
+    }
+
+    @Override
+    public CompletableFuture<Iterator<ArtistPair>> getTopCollaboratorsOf(String name, int amount) {
+        return cheapQuery(() -> catalog.getTopCollaboratorsOf(name, amount));
+    }
+
+    @Override
+    public CompletableFuture<Iterator<Artist>> getFriendsOf(String name) {
+        return cheapQuery(() -> catalog.getFriendsOf(name));
+    }
+
+    @Override
+    public CompletableFuture<AvoidersResult> getAvoiders() {
+        return expensiveQuery(catalog::getAvoiders);
+    }
+
+    @Override
+    public CompletableFuture<AvoidersResult> getAvoiders(int timeBudget) {
+        return expensiveQuery(() -> catalog.getAvoiders(timeBudget));
+    }
+
+    @Override
+    public void cancelAvoiders() {
+        catalog.cancelAvoiders();
+    }
+
+    @Override
+    public int getWriteQueueDepth() {
+        return changes.size();
+    }
+
+    @Override
+    public int getReadQueueDepth() {
+        return reads.getQueue().size();
+    }
+
+    @Override
+    public int getActiveReads() {
+        return reads.getActiveCount();
+    }
+
+    @Override
+    public float getReadSaturation() {
+        int capacity = reads.getMaximumPoolSize() + reads.getQueue().size() + reads.getQueue().remainingCapacity();
+        return (float) (reads.getActiveCount() + reads.getQueue().size()) / capacity;
+    }
+
+    @Override
+    public long getRejectedReads() {
+        return rejectedReads.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        changes.add(Change.STOP);
+        reads.shutdown();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT));
+            reads.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Puts a change in the queue of the writer
+     *
+     * @param operation operation that makes the change
+     * @param <T>       type of the result of the change
+     * @return future of the result of the change
+     */
+    private <T> CompletableFuture<T> change(Operation<T> operation) {
+        Change<T> change = new Change<>(operation);
+        boolean queued = !closed && changes.add(change);
+        // The app may have been closed meanwhile, after the writer took its last changes, so a change still
+        // in the queue is taken back and rejected here, while one the writer took is completed by the writer
+        if (closed && (!queued || changes.remove(change))) change.fail(null);
+        return change.future;
+    }
+
+    /**
+     * Applies the changes in batches, until the app is closed or the writer fails. A writer that fails closes
+     * the app, completes the changes it applied and fails every other change with the cause, and then dies with it
+     */
+    private void applyChanges() {
+        List<Change<?>> batch = new ArrayList<>();
+        Throwable cause = null;
+        try {
+            boolean stopped = false;
+            while (!stopped) {
+                batch.add(changes.take());
+                changes.drainTo(batch, MAX_BATCH - 1);
+                int end = batch.indexOf(Change.STOP);
+                stopped = end >= 0;
+                List<Change<?>> applied = batch.subList(0, stopped ? end : batch.size());
+                catalog.applyExclusively(cine -> {
+                    for (Change<?> change : applied)
+                        change.apply(cine);
+                });
+                // The callers only get their results once the lock is released, so their callbacks do not run under it
+                for (Change<?> change : applied)
+                    change.complete();
+                applied.clear();
+            }
+        } catch (InterruptedException e) {
+            // Nothing interrupts the writer but the end of the process, so it stops as if the app was closed
+        } catch (RuntimeException | Error e) {
+            cause = e;
+            throw e;
+        } finally {
+            closed = true;
+            // Changes that passed the check of close, or that came after the change that failed, are never applied
+            changes.drainTo(batch);
+            for (Change<?> change : batch)
+                if (change != Change.STOP) change.fail(cause);
+        }
+    }
+
+    /**
+     * Runs an expensive query on the executor of the queries
+     *
+     * @param query query to run
+     * @param <T>   type of the result of the query
+     * @return future of the result of the query
+     */
+    private <T> CompletableFuture<T> expensiveQuery(Query<T> query) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            reads.execute(() -> run(query, future));
+        } catch (RejectedExecutionException e) {
+            rejectedReads.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Runs a cheap query in the calling thread
+     *
+     * @param query query to run
+     * @param <T>   type of the result of the query
+     * @return future of the result of the query, already completed
+     */
+    private <T> CompletableFuture<T> cheapQuery(Query<T> query) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (closed) future.completeExceptionally(new RejectedExecutionException("app is closed"));
+        else run(query, future);
+        return future;
+    }
+
+    /**
+     * Runs a query and completes its future with its result or its failure
+     *
+     * @param query  query to run
+     * @param future future of the result of the query
+     * @param <T>    type of the result of the query
+     */
+    private static <T> void run(Query<T> query, CompletableFuture<T> future) {
+        try {
+            future.complete(query.run());
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Copies the elements of an iterator, so that the caller may reuse it as soon as the call returns
+     *
+     * @param it iterator of the elements
+     * @return list of the elements
+     */
+    private static List<String> toList(Iterator<String> it) {
+        List<String> list = new ArrayList<>();
+        while (it.hasNext())
+            list.add(it.next());
+        return list;
+    }
+
+    /**
+     * Change of the catalog, which may throw the exceptions of CineReviews
+     *
+     * @param <T> type of the result
+     */
+    @FunctionalInterface
+    private interface Operation<T> {
+
+        /**
+         * Runs the operation
+         *
+         * @param catalog catalog to change
+         * @return the result of the operation
+         * @throws Exception the exception of the operation
+         */
+        T run(CineReviewsClass catalog) throws Exception;
+    }
+
+    /**
+     * Query of the catalog, which may throw the exceptions of CineReviews
+     *
+     * @param <T> type of the result
+     */
+    @FunctionalInterface
+    private interface Query<T> {
+
+        /**
+         * Runs the query
+         *
+         * @return the result of the query
+         * @throws Exception the exception of the query
+         */
+        T run() throws Exception;
+    }
+
+    /**
+     * Change waiting in the queue of the writer, with the future of its result
+     *
+     * @param <T> type of the result
+     */
+    private static class Change<T> {
+
+        /**
+         * Change put in the queue by close, after which the writer stops
+         */
+        static final Change<Void> STOP = new Change<>(cine -> null);
+
+        /**
+         * Operation that makes the change
+         */
+        private final Operation<T> operation;
+
+        /**
+         * Future of the result of the change
+         */
+        private final CompletableFuture<T> future;
+
+        /**
+         * Result of the change, once it is applied
+         */
+        private T result;
+
+        /**
+         * Failure of the change, once it is applied, or null
+         */
+        private Exception failure;
+
+        /**
+         * true once the change is applied, successfully or not
+         */
+        private boolean applied;
+
+        /**
+         * Creates a change
+         *
+         * @param operation operation that makes the change
+         */
+        Change(Operation<T> operation) {
+            this.operation = operation;
+            this.future = new CompletableFuture<>();
+        }
+
+        /**
+         * Applies the change, keeping its result or failure until the future is completed
+         *
+         * @param catalog catalog to change
+         */
+        void apply(CineReviewsClass catalog) {
+            try {
+                result = operation.run(catalog);
+            } catch (Exception e) {
+                failure = e;
+            }
+            applied = true;
+        }
+
+        /**
+         * Completes the future with the result or the failure of the change
+         */
+        void complete() {
+            if (failure == null) future.complete(result);
+            else future.completeExceptionally(failure);
+        }
+
+        /**
+         * Completes the future of a change that will not be applied anymore, or with its result if it already was
+         *
+         * @param cause failure of the writer, or null if the app was closed
+         */
+        void fail(Throwable cause) {
+            if (applied) complete();
+            else if (cause == null) future.completeExceptionally(new RejectedExecutionException("app is closed"));
+            else future.completeExceptionally(new RejectedExecutionException("writer of the app failed", cause));
+        }
+    }
+}
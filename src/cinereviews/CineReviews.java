@@ -1,11 +1,20 @@
 package cinereviews;
 
 import artist.Artist;
+import artist.ArtistPair;
 import artist.exceptions.AlreadyHasBioException;
 import artist.exceptions.UnknownArtistException;
+import cinereviews.avoiders.AvoidersResult;
+import cinereviews.bulk.ImportReport;
+import cinereviews.exceptions.JournalFailedException;
 import cinereviews.exceptions.NoArtistException;
 import cinereviews.exceptions.NoCollaborationsException;
+import cinereviews.exceptions.NoJournalException;
+import cinereviews.exceptions.UnreadableFileException;
+import cinereviews.exceptions.UnwritableFileException;
+import cinereviews.journal.Journal;
 import review.Review;
+import review.exceptions.InvalidClassificationException;
 import review.exceptions.UserAlreadyReviewedException;
 import show.exceptions.ShowAlreadyExistsException;
 import show.Show;
@@ -14,7 +23,6 @@ import user.User;
 import user.exceptions.*;
 
 import java.util.Iterator;
-import java.util.Set;
 
 /**
  * An interface for the System CineReviews that manages all the other classes and keeps
@@ -32,8 +40,10 @@ public interface CineReviews {
      * @param password password (in case it's an admin) of the user
      * @throws UnknownUserTypeException   exception when the user type is unknown
      * @throws UserAlreadyExistsException exception when the user already exists
+     * @throws JournalFailedException     exception when the change can not be written to the journal
      */
-    void registerUser(String type, String name, String password) throws UnknownUserTypeException, UserAlreadyExistsException;
+    void registerUser(String type, String name, String password) throws UnknownUserTypeException,
+            UserAlreadyExistsException, JournalFailedException;
 
     /**
      * Returns an iterator with all the users in the platform including admins
@@ -61,10 +71,11 @@ public interface CineReviews {
      * @throws NotAnAdminException        exception when the user is not an admin
      * @throws WrongPasswordException     exception when the password of the admin is wrong
      * @throws ShowAlreadyExistsException exception when the show already exists
+     * @throws JournalFailedException     exception when the change can not be written to the journal
      */
     int addMovie(String adminName, String password, String title,
                  String director, int duration, String ageCertification, int releaseYear, Iterator<String> genres, Iterator<String> cast)
-            throws NotAnAdminException, WrongPasswordException, ShowAlreadyExistsException;
+            throws NotAnAdminException, WrongPasswordException, ShowAlreadyExistsException, JournalFailedException;
 
     /**
      * Adds a new series to the platform, to do this an admin is needed and the respective password
@@ -85,9 +96,67 @@ public interface CineReviews {
      * @throws NotAnAdminException        exception when the user is not an admin
      * @throws WrongPasswordException     exception when the password of the admin is wrong
      * @throws ShowAlreadyExistsException exception when the show already exists
+     * @throws JournalFailedException     exception when the change can not be written to the journal
      */
     int addSeries(String AdminName, String password, String title,
-                  String creator, int seasonAmount, String ageCertification, int releaseYear, Iterator<String> genres, Iterator<String> cast) throws NotAnAdminException, WrongPasswordException, ShowAlreadyExistsException;
+                  String creator, int seasonAmount, String ageCertification, int releaseYear, Iterator<String> genres, Iterator<String> cast) throws NotAnAdminException, WrongPasswordException, ShowAlreadyExistsException, JournalFailedException;
+
+    /**
+     * Imports shows, artist bios and reviews from catalog files, as if each row was given by its command.
+     * Rows that are malformed or fail as their command would are skipped and counted as rejected
+     *
+     * @param adminName name of the admin that imports the catalog and posts its shows
+     * @param password  password of the admin
+     * @param files     paths of the TSV or CSV catalog files, imported in order
+     * @return the counters of the import
+     * @throws NotAnAdminException     exception when the user is not an admin
+     * @throws WrongPasswordException  exception when the password of the admin is wrong
+     * @throws UnreadableFileException exception when a file can not be read, after the rows of the previous files were imported
+     * @throws JournalFailedException  exception when a row can not be written to the journal, after the rows before it were imported
+     */
+    ImportReport importCatalog(String adminName, String password, Iterator<String> files)
+            throws NotAnAdminException, WrongPasswordException, UnreadableFileException, JournalFailedException;
+
+    /**
+     * Saves the whole catalog to a binary snapshot, replacing the file only once the snapshot is complete
+     *
+     * @param file path of the snapshot
+     * @throws UnwritableFileException exception when the snapshot can not be written
+     */
+    void saveSnapshot(String file) throws UnwritableFileException;
+
+    /**
+     * Saves the catalog to a snapshot of its journal, after which the older snapshots and the changes
+     * of the journal that the snapshot has are deleted
+     *
+     * @return the directory of the journal
+     * @throws NoJournalException      exception when the catalog has no journal
+     * @throws UnwritableFileException exception when the snapshot can not be written
+     */
+    String checkpoint() throws NoJournalException, UnwritableFileException;
+
+    /**
+     * Takes the journal of the catalog, which stops logging its changes
+     *
+     * @return the journal of the catalog, or null if it has none
+     */
+    Journal detachJournal();
+
+    /**
+     * Starts logging the changes of the catalog to a journal, with a checkpoint of the whole catalog
+     * so that the journal recovers this catalog and not the one it had before
+     *
+     * @param journal journal taken from another catalog, or null to do nothing
+     * @throws UnwritableFileException exception when the snapshot of the checkpoint can not be written
+     */
+    void attachJournal(Journal journal) throws UnwritableFileException;
+
+    /**
+     * Writes the changes not yet written to the journal of the catalog and closes it, if there is one
+     *
+     * @throws UnwritableFileException exception when the changes can not be written
+     */
+    void closeJournal() throws UnwritableFileException;
 
     /**
      * Lists all the shows that are stored in the platform by alphabetical order of the title
@@ -103,8 +172,10 @@ public interface CineReviews {
      * @param dateOfBirth  date of birth of the artist
      * @param placeOfBirth place of birth of the artist
      * @throws AlreadyHasBioException exception when the artist already has a bio
+     * @throws JournalFailedException exception when the change can not be written to the journal
      */
-    boolean addArtistBio(String name, String dateOfBirth, String placeOfBirth) throws AlreadyHasBioException;
+    boolean addArtistBio(String name, String dateOfBirth, String placeOfBirth) throws AlreadyHasBioException,
+            JournalFailedException;
 
     /**
      * Lists the bio and credits of an artist
@@ -156,13 +227,16 @@ public interface CineReviews {
      * @param showName name of the show
      * @param score    classification of the show
      * @return the number of reviews that that show has
-     * @throws UnknownUserException         exception when there is no user with the given name
-     * @throws IsAdminException             exception when the user is an admin
-     * @throws UnknownShowException         exception when there is no show with the given name
-     * @throws UserAlreadyReviewedException exception when the user already reviewed the given show
+     * @throws UnknownUserException           exception when there is no user with the given name
+     * @throws IsAdminException               exception when the user is an admin
+     * @throws UnknownShowException           exception when there is no show with the given name
+     * @throws UserAlreadyReviewedException   exception when the user already reviewed the given show
+     * @throws InvalidClassificationException exception when the classification does not exist
+     * @throws JournalFailedException         exception when the change can not be written to the journal
      */
     int reviewShow(String username, String review, String showName, String score) throws
-            UnknownUserException, IsAdminException, UnknownShowException, UserAlreadyReviewedException;
+            UnknownUserException, IsAdminException, UnknownShowException, UserAlreadyReviewedException,
+            InvalidClassificationException, JournalFailedException;
 
     /**
      * Lists the reviews of a show
@@ -189,6 +263,15 @@ public interface CineReviews {
      */
     Iterator<Show> getShowsByYear(int year);
 
+    /**
+     * Lists shows released between two years, both included
+     *
+     * @param from first year of the range
+     * @param to   last year of the range
+     * @return the iterator of shows released between the two years, ordered by score
+     */
+    Iterator<Show> getShowsByYears(int from, int to);
+
     /**
      * Lists shows of given genres
      *
@@ -206,6 +289,37 @@ public interface CineReviews {
      */
     Iterator<Artist> getAllFriends() throws NoArtistException, NoCollaborationsException;
 
+    /**
+     * Lists the pairs of artists that have more projects together, sorted by the names of the artists
+     *
+     * @return the iterator of the pairs of artists that have more projects together
+     * @throws NoArtistException         exception when there is no artists in the application
+     * @throws NoCollaborationsException exception when there is no collaborations in th application
+     */
+    Iterator<ArtistPair> getBestFriends() throws NoArtistException, NoCollaborationsException;
+
+    /**
+     * Lists the pairs of artists that have worked together the most times, up to a given number of pairs
+     *
+     * @param amount maximum number of pairs
+     * @return the iterator of the top pairs, from the most to the least times worked together
+     * @throws NoArtistException         exception when there is no artists in the application
+     * @throws NoCollaborationsException exception when there is no collaborations in th application
+     */
+    Iterator<ArtistPair> getTopCollaborations(int amount) throws NoArtistException, NoCollaborationsException;
+
+    /**
+     * Lists the artists an artist has worked with the most times, up to a given number of artists
+     *
+     * @param name   name of the artist
+     * @param amount maximum number of artists
+     * @return the iterator of the pairs of the artist with each of the top collaborators,
+     * from the most to the least times worked together
+     * @throws UnknownArtistException    exception when there is no artist with the given name
+     * @throws NoCollaborationsException exception when the artist has never worked with anyone
+     */
+    Iterator<ArtistPair> getTopCollaboratorsOf(String name, int amount) throws UnknownArtistException, NoCollaborationsException;
+
     /**
      * Gets the list of artists an artist has worked with
      *
@@ -217,14 +331,38 @@ public interface CineReviews {
     /**
      * Gets the largest list of artists that have never worked together
      *
-     * @return the iterator of the largest list of artists that have never worked together
+     * @return the largest groups of artists that have never worked together, with their size, always optimal
+     */
+    AvoidersResult getAvoiders() throws NoArtistException;
+
+    /**
+     * Gets the largest list of artists that have never worked together, stopping the search after a time budget.
+     * If the budget runs out the best groups found so far are given, and the result is not optimal
+     *
+     * @param timeBudget time, in milliseconds, that the search may take
+     * @return the largest groups of artists that have never worked together that were found, with their size
+     * and whether they are proven to be the largest ones
+     * @throws NoArtistException exception when there is no artists in the application
+     */
+    AvoidersResult getAvoiders(int timeBudget) throws NoArtistException;
+
+    /**
+     * Stops the avoiders search with a time budget that is running, which gives the best groups found so far.
+     * Can be called from any thread
+     */
+    void cancelAvoiders();
+
+    /**
+     * Gets the number of times the avoiders were answered from the cached result of a previous call
+     *
+     * @return the number of times the avoiders were answered from the cache
      */
-    Iterator<Set<Artist>> getAvoiders() throws NoArtistException;
+    int getAvoidersCacheHits();
 
     /**
-     * Gets the size of the groups that were created in the last avoiders command
+     * Gets the number of times the avoiders had to be searched because there was no valid cached result
      *
-     * @return the size of the groups that were created in the last avoiders command or 0 if avoiders was never called
+     * @return the number of times the avoiders had to be searched
      */
-    int getLastAvoidersSize();
+    int getAvoidersCacheMisses();
 }
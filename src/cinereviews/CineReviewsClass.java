@@ -2,13 +2,38 @@ package cinereviews;
 
 import artist.Artist;
 import artist.ArtistClass;
+import artist.ArtistPair;
+import artist.BestFriendsIndex;
 import artist.comparators.ArtistComparatorByName;
 import artist.exceptions.AlreadyHasBioException;
 import artist.exceptions.UnknownArtistException;
+import cinereviews.avoiders.AnytimeCliqueSearch;
+import cinereviews.avoiders.ArtistOrigin;
+import cinereviews.avoiders.AvoidersGraph;
+import cinereviews.avoiders.AvoidersResult;
+import cinereviews.avoiders.BitsetCliqueSearch;
+import cinereviews.avoiders.CliqueSearch;
+import cinereviews.avoiders.CliqueSearchResult;
+import cinereviews.avoiders.CollaborationGraph;
+import cinereviews.avoiders.ParallelCliqueSearch;
+import cinereviews.avoiders.SearchBudget;
+import cinereviews.bulk.ImportBatch;
+import cinereviews.bulk.ImportReport;
+import cinereviews.bulk.ImportRow;
+import cinereviews.bulk.ParallelRowReader;
 import cinereviews.comparators.SetArtistComparator;
 import cinereviews.exceptions.*;
+import cinereviews.index.GenreIndex;
+import cinereviews.index.ShowScoreIndex;
+import cinereviews.journal.FsyncPolicy;
+import cinereviews.journal.Journal;
+import cinereviews.journal.JournalEntry;
+import cinereviews.snapshot.CatalogLayout;
+import cinereviews.snapshot.LazyCatalog;
+import cinereviews.snapshot.SnapshotReader;
 import review.Review;
 import review.ReviewClass;
+import review.exceptions.InvalidClassificationException;
 import review.exceptions.UserAlreadyReviewedException;
 import show.*;
 import show.comparators.ShowComparatorByScore;
@@ -16,8 +41,15 @@ import show.exceptions.ShowAlreadyExistsException;
 import show.exceptions.UnknownShowException;
 import user.*;
 import user.exceptions.*;
+import util.Classification;
 
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * System class of the Cine Reviews application
@@ -30,11 +62,12 @@ public class CineReviewsClass implements CineReviews {
     private static final String ADMIN = "admin";
     private static final String CRITIC = "critic";
     private static final String AUDIENCE = "audience";
+    private static final int PARALLEL_AVOIDERS_THRESHOLD = 128;
 
     /**
      * Collection of users in the application. username -> user
      */
-    private final SortedMap<String, User> users;
+    private final Map<String, User> users;
 
     /**
      * Collection of artist in the application. name -> artist
@@ -47,14 +80,74 @@ public class CineReviewsClass implements CineReviews {
     private final Map<String, Show> shows;
 
     /**
-     * Collection of shows ordered primarily by score. releaseYear -> collection of shows
+     * Shows ordered by score, overall, by year of release and by genre
      */
-    private final SortedMap<Integer, Set<Show>> showsByYear;
+    private ShowScoreIndex showScores;
 
     /**
-     * Collection of Artists that have never collaborated with the artist whose name is the key
+     * Shows of each genre as compressed bitmaps, used to answer queries with several genres
      */
-    private final Map<String, Set<Artist>> avoiders;
+    private final GenreIndex genreIndex;
+
+    /**
+     * Reader of the catalog files of bulk imports
+     */
+    private final ParallelRowReader catalogReader;
+
+    /**
+     * Artists that have worked together, from which the avoiders are derived
+     */
+    private final CollaborationGraph collaborations;
+
+    /**
+     * Index of the pairs of artists that have worked together the most times
+     */
+    private final BestFriendsIndex bestFriends;
+
+    /**
+     * Opened snapshot whose entities are read when they are first used, null if there is none or it was read entirely
+     */
+    private LazyCatalog snapshot;
+
+    /**
+     * true once the score and genre indexes have every show. They are only built for an opened snapshot
+     * when they are first needed
+     */
+    private boolean showIndexesBuilt;
+
+    /**
+     * true once the collaboration graph and the index of the best friends have every artist. They are only
+     * built for an opened snapshot when they are first needed
+     */
+    private boolean collaborationsBuilt;
+
+    /**
+     * Journal where every change is logged before it is acknowledged, null if the catalog has none
+     */
+    private Journal journal;
+
+    /**
+     * true if a checkpoint is made as soon as a change is acknowledged and the journal needs one
+     */
+    private boolean automaticCheckpoints;
+
+    /**
+     * true once the shows are indexed by score by the partitions of a PartitionedCineReviewsClass,
+     * so reviews and new shows no longer go into the score index of the catalog
+     */
+    private boolean scoresPartitioned;
+
+    /**
+     * Shows whose reviews were ingested without moving them in the score index, to be moved by the next query
+     * that reads the shows in order of score
+     */
+    private final Set<Show> ingestedShows;
+
+    /**
+     * Shows added or reviewed during a batch of changes of a PartitionedCineReviewsClass, to be handed to their
+     * partitions after it, null if no batch is tracked
+     */
+    private Set<Show> changedShows;
 
     /**
      *  Number of artist that were added the last time a show was created
@@ -62,25 +155,112 @@ public class CineReviewsClass implements CineReviews {
     private int artistAdded;
 
     /**
-     * Size of the largest avoiders group the last time avoiders was called if it was never called it is 0
+     * Search used to find the largest groups of artists that have never worked together
+     */
+    private final CliqueSearch avoidersSearch;
+
+    /**
+     * Search used instead of avoidersSearch when there are enough artists to split the work across cores
+     */
+    private final CliqueSearch parallelAvoidersSearch;
+
+    /**
+     * Result of the last avoiders search, kept until a mutation may change it. null if there is none
+     */
+    private Set<Set<Artist>> cachedAvoiders;
+
+    /**
+     * Artists that belong to some group of the cached avoiders
+     */
+    private Set<Artist> cachedAvoidersMembers;
+
+    /**
+     * Search used when the avoiders are asked with a time budget
+     */
+    private final AnytimeCliqueSearch anytimeAvoidersSearch;
+
+    /**
+     * Budget of the avoiders search with a time budget that is running, null if there is none
+     */
+    private volatile SearchBudget runningAvoidersBudget;
+
+    /**
+     * Number of times avoiders was answered from the cache
      */
-    private int lastAvoidersSize;
+    private int avoidersCacheHits;
+
+    /**
+     * Number of times avoiders had to run the search
+     */
+    private int avoidersCacheMisses;
 
     /**
      * Creates a new CineReviews app
      */
     public CineReviewsClass() {
-        users = new TreeMap<>();
-        artists = new HashMap<>();
-        shows = new TreeMap<>();
-        avoiders = new HashMap<>();
-        showsByYear = new TreeMap<>();
+        this(null);
+    }
+
+    /**
+     * Creates a new CineReviews app, with the catalog of an opened snapshot if there is one
+     *
+     * @param layout layout of the opened snapshot, or null for an empty catalog
+     */
+    private CineReviewsClass(CatalogLayout layout) {
+        bestFriends = new BestFriendsIndex();
+        if (layout == null) {
+            snapshot = null;
+            users = new TreeMap<>();
+            artists = new HashMap<>();
+            shows = new TreeMap<>();
+        } else {
+            snapshot = new LazyCatalog(layout, bestFriends);
+            users = snapshot.getUsers();
+            artists = snapshot.getArtists();
+            shows = snapshot.getShows();
+        }
+        showIndexesBuilt = snapshot == null;
+        collaborationsBuilt = snapshot == null;
+        journal = null;
+        automaticCheckpoints = true;
+        catalogReader = new ParallelRowReader(ForkJoinPool.commonPool());
+        collaborations = new CollaborationGraph();
+        showScores = new ShowScoreIndex();
+        scoresPartitioned = false;
+        ingestedShows = ConcurrentHashMap.newKeySet();
+        changedShows = null;
+        genreIndex = new GenreIndex();
         artistAdded = 0;
-        lastAvoidersSize = 0;
+        avoidersSearch = new BitsetCliqueSearch();
+        parallelAvoidersSearch = new ParallelCliqueSearch(ForkJoinPool.commonPool());
+        cachedAvoiders = null;
+        anytimeAvoidersSearch = new AnytimeCliqueSearch();
+        runningAvoidersBudget = null;
+        avoidersCacheHits = 0;
+        avoidersCacheMisses = 0;
     }
 
     @Override
-    public void registerUser(String type, String name, String password) throws UnknownUserTypeException, UserAlreadyExistsException {
+    public void registerUser(String type, String name, String password) throws UnknownUserTypeException,
+            UserAlreadyExistsException, JournalFailedException {
+        if (!type.equals(ADMIN) && !type.equals(CRITIC) && !type.equals(AUDIENCE)) throw new UnknownUserTypeException();
+        if (users.containsKey(name)) throw new UserAlreadyExistsException();
+        long sequence = log(JournalEntry.user(type, name, password));
+        createUser(type, name, password);
+        acknowledge(sequence);
+    }
+
+    /**
+     * Creates a user of a given type, without acknowledging it
+     *
+     * @param type     type of the user
+     * @param name     name of the user
+     * @param password password of the user, if it is an admin
+     * @throws UnknownUserTypeException   exception when the type is not a user type
+     * @throws UserAlreadyExistsException exception when a user with the name already exists
+     */
+    private void createUser(String type, String name, String password) throws UnknownUserTypeException,
+            UserAlreadyExistsException {
         switch (type) {
             case ADMIN -> createAdmin(name, password);
             case CRITIC -> createCritic(name);
@@ -97,25 +277,225 @@ public class CineReviewsClass implements CineReviews {
     @Override
     public int addMovie(String adminName, String password, String title, String director,
                         int duration, String ageCertification, int releaseYear, Iterator<String> genres, Iterator<String> cast) throws NotAnAdminException,
-            WrongPasswordException, ShowAlreadyExistsException {
+            WrongPasswordException, ShowAlreadyExistsException, JournalFailedException {
 
         if (!users.containsKey(adminName) || (!(users.get(adminName) instanceof AdminUser user)))
             throw new NotAnAdminException();
         if (!user.passwordMatches(password)) throw new WrongPasswordException();
         if (shows.containsKey(title)) throw new ShowAlreadyExistsException();
 
-        return addMovieHelper(director, duration, cast, title, user, ageCertification, releaseYear, genres);
+        ensureCollaborations();
+        List<String> genreList = toList(genres);
+        List<String> castList = toList(cast);
+        long sequence = log(JournalEntry.show(JournalEntry.Kind.MOVIE, adminName, password, title, director, duration,
+                ageCertification, releaseYear, genreList, castList));
+        int added = addMovieHelper(director, duration, castList.iterator(), title, user, ageCertification, releaseYear,
+                genreList.iterator());
+        acknowledge(sequence);
+        return added;
     }
 
     @Override
     public int addSeries(String adminName, String password, String title, String director, int seasonAmount, String ageCertification, int releaseYear, Iterator<String> genres, Iterator<String> cast)
-            throws NotAnAdminException, WrongPasswordException, ShowAlreadyExistsException {
+            throws NotAnAdminException, WrongPasswordException, ShowAlreadyExistsException, JournalFailedException {
         if (!users.containsKey(adminName) || (!(users.get(adminName) instanceof AdminUser user)))
             throw new NotAnAdminException();
         if (!user.passwordMatches(password)) throw new WrongPasswordException();
         if (shows.containsKey(title)) throw new ShowAlreadyExistsException();
 
-        return addSeriesHelper(director, cast, title, seasonAmount, user, ageCertification, releaseYear, genres);
+        ensureCollaborations();
+        List<String> genreList = toList(genres);
+        List<String> castList = toList(cast);
+        long sequence = log(JournalEntry.show(JournalEntry.Kind.SERIES, adminName, password, title, director,
+                seasonAmount, ageCertification, releaseYear, genreList, castList));
+        int added = addSeriesHelper(director, castList.iterator(), title, seasonAmount, user, ageCertification,
+                releaseYear, genreList.iterator());
+        acknowledge(sequence);
+        return added;
+    }
+
+    @Override
+    public ImportReport importCatalog(String adminName, String password, Iterator<String> files)
+            throws NotAnAdminException, WrongPasswordException, UnreadableFileException, JournalFailedException {
+        if (!users.containsKey(adminName) || (!(users.get(adminName) instanceof AdminUser user)))
+            throw new NotAnAdminException();
+        if (!user.passwordMatches(password)) throw new WrongPasswordException();
+
+        ensureCollaborations();
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        Map<Show, List<Artist>> pendingCollaborations = new LinkedHashMap<>();
+        long logged = 0;
+        UnreadableFileException unreadable = null;
+        try {
+            while (files.hasNext()) {
+                String file = files.next();
+                List<ForkJoinTask<ImportBatch>> batches;
+                try {
+                    batches = catalogReader.read(Path.of(file));
+                } catch (IOException | InvalidPathException e) {
+                    throw new UnreadableFileException(file);
+                }
+                // Batches are applied in the order of the file while the next ones are still being parsed
+                for (ForkJoinTask<ImportBatch> task : batches) {
+                    ImportBatch batch = task.join();
+                    report.addBatch(batch);
+                    for (ImportRow row : batch.getRows())
+                        logged = Math.max(logged, applyImportRow(row, adminName, password, user, report,
+                                pendingCollaborations));
+                }
+            }
+        } catch (UnreadableFileException e) {
+            unreadable = e;
+        } finally {
+            // The collaborations of the imported shows are recorded in one pass, even if a file could not be read
+            invalidateAvoidersCache();
+            for (Map.Entry<Show, List<Artist>> entry : pendingCollaborations.entrySet())
+                recordCollaborations(entry.getKey(), entry.getValue());
+            artistAdded = 0;
+        }
+        // Every row is logged as it is applied, but the import is acknowledged with a single sync, also when a file
+        // could not be read, which stays the cause reported, with the failure of the journal suppressed in it
+        try {
+            acknowledge(logged);
+        } catch (JournalFailedException e) {
+            if (unreadable == null) throw e;
+            unreadable.addSuppressed(e);
+        }
+        if (unreadable != null) throw unreadable;
+        report.setElapsedNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    @Override
+    public void saveSnapshot(String file) throws UnwritableFileException {
+        ensureCollaborations();
+        try {
+            CatalogLayout.write(Path.of(file), users.values(), artists.values(), shows.values(), collaborations);
+        } catch (IOException | InvalidPathException e) {
+            throw new UnwritableFileException(file);
+        }
+    }
+
+    /**
+     * Creates a new CineReviews app with the catalog saved in a snapshot, read entirely after its checksum is checked.
+     * The shows, their reviews and the collaboration counts are restored directly,
+     * so no show goes through the addition of its cast and collaborations again
+     *
+     * @param file file of the snapshot
+     * @return the app with the catalog of the snapshot
+     * @throws UnreadableFileException  exception when the file can not be read
+     * @throws InvalidSnapshotException exception when the file is not a snapshot of a supported version or is corrupted
+     */
+    public static CineReviewsClass loadSnapshot(String file) throws UnreadableFileException, InvalidSnapshotException {
+        CatalogLayout layout = openLayout(file);
+        layout.verifyChecksum();
+        CineReviewsClass cine = new CineReviewsClass(layout);
+        try {
+            cine.loadAll();
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException | ClassCastException e) {
+            throw new InvalidSnapshotException();
+        }
+        return cine;
+    }
+
+    /**
+     * Creates a new CineReviews app over the catalog saved in a snapshot, without reading it.
+     * The snapshot is mapped into memory and each user, artist and show is read from it when it is first used,
+     * while the indexes of the shows and the collaborations are only built by the first query or change that needs
+     * them, so opening takes the same time whatever the size of the catalog. Changes are kept in memory and never
+     * written to the snapshot. The checksum is not checked, as that would read the whole file
+     *
+     * @param file file of the snapshot
+     * @return the app with the catalog of the snapshot
+     * @throws UnreadableFileException  exception when the file can not be read
+     * @throws InvalidSnapshotException exception when the file is not a snapshot of a supported version
+     */
+    public static CineReviewsClass openSnapshot(String file) throws UnreadableFileException, InvalidSnapshotException {
+        return new CineReviewsClass(openLayout(file));
+    }
+
+    /**
+     * Creates a new CineReviews app with the catalog recovered from a journal directory, created if it does not exist.
+     * The latest snapshot of the journal is loaded and the changes logged after it are replayed through the same
+     * operations that made them. The recovered catalog logs its changes to the journal from then on
+     *
+     * @param directory directory of the journal
+     * @param policy    when the changes written to the journal are forced
+     * @return the app with the recovered catalog
+     * @throws UnreadableFileException  exception when the journal can not be read
+     * @throws InvalidSnapshotException exception when the latest snapshot of the journal is corrupted
+     * @throws InvalidJournalException  exception when a change of the journal is corrupted, missing or can not be made
+     */
+    public static CineReviewsClass recover(String directory, FsyncPolicy policy)
+            throws UnreadableFileException, InvalidSnapshotException, InvalidJournalException {
+        Journal journal;
+        try {
+            journal = Journal.open(Path.of(directory), policy);
+        } catch (IOException | InvalidPathException e) {
+            throw new UnreadableFileException(directory);
+        }
+        Path snapshot = journal.getSnapshot();
+        CineReviewsClass cine = snapshot == null ? new CineReviewsClass() : loadSnapshot(snapshot.toString());
+        boolean[] valid = {true};
+        try {
+            journal.replay(entry -> valid[0] = valid[0] && cine.replay(entry));
+        } catch (IOException e) {
+            throw new UnreadableFileException(directory);
+        }
+        if (!valid[0]) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                // The journal is not used anyway
+            }
+            throw new InvalidJournalException();
+        }
+        cine.journal = journal;
+        return cine;
+    }
+
+    @Override
+    public String checkpoint() throws NoJournalException, UnwritableFileException {
+        if (journal == null) throw new NoJournalException();
+        saveCheckpoint();
+        return journal.getDirectory().toString();
+    }
+
+    @Override
+    public Journal detachJournal() {
+        Journal detached = journal;
+        journal = null;
+        return detached;
+    }
+
+    @Override
+    public void attachJournal(Journal journal) throws UnwritableFileException {
+        if (journal == null) return;
+        this.journal = journal;
+        try {
+            saveCheckpoint();
+        } catch (UnwritableFileException e) {
+            // Without the checkpoint the journal would recover the previous catalog, so it is no longer used
+            this.journal = null;
+            try {
+                journal.close();
+            } catch (IOException ignored) {
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void closeJournal() throws UnwritableFileException {
+        if (journal == null) return;
+        Journal closed = journal;
+        journal = null;
+        try {
+            closed.close();
+        } catch (IOException e) {
+            throw new UnwritableFileException(closed.getDirectory().toString());
+        }
     }
 
     @Override
@@ -124,15 +504,41 @@ public class CineReviewsClass implements CineReviews {
     }
 
     @Override
-    public boolean addArtistBio(String name, String dateOfBirth, String placeOfBirth) throws AlreadyHasBioException {
+    public boolean addArtistBio(String name, String dateOfBirth, String placeOfBirth) throws AlreadyHasBioException,
+            JournalFailedException {
+        checkBio(name);
+        long sequence = log(JournalEntry.artist(name, dateOfBirth, placeOfBirth));
+        boolean wasCreated = addBio(name, dateOfBirth, placeOfBirth);
+        acknowledge(sequence);
+        return wasCreated;
+    }
+
+    /**
+     * Checks that a bio can be added to an artist
+     *
+     * @param name name of the artist
+     * @throws AlreadyHasBioException exception when the artist already has a bio
+     */
+    private void checkBio(String name) throws AlreadyHasBioException {
+        Artist artist = artists.get(name);
+        if (artist != null && artist.hasBio()) throw new AlreadyHasBioException();
+    }
+
+    /**
+     * Adds the bio of an artist, creating the artist if it does not exist, without acknowledging it
+     *
+     * @param name         name of the artist
+     * @param dateOfBirth  date of birth of the artist
+     * @param placeOfBirth place of birth of the artist
+     * @return true if the artist was created
+     * @throws AlreadyHasBioException exception when the artist already has a bio
+     */
+    private boolean addBio(String name, String dateOfBirth, String placeOfBirth) throws AlreadyHasBioException {
         boolean wasCreated;
         if (!artists.containsKey(name)) {
-            artists.put(name, new ArtistClass(name, dateOfBirth, placeOfBirth));
-            avoiders.put(name, new TreeSet<>(new ArtistComparatorByName()));
-            for (Artist artist : artists.values()) {
-                avoiders.get(name).add(artist);
-                avoiders.get(artist.getName()).add(artists.get(name));
-            }
+            ensureCollaborations();
+            artists.put(name, new ArtistClass(collaborations.addArtist(ArtistOrigin.BIO), name, dateOfBirth, placeOfBirth, bestFriends));
+            invalidateAvoidersCache();
             wasCreated = true;
         } else {
             artists.get(name).addBio(dateOfBirth, placeOfBirth);
@@ -169,19 +575,103 @@ public class CineReviewsClass implements CineReviews {
 
     @Override
     public int reviewShow(String username, String review, String showName, String score) throws
-            UnknownUserException, IsAdminException, UnknownShowException, UserAlreadyReviewedException {
+            UnknownUserException, IsAdminException, UnknownShowException, UserAlreadyReviewedException,
+            InvalidClassificationException, JournalFailedException {
+        checkReview(username, showName, score);
+        long sequence = log(JournalEntry.review(username, review, showName, score));
+        int reviews = addReview(username, review, showName, score);
+        acknowledge(sequence);
+        return reviews;
+    }
 
+    /**
+     * Checks that a user can review a show with a classification, before the review is logged
+     *
+     * @param username name of the user
+     * @param showName title of the show
+     * @param score    classification of the review
+     * @throws UnknownUserException           exception when the user does not exist
+     * @throws IsAdminException               exception when the user is an admin
+     * @throws UnknownShowException           exception when the show does not exist
+     * @throws UserAlreadyReviewedException   exception when the user already reviewed the show
+     * @throws InvalidClassificationException exception when the classification does not exist
+     */
+    private void checkReview(String username, String showName, String score) throws UnknownUserException,
+            IsAdminException, UnknownShowException, UserAlreadyReviewedException, InvalidClassificationException {
         if (!users.containsKey(username)) throw new UnknownUserException();
         if (users.get(username) instanceof AdminUser) throw new IsAdminException();
         if (!shows.containsKey(showName)) throw new UnknownShowException();
         if (shows.get(showName).userHasReviewed(users.get(username))) throw new UserAlreadyReviewedException();
+        if (!Classification.exists(score)) throw new InvalidClassificationException();
+    }
 
+    /**
+     * Adds a review to a show, without acknowledging it
+     *
+     * @param username name of the user
+     * @param review   text of the review
+     * @param showName title of the show
+     * @param score    classification of the review
+     * @return the number of reviews of the show
+     * @throws UnknownUserException           exception when the user does not exist
+     * @throws IsAdminException               exception when the user is an admin
+     * @throws UnknownShowException           exception when the show does not exist
+     * @throws UserAlreadyReviewedException   exception when the user already reviewed the show
+     * @throws InvalidClassificationException exception when the classification does not exist
+     */
+    private int addReview(String username, String review, String showName, String score) throws
+            UnknownUserException, IsAdminException, UnknownShowException, UserAlreadyReviewedException,
+            InvalidClassificationException {
+        checkReview(username, showName, score);
         Show show = shows.get(showName);
         show.addReview(new ReviewClass((OrdinaryUser) users.get(username), review, score));
+        if (changedShows != null) changedShows.add(show);
+        // The score of the show changed, so it moves to its new position in the indexes, where queries running
+        // at the same time still find it. Indexes that are not built yet will have the new score when they are
+        if (showIndexesBuilt && !scoresPartitioned) showScores.move(show);
         ((OrdinaryUser) users.get(username)).incrementReviewCount();
         return show.getReviewsCount();
     }
 
+    /**
+     * Adds a review to a show without any lock, for any number of threads that share the catalog.
+     * The reviewer is only checked and added atomically by the show, so the rule of one review per user stays exact,
+     * and the show is not moved in the score index, but only marked to be moved by the next query by score.
+     * The review is only logged once the show has taken it, so a review that loses the race with another one
+     * of the same user is never logged, and the journal keeps the reviews of each user in the order they won
+     *
+     * @param username name of the user
+     * @param review   text of the review
+     * @param showName title of the show
+     * @param score    classification of the review
+     * @return the number of reviews of the show with this one
+     * @throws UnknownUserException           exception when the user does not exist
+     * @throws IsAdminException               exception when the user is an admin
+     * @throws UnknownShowException           exception when the show does not exist
+     * @throws UserAlreadyReviewedException   exception when the user already reviewed the show
+     * @throws InvalidClassificationException exception when the classification does not exist
+     * @throws JournalFailedException         exception when the review was added but can not be written to the journal
+     */
+    int ingestReview(String username, String review, String showName, String score) throws
+            UnknownUserException, IsAdminException, UnknownShowException, UserAlreadyReviewedException,
+            InvalidClassificationException, JournalFailedException {
+        User user = users.get(username);
+        if (user == null) throw new UnknownUserException();
+        if (user instanceof AdminUser) throw new IsAdminException();
+        Show show = shows.get(showName);
+        if (show == null) throw new UnknownShowException();
+        if (show.userHasReviewed(user)) throw new UserAlreadyReviewedException();
+        if (!Classification.exists(score)) throw new InvalidClassificationException();
+        int reviews = show.addReviewIfAbsent(new ReviewClass((OrdinaryUser) user, review, score));
+        if (reviews == 0) throw new UserAlreadyReviewedException();
+        ((OrdinaryUser) user).incrementReviewCount();
+        // Only written while the show is not marked yet, so the threads ingesting reviews of the same show
+        // do not keep invalidating each other's copy of the set
+        if (!scoresPartitioned && !ingestedShows.contains(show)) ingestedShows.add(show);
+        acknowledge(log(JournalEntry.review(username, review, showName, score)));
+        return reviews;
+    }
+
     @Override
     public Iterator<Review> getReviewsOfShow(String showName) throws UnknownShowException {
         if (!shows.containsKey(showName)) throw new UnknownShowException();
@@ -195,53 +685,85 @@ public class CineReviewsClass implements CineReviews {
 
     @Override
     public Iterator<Show> getShowsByYear(int year) {
-        // Create a new set so that we can give the ordered tree set by score
-        SortedSet<Show> newSet = new TreeSet<>(new ShowComparatorByScore());
-        if (showsByYear.containsKey(year)) {
-            newSet.addAll(showsByYear.get(year));
-        }
-        return newSet.iterator();
+        ensureShowIndexes();
+        moveIngestedShows();
+        return showScores.getShowsOfYear(year).iterator();
+    }
+
+    @Override
+    public Iterator<Show> getShowsByYears(int from, int to) {
+        ensureShowIndexes();
+        moveIngestedShows();
+        return showScores.getShowsOfYears(from, to);
     }
 
     @Override
     public Iterator<Show> getShowsByGenre(Iterator<String> genres) {
-        Set<Show> temp = new HashSet<>();
-        SortedSet<Show> result = new TreeSet<>(new ShowComparatorByScore());
-        for (Show show : shows.values()) {
-            temp.add(show);
-            result.add(show);
-        }
-        while (genres.hasNext()) {
-            String genre = genres.next();
-            for (Show show : temp) {
-                if (!show.hasGenre(genre)) {
-                    result.remove(show);
-                }
-            }
-        }
+        ensureShowIndexes();
+        moveIngestedShows();
+        List<String> wanted = new ArrayList<>();
+        while (genres.hasNext())
+            wanted.add(genres.next());
+        if (wanted.isEmpty()) return showScores.getAllShows().iterator();
+        if (wanted.size() == 1) return showScores.getShowsOfGenre(wanted.get(0)).iterator();
+
+        // Only the shows that have every genre are sorted by score
+        List<Show> result = genreIndex.getShowsWithAll(wanted);
+        sortByScore(result);
         return result.iterator();
     }
 
+    /**
+     * Sorts shows as {@link ShowComparatorByScore} does, reading the score of each one only once,
+     * as reviews ingested while they are sorted may change them
+     *
+     * @param result shows to sort
+     */
+    private static void sortByScore(List<Show> result) {
+        Map<Show, Float> scores = new HashMap<>();
+        for (Show show : result)
+            scores.put(show, show.getScore());
+        result.sort(Comparator.comparing((Show show) -> scores.get(show)).reversed()
+                .thenComparing(Show::getYearOfRelease, Comparator.reverseOrder())
+                .thenComparing(Show::getTitle));
+    }
+
     @Override
     public Iterator<Artist> getAllFriends() throws NoArtistException, NoCollaborationsException {
-        if (artists.isEmpty()) throw new NoArtistException();
-
+        Iterator<ArtistPair> it = getBestFriends();
         Set<Artist> temp = new TreeSet<>(new ArtistComparatorByName());
-        int maxFriend = 0;
-        for (Artist artist : artists.values()) {
-            if (artist.getMostTimesWorked() == maxFriend && artist.getMostTimesWorked() > 0) {
-                temp.add(artist);
-            }
-            if (artist.getMostTimesWorked() > maxFriend) {
-                temp.clear();
-                temp.add(artist);
-                maxFriend = artist.getMostTimesWorked();
-            }
+        while (it.hasNext()) {
+            ArtistPair pair = it.next();
+            temp.add(pair.getFirst());
+            temp.add(pair.getSecond());
         }
-        if (temp.isEmpty()) throw new NoCollaborationsException();
         return temp.iterator();
     }
 
+    @Override
+    public Iterator<ArtistPair> getBestFriends() throws NoArtistException, NoCollaborationsException {
+        if (artists.isEmpty()) throw new NoArtistException();
+        ensureCollaborations();
+        if (bestFriends.isEmpty()) throw new NoCollaborationsException();
+        return bestFriends.getPairs();
+    }
+
+    @Override
+    public Iterator<ArtistPair> getTopCollaborations(int amount) throws NoArtistException, NoCollaborationsException {
+        if (artists.isEmpty()) throw new NoArtistException();
+        ensureCollaborations();
+        if (bestFriends.isEmpty()) throw new NoCollaborationsException();
+        return bestFriends.getTopPairs(amount);
+    }
+
+    @Override
+    public Iterator<ArtistPair> getTopCollaboratorsOf(String name, int amount) throws UnknownArtistException, NoCollaborationsException {
+        if (!artists.containsKey(name)) throw new UnknownArtistException();
+        Artist artist = artists.get(name);
+        if (artist.getMostTimesWorked() == 0) throw new NoCollaborationsException();
+        return artist.getTopCollaborators(amount);
+    }
+
     @Override
     public Iterator<Artist> getFriendsOf(String name) {
         Set<Artist> temp = new TreeSet<>(new ArtistComparatorByName());
@@ -255,31 +777,60 @@ public class CineReviewsClass implements CineReviews {
     }
 
     @Override
-    public int getLastAvoidersSize() {
-        return lastAvoidersSize;
+    public int getAvoidersCacheHits() {
+        return avoidersCacheHits;
+    }
+
+    @Override
+    public int getAvoidersCacheMisses() {
+        return avoidersCacheMisses;
     }
 
     @Override
-    public Iterator<Set<Artist>> getAvoiders() throws NoArtistException {
+    public AvoidersResult getAvoiders() throws NoArtistException {
         if (artists.isEmpty()) throw new NoArtistException();
+        ensureCollaborations();
+        if (cachedAvoiders != null) return getCachedAvoiders();
+        avoidersCacheMisses++;
+
+        List<Artist> byName = new ArrayList<>(artists.values());
+        byName.sort(new ArtistComparatorByName());
+        List<int[]> groups = chooseAvoidersSearch().findMaximumCliques(buildAvoidersGraph(byName));
+
+        Set<Set<Artist>> max_set = toArtistGroups(groups, byName);
+        cacheAvoiders(max_set);
+        // The cache is repaired in place, so the result keeps its own copy of the groups
+        return new AvoidersResult(new ArrayList<>(max_set), true);
+    }
 
-        int maxSize = 0;
-        Set<Set<Artist>> max_set = new TreeSet<>(new SetArtistComparator());
-        for (Artist artist : artists.values()) {
-            Set<TreeSet<Artist>> avoidersTry = getAvoidersHelper(artist, new TreeSet<>(new ArtistComparatorByName()));
-            for (Set<Artist> set : avoidersTry) {
-                if (set.size() == maxSize) {
-                    max_set.add(set);
-                }
-                if (set.size() > maxSize && set.size() != 1) {
-                    maxSize = set.size();
-                    max_set.clear();
-                    max_set.add(set);
-                }
-            }
+    @Override
+    public AvoidersResult getAvoiders(int timeBudget) throws NoArtistException {
+        if (artists.isEmpty()) throw new NoArtistException();
+        ensureCollaborations();
+        if (cachedAvoiders != null) return getCachedAvoiders();
+        avoidersCacheMisses++;
+
+        // The sort of the artists and the graph are part of the search, so the budget starts before them
+        SearchBudget budget = SearchBudget.ofMillis(timeBudget);
+        List<Artist> byName = new ArrayList<>(artists.values());
+        byName.sort(new ArtistComparatorByName());
+        runningAvoidersBudget = budget;
+        CliqueSearchResult result;
+        try {
+            result = anytimeAvoidersSearch.search(buildAvoidersGraph(byName), budget);
+        } finally {
+            runningAvoidersBudget = null;
         }
-        lastAvoidersSize = maxSize;
-        return max_set.iterator();
+
+        Set<Set<Artist>> max_set = toArtistGroups(result.getGroups(), byName);
+        if (result.isOptimal()) cacheAvoiders(max_set);
+        return new AvoidersResult(new ArrayList<>(max_set), result.isOptimal());
+    }
+
+    @Override
+    public void cancelAvoiders() {
+        SearchBudget budget = runningAvoidersBudget;
+        if (budget != null) budget.cancel();
     }
 
     /**
@@ -328,11 +879,8 @@ public class CineReviewsClass implements CineReviews {
         while (it.hasNext()) {
             String artist = it.next();
             if (!this.artists.containsKey(artist)) {
-                avoiders.put(artist, new TreeSet<>(new ArtistComparatorByName()));
-                this.artists.put(artist, new ArtistClass(artist));
-                for (Artist newArtist : artists.values()) {
-                    avoiders.get(newArtist.getName()).add(artists.get(artist));
-                }
+                this.artists.put(artist, new ArtistClass(collaborations.addArtist(ArtistOrigin.CAST), artist, bestFriends));
+                invalidateAvoidersCache();
                 artistAdded++;
             }
             newArtists.add(this.artists.get(artist));
@@ -342,41 +890,120 @@ public class CineReviewsClass implements CineReviews {
     }
 
     /**
-     * Adds the director into the artist collection, for the purposes of the avoiders method
-     * he is removed from the avoiders of everyone in his show, and everyone on his show
-     * are removed form is avoiders
+     * Adds the director into the artist collection.
+     * A new director starts without avoiders, so it does not change the cached avoiders
      *
      * @param director director that will be added to the artist collection
-     * @param cast     cast of the movie that the director is on
      */
-    private void addDirectorToArtists(String director, List<Artist> cast) {
-        if (!avoiders.containsKey(director))
-            avoiders.put(director, new TreeSet<>(new ArtistComparatorByName()));
-
+    private void addDirectorToArtists(String director) {
         if (!artists.containsKey(director)) {
-            artists.put(director, new ArtistClass(director));
+            artists.put(director, new ArtistClass(collaborations.addArtist(ArtistOrigin.DIRECTOR), director, bestFriends));
             artistAdded++;
         }
-        for (Artist art : cast) {
-            avoiders.get(director).remove(art);
-            avoiders.get(art.getName()).remove(artists.get(director));
-        }
     }
 
     /**
-     * Adds the show to his cast, additionally, removes all the artists on the show from
-     * each other avoiders
+     * Applies a row of an imported catalog, counting it as rejected if it fails as its command would.
+     * The row is checked and logged before it is applied, as the commands are.
+     * The collaborations of a new show are left to be recorded at the end of the import
      *
-     * @param cast  list of the cast of the show
-     * @param title title of the show
+     * @param row                   row to apply
+     * @param adminName             name of the admin that imports the catalog
+     * @param password              password of the admin
+     * @param user                  admin that imports the catalog
+     * @param report                counters of the import
+     * @param pendingCollaborations cast of each imported show, waiting for their collaborations to be recorded
+     * @return the sequence number of the row in the journal, 0 if it was rejected or there is no journal
+     * @throws JournalFailedException exception when the row can not be written to the journal
      */
-    private void addShowToCast(List<Artist> cast, String title) {
-        for (Artist next : cast) {
-            next.addShow(shows.get(title));
-            for (Artist artist : cast) {
-                avoiders.get(next.getName()).remove(artist);
+    private long applyImportRow(ImportRow row, String adminName, String password, AdminUser user, ImportReport report,
+                                Map<Show, List<Artist>> pendingCollaborations) throws JournalFailedException {
+        try {
+            switch (row.getKind()) {
+                case MOVIE, SERIES -> {
+                    String title = row.getField(0);
+                    if (shows.containsKey(title)) throw new ShowAlreadyExistsException();
+                    long sequence = log(JournalEntry.show(row.getKind() == ImportRow.Kind.MOVIE ?
+                                    JournalEntry.Kind.MOVIE : JournalEntry.Kind.SERIES, adminName, password, title,
+                            row.getField(1), row.getLength(), row.getField(2), row.getReleaseYear(), row.getGenres(),
+                            row.getCast()));
+                    List<Artist> convertedCast = convertToArtist(row.getCast().iterator());
+                    addDirectorToArtists(row.getField(1));
+                    Artist director = artists.get(row.getField(1));
+                    if (row.getKind() == ImportRow.Kind.MOVIE)
+                        shows.put(title, new MovieClass(title, director, row.getLength(), row.getField(2),
+                                row.getReleaseYear(), row.getGenres().iterator(), convertedCast.iterator()));
+                    else
+                        shows.put(title, new SeriesClass(title, director, row.getLength(), row.getField(2),
+                                row.getReleaseYear(), row.getGenres().iterator(), convertedCast.iterator()));
+                    updateShowIndexes(title);
+                    user.incrementPostedShows();
+                    pendingCollaborations.put(shows.get(title), convertedCast);
+                    report.addShow();
+                    return sequence;
+                }
+                case ARTIST -> {
+                    checkBio(row.getField(0));
+                    long sequence = log(JournalEntry.artist(row.getField(0), row.getField(1), row.getField(2)));
+                    addBio(row.getField(0), row.getField(1), row.getField(2));
+                    report.addBio();
+                    return sequence;
+                }
+                case REVIEW -> {
+                    checkReview(row.getField(0), row.getField(1), row.getField(2));
+                    long sequence = log(JournalEntry.review(row.getField(0), row.getField(3), row.getField(1),
+                            row.getField(2)));
+                    addReview(row.getField(0), row.getField(3), row.getField(1), row.getField(2));
+                    report.addReview();
+                    return sequence;
+                }
             }
+        } catch (ShowAlreadyExistsException | AlreadyHasBioException | UnknownUserException | IsAdminException |
+                 UnknownShowException | UserAlreadyReviewedException | InvalidClassificationException e) {
+            report.addRejected();
         }
+        return 0;
+    }
+
+    /**
+     * Records that the director and the cast of a show have worked together, in the credits and
+     * collaboration counters of each artist and in the collaboration graph
+     *
+     * @param show show that was added
+     * @param cast cast of the show
+     */
+    private void recordCollaborations(Show show, List<Artist> cast) {
+        Artist director = artists.get(show.getDirectorName());
+        for (Artist art : cast)
+            addCollaboration(director, art);
+        addShowToCast(cast, show);
+        director.addShow(show);
+    }
+
+    /**
+     * Adds the show to his cast, additionally, records that all the artists on the show
+     * have worked with each other
+     *
+     * @param cast list of the cast of the show
+     * @param show the show
+     */
+    private void addShowToCast(List<Artist> cast, Show show) {
+        for (int i = 0; i < cast.size(); i++) {
+            cast.get(i).addShow(show);
+            for (int j = i + 1; j < cast.size(); j++)
+                addCollaboration(cast.get(i), cast.get(j));
+        }
+    }
+
+    /**
+     * Records that two artists have worked together, so they are no longer avoiders
+     *
+     * @param first  first artist
+     * @param second second artist
+     */
+    private void addCollaboration(Artist first, Artist second) {
+        if (collaborations.addCollaboration(first.getId(), second.getId()))
+            repairAvoidersCache(first, second);
     }
 
     /**
@@ -396,14 +1023,12 @@ public class CineReviewsClass implements CineReviews {
             user, String ageCertification, int releaseYear, Iterator<String> genres) {
 
         List<Artist> convertedCast = this.convertToArtist(cast);
-        addDirectorToArtists(director, convertedCast);
+        addDirectorToArtists(director);
         shows.put(title, new SeriesClass(title, artists.get(director), seasonNumber, ageCertification, releaseYear, genres, convertedCast.iterator()));
-
-        addShowToCast(convertedCast, title);
-        updateShowsByYear(releaseYear, title);
-
-        artists.get(director).addShow(shows.get(title));
+        updateShowIndexes(title);
         user.incrementPostedShows();
+
+        recordCollaborations(shows.get(title), convertedCast);
         int lastAdded = artistAdded;
         artistAdded = 0;
         return lastAdded;
@@ -426,114 +1051,346 @@ public class CineReviewsClass implements CineReviews {
             user, String ageCertification, int releaseYear, Iterator<String> genres) {
 
         List<Artist> convertedCast = this.convertToArtist(cast);
-        addDirectorToArtists(director, convertedCast);
+        addDirectorToArtists(director);
         shows.put(title, new MovieClass(title, artists.get(director), duration, ageCertification, releaseYear, genres, convertedCast.iterator()));
-
-        addShowToCast(convertedCast, title);
-        updateShowsByYear(releaseYear, title);
-
-        artists.get(director).addShow(shows.get(title));
+        updateShowIndexes(title);
         user.incrementPostedShows();
+
+        recordCollaborations(shows.get(title), convertedCast);
         int lastAdded = artistAdded;
         artistAdded = 0;
         return lastAdded;
     }
 
     /**
-     * Updates the shows by year
+     * Adds a new show to the score and genre indexes, and to the changed shows of the batch being tracked
      *
-     * @param releaseYear release year of the show
-     * @param title       name of the show
+     * @param title name of the show
      */
-    private void updateShowsByYear(int releaseYear, String title) {
-        if (!showsByYear.containsKey(releaseYear))
-            showsByYear.put(releaseYear, new HashSet<>());
-        showsByYear.get(releaseYear).add(shows.get(title));
+    private void updateShowIndexes(String title) {
+        if (changedShows != null) changedShows.add(shows.get(title));
+        if (!showIndexesBuilt) return;
+        if (!scoresPartitioned) showScores.add(shows.get(title));
+        genreIndex.add(shows.get(title));
     }
 
     /**
-     * Gets the avoiders in the app
+     * Maps a snapshot file and reads its layout
      *
-     * @param currentArtist current artist in the recursion
-     * @param artistSet     sets of artist in the recursion
-     * @return the avoiders in the app
+     * @param file file of the snapshot
+     * @return the layout of the snapshot
+     * @throws UnreadableFileException  exception when the file can not be read
+     * @throws InvalidSnapshotException exception when the file is not a snapshot of a supported version
      */
-    private Set<TreeSet<Artist>> getAvoidersHelper(Artist currentArtist, Set<Artist> artistSet) {
-        Set<Artist> commonArtists = new HashSet<>();
-        Set<Artist> avoiders = this.avoiders.get(currentArtist.getName());
+    private static CatalogLayout openLayout(String file) throws UnreadableFileException, InvalidSnapshotException {
+        try {
+            return new CatalogLayout(new SnapshotReader(Path.of(file)));
+        } catch (IOException | InvalidPathException e) {
+            throw new UnreadableFileException(file);
+        }
+    }
 
-        updateCommonArtists(avoiders, artistSet, currentArtist, commonArtists);
-        artistSet.add(currentArtist);
+    /**
+     * Reads the whole opened snapshot, if there is one, and builds the indexes of the shows and the collaborations,
+     * after which reading the catalog no longer changes it
+     */
+    void loadAll() {
+        ensureCollaborations();
+        ensureShowIndexes();
+        if (snapshot != null)
+            snapshot.loadAll();
+        snapshot = null;
+    }
 
-        if (commonArtists.isEmpty()) return getAvoidersEncapsulator(artistSet);
+    /**
+     * Checks if the journal of the catalog needs a checkpoint
+     *
+     * @return true if the catalog has a journal that needs a checkpoint
+     */
+    boolean needsCheckpoint() {
+        return journal != null && journal.needsCheckpoint();
+    }
 
-        Set<TreeSet<Artist>> max_set = new HashSet<>();
-        updateMaxSet(commonArtists, artistSet, max_set);
+    /**
+     * Prepares the catalog to be shared by several threads, under the locks of a ConcurrentCineReviewsClass.
+     * The opened snapshot is read entirely, the score index is rebuilt as a concurrent one, so that reviews of
+     * different shows can move them at the same time, and checkpoints are no longer made when changes are
+     * acknowledged, but left to whoever calls needsCheckpoint, so that they are made while no change is running
+     */
+    void shareAcrossThreads() {
+        loadAll();
+        ShowScoreIndex concurrentScores = new ShowScoreIndex(true);
+        for (Show show : shows.values())
+            concurrentScores.add(show);
+        showScores = concurrentScores;
+        automaticCheckpoints = false;
+    }
 
-        return max_set;
+    /**
+     * Moves the shows whose reviews were ingested to their new positions in the score index, one at a time,
+     * while queries and other reviews keep running. A show marked again while it moves stays marked,
+     * so it is moved again with its newer score
+     */
+    private void moveIngestedShows() {
+        for (Iterator<Show> it = ingestedShows.iterator(); it.hasNext(); ) {
+            Show show = it.next();
+            it.remove();
+            showScores.move(show);
+        }
+    }
+
+    /**
+     * Prepares the catalog to have its shows indexed by score by the partitions of a PartitionedCineReviewsClass,
+     * after it is shared across threads. Its own score index is emptied for good, so reviews and new shows
+     * no longer move through it, and it must not be queried by score anymore
+     */
+    void partitionShows() {
+        showScores = new ShowScoreIndex();
+        scoresPartitioned = true;
+    }
+
+    /**
+     * Starts tracking the shows added or reviewed by a batch of changes of a PartitionedCineReviewsClass,
+     * which must hold its write lock until the shows are taken
+     */
+    void trackChangedShows() {
+        changedShows = new LinkedHashSet<>();
     }
 
     /**
-     * Updates the common artists
+     * Stops tracking the shows added or reviewed by a batch of changes
      *
-     * @param avoiders      the list of the current avoiders
-     * @param artistSet     the current set of the recursion
-     * @param currentArtist the current artist of the recursion
-     * @param commonArtists list of the current common artists
+     * @return the shows added or reviewed since the tracking started
      */
-    private void updateCommonArtists(Set<Artist> avoiders, Set<Artist> artistSet, Artist currentArtist, Set<Artist> commonArtists) {
-        for (Artist artist : avoiders) {
-            boolean valid = true;
-            Iterator<Artist> artistIt = artistSet.iterator();
+    Set<Show> takeChangedShows() {
+        Set<Show> changed = changedShows;
+        changedShows = null;
+        return changed;
+    }
 
-            while (artistIt.hasNext() && valid) {
-                Artist nextArt = artistIt.next();
-                if (!this.avoiders.get(nextArt.getName()).contains(artist))
-                    valid = false;
-            }
+    /**
+     * Gets a show of the catalog
+     *
+     * @param title title of the show
+     * @return the show, or null if there is no show with that title
+     */
+    Show getShow(String title) {
+        return shows.get(title);
+    }
 
-            if (valid && currentArtist.getName().compareTo(artist.getName()) > 0) {
-                commonArtists.add(artist);
-            }
+    /**
+     * Logs a change to the journal before it is made, without waiting for it to be written.
+     * Every check of the change must have passed, so that only the changes that are made are logged
+     *
+     * @param entry change about to be made
+     * @return the sequence number of the change, 0 if there is no journal
+     * @throws JournalFailedException exception when the journal has failed or is closed, so the change must not be made
+     */
+    private long log(JournalEntry entry) throws JournalFailedException {
+        if (journal == null) return 0;
+        try {
+            return journal.append(entry);
+        } catch (IOException e) {
+            throw new JournalFailedException(journal.getDirectory().toString());
         }
     }
 
     /**
-     * Gets the encapsulator of the avoiders
+     * Waits until a change logged to the journal, and every change before it, is written as its policy asks,
+     * so that the change can be acknowledged. A checkpoint is made once enough changes were logged since the last one
      *
-     * @param artistSet the current set of the recursion
-     * @return the encapsulator of the avoiders
+     * @param sequence sequence number of the change
+     * @throws JournalFailedException exception when the change was made but could not be written to the journal
      */
-    private Set<TreeSet<Artist>> getAvoidersEncapsulator(Set<Artist> artistSet) {
-        Set<TreeSet<Artist>> encapsulator = new HashSet<>();
-        TreeSet<Artist> tree = new TreeSet<>(new ArtistComparatorByName());
-        tree.addAll(artistSet);
-        encapsulator.add(tree);
-        return encapsulator;
+    private void acknowledge(long sequence) throws JournalFailedException {
+        if (journal == null) return;
+        try {
+            journal.sync(sequence);
+            if (automaticCheckpoints && journal.needsCheckpoint())
+                saveCheckpoint();
+        } catch (IOException e) {
+            throw new JournalFailedException(journal.getDirectory().toString());
+        } catch (UnwritableFileException e) {
+            // Every change is still in the journal, so the checkpoint is tried again after the next change
+        }
     }
 
     /**
-     * Updates the max set of avoiders
+     * Saves the catalog to a new snapshot of the journal and deletes what the snapshot makes unnecessary
      *
-     * @param artistSet     the current set of the recursion
-     * @param commonArtists list of the current common artists
-     * @param max_set       max set of avoiders
+     * @throws UnwritableFileException exception when the snapshot can not be written
      */
-    private void updateMaxSet(Set<Artist> commonArtists, Set<Artist> artistSet, Set<TreeSet<Artist>> max_set) {
-        int maxSize = 0;
-        for (Artist commonArtist : commonArtists) {
-            Set<TreeSet<Artist>> avoidersTry = getAvoidersHelper(commonArtist, new HashSet<>(artistSet));
-            for (TreeSet<Artist> set : avoidersTry) {
-                if (set.size() == maxSize) {
-                    max_set.add(set);
-                }
-                if (set.size() > maxSize && set.size() != 1) {
-                    max_set.clear();
-                    maxSize = set.size();
-                    max_set.add(set);
-                }
+    private void saveCheckpoint() throws UnwritableFileException {
+        Path file;
+        try {
+            file = journal.beginCheckpoint();
+        } catch (IOException e) {
+            throw new UnwritableFileException(journal.getDirectory().toString());
+        }
+        saveSnapshot(file.toString());
+        try {
+            journal.endCheckpoint();
+        } catch (IOException e) {
+            throw new UnwritableFileException(journal.getDirectory().toString());
+        }
+    }
+
+    /**
+     * Makes a change of the journal again, through the same operation that made it
+     *
+     * @param entry change of the journal
+     * @return false if the change can not be made, as a review with a classification that does not exist
+     */
+    private boolean replay(JournalEntry entry) {
+        try {
+            switch (entry.getKind()) {
+                case USER -> registerUser(entry.getField(0), entry.getField(1), entry.getField(2));
+                case MOVIE -> addMovie(entry.getField(0), entry.getField(1), entry.getField(2), entry.getField(3),
+                        entry.getLength(), entry.getField(4), entry.getReleaseYear(), entry.getGenres(), entry.getCast());
+                case SERIES -> addSeries(entry.getField(0), entry.getField(1), entry.getField(2), entry.getField(3),
+                        entry.getLength(), entry.getField(4), entry.getReleaseYear(), entry.getGenres(), entry.getCast());
+                case ARTIST -> addBio(entry.getField(0), entry.getField(1), entry.getField(2));
+                case REVIEW -> addReview(entry.getField(0), entry.getField(1), entry.getField(2), entry.getField(3));
             }
+        } catch (UnknownUserTypeException | UserAlreadyExistsException | NotAnAdminException | WrongPasswordException |
+                 ShowAlreadyExistsException | AlreadyHasBioException | UnknownUserException | IsAdminException |
+                 UnknownShowException | UserAlreadyReviewedException e) {
+            // Only changes that passed their checks are logged, so making them again does not fail, except for
+            // the reviews that lost the race with another one of the same user in journals of older versions,
+            // which are rejected again
+        } catch (InvalidClassificationException | RuntimeException e) {
+            return false;
+        } catch (JournalFailedException e) {
+            // The journal is attached after it is replayed, so nothing is logged while replaying
+            throw new IllegalStateException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Collects the Strings of an iterator
+     *
+     * @param it iterator of the Strings
+     * @return list with the Strings, in order
+     */
+    private static List<String> toList(Iterator<String> it) {
+        List<String> list = new ArrayList<>();
+        while (it.hasNext())
+            list.add(it.next());
+        return list;
+    }
+
+    /**
+     * Builds the score and genre indexes of an opened snapshot the first time they are needed,
+     * which materialises every show with its reviews
+     */
+    private void ensureShowIndexes() {
+        if (showIndexesBuilt) return;
+        for (Show show : shows.values()) {
+            showScores.add(show);
+            genreIndex.add(show);
         }
+        showIndexesBuilt = true;
+    }
+
+    /**
+     * Builds the collaboration graph and the index of the best friends of an opened snapshot the first time
+     * they are needed, which must be before any artist is created or works with another one
+     */
+    private void ensureCollaborations() {
+        if (collaborationsBuilt) return;
+        snapshot.restoreCollaborations(collaborations);
+        collaborationsBuilt = true;
+    }
+
+    /**
+     * Answers the avoiders from the cached result, which is always optimal
+     *
+     * @return the cached avoiders, copied as the cache is repaired in place
+     */
+    private AvoidersResult getCachedAvoiders() {
+        avoidersCacheHits++;
+        return new AvoidersResult(new ArrayList<>(cachedAvoiders), true);
+    }
+
+    /**
+     * Keeps the result of an exact avoiders search until a mutation may change it
+     *
+     * @param max_set every largest group of avoiders
+     */
+    private void cacheAvoiders(Set<Set<Artist>> max_set) {
+        cachedAvoiders = max_set;
+        cachedAvoidersMembers = new HashSet<>();
+        for (Set<Artist> set : max_set)
+            cachedAvoidersMembers.addAll(set);
+    }
+
+    /**
+     * Converts the groups of ids found by a search into ordered groups of artists
+     *
+     * @param groups groups of artist ids
+     * @param byName artists sorted by name, indexed by id
+     * @return the groups of artists ordered by the SetArtistComparator
+     */
+    private Set<Set<Artist>> toArtistGroups(List<int[]> groups, List<Artist> byName) {
+        Set<Set<Artist>> max_set = new TreeSet<>(new SetArtistComparator());
+        for (int[] group : groups) {
+            Set<Artist> set = new TreeSet<>(new ArtistComparatorByName());
+            for (int id : group)
+                set.add(byName.get(id));
+            max_set.add(set);
+        }
+        return max_set;
+    }
+
+    /**
+     * Drops the cached avoiders, so that the next call searches again
+     */
+    private void invalidateAvoidersCache() {
+        cachedAvoiders = null;
+        cachedAvoidersMembers = null;
+    }
+
+    /**
+     * Repairs the cached avoiders after two artists worked together.
+     * Removing the edge between them can not create new groups nor make the largest ones bigger,
+     * so only the cached groups with both artists stop being valid. The cache is only dropped
+     * when none of the groups is left
+     *
+     * @param first  first artist of the collaboration
+     * @param second second artist of the collaboration
+     */
+    private void repairAvoidersCache(Artist first, Artist second) {
+        if (cachedAvoiders == null || first == second) return;
+        if (!cachedAvoidersMembers.contains(first) || !cachedAvoidersMembers.contains(second)) return;
+
+        cachedAvoiders.removeIf(set -> set.contains(first) && set.contains(second));
+        if (cachedAvoiders.isEmpty()) invalidateAvoidersCache();
+    }
+
+    /**
+     * Chooses the parallel search when there are enough artists and cores for it to pay off
+     *
+     * @return the search that should be used to find the avoiders
+     */
+    private CliqueSearch chooseAvoidersSearch() {
+        if (artists.size() >= PARALLEL_AVOIDERS_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1)
+            return parallelAvoidersSearch;
+        return avoidersSearch;
+    }
+
+    /**
+     * Builds the graph of the artists that have never worked together, with the artists
+     * identified by their position in the alphabetical order of the names
+     *
+     * @param byName artists sorted by name
+     * @return the graph of the artists that have never worked together
+     */
+    private AvoidersGraph buildAvoidersGraph(List<Artist> byName) {
+        int[] position = new int[byName.size()];
+        for (int i = 0; i < byName.size(); i++)
+            position[byName.get(i).getId()] = i;
+        return collaborations.toAvoidersGraph(position);
     }
 
 }
@@ -0,0 +1,593 @@
+package cinereviews;
+
+import artist.Artist;
+import artist.ArtistPair;
+import artist.exceptions.AlreadyHasBioException;
+import artist.exceptions.UnknownArtistException;
+import cinereviews.avoiders.AvoidersResult;
+import cinereviews.bulk.ImportReport;
+import cinereviews.exceptions.*;
+import cinereviews.journal.FsyncPolicy;
+import cinereviews.journal.Journal;
+import review.Review;
+import review.exceptions.InvalidClassificationException;
+import review.exceptions.UserAlreadyReviewedException;
+import show.Show;
+import show.exceptions.ShowAlreadyExistsException;
+import show.exceptions.UnknownShowException;
+import user.User;
+import user.exceptions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * CineReviews app that can be shared by any number of threads, over the catalog of a CineReviewsClass.
+ * Changes of the catalog itself, such as new users, shows and artists, take the write lock of the catalog and run
+ * alone. Reviews take the read lock of the catalog and the lock of the stripe of their show, so reviews of shows
+ * in different stripes run in parallel, while reviews of the same show run one at a time, which keeps the rule of
+ * one review per user and the number of reviews returned for each show exact. Queries only take the read lock
+ * of the catalog, so they never wait for a review, and copy what they return before releasing it, so that
+ * the result does not change while it is iterated. Queries that update the cached results of the catalog,
+ * as the avoiders and the sorted best friends, also take the lock of the caches.
+ * Reviews can also be ingested without any lock of their own, for bulk loads from many threads: each show checks
+ * and adds the reviewer in one atomic step and keeps its score in atomic accumulators, so they scale with the cores
+ * while the rule of one review per user stays exact. Ingested reviews only mark their shows, which the next query
+ * that reads shows in order of score moves in the score index under the read lock, so neither waits for the other
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ConcurrentCineReviewsClass implements CineReviews {
+
+    private static final int STRIPES = 64;
+
+    /**
+     * Catalog of the app, only used while holding the locks
+     */
+    private final CineReviewsClass catalog;
+
+    /**
+     * Lock of the catalog: read for queries and reviews, write for every other change
+     */
+    private final ReentrantReadWriteLock catalogLock;
+
+    /**
+     * Locks of the reviews, one per stripe of shows
+     */
+    private final Lock[] stripes;
+
+    /**
+     * Lock of the cached results of the catalog, taken with the read lock of the catalog by the queries that update them
+     */
+    private final Lock cachesLock;
+
+    /**
+     * Creates a new concurrent CineReviews app with an empty catalog
+     */
+    public ConcurrentCineReviewsClass() {
+        this(new CineReviewsClass());
+    }
+
+    /**
+     * Creates a new concurrent CineReviews app over a catalog, which from then on must only be used through it.
+     * An opened snapshot is read entirely, as reading it lazily would change the catalog while it is read,
+     * and the checkpoints of its journal are made once no change is running, instead of when a change is acknowledged
+     *
+     * @param catalog catalog of the app
+     */
+    public ConcurrentCineReviewsClass(CineReviewsClass catalog) {
+        this.catalog = catalog;
+        this.catalogLock = new ReentrantReadWriteLock();
+        this.stripes = new Lock[STRIPES];
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new ReentrantLock();
+        this.cachesLock = new ReentrantLock();
+        catalog.shareAcrossThreads();
+    }
+
+    /**
+     * Creates a new concurrent CineReviews app with the catalog recovered from a journal directory
+     *
+     * @param directory directory of the journal
+     * @param policy    when the changes written to the journal are forced
+     * @return the app with the recovered catalog
+     * @throws UnreadableFileException  exception when the journal can not be read
+     * @throws InvalidSnapshotException exception when the latest snapshot of the journal is corrupted
+     * @throws InvalidJournalException  exception when a change of the journal is corrupted, missing or can not be made
+     */
+    public static ConcurrentCineReviewsClass recover(String directory, FsyncPolicy policy)
+            throws UnreadableFileException, InvalidSnapshotException, InvalidJournalException {
+        return new ConcurrentCineReviewsClass(CineReviewsClass.recover(directory, policy));
+    }
+
+    @Override
+    public void registerUser(String type, String name, String password) throws UnknownUserTypeException,
+            UserAlreadyExistsException, JournalFailedException {
+        catalogLock.writeLock().lock();
+        try {
+            catalog.registerUser(type, name, password);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        checkpointIfNeeded();
+    }
+
+    @Override
+    public Iterator<User> getAllUsers() {
+        catalogLock.readLock().lock();
+        try {
+            return copy(catalog.getAllUsers());
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int addMovie(String adminName, String password, String title, String director, int duration,
+                        String ageCertification, int releaseYear, Iterator<String> genres, Iterator<String> cast)
+            throws NotAnAdminException, WrongPasswordException, ShowAlreadyExistsException, JournalFailedException {
+        int added;
+        catalogLock.writeLock().lock();
+        try {
+            added = catalog.addMovie(adminName, password, title, director, duration, ageCertification, releaseYear,
+                    genres, cast);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        checkpointIfNeeded();
+        return added;
+    }
+
+    @Override
+    public int addSeries(String adminName, String password, String title, String director, int seasonAmount,
+                         String ageCertification, int releaseYear, Iterator<String> genres, Iterator<String> cast)
+            throws NotAnAdminException, WrongPasswordException, ShowAlreadyExistsException, JournalFailedException {
+        int added;
+        catalogLock.writeLock().lock();
+        try {
+            added = catalog.addSeries(adminName, password, title, director, seasonAmount, ageCertification,
+                    releaseYear, genres, cast);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        checkpointIfNeeded();
+        return added;
+    }
+
+    @Override
+    public ImportReport importCatalog(String adminName, String password, Iterator<String> files)
+            throws NotAnAdminException, WrongPasswordException, UnreadableFileException, JournalFailedException {
+        ImportReport report;
+        catalogLock.writeLock().lock();
+        try {
+            report = catalog.importCatalog(adminName, password, files);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        checkpointIfNeeded();
+        return report;
+    }
+
+    /**
+     * Saves the catalog to a snapshot, with no change running, so that the snapshot has every review of each user
+     */
+    @Override
+    public void saveSnapshot(String file) throws UnwritableFileException {
+        catalogLock.writeLock().lock();
+        try {
+            catalog.saveSnapshot(file);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String checkpoint() throws NoJournalException, UnwritableFileException {
+        catalogLock.writeLock().lock();
+        try {
+            return catalog.checkpoint();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Journal detachJournal() {
+        catalogLock.writeLock().lock();
+        try {
+            return catalog.detachJournal();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void attachJournal(Journal journal) throws UnwritableFileException {
+        catalogLock.writeLock().lock();
+        try {
+            catalog.attachJournal(journal);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void closeJournal() throws UnwritableFileException {
+        catalogLock.writeLock().lock();
+        try {
+            catalog.closeJournal();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<Show> listAllShows() {
+        catalogLock.readLock().lock();
+        try {
+            return copy(catalog.listAllShows());
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addArtistBio(String name, String dateOfBirth, String placeOfBirth) throws AlreadyHasBioException,
+            JournalFailedException {
+        boolean wasCreated;
+        catalogLock.writeLock().lock();
+        try {
+            wasCreated = catalog.addArtistBio(name, dateOfBirth, placeOfBirth);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        checkpointIfNeeded();
+        return wasCreated;
+    }
+
+    @Override
+    public Iterator<Show> getArtistCredits(String artistName) throws UnknownArtistException {
+        catalogLock.readLock().lock();
+        try {
+            return copy(catalog.getArtistCredits(artistName));
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean artistHasBio(String artist) {
+        catalogLock.readLock().lock();
+        try {
+            return catalog.artistHasBio(artist);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String getPlaceOfBirthOfArtist(String artist) {
+        catalogLock.readLock().lock();
+        try {
+            return catalog.getPlaceOfBirthOfArtist(artist);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String getDateOfBirthOfArtist(String artist) {
+        catalogLock.readLock().lock();
+        try {
+            return catalog.getDateOfBirthOfArtist(artist);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String getArtistRole(String artistName, String show) {
+        catalogLock.readLock().lock();
+        try {
+            return catalog.getArtistRole(artistName, show);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int reviewShow(String username, String review, String showName, String score)
+            throws UnknownUserException, IsAdminException, UnknownShowException, UserAlreadyReviewedException,
+            InvalidClassificationException, JournalFailedException {
+        int reviews;
+        catalogLock.readLock().lock();
+        try {
+            Lock stripe = stripeOf(showName);
+            stripe.lock();
+            try {
+                reviews = catalog.reviewShow(username, review, showName, score);
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        checkpointIfNeeded();
+        return reviews;
+    }
+
+    /**
+     * Adds a review to a show without taking the lock of its stripe, so reviews of the same show are also added
+     * in parallel. The number of reviews returned for each show stays exact, but the shows are only sorted
+     * by their new scores when they are next queried by score. With a journal, reviews are still logged one at a time
+     *
+     * @param username name of the user
+     * @param review   text of the review
+     * @param showName title of the show
+     * @param score    classification of the review
+     * @return the number of reviews of the show with this one
+     * @throws UnknownUserException           exception when the user does not exist
+     * @throws IsAdminException               exception when the user is an admin
+     * @throws UnknownShowException           exception when the show does not exist
+     * @throws UserAlreadyReviewedException   exception when the user already reviewed the show
+     * @throws InvalidClassificationException exception when the classification does not exist
+     * @throws JournalFailedException         exception when the review can not be written to the journal
+     */
+    public int ingestReview(String username, String review, String showName, String score)
+            throws UnknownUserException, IsAdminException, UnknownShowException, UserAlreadyReviewedException,
+            InvalidClassificationException, JournalFailedException {
+        int reviews;
+        catalogLock.readLock().lock();
+        try {
+            reviews = catalog.ingestReview(username, review, showName, score);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        checkpointIfNeeded();
+        return reviews;
+    }
+
+    @Override
+    public Iterator<Review> getReviewsOfShow(String showName) throws UnknownShowException {
+        catalogLock.readLock().lock();
+        try {
+            return copy(catalog.getReviewsOfShow(showName));
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public float getScoreOfShow(String showName) {
+        catalogLock.readLock().lock();
+        try {
+            return catalog.getScoreOfShow(showName);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<Show> getShowsByYear(int year) {
+        catalogLock.readLock().lock();
+        try {
+            return copy(catalog.getShowsByYear(year));
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<Show> getShowsByYears(int from, int to) {
+        catalogLock.readLock().lock();
+        try {
+            return copy(catalog.getShowsByYears(from, to));
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<Show> getShowsByGenre(Iterator<String> genres) {
+        catalogLock.readLock().lock();
+        try {
+            return copy(catalog.getShowsByGenre(genres));
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<Artist> getAllFriends() throws NoArtistException, NoCollaborationsException {
+        catalogLock.readLock().lock();
+        cachesLock.lock();
+        try {
+            return copy(catalog.getAllFriends());
+        } finally {
+            cachesLock.unlock();
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<ArtistPair> getBestFriends() throws NoArtistException, NoCollaborationsException {
+        catalogLock.readLock().lock();
+        cachesLock.lock();
+        try {
+            return copy(catalog.getBestFriends());
+        } finally {
+            cachesLock.unlock();
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<ArtistPair> getTopCollaborations(int amount) throws NoArtistException, NoCollaborationsException {
+        catalogLock.readLock().lock();
+        try {
+            return copy(catalog.getTopCollaborations(amount));
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<ArtistPair> getTopCollaboratorsOf(String name, int amount) throws UnknownArtistException, NoCollaborationsException {
+        catalogLock.readLock().lock();
+        try {
+            return copy(catalog.getTopCollaboratorsOf(name, amount));
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<Artist> getFriendsOf(String name) {
+        catalogLock.readLock().lock();
+        try {
+            return copy(catalog.getFriendsOf(name));
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public AvoidersResult getAvoiders() throws NoArtistException {
+        catalogLock.readLock().lock();
+        cachesLock.lock();
+        try {
+            return catalog.getAvoiders();
+        } finally {
+            cachesLock.unlock();
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public AvoidersResult getAvoiders(int timeBudget) throws NoArtistException {
+        catalogLock.readLock().lock();
+        cachesLock.lock();
+        try {
+            return catalog.getAvoiders(timeBudget);
+        } finally {
+            cachesLock.unlock();
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the search of the avoiders running in another thread, without waiting for any lock
+     */
+    @Override
+    public void cancelAvoiders() {
+        catalog.cancelAvoiders();
+    }
+
+    @Override
+    public int getAvoidersCacheHits() {
+        cachesLock.lock();
+        try {
+            return catalog.getAvoidersCacheHits();
+        } finally {
+            cachesLock.unlock();
+        }
+    }
+
+    @Override
+    public int getAvoidersCacheMisses() {
+        cachesLock.lock();
+        try {
+            return catalog.getAvoidersCacheMisses();
+        } finally {
+            cachesLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the lock of the reviews of a show
+     *
+     * @param showName title of the show
+     * @return the lock of the stripe of the show
+     */
+    private Lock stripeOf(String showName) {
+        return stripes[Math.floorMod(showName.hashCode(), STRIPES)];
+    }
+
+    /**
+     * Gets the catalog of the app, for subclasses that change it under the locks of the app
+     *
+     * @return the catalog
+     */
+    CineReviewsClass getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Gets the read lock of the catalog, taken by queries and reviews
+     *
+     * @return the read lock
+     */
+    Lock readLock() {
+        return catalogLock.readLock();
+    }
+
+    /**
+     * Gets the write lock of the catalog, taken by every other change
+     *
+     * @return the write lock
+     */
+    Lock writeLock() {
+        return catalogLock.writeLock();
+    }
+
+    /**
+     * Applies a batch of changes to the catalog with the write lock taken once for all of them,
+     * for a single writer that applies the changes of many callers
+     *
+     * @param changes changes to apply
+     */
+    void applyExclusively(Consumer<CineReviewsClass> changes) {
+        catalogLock.writeLock().lock();
+        try {
+            changes.accept(catalog);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        checkpointIfNeeded();
+    }
+
+    /**
+     * Makes a checkpoint of the journal of the catalog if it needs one, once no change is running
+     */
+    void checkpointIfNeeded() {
+        if (!catalog.needsCheckpoint()) return;
+        catalogLock.writeLock().lock();
+        try {
+            if (catalog.needsCheckpoint())
+                catalog.checkpoint();
+        } catch (NoJournalException | UnwritableFileException e) {
+            // Every change is still in the journal, so the checkpoint is tried again after the next change
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the elements of an iterator, so that they can be iterated after the locks are released
+     *
+     * @param it  iterator of the elements
+     * @param <T> type of the elements
+     * @return iterator of the copy
+     */
+    private static <T> Iterator<T> copy(Iterator<T> it) {
+        List<T> elements = new ArrayList<>();
+        while (it.hasNext())
+            elements.add(it.next());
+        return elements.iterator();
+    }
+}
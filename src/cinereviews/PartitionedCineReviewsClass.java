@@ -0,0 +1,299 @@
+package cinereviews;
+
+import cinereviews.bulk.ImportReport;
+import cinereviews.exceptions.*;
+import cinereviews.journal.FsyncPolicy;
+import cinereviews.partition.ShowPartition;
+import review.exceptions.InvalidClassificationException;
+import review.exceptions.UserAlreadyReviewedException;
+import show.Show;
+import show.comparators.ShowComparatorByScore;
+import show.exceptions.ShowAlreadyExistsException;
+import show.exceptions.UnknownShowException;
+import user.exceptions.*;
+import util.MergingIterator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Concurrent CineReviews app whose shows are split by the hash of their titles into partitions, each one with its own
+ * thread, which owns the shows of the partition, their reviews and their indexes by score, year and genre.
+ * Users, artists and collaborations stay in the catalog, under the locks of a ConcurrentCineReviewsClass,
+ * and new shows are handed to their partitions under the write lock. Reviews take the read lock and run on the thread
+ * of the partition of their show, so reviews of different partitions run in parallel, without any shared index.
+ * The queries of the shows by score, by year or genre, and of every show by title, are sent to every partition at once
+ * and their results, already in order, are merged. A show reviewed while such a query runs may be merged with
+ * the score it had in its partition or with its new one, as with the concurrent index of ConcurrentCineReviewsClass.
+ * Changes applied in batches by an AsyncCineReviewsClass go to the catalog directly, so the shows each batch adds
+ * or reviews are handed to their partitions after it, while an import through importCatalog hands every show again
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class PartitionedCineReviewsClass extends ConcurrentCineReviewsClass implements AutoCloseable {
+
+    /**
+     * Partitions of the shows, by the hash of their titles
+     */
+    private final ShowPartition[] partitions;
+
+    /**
+     * Order of the shows by score
+     */
+    private final Comparator<Show> byScore;
+
+    /**
+     * Order of the shows by title
+     */
+    private final Comparator<Show> byTitle;
+
+    /**
+     * Creates a new partitioned CineReviews app with an empty catalog
+     *
+     * @param partitionCount number of partitions of the shows
+     */
+    public PartitionedCineReviewsClass(int partitionCount) {
+        this(new CineReviewsClass(), partitionCount);
+    }
+
+    /**
+     * Creates a new partitioned CineReviews app over a catalog, which from then on must only be used through it,
+     * and hands its shows to their partitions
+     *
+     * @param catalog        catalog of the app
+     * @param partitionCount number of partitions of the shows
+     */
+    public PartitionedCineReviewsClass(CineReviewsClass catalog, int partitionCount) {
+        super(catalog);
+        if (partitionCount < 1) throw new IllegalArgumentException("partitionCount must be positive: " + partitionCount);
+        this.byScore = new ShowComparatorByScore();
+        this.byTitle = Comparator.comparing(Show::getTitle);
+        this.partitions = new ShowPartition[partitionCount];
+        for (int i = 0; i < partitionCount; i++)
+            partitions[i] = new ShowPartition(i, catalog);
+        catalog.partitionShows();
+        distributeShows();
+    }
+
+    /**
+     * Creates a new partitioned CineReviews app with the catalog recovered from a journal directory
+     *
+     * @param directory      directory of the journal
+     * @param policy         when the changes written to the journal are forced
+     * @param partitionCount number of partitions of the shows
+     * @return the app with the recovered catalog
+     * @throws UnreadableFileException  exception when the journal can not be read
+     * @throws InvalidSnapshotException exception when the latest snapshot of the journal is corrupted
+     * @throws InvalidJournalException  exception when a change of the journal is corrupted, missing or can not be made
+     */
+    public static PartitionedCineReviewsClass recover(String directory, FsyncPolicy policy, int partitionCount)
+            throws UnreadableFileException, InvalidSnapshotException, InvalidJournalException {
+        return new PartitionedCineReviewsClass(CineReviewsClass.recover(directory, policy), partitionCount);
+    }
+
+    /**
+     * Gets the number of partitions of the shows
+     *
+     * @return the number of partitions
+     */
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    @Override
+    public int addMovie(String adminName, String password, String title, String director, int duration,
+                        String ageCertification, int releaseYear, Iterator<String> genres, Iterator<String> cast)
+            throws NotAnAdminException, WrongPasswordException, ShowAlreadyExistsException, JournalFailedException {
+        int added;
+        writeLock().lock();
+        try {
+            added = getCatalog().addMovie(adminName, password, title, director, duration, ageCertification,
+                    releaseYear, genres, cast);
+            partitionOf(title).add(getCatalog().getShow(title));
+        } finally {
+            writeLock().unlock();
+        }
+        checkpointIfNeeded();
+        return added;
+    }
+
+    @Override
+    public int addSeries(String adminName, String password, String title, String director, int seasonAmount,
+                         String ageCertification, int releaseYear, Iterator<String> genres, Iterator<String> cast)
+            throws NotAnAdminException, WrongPasswordException, ShowAlreadyExistsException, JournalFailedException {
+        int added;
+        writeLock().lock();
+        try {
+            added = getCatalog().addSeries(adminName, password, title, director, seasonAmount, ageCertification,
+                    releaseYear, genres, cast);
+            partitionOf(title).add(getCatalog().getShow(title));
+        } finally {
+            writeLock().unlock();
+        }
+        checkpointIfNeeded();
+        return added;
+    }
+
+    /**
+     * Imports catalog files and then hands every show to its partition again, as the import adds shows and
+     * reviews to the catalog directly, even if it fails halfway
+     */
+    @Override
+    public ImportReport importCatalog(String adminName, String password, Iterator<String> files)
+            throws NotAnAdminException, WrongPasswordException, UnreadableFileException, JournalFailedException {
+        ImportReport report;
+        writeLock().lock();
+        try {
+            report = getCatalog().importCatalog(adminName, password, files);
+        } finally {
+            try {
+                distributeShows();
+            } finally {
+                writeLock().unlock();
+            }
+        }
+        checkpointIfNeeded();
+        return report;
+    }
+
+    @Override
+    public Iterator<Show> listAllShows() {
+        return gather(ShowPartition::showsByTitle, byTitle);
+    }
+
+    @Override
+    public int reviewShow(String username, String review, String showName, String score)
+            throws UnknownUserException, IsAdminException, UnknownShowException, UserAlreadyReviewedException,
+            InvalidClassificationException, JournalFailedException {
+        int reviews;
+        readLock().lock();
+        try {
+            reviews = partitionOf(showName).review(username, review, showName, score);
+        } finally {
+            readLock().unlock();
+        }
+        checkpointIfNeeded();
+        return reviews;
+    }
+
+    /**
+     * Adds a review to a show as reviewShow does, as the reviews of different partitions already run in parallel
+     * and the score index of each partition is kept up to date
+     */
+    @Override
+    public int ingestReview(String username, String review, String showName, String score)
+            throws UnknownUserException, IsAdminException, UnknownShowException, UserAlreadyReviewedException,
+            InvalidClassificationException, JournalFailedException {
+        return reviewShow(username, review, showName, score);
+    }
+
+    @Override
+    public Iterator<Show> getShowsByYear(int year) {
+        return gather(partition -> partition.showsOfYear(year), byScore);
+    }
+
+    @Override
+    public Iterator<Show> getShowsByYears(int from, int to) {
+        return gather(partition -> partition.showsOfYears(from, to), byScore);
+    }
+
+    @Override
+    public Iterator<Show> getShowsByGenre(Iterator<String> genres) {
+        List<String> wanted = new ArrayList<>();
+        while (genres.hasNext())
+            wanted.add(genres.next());
+        return gather(partition -> partition.showsOfGenres(wanted), byScore);
+    }
+
+    /**
+     * Stops the threads of the partitions, after which the app can no longer be used
+     */
+    @Override
+    public void close() {
+        for (ShowPartition partition : partitions)
+            partition.close();
+    }
+
+    /**
+     * Applies a batch of changes to the catalog with the write lock taken once for all of them, and then hands
+     * the shows they added or reviewed to their partitions, as the changes go to the catalog directly,
+     * even if one of them fails
+     *
+     * @param changes changes to apply
+     */
+    @Override
+    void applyExclusively(Consumer<CineReviewsClass> changes) {
+        writeLock().lock();
+        try {
+            getCatalog().trackChangedShows();
+            try {
+                changes.accept(getCatalog());
+            } finally {
+                for (Show show : getCatalog().takeChangedShows())
+                    partitionOf(show.getTitle()).update(show);
+            }
+        } finally {
+            writeLock().unlock();
+        }
+        checkpointIfNeeded();
+    }
+
+    /**
+     * Gets the partition of a show
+     *
+     * @param title title of the show
+     * @return the partition of the show
+     */
+    private ShowPartition partitionOf(String title) {
+        return partitions[Math.floorMod(title.hashCode(), partitions.length)];
+    }
+
+    /**
+     * Hands every show of the catalog to its partition, replacing the shows the partitions had.
+     * Must be called with the write lock, or before the app is shared
+     */
+    private void distributeShows() {
+        List<List<Show>> partitionShows = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++)
+            partitionShows.add(new ArrayList<>());
+        Iterator<Show> it = getCatalog().listAllShows();
+        while (it.hasNext()) {
+            Show show = it.next();
+            partitionShows.get(Math.floorMod(show.getTitle().hashCode(), partitions.length)).add(show);
+        }
+        for (int i = 0; i < partitions.length; i++)
+            partitions[i].reindex(partitionShows.get(i));
+    }
+
+    /**
+     * Sends a query to every partition at once, waits for all of them with the read lock, so that no show is added
+     * meanwhile, and merges their results
+     *
+     * @param query query of a partition, whose result is ordered
+     * @param order order of the results of the partitions and of the merge
+     * @return iterator of the merged results
+     */
+    private Iterator<Show> gather(Function<ShowPartition, CompletableFuture<List<Show>>> query,
+                                  Comparator<Show> order) {
+        List<CompletableFuture<List<Show>>> results = new ArrayList<>(partitions.length);
+        readLock().lock();
+        try {
+            for (ShowPartition partition : partitions)
+                results.add(query.apply(partition));
+            List<Iterator<Show>> sources = new ArrayList<>(partitions.length);
+            for (CompletableFuture<List<Show>> result : results)
+                sources.add(result.join().iterator());
+            if (sources.size() == 1) return sources.get(0);
+            List<Show> merged = new ArrayList<>();
+            new MergingIterator<>(sources, order).forEachRemaining(merged::add);
+            return merged.iterator();
+        } finally {
+            readLock().unlock();
+        }
+    }
+}
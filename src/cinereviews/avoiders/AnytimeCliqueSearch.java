@@ -0,0 +1,207 @@
+package cinereviews.avoiders;
+
+import java.util.*;
+
+import static cinereviews.avoiders.Bitsets.*;
+
+/**
+ * Search of the largest cliques that can be stopped at any time.
+ * It first builds greedy cliques from the artists with the most neighbours and improves them by
+ * swapping one artist at a time, and then uses the best size found as the lower bound of the exact
+ * BitsetCliqueSearch. When the budget runs out the best cliques found so far are returned
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class AnytimeCliqueSearch {
+
+    /**
+     * Number of moves during which an artist that left the clique can not come back
+     */
+    private static final int TABU_TENURE = 7;
+
+    /**
+     * Maximum number of swaps tried from each seed
+     */
+    private static final int SWAPS_PER_SEED = 64;
+
+    /**
+     * Exact search run after the heuristic one
+     */
+    private final BitsetCliqueSearch exactSearch;
+
+    /**
+     * Graph being searched
+     */
+    private AvoidersGraph graph;
+
+    /**
+     * Budget of the current search
+     */
+    private SearchBudget budget;
+
+    /**
+     * Size of the largest cliques found so far
+     */
+    private int best;
+
+    /**
+     * Largest cliques found so far, without repetitions
+     */
+    private Set<int[]> found;
+
+    /**
+     * Move until which each artist can not come back into the clique
+     */
+    private int[] tabu;
+
+    /**
+     * Creates a new anytime search
+     */
+    public AnytimeCliqueSearch() {
+        exactSearch = new BitsetCliqueSearch();
+    }
+
+    /**
+     * Searches the largest cliques of the graph until they are proven to be the largest or the budget runs out.
+     * A clique of the artist with the most neighbours is always built, even if the budget is already over,
+     * but then by adding any candidate instead of the best one, which takes a single pass over the candidates
+     *
+     * @param graph  graph of the artists that have never worked together
+     * @param budget budget of the search
+     * @return the largest cliques found and whether they are every maximum clique
+     */
+    public CliqueSearchResult search(AvoidersGraph graph, SearchBudget budget) {
+        this.graph = graph;
+        this.budget = budget;
+        this.best = CliqueSearch.MIN_GROUP_SIZE;
+        this.found = new TreeSet<>(Arrays::compare);
+        this.tabu = new int[graph.size()];
+
+        CliqueSearchResult result;
+        try {
+            improveFromSeeds();
+            List<int[]> exact = budget.isExhausted() ? null : exactSearch.findMaximumCliques(graph, best, budget);
+            if (exact != null) result = new CliqueSearchResult(exact, true);
+            else result = new CliqueSearchResult(new ArrayList<>(found), false);
+        } finally {
+            this.graph = null;
+            this.budget = null;
+            this.found = null;
+            this.tabu = null;
+        }
+        return result;
+    }
+
+    /**
+     * Builds a greedy clique from each artist, by decreasing number of neighbours, and improves it with swaps.
+     * Artists with too few neighbours to reach the best size are skipped
+     */
+    private void improveFromSeeds() {
+        Integer[] seeds = new Integer[graph.size()];
+        int[] degree = new int[graph.size()];
+        for (int v = 0; v < seeds.length; v++) {
+            seeds[v] = v;
+            degree[v] = cardinality(graph.getNeighbours(v));
+        }
+        budget.step((long) graph.size() * graph.words());
+        Arrays.sort(seeds, (a, b) -> degree[a] != degree[b] ? degree[b] - degree[a] : a - b);
+
+        for (int i = 0; i < seeds.length && (i == 0 || budget.step()); i++) {
+            if (degree[seeds[i]] + 1 < best) break;
+            long[] clique = new long[graph.words()];
+            set(clique, seeds[i]);
+            long[] candidates = graph.getNeighbours(seeds[i]).clone();
+            int size = extend(clique, 1, candidates);
+            improve(clique, size);
+        }
+    }
+
+    /**
+     * Improves a maximal clique by swapping one of its artists with an outside artist that is a neighbour of
+     * every other artist, and extending it again after each swap.
+     * The moves are counted again from each seed, so the artists made tabu by the previous seeds are freed first
+     *
+     * @param clique bitset of the clique, changed by the swaps
+     * @param size   size of the clique
+     */
+    private void improve(long[] clique, int size) {
+        Arrays.fill(tabu, 0);
+        record(clique, size);
+        // Each move scans the neighbours of every artist outside the clique
+        for (int move = 1; move <= SWAPS_PER_SEED && budget.step((long) graph.size() * graph.words()); move++) {
+            int in = -1;
+            int out = -1;
+            for (int v = 0; v < graph.size() && in < 0; v++) {
+                if (tabu[v] >= move || get(clique, v)) continue;
+                if (intersectionSize(clique, graph.getNeighbours(v)) == size - 1) {
+                    in = v;
+                    out = nextSetBit(andNot(clique, graph.getNeighbours(v)), 0);
+                }
+            }
+            if (in < 0) return;
+
+            clear(clique, out);
+            set(clique, in);
+            tabu[out] = move + TABU_TENURE;
+            size = extend(clique, size, commonNeighbours(clique));
+            record(clique, size);
+        }
+    }
+
+    /**
+     * Greedily adds to the clique the candidate with the most neighbours among the other candidates,
+     * or the first candidate once the budget is over
+     *
+     * @param clique     bitset of the clique, changed by the additions
+     * @param size       size of the clique
+     * @param candidates artists that are neighbours of every artist of the clique, owned by this call
+     * @return the size of the clique after the additions
+     */
+    private int extend(long[] clique, int size, long[] candidates) {
+        while (!isEmpty(candidates)) {
+            boolean affordable = budget.step((long) graph.words() * cardinality(candidates));
+            int chosen = affordable ? choosePivot(graph, candidates, new long[0]) : nextSetBit(candidates, 0);
+            set(clique, chosen);
+            size++;
+            long[] neighbours = graph.getNeighbours(chosen);
+            for (int i = 0; i < candidates.length; i++)
+                candidates[i] &= neighbours[i];
+        }
+        return size;
+    }
+
+    /**
+     * Gets the artists outside the clique that are neighbours of every artist of the clique
+     *
+     * @param clique bitset of the clique
+     * @return a new bitset with the common neighbours of the clique
+     */
+    private long[] commonNeighbours(long[] clique) {
+        long[] common = graph.allVertices();
+        for (int v = nextSetBit(clique, 0); v >= 0; v = nextSetBit(clique, v + 1)) {
+            long[] neighbours = graph.getNeighbours(v);
+            for (int i = 0; i < common.length; i++)
+                common[i] &= neighbours[i];
+        }
+        return common;
+    }
+
+    /**
+     * Records a maximal clique if it is at least as large as the best ones
+     *
+     * @param clique bitset of the clique
+     * @param size   size of the clique
+     */
+    private void record(long[] clique, int size) {
+        if (size < best) return;
+        if (size > best) {
+            found.clear();
+            best = size;
+        }
+        int[] group = new int[size];
+        int i = 0;
+        for (int v = nextSetBit(clique, 0); v >= 0; v = nextSetBit(clique, v + 1))
+            group[i++] = v;
+        found.add(group);
+    }
+}
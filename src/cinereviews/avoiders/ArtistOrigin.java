@@ -0,0 +1,25 @@
+package cinereviews.avoiders;
+
+/**
+ * Enum to store how an artist was first created, which decides with which of the
+ * other artists it starts as an avoider
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public enum ArtistOrigin {
+
+    /**
+     * Created as a cast member of a show. Avoids the artists created before it with larger names
+     */
+    CAST,
+
+    /**
+     * Created by adding its bio. Avoids every artist created before it
+     */
+    BIO,
+
+    /**
+     * Created as the director of a show. Avoids no artist created before it
+     */
+    DIRECTOR
+}
@@ -0,0 +1,125 @@
+package cinereviews.avoiders;
+
+/**
+ * Undirected graph of the artists that have never worked together.
+ * Artists are identified by dense ids (0 to size - 1) and the adjacency of each
+ * artist is stored as a bitset of longs
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class AvoidersGraph {
+
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = 63;
+
+    /**
+     * Number of artists in the graph
+     */
+    private final int size;
+
+    /**
+     * Number of longs needed to store a bitset of the graph
+     */
+    private final int words;
+
+    /**
+     * Adjacency bitsets. id -> bitset of the ids of the artists it never worked with
+     */
+    private final long[][] adjacency;
+
+    /**
+     * Creates a new graph without any edges
+     *
+     * @param size number of artists in the graph
+     */
+    public AvoidersGraph(int size) {
+        this.size = size;
+        this.words = (size + WORD_MASK) >>> WORD_SHIFT;
+        this.adjacency = new long[size][words];
+    }
+
+    /**
+     * Gets the number of artists in the graph
+     *
+     * @return the number of artists in the graph
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of longs needed to store a bitset of the graph
+     *
+     * @return the number of longs needed to store a bitset of the graph
+     */
+    public int words() {
+        return words;
+    }
+
+    /**
+     * Marks two artists as never having worked together
+     *
+     * @param i id of the first artist
+     * @param j id of the second artist
+     */
+    public void addEdge(int i, int j) {
+        adjacency[i][j >>> WORD_SHIFT] |= 1L << (j & WORD_MASK);
+        adjacency[j][i >>> WORD_SHIFT] |= 1L << (i & WORD_MASK);
+    }
+
+    /**
+     * Replaces every edge of an artist with the artists of a bitset.
+     * The edges of the other artists are not changed, so the rows of every artist must be given symmetrically
+     *
+     * @param i          id of the artist
+     * @param neighbours bitset of the ids of the artists it never worked with, which is copied
+     */
+    public void setNeighbours(int i, long[] neighbours) {
+        System.arraycopy(neighbours, 0, adjacency[i], 0, words);
+    }
+
+    /**
+     * Removes the edge between two artists
+     *
+     * @param i id of the first artist
+     * @param j id of the second artist
+     */
+    public void removeEdge(int i, int j) {
+        adjacency[i][j >>> WORD_SHIFT] &= ~(1L << (j & WORD_MASK));
+        adjacency[j][i >>> WORD_SHIFT] &= ~(1L << (i & WORD_MASK));
+    }
+
+    /**
+     * Checks if two artists have never worked together
+     *
+     * @param i id of the first artist
+     * @param j id of the second artist
+     * @return true if there is an edge between the two artists, false otherwise
+     */
+    public boolean hasEdge(int i, int j) {
+        return (adjacency[i][j >>> WORD_SHIFT] & (1L << (j & WORD_MASK))) != 0;
+    }
+
+    /**
+     * Gets the bitset of the artists that never worked with the given artist.
+     * The returned array must not be modified
+     *
+     * @param i id of the artist
+     * @return the bitset of the artists that never worked with the given artist
+     */
+    public long[] getNeighbours(int i) {
+        return adjacency[i];
+    }
+
+    /**
+     * Creates a bitset with every artist of the graph
+     *
+     * @return a bitset with every artist of the graph
+     */
+    public long[] allVertices() {
+        long[] all = new long[words];
+        for (int i = 0; i < size; i++)
+            all[i >>> WORD_SHIFT] |= 1L << (i & WORD_MASK);
+        return all;
+    }
+}
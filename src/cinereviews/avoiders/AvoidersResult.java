@@ -0,0 +1,66 @@
+package cinereviews.avoiders;
+
+import artist.Artist;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Result of an avoiders query: the largest groups of artists that never worked together that were found, and
+ * whether they are proven to be the largest ones. Both come from the same search, so they always agree,
+ * even when other threads ask for the avoiders at the same time
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class AvoidersResult {
+
+    /**
+     * Largest groups of artists found, all of the same size
+     */
+    private final Collection<Set<Artist>> groups;
+
+    /**
+     * true if no larger group exists and no group of the same size is missing
+     */
+    private final boolean optimal;
+
+    /**
+     * Creates a new result
+     *
+     * @param groups  largest groups of artists found, which must not change afterwards
+     * @param optimal true if the search proved that the groups are every largest group
+     */
+    public AvoidersResult(Collection<Set<Artist>> groups, boolean optimal) {
+        this.groups = Collections.unmodifiableCollection(groups);
+        this.optimal = optimal;
+    }
+
+    /**
+     * Gets the largest groups of artists found
+     *
+     * @return the iterator of the groups, empty if no artists were found
+     */
+    public Iterator<Set<Artist>> getGroups() {
+        return groups.iterator();
+    }
+
+    /**
+     * Gets the size of the largest groups found
+     *
+     * @return the size of the groups or 0 if none was found
+     */
+    public int getSize() {
+        return groups.isEmpty() ? 0 : groups.iterator().next().size();
+    }
+
+    /**
+     * Checks if the search proved that the groups are every largest group
+     *
+     * @return true if the result is optimal, false if the budget ran out or the search was cancelled first
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+}
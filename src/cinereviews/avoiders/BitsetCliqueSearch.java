@@ -0,0 +1,114 @@
+package cinereviews.avoiders;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static cinereviews.avoiders.Bitsets.*;
+
+/**
+ * Branch and bound search of every maximum clique of an AvoidersGraph.
+ * Uses Bron-Kerbosch with pivoting, so that each clique is found only once,
+ * and prunes the branches whose greedy colouring bound cannot reach the best size found
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class BitsetCliqueSearch implements CliqueSearch {
+
+    /**
+     * Graph being searched
+     */
+    private AvoidersGraph graph;
+
+    /**
+     * Ids of the artists in the clique of the current branch
+     */
+    private int[] clique;
+
+    /**
+     * Size of the largest cliques found so far
+     */
+    private int best;
+
+    /**
+     * Largest cliques found so far
+     */
+    private List<int[]> groups;
+
+    /**
+     * Budget of the current search
+     */
+    private SearchBudget budget;
+
+    @Override
+    public List<int[]> findMaximumCliques(AvoidersGraph graph) {
+        return findMaximumCliques(graph, MIN_GROUP_SIZE, SearchBudget.unlimited());
+    }
+
+    /**
+     * Finds every maximum clique of the graph that is at least as large as a known lower bound
+     *
+     * @param graph      graph of the artists that have never worked together
+     * @param lowerBound size below which cliques are not wanted, at least MIN_GROUP_SIZE
+     * @param budget     budget of the search
+     * @return the maximum cliques, each one as an ascending array of artist ids, or null if the budget ran out first
+     */
+    public List<int[]> findMaximumCliques(AvoidersGraph graph, int lowerBound, SearchBudget budget) {
+        this.graph = graph;
+        this.clique = new int[graph.size()];
+        this.best = Math.max(lowerBound, MIN_GROUP_SIZE);
+        this.groups = new ArrayList<>();
+        this.budget = budget;
+        expand(0, graph.allVertices(), new long[graph.words()]);
+        List<int[]> result = budget.isExhausted() ? null : groups;
+        this.graph = null;
+        this.clique = null;
+        this.groups = null;
+        this.budget = null;
+        return result;
+    }
+
+    /**
+     * Expands the clique of the current branch with every candidate that is not a neighbour of the pivot
+     *
+     * @param depth      size of the clique of the current branch
+     * @param candidates artists that can still be added to the clique, owned by this call
+     * @param excluded   artists that could be added but were already explored, owned by this call
+     */
+    private void expand(int depth, long[] candidates, long[] excluded) {
+        if (!budget.step(graph.words())) return;
+        if (isEmpty(candidates)) {
+            if (isEmpty(excluded)) record(depth);
+            return;
+        }
+        if (depth + colourBound(graph, candidates, best - depth, budget) < best) return;
+        // Choosing the pivot scans the candidates and the excluded artists once each
+        if (!budget.step((long) graph.words() * (cardinality(candidates) + cardinality(excluded)))) return;
+
+        long[] branches = andNot(candidates, graph.getNeighbours(choosePivot(graph, candidates, excluded)));
+        for (int v = nextSetBit(branches, 0); v >= 0; v = nextSetBit(branches, v + 1)) {
+            if (depth + cardinality(candidates) < best || budget.isExhausted()) return;
+            long[] neighbours = graph.getNeighbours(v);
+            clique[depth] = v;
+            expand(depth + 1, and(candidates, neighbours), and(excluded, neighbours));
+            clear(candidates, v);
+            set(excluded, v);
+        }
+    }
+
+    /**
+     * Records the clique of the current branch if it is at least as large as the best ones
+     *
+     * @param depth size of the clique of the current branch
+     */
+    private void record(int depth) {
+        if (depth < best) return;
+        if (depth > best) {
+            groups.clear();
+            best = depth;
+        }
+        int[] group = Arrays.copyOf(clique, depth);
+        Arrays.sort(group);
+        groups.add(group);
+    }
+}
@@ -0,0 +1,196 @@
+package cinereviews.avoiders;
+
+/**
+ * Helper operations over bitsets stored as arrays of longs
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public final class Bitsets {
+
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = 63;
+
+    private Bitsets() {
+    }
+
+    /**
+     * Checks if a bitset has no bits set
+     *
+     * @param set bitset to check
+     * @return true if no bit is set, false otherwise
+     */
+    public static boolean isEmpty(long[] set) {
+        for (long word : set)
+            if (word != 0) return false;
+        return true;
+    }
+
+    /**
+     * Counts the bits set in a bitset
+     *
+     * @param set bitset to count
+     * @return the number of bits set
+     */
+    public static int cardinality(long[] set) {
+        int count = 0;
+        for (long word : set)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Creates the intersection of two bitsets
+     *
+     * @param a first bitset
+     * @param b second bitset
+     * @return a new bitset with the bits set in both
+     */
+    public static long[] and(long[] a, long[] b) {
+        long[] result = new long[a.length];
+        for (int i = 0; i < a.length; i++)
+            result[i] = a[i] & b[i];
+        return result;
+    }
+
+    /**
+     * Creates the difference of two bitsets
+     *
+     * @param a bitset to subtract from
+     * @param b bitset to subtract
+     * @return a new bitset with the bits set in a and not in b
+     */
+    public static long[] andNot(long[] a, long[] b) {
+        long[] result = new long[a.length];
+        for (int i = 0; i < a.length; i++)
+            result[i] = a[i] & ~b[i];
+        return result;
+    }
+
+    /**
+     * Counts the bits set in the intersection of two bitsets without creating it
+     *
+     * @param a first bitset
+     * @param b second bitset
+     * @return the number of bits set in both
+     */
+    public static int intersectionSize(long[] a, long[] b) {
+        int count = 0;
+        for (int i = 0; i < a.length; i++)
+            count += Long.bitCount(a[i] & b[i]);
+        return count;
+    }
+
+    /**
+     * Gets the index of the next bit set, starting at a given index
+     *
+     * @param set  bitset to search
+     * @param from first index to check
+     * @return the index of the next bit set or -1 if there is none
+     */
+    public static int nextSetBit(long[] set, int from) {
+        int word = from >>> WORD_SHIFT;
+        if (word >= set.length) return -1;
+        long bits = set[word] & (-1L << (from & WORD_MASK));
+        while (true) {
+            if (bits != 0) return (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+            if (++word == set.length) return -1;
+            bits = set[word];
+        }
+    }
+
+    /**
+     * Checks if a bit is set
+     *
+     * @param set   bitset to check
+     * @param index index of the bit
+     * @return true if the bit is set, false otherwise
+     */
+    public static boolean get(long[] set, int index) {
+        return (set[index >>> WORD_SHIFT] & (1L << (index & WORD_MASK))) != 0;
+    }
+
+    /**
+     * Sets a bit
+     *
+     * @param set   bitset to change
+     * @param index index of the bit
+     */
+    public static void set(long[] set, int index) {
+        set[index >>> WORD_SHIFT] |= 1L << (index & WORD_MASK);
+    }
+
+    /**
+     * Clears a bit
+     *
+     * @param set   bitset to change
+     * @param index index of the bit
+     */
+    public static void clear(long[] set, int index) {
+        set[index >>> WORD_SHIFT] &= ~(1L << (index & WORD_MASK));
+    }
+
+    /**
+     * Gets the upper bound on the largest clique inside a set of vertices given by a greedy colouring.
+     * The colouring stops as soon as the limit is reached
+     *
+     * @param graph      graph of the vertices
+     * @param candidates vertices to colour
+     * @param limit      number of colours after which the colouring can stop
+     * @return the number of colours used, never greater than the limit
+     */
+    public static int colourBound(AvoidersGraph graph, long[] candidates, int limit) {
+        return colourBound(graph, candidates, limit, SearchBudget.unlimited());
+    }
+
+    /**
+     * Gets the upper bound on the largest clique inside a set of vertices given by a greedy colouring,
+     * counting each vertex coloured as a step of a budget.
+     * The colouring stops as soon as the limit is reached, or gives the limit if the budget runs out first
+     *
+     * @param graph      graph of the vertices
+     * @param candidates vertices to colour
+     * @param limit      number of colours after which the colouring can stop
+     * @param budget     budget of the search
+     * @return the number of colours used, never greater than the limit
+     */
+    public static int colourBound(AvoidersGraph graph, long[] candidates, int limit, SearchBudget budget) {
+        long[] uncoloured = candidates.clone();
+        long[] colourClass = new long[candidates.length];
+        int colours = 0;
+        while (colours < limit && !isEmpty(uncoloured)) {
+            colours++;
+            System.arraycopy(uncoloured, 0, colourClass, 0, uncoloured.length);
+            for (int v = nextSetBit(colourClass, 0); v >= 0; v = nextSetBit(colourClass, v + 1)) {
+                if (!budget.step(colourClass.length)) return limit;
+                clear(uncoloured, v);
+                long[] neighbours = graph.getNeighbours(v);
+                for (int i = 0; i < colourClass.length; i++)
+                    colourClass[i] &= ~neighbours[i];
+            }
+        }
+        return colours;
+    }
+
+    /**
+     * Chooses the vertex, among the candidates and the excluded ones, with the most neighbours among the candidates
+     *
+     * @param graph      graph of the vertices
+     * @param candidates vertices that can still be added to the clique
+     * @param excluded   vertices that were already explored
+     * @return the id of the pivot
+     */
+    public static int choosePivot(AvoidersGraph graph, long[] candidates, long[] excluded) {
+        int pivot = nextSetBit(candidates, 0);
+        int pivotDegree = -1;
+        for (long[] set : new long[][]{candidates, excluded}) {
+            for (int v = nextSetBit(set, 0); v >= 0; v = nextSetBit(set, v + 1)) {
+                int degree = intersectionSize(candidates, graph.getNeighbours(v));
+                if (degree > pivotDegree) {
+                    pivot = v;
+                    pivotDegree = degree;
+                }
+            }
+        }
+        return pivot;
+    }
+}
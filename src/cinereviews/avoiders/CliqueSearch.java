@@ -0,0 +1,24 @@
+package cinereviews.avoiders;
+
+import java.util.List;
+
+/**
+ * Interface for the searches of the largest groups of artists that have never worked together
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public interface CliqueSearch {
+
+    /**
+     * Smallest group that counts as a group of avoiders
+     */
+    int MIN_GROUP_SIZE = 2;
+
+    /**
+     * Finds every maximum clique of the graph with at least MIN_GROUP_SIZE artists
+     *
+     * @param graph graph of the artists that have never worked together
+     * @return the maximum cliques, each one as an ascending array of artist ids
+     */
+    List<int[]> findMaximumCliques(AvoidersGraph graph);
+}
@@ -0,0 +1,59 @@
+package cinereviews.avoiders;
+
+import java.util.List;
+
+/**
+ * Result of a search with a budget: the largest cliques found and whether they are proven to be the largest ones
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class CliqueSearchResult {
+
+    /**
+     * Largest cliques found, each one as an ascending array of artist ids
+     */
+    private final List<int[]> groups;
+
+    /**
+     * true if no larger clique exists and no clique of the same size is missing
+     */
+    private final boolean optimal;
+
+    /**
+     * Creates a new result
+     *
+     * @param groups  largest cliques found
+     * @param optimal true if the search proved that the groups are every maximum clique
+     */
+    public CliqueSearchResult(List<int[]> groups, boolean optimal) {
+        this.groups = groups;
+        this.optimal = optimal;
+    }
+
+    /**
+     * Gets the largest cliques found
+     *
+     * @return the largest cliques found, each one as an ascending array of artist ids
+     */
+    public List<int[]> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Gets the size of the largest cliques found
+     *
+     * @return the size of the largest cliques found or 0 if none was found
+     */
+    public int getSize() {
+        return groups.isEmpty() ? 0 : groups.get(0).length;
+    }
+
+    /**
+     * Checks if the search proved that the groups are every maximum clique
+     *
+     * @return true if the result is optimal, false if the budget ran out first
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+}
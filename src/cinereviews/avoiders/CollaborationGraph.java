@@ -0,0 +1,233 @@
+package cinereviews.avoiders;
+
+import java.util.Arrays;
+
+/**
+ * Compact store of the artists that have worked together.
+ * Artists are identified by dense ids in order of creation, and the collaborators of each artist
+ * are kept in a sorted array of ids plus a small unsorted buffer of the latest ones, merged when full.
+ * The artists that have never worked together are derived from it as the complement
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class CollaborationGraph {
+
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = 63;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int DELTA_CAPACITY = 8;
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Number of artists in the graph
+     */
+    private int size;
+
+    /**
+     * How each artist was created. id -> ordinal of the ArtistOrigin
+     */
+    private byte[] origins;
+
+    /**
+     * Sorted collaborators of each artist. id -> ids of the collaborators in the first positions
+     */
+    private int[][] sorted;
+
+    /**
+     * Number of collaborators in the sorted array of each artist
+     */
+    private int[] sortedSize;
+
+    /**
+     * Latest collaborators of each artist, not yet merged into the sorted array
+     */
+    private int[][] deltas;
+
+    /**
+     * Number of collaborators in the buffer of each artist
+     */
+    private int[] deltaSize;
+
+    /**
+     * Number of distinct pairs of artists that have worked together
+     */
+    private long collaborations;
+
+    /**
+     * Creates a new graph without any artist
+     */
+    public CollaborationGraph() {
+        size = 0;
+        collaborations = 0;
+        origins = new byte[INITIAL_CAPACITY];
+        sorted = new int[INITIAL_CAPACITY][];
+        sortedSize = new int[INITIAL_CAPACITY];
+        deltas = new int[INITIAL_CAPACITY][];
+        deltaSize = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a new artist without any collaborations
+     *
+     * @param origin how the artist was created
+     * @return the id of the new artist
+     */
+    public int addArtist(ArtistOrigin origin) {
+        if (size == origins.length) grow();
+        origins[size] = (byte) origin.ordinal();
+        sorted[size] = EMPTY;
+        deltas[size] = EMPTY;
+        return size++;
+    }
+
+    /**
+     * Gets the number of artists in the graph
+     *
+     * @return the number of artists in the graph
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets how an artist was created
+     *
+     * @param id id of the artist
+     * @return how the artist was created
+     */
+    public ArtistOrigin getOrigin(int id) {
+        return ArtistOrigin.values()[origins[id]];
+    }
+
+    /**
+     * Gets the number of distinct pairs of artists that have worked together
+     *
+     * @return the number of distinct pairs of artists that have worked together
+     */
+    public long getCollaborationCount() {
+        return collaborations;
+    }
+
+    /**
+     * Checks if two artists have worked together
+     *
+     * @param a id of the first artist
+     * @param b id of the second artist
+     * @return true if the artists have worked together, false otherwise
+     */
+    public boolean haveCollaborated(int a, int b) {
+        if (Arrays.binarySearch(sorted[a], 0, sortedSize[a], b) >= 0) return true;
+        int[] delta = deltas[a];
+        for (int i = 0; i < deltaSize[a]; i++)
+            if (delta[i] == b) return true;
+        return false;
+    }
+
+    /**
+     * Records that two artists have worked together
+     *
+     * @param a id of the first artist
+     * @param b id of the second artist
+     * @return true if it is the first time they worked together, false otherwise
+     */
+    public boolean addCollaboration(int a, int b) {
+        if (a == b || haveCollaborated(a, b)) return false;
+        addNeighbour(a, b);
+        addNeighbour(b, a);
+        collaborations++;
+        return true;
+    }
+
+    /**
+     * Builds the graph of the artists that have never worked together.
+     * An artist avoids another with a smaller name if they never worked together and the smaller one was put
+     * in its avoiders when one of them was created: either the smaller one was created later, as a cast member
+     * or from a bio, or the larger one was created later from a bio.
+     * The row of each artist is built a word at a time, with the artists of smaller names as above and those of
+     * larger names by the same rule seen from the other side, so the graph takes time linear in its bitsets
+     *
+     * @param position position of each artist in the alphabetical order of the names. id -> position
+     * @return the graph of the artists that have never worked together, with the positions as ids
+     */
+    public AvoidersGraph toAvoidersGraph(int[] position) {
+        AvoidersGraph graph = new AvoidersGraph(size);
+        long[] all = graph.allVertices();
+        long[] createdLater = new long[graph.words()];
+        long[] avoidedWhenCreated = new long[graph.words()];
+        long[] biosCreatedLater = new long[graph.words()];
+        long[] row = new long[graph.words()];
+
+        for (int id = size - 1; id >= 0; id--) {
+            int pos = position[id];
+            boolean bio = origins[id] == ArtistOrigin.BIO.ordinal();
+            boolean director = origins[id] == ArtistOrigin.DIRECTOR.ordinal();
+            int boundary = pos >>> WORD_SHIFT;
+            long belowBoundary = (1L << (pos & WORD_MASK)) - 1;
+            for (int i = 0; i < row.length; i++) {
+                long smaller = bio ? ~createdLater[i] | avoidedWhenCreated[i] : avoidedWhenCreated[i];
+                long larger = director ? biosCreatedLater[i] : ~createdLater[i] | biosCreatedLater[i];
+                long below = i < boundary ? -1L : i > boundary ? 0 : belowBoundary;
+                long above = i > boundary ? -1L : i < boundary ? 0 : ~belowBoundary << 1;
+                row[i] = (smaller & below | larger & above) & all[i];
+            }
+            for (int i = 0; i < sortedSize[id]; i++)
+                Bitsets.clear(row, position[sorted[id][i]]);
+            for (int i = 0; i < deltaSize[id]; i++)
+                Bitsets.clear(row, position[deltas[id][i]]);
+            graph.setNeighbours(pos, row);
+
+            Bitsets.set(createdLater, pos);
+            if (!director) Bitsets.set(avoidedWhenCreated, pos);
+            if (bio) Bitsets.set(biosCreatedLater, pos);
+        }
+        return graph;
+    }
+
+    /**
+     * Adds a collaborator to the buffer of an artist, merging the buffer when it is full
+     *
+     * @param a id of the artist
+     * @param b id of the collaborator
+     */
+    private void addNeighbour(int a, int b) {
+        if (deltas[a] == EMPTY) deltas[a] = new int[DELTA_CAPACITY];
+        deltas[a][deltaSize[a]++] = b;
+        if (deltaSize[a] == DELTA_CAPACITY) mergeDelta(a);
+    }
+
+    /**
+     * Merges the buffer of an artist into its sorted array of collaborators
+     *
+     * @param a id of the artist
+     */
+    private void mergeDelta(int a) {
+        int[] delta = deltas[a];
+        int added = deltaSize[a];
+        Arrays.sort(delta, 0, added);
+
+        int[] old = sorted[a];
+        int oldSize = sortedSize[a];
+        int[] merged = old.length >= oldSize + added ? old : new int[Math.max(oldSize + added, old.length * 2)];
+        int i = oldSize - 1;
+        int j = added - 1;
+        for (int k = oldSize + added - 1; k >= 0; k--) {
+            if (j < 0 || (i >= 0 && old[i] > delta[j])) merged[k] = old[i--];
+            else merged[k] = delta[j--];
+        }
+        sorted[a] = merged;
+        sortedSize[a] = oldSize + added;
+        deltaSize[a] = 0;
+    }
+
+    /**
+     * Doubles the capacity of the arrays indexed by artist id
+     */
+    private void grow() {
+        int capacity = origins.length * 2;
+        origins = Arrays.copyOf(origins, capacity);
+        sorted = Arrays.copyOf(sorted, capacity);
+        sortedSize = Arrays.copyOf(sortedSize, capacity);
+        deltas = Arrays.copyOf(deltas, capacity);
+        deltaSize = Arrays.copyOf(deltaSize, capacity);
+    }
+}
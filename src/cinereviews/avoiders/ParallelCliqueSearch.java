@@ -0,0 +1,181 @@
+package cinereviews.avoiders;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cinereviews.avoiders.Bitsets.*;
+
+/**
+ * Parallel version of the BitsetCliqueSearch that runs on a work-stealing pool.
+ * Branches are forked into new tasks while the pool is short of queued work, and every
+ * task prunes against the same best size so that a clique found by one worker cuts the others
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ParallelCliqueSearch implements CliqueSearch {
+
+    /**
+     * Branches with fewer candidates than this are always explored sequentially
+     */
+    private static final int SEQUENTIAL_CANDIDATES = 16;
+
+    /**
+     * Number of queued tasks of a worker below which it keeps splitting its branches
+     */
+    private static final int SURPLUS_TASKS = 2;
+
+    /**
+     * Pool where the search runs
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a new parallel search
+     *
+     * @param pool pool where the search runs
+     */
+    public ParallelCliqueSearch(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public List<int[]> findMaximumCliques(AvoidersGraph graph) {
+        SharedBest best = new SharedBest();
+        pool.invoke(new ExpandTask(graph, best, new int[graph.size()], 0,
+                graph.allVertices(), new long[graph.words()]));
+        return best.getGroups();
+    }
+
+    /**
+     * Best size and largest cliques shared by every task of a search
+     */
+    private static class SharedBest {
+
+        /**
+         * Size of the largest cliques found so far, read without locking to prune
+         */
+        private final AtomicInteger size = new AtomicInteger(MIN_GROUP_SIZE);
+
+        /**
+         * Largest cliques found so far
+         */
+        private final List<int[]> groups = new ArrayList<>();
+
+        /**
+         * Gets the size of the largest cliques found so far
+         *
+         * @return the size of the largest cliques found so far
+         */
+        int get() {
+            return size.get();
+        }
+
+        /**
+         * Records a clique if it is at least as large as the best ones
+         *
+         * @param clique array with the ids of the clique in its first positions
+         * @param depth  size of the clique
+         */
+        synchronized void record(int[] clique, int depth) {
+            if (depth < size.get()) return;
+            if (depth > size.get()) {
+                groups.clear();
+                size.set(depth);
+            }
+            int[] group = Arrays.copyOf(clique, depth);
+            Arrays.sort(group);
+            groups.add(group);
+        }
+
+        /**
+         * Gets the largest cliques sorted by their ids, so that the result does not depend on the scheduling
+         *
+         * @return the largest cliques sorted by their ids
+         */
+        synchronized List<int[]> getGroups() {
+            List<int[]> result = new ArrayList<>(groups);
+            result.sort(Arrays::compare);
+            return result;
+        }
+    }
+
+    /**
+     * Task that explores a branch of the search
+     */
+    private static class ExpandTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AvoidersGraph graph;
+        private final SharedBest best;
+        private final int[] clique;
+        private final int depth;
+        private final long[] candidates;
+        private final long[] excluded;
+
+        /**
+         * Creates a new task
+         *
+         * @param graph      graph being searched
+         * @param best       best size and cliques shared by the search
+         * @param clique     clique of the branch in its first positions, with room for the deeper levels
+         * @param depth      size of the clique of the branch
+         * @param candidates artists that can still be added to the clique
+         * @param excluded   artists that could be added but were already explored
+         */
+        ExpandTask(AvoidersGraph graph, SharedBest best, int[] clique, int depth, long[] candidates, long[] excluded) {
+            this.graph = graph;
+            this.best = best;
+            this.clique = clique;
+            this.depth = depth;
+            this.candidates = candidates;
+            this.excluded = excluded;
+        }
+
+        @Override
+        protected void compute() {
+            expand(clique, depth, candidates, excluded);
+        }
+
+        /**
+         * Expands the clique of the branch, forking the sub-branches while the pool needs more work
+         *
+         * @param clique     clique of the branch in its first positions
+         * @param depth      size of the clique of the branch
+         * @param candidates artists that can still be added to the clique, owned by this call
+         * @param excluded   artists that were already explored, owned by this call
+         */
+        private void expand(int[] clique, int depth, long[] candidates, long[] excluded) {
+            if (isEmpty(candidates)) {
+                if (isEmpty(excluded)) best.record(clique, depth);
+                return;
+            }
+            int bound = best.get();
+            if (depth + colourBound(graph, candidates, bound - depth) < bound) return;
+
+            long[] branches = andNot(candidates, graph.getNeighbours(choosePivot(graph, candidates, excluded)));
+            boolean split = cardinality(candidates) > SEQUENTIAL_CANDIDATES && getSurplusQueuedTaskCount() < SURPLUS_TASKS;
+            List<ExpandTask> forked = new ArrayList<>();
+            for (int v = nextSetBit(branches, 0); v >= 0; v = nextSetBit(branches, v + 1)) {
+                if (depth + cardinality(candidates) < best.get()) break;
+                long[] neighbours = graph.getNeighbours(v);
+                long[] nextCandidates = and(candidates, neighbours);
+                if (split) {
+                    int[] prefix = Arrays.copyOf(clique, depth + 1 + cardinality(nextCandidates));
+                    prefix[depth] = v;
+                    forked.add(new ExpandTask(graph, best, prefix, depth + 1, nextCandidates, and(excluded, neighbours)));
+                } else {
+                    clique[depth] = v;
+                    expand(clique, depth + 1, nextCandidates, and(excluded, neighbours));
+                }
+                clear(candidates, v);
+                set(excluded, v);
+            }
+            if (!forked.isEmpty()) invokeAll(forked);
+        }
+    }
+}
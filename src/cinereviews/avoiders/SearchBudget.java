@@ -0,0 +1,139 @@
+package cinereviews.avoiders;
+
+/**
+ * Time and step budget of a search, that can also be cancelled from another thread.
+ * The searches call step() regularly, with the number of words of bitsets the step scans, and stop as soon as
+ * it returns false. The clock is read after a fixed amount of work rather than of steps, as a step over a large
+ * graph can scan many thousands of words
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class SearchBudget {
+
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    /**
+     * Number of words scanned between two reads of the clock, a few tens of microseconds of work
+     */
+    private static final long CLOCK_CHECK_WORK = 1 << 16;
+
+    /**
+     * Value of System.nanoTime() after which the search must stop
+     */
+    private final long deadline;
+
+    /**
+     * Maximum number of steps of the search
+     */
+    private final long maxSteps;
+
+    /**
+     * Number of steps taken so far
+     */
+    private long steps;
+
+    /**
+     * Number of words scanned since the clock was last read
+     */
+    private long uncheckedWork;
+
+    /**
+     * true once the budget ran out
+     */
+    private boolean exhausted;
+
+    /**
+     * true once the search was cancelled
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new budget
+     *
+     * @param deadline value of System.nanoTime() after which the search must stop
+     * @param maxSteps maximum number of steps of the search
+     */
+    private SearchBudget(long deadline, long maxSteps) {
+        this.deadline = deadline;
+        this.maxSteps = maxSteps;
+        this.steps = 0;
+        this.uncheckedWork = 0;
+        this.exhausted = false;
+        this.cancelled = false;
+    }
+
+    /**
+     * Creates a budget that only ends if the search is cancelled
+     *
+     * @return a budget without limits
+     */
+    public static SearchBudget unlimited() {
+        return new SearchBudget(NO_LIMIT, NO_LIMIT);
+    }
+
+    /**
+     * Creates a budget that ends after a given time
+     *
+     * @param millis time, in milliseconds, that the search may take
+     * @return a budget that ends after the given time
+     */
+    public static SearchBudget ofMillis(long millis) {
+        long now = System.nanoTime();
+        long nanos = millis >= NO_LIMIT / NANOS_PER_MILLI ? NO_LIMIT : Math.max(0, millis) * NANOS_PER_MILLI;
+        return new SearchBudget(nanos >= NO_LIMIT - now ? NO_LIMIT : now + nanos, NO_LIMIT);
+    }
+
+    /**
+     * Creates a budget that ends after a given number of steps
+     *
+     * @param steps number of steps that the search may take
+     * @return a budget that ends after the given number of steps
+     */
+    public static SearchBudget ofSteps(long steps) {
+        return new SearchBudget(NO_LIMIT, steps);
+    }
+
+    /**
+     * Counts a step of the search that scans a single word
+     *
+     * @return true if the search may go on, false if the budget ran out or the search was cancelled
+     */
+    public boolean step() {
+        return step(1);
+    }
+
+    /**
+     * Counts a step of the search
+     *
+     * @param work number of words of bitsets that the step scans
+     * @return true if the search may go on, false if the budget ran out or the search was cancelled
+     */
+    public boolean step(long work) {
+        if (exhausted) return false;
+        steps++;
+        uncheckedWork += work;
+        if (cancelled || steps > maxSteps) exhausted = true;
+        else if (deadline != NO_LIMIT && uncheckedWork >= CLOCK_CHECK_WORK) {
+            uncheckedWork = 0;
+            exhausted = System.nanoTime() - deadline > 0;
+        }
+        return !exhausted;
+    }
+
+    /**
+     * Cancels the search, which stops at its next step. Can be called from any thread
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks if the budget ran out or the search was cancelled
+     *
+     * @return true if the search had to stop early, false otherwise
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+}
@@ -0,0 +1,59 @@
+package cinereviews.bulk;
+
+import java.util.List;
+
+/**
+ * Consecutive rows of a catalog file parsed together
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ImportBatch {
+
+    /**
+     * Rows of the batch that were parsed, in the order of the file
+     */
+    private final List<ImportRow> rows;
+
+    /**
+     * Number of lines of the batch that had a row, parsed or malformed
+     */
+    private final int rowCount;
+
+    /**
+     * Creates a new batch
+     *
+     * @param rows     rows of the batch that were parsed
+     * @param rowCount number of lines of the batch that had a row
+     */
+    ImportBatch(List<ImportRow> rows, int rowCount) {
+        this.rows = rows;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Gets the rows of the batch that were parsed
+     *
+     * @return the rows of the batch that were parsed, in the order of the file
+     */
+    public List<ImportRow> getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of lines of the batch that had a row
+     *
+     * @return the number of lines of the batch that had a row
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of rows of the batch that were malformed
+     *
+     * @return the number of rows of the batch that were malformed
+     */
+    public int getMalformedCount() {
+        return rowCount - rows.size();
+    }
+}
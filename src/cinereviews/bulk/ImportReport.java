@@ -0,0 +1,152 @@
+package cinereviews.bulk;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counters of a bulk import
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ImportReport {
+
+    /**
+     * Number of rows read, including the rejected ones
+     */
+    private int rows;
+
+    /**
+     * Number of shows imported
+     */
+    private int shows;
+
+    /**
+     * Number of artist bios imported
+     */
+    private int bios;
+
+    /**
+     * Number of reviews imported
+     */
+    private int reviews;
+
+    /**
+     * Number of rows that were malformed or could not be applied
+     */
+    private int rejected;
+
+    /**
+     * Time taken by the import, in nanoseconds
+     */
+    private long elapsedNanos;
+
+    /**
+     * Adds the rows of a parsed batch, counting the malformed ones as rejected
+     *
+     * @param batch parsed batch
+     */
+    public void addBatch(ImportBatch batch) {
+        rows += batch.getRowCount();
+        rejected += batch.getMalformedCount();
+    }
+
+    /**
+     * Counts an imported show
+     */
+    public void addShow() {
+        shows++;
+    }
+
+    /**
+     * Counts an imported artist bio
+     */
+    public void addBio() {
+        bios++;
+    }
+
+    /**
+     * Counts an imported review
+     */
+    public void addReview() {
+        reviews++;
+    }
+
+    /**
+     * Counts a row that could not be applied
+     */
+    public void addRejected() {
+        rejected++;
+    }
+
+    /**
+     * Sets the time taken by the import
+     *
+     * @param elapsedNanos time taken by the import, in nanoseconds
+     */
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of rows read, including the rejected ones
+     *
+     * @return the number of rows read, including the rejected ones
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of shows imported
+     *
+     * @return the number of shows imported
+     */
+    public int getShows() {
+        return shows;
+    }
+
+    /**
+     * Gets the number of artist bios imported
+     *
+     * @return the number of artist bios imported
+     */
+    public int getBios() {
+        return bios;
+    }
+
+    /**
+     * Gets the number of reviews imported
+     *
+     * @return the number of reviews imported
+     */
+    public int getReviews() {
+        return reviews;
+    }
+
+    /**
+     * Gets the number of rows that were malformed or could not be applied
+     *
+     * @return the number of rows that were malformed or could not be applied
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Gets the time taken by the import
+     *
+     * @return the time taken by the import, in milliseconds
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * Gets the throughput of the import
+     *
+     * @return the number of rows read per second
+     */
+    public long getRowsPerSecond() {
+        if (elapsedNanos == 0) return 0;
+        return rows * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+}
@@ -0,0 +1,123 @@
+package cinereviews.bulk;
+
+import java.util.List;
+
+/**
+ * Row of a catalog file already parsed and validated, ready to be applied to the application
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ImportRow {
+
+    /**
+     * Kinds of rows of a catalog file, named by the first field of the row
+     */
+    public enum Kind {
+        MOVIE, SERIES, ARTIST, REVIEW
+    }
+
+    /**
+     * Kind of the row
+     */
+    private final Kind kind;
+
+    /**
+     * Text fields of the row, in the order of the file, without the kind and the numbers
+     */
+    private final String[] fields;
+
+    /**
+     * Duration of a movie or number of seasons of a series, 0 for the other kinds
+     */
+    private final int length;
+
+    /**
+     * Release year of a show, 0 for the other kinds
+     */
+    private final int releaseYear;
+
+    /**
+     * Genres of a show, empty for the other kinds
+     */
+    private final List<String> genres;
+
+    /**
+     * Cast of a show, empty for the other kinds
+     */
+    private final List<String> cast;
+
+    /**
+     * Creates a new row
+     *
+     * @param kind        kind of the row
+     * @param fields      text fields of the row
+     * @param length      duration of a movie or number of seasons of a series
+     * @param releaseYear release year of a show
+     * @param genres      genres of a show
+     * @param cast        cast of a show
+     */
+    ImportRow(Kind kind, String[] fields, int length, int releaseYear, List<String> genres, List<String> cast) {
+        this.kind = kind;
+        this.fields = fields;
+        this.length = length;
+        this.releaseYear = releaseYear;
+        this.genres = genres;
+        this.cast = cast;
+    }
+
+    /**
+     * Gets the kind of the row
+     *
+     * @return the kind of the row
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets a text field of the row. Shows have title, director and age certification,
+     * artists have name, date of birth and place of birth, and reviews have user, show, classification and description
+     *
+     * @param index position of the field
+     * @return the text field in the given position
+     */
+    public String getField(int index) {
+        return fields[index];
+    }
+
+    /**
+     * Gets the duration of a movie or the number of seasons of a series
+     *
+     * @return the duration of a movie or the number of seasons of a series
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the release year of a show
+     *
+     * @return the release year of a show
+     */
+    public int getReleaseYear() {
+        return releaseYear;
+    }
+
+    /**
+     * Gets the genres of a show
+     *
+     * @return the genres of a show
+     */
+    public List<String> getGenres() {
+        return genres;
+    }
+
+    /**
+     * Gets the cast of a show
+     *
+     * @return the cast of a show
+     */
+    public List<String> getCast() {
+        return cast;
+    }
+}
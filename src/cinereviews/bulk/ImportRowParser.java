@@ -0,0 +1,185 @@
+package cinereviews.bulk;
+
+import util.Classification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parser of the rows of a catalog file. Fields are separated by tabs, or by commas in CSV files
+ * where they may be quoted, and lists of genres or cast members are separated by '|' inside their field.
+ * <pre>
+ * movie   title  director  duration  ageCertification  releaseYear  genres  cast
+ * series  title  creator   seasons   ageCertification  releaseYear  genres  cast
+ * artist  name   dateOfBirth  placeOfBirth
+ * review  user   show  classification  description
+ * </pre>
+ * Empty lines and lines starting with '#' are ignored. The parser keeps no state, so rows can be parsed in parallel
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ImportRowParser {
+
+    private static final char TAB = '\t';
+    private static final char COMMA = ',';
+    private static final char QUOTE = '"';
+    private static final char LIST_SEPARATOR = '|';
+    private static final String COMMENT = "#";
+    private static final int SHOW_FIELDS = 8;
+    private static final int ARTIST_FIELDS = 4;
+    private static final int REVIEW_FIELDS = 5;
+
+    /**
+     * true if the fields are separated by commas and may be quoted, false if they are separated by tabs
+     */
+    private final boolean csv;
+
+    /**
+     * Creates a new parser
+     *
+     * @param csv true for CSV files, false for TSV files
+     */
+    public ImportRowParser(boolean csv) {
+        this.csv = csv;
+    }
+
+    /**
+     * Checks if a line of a catalog file has no row
+     *
+     * @param line line of the file
+     * @return true if the line is empty or a comment, false otherwise
+     */
+    public boolean isIgnored(String line) {
+        return line.isBlank() || line.startsWith(COMMENT);
+    }
+
+    /**
+     * Parses a line of a catalog file that is not ignored
+     *
+     * @param line line of the file
+     * @return the parsed row, or null if the line is malformed
+     */
+    public ImportRow parse(String line) {
+        List<String> fields = csv ? splitCsv(line) : split(line, TAB);
+        if (fields == null) return null;
+        ImportRow.Kind kind;
+        try {
+            kind = ImportRow.Kind.valueOf(fields.get(0).trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        try {
+            return switch (kind) {
+                case MOVIE, SERIES -> parseShow(kind, fields);
+                case ARTIST -> fields.size() != ARTIST_FIELDS ? null
+                        : new ImportRow(kind, textFields(fields, 1, 2, 3), 0, 0, List.of(), List.of());
+                case REVIEW -> parseReview(fields);
+            };
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses the fields of a movie or series
+     *
+     * @param kind   MOVIE or SERIES
+     * @param fields fields of the row
+     * @return the parsed row, or null if the number of fields is wrong
+     * @throws NumberFormatException if the duration, seasons or year are not numbers
+     */
+    private ImportRow parseShow(ImportRow.Kind kind, List<String> fields) {
+        if (fields.size() != SHOW_FIELDS) return null;
+        return new ImportRow(kind, textFields(fields, 1, 2, 4), Integer.parseInt(fields.get(3).trim()),
+                Integer.parseInt(fields.get(5).trim()), splitList(fields.get(6)), splitList(fields.get(7)));
+    }
+
+    /**
+     * Parses the fields of a review
+     *
+     * @param fields fields of the row
+     * @return the parsed row, or null if the number of fields is wrong
+     * @throws IllegalArgumentException if the classification is not one of the Classification enum
+     */
+    private ImportRow parseReview(List<String> fields) {
+        if (fields.size() != REVIEW_FIELDS) return null;
+        Classification.valueOf(fields.get(3).toUpperCase());
+        return new ImportRow(ImportRow.Kind.REVIEW, textFields(fields, 1, 2, 3, 4), 0, 0, List.of(), List.of());
+    }
+
+    /**
+     * Picks some of the fields of a row
+     *
+     * @param fields    fields of the row
+     * @param positions positions of the fields to pick
+     * @return the picked fields
+     */
+    private static String[] textFields(List<String> fields, int... positions) {
+        String[] picked = new String[positions.length];
+        for (int i = 0; i < positions.length; i++)
+            picked[i] = fields.get(positions[i]);
+        return picked;
+    }
+
+    /**
+     * Splits a list of genres or cast members
+     *
+     * @param field field with the list
+     * @return the elements of the list, empty if the field is empty
+     */
+    private static List<String> splitList(String field) {
+        if (field.isEmpty()) return Collections.emptyList();
+        return split(field, LIST_SEPARATOR);
+    }
+
+    /**
+     * Splits a text by a separator, keeping the empty parts
+     *
+     * @param text      text to split
+     * @param separator separator of the parts
+     * @return the parts of the text
+     */
+    private static List<String> split(String text, char separator) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = text.indexOf(separator, start)) >= 0) {
+            parts.add(text.substring(start, end));
+            start = end + 1;
+        }
+        parts.add(text.substring(start));
+        return parts;
+    }
+
+    /**
+     * Splits a CSV line by commas. Quoted fields may have commas, and a quote inside them is written twice
+     *
+     * @param line line of the file
+     * @return the fields of the line, or null if a quote is not closed
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != QUOTE) field.append(c);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == QUOTE) field.append(line.charAt(++i));
+                else quoted = false;
+            } else if (c == QUOTE) {
+                quoted = true;
+            } else if (c == COMMA) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) return null;
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,75 @@
+package cinereviews.bulk;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reader of catalog files that parses them in batches of lines on a pool.
+ * The batches are returned in the order of the file as they are submitted, so the first ones
+ * can be applied while the others are still being parsed
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ParallelRowReader {
+
+    private static final int BATCH_LINES = 4096;
+    private static final String CSV_EXTENSION = ".csv";
+
+    /**
+     * Pool where the batches are parsed
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a new reader
+     *
+     * @param pool pool where the batches are parsed
+     */
+    public ParallelRowReader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Reads a catalog file and submits the parsing of each batch of its lines.
+     * Files ending in .csv are parsed as CSV and the others as TSV
+     *
+     * @param file path of the file
+     * @return the parsing tasks of the batches, in the order of the file
+     * @throws IOException if the file can not be read
+     */
+    public List<ForkJoinTask<ImportBatch>> read(Path file) throws IOException {
+        ImportRowParser parser = new ImportRowParser(file.toString().toLowerCase().endsWith(CSV_EXTENSION));
+        List<String> lines = Files.readAllLines(file, Charset.defaultCharset());
+        List<ForkJoinTask<ImportBatch>> batches = new ArrayList<>();
+        for (int start = 0; start < lines.size(); start += BATCH_LINES) {
+            List<String> batch = lines.subList(start, Math.min(lines.size(), start + BATCH_LINES));
+            batches.add(pool.submit(() -> parse(parser, batch)));
+        }
+        return batches;
+    }
+
+    /**
+     * Parses a batch of lines
+     *
+     * @param parser parser of the lines
+     * @param lines  lines of the batch
+     * @return the parsed batch
+     */
+    private static ImportBatch parse(ImportRowParser parser, List<String> lines) {
+        List<ImportRow> rows = new ArrayList<>(lines.size());
+        int rowCount = 0;
+        for (String line : lines) {
+            if (parser.isIgnored(line)) continue;
+            rowCount++;
+            ImportRow row = parser.parse(line);
+            if (row != null) rows.add(row);
+        }
+        return new ImportBatch(rows, rowCount);
+    }
+}
@@ -0,0 +1,27 @@
+package cinereviews.exceptions;
+
+/**
+ * Exception when the address given to the server is neither a TCP port nor a Unix-domain socket path
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class InvalidAddressException extends Exception {
+
+    /**
+     * Address that could not be parsed
+     */
+    private final String address;
+
+    public InvalidAddressException(String address) {
+        this.address = address;
+    }
+
+    /**
+     * Gets the address that could not be parsed
+     *
+     * @return the address that could not be parsed
+     */
+    public String getAddress() {
+        return address;
+    }
+}
@@ -0,0 +1,12 @@
+package cinereviews.exceptions;
+
+/**
+ * Exception when a journal directory has changes that are corrupted or missing, other than the end of its
+ * last log segment, which is expected to be incomplete after a crash
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class InvalidJournalException extends Exception {
+    public InvalidJournalException() {
+    }
+}
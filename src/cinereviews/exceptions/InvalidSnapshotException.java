@@ -0,0 +1,11 @@
+package cinereviews.exceptions;
+
+/**
+ * Exception when a file is not a snapshot of a supported version or is corrupted
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class InvalidSnapshotException extends Exception {
+    public InvalidSnapshotException() {
+    }
+}
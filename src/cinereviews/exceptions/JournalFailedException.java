@@ -0,0 +1,29 @@
+package cinereviews.exceptions;
+
+/**
+ * Exception when a change can not be written to the journal of the catalog. A change that could not be appended
+ * was not made, and one appended but not written was made but may not survive a crash.
+ * A journal that failed refuses every later change, so the catalog never moves further from what it can recover
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class JournalFailedException extends Exception {
+
+    /**
+     * Directory of the journal that failed
+     */
+    private final String directory;
+
+    public JournalFailedException(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the directory of the journal that failed
+     *
+     * @return the directory of the journal that failed
+     */
+    public String getDirectory() {
+        return directory;
+    }
+}
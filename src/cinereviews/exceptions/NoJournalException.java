@@ -0,0 +1,11 @@
+package cinereviews.exceptions;
+
+/**
+ * Exception when an operation needs a journal and the catalog has none
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class NoJournalException extends Exception {
+    public NoJournalException() {
+    }
+}
@@ -0,0 +1,27 @@
+package cinereviews.exceptions;
+
+/**
+ * Exception when a file given to the application can not be read
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class UnreadableFileException extends Exception {
+
+    /**
+     * Name of the file that could not be read
+     */
+    private final String file;
+
+    public UnreadableFileException(String file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the name of the file that could not be read
+     *
+     * @return the name of the file that could not be read
+     */
+    public String getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,27 @@
+package cinereviews.exceptions;
+
+/**
+ * Exception when a file given to the application can not be written
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class UnwritableFileException extends Exception {
+
+    /**
+     * Name of the file that could not be written
+     */
+    private final String file;
+
+    public UnwritableFileException(String file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the name of the file that could not be written
+     *
+     * @return the name of the file that could not be written
+     */
+    public String getFile() {
+        return file;
+    }
+}
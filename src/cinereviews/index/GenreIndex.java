@@ -0,0 +1,87 @@
+package cinereviews.index;
+
+import show.Show;
+import util.CompressedBitmap;
+
+import java.util.*;
+
+/**
+ * Inverted index from each genre to the shows that have it.
+ * Genres are given dense ids by a dictionary and shows are given dense ids by their order of creation,
+ * so that the shows of each genre can be kept as a compressed bitmap and intersected without touching the shows
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class GenreIndex {
+
+    /**
+     * Dictionary of the genres. genre -> id of the genre
+     */
+    private final Map<String, Integer> genreIds;
+
+    /**
+     * Bitmap of the ids of the shows of each genre, in the position of the id of the genre
+     */
+    private final List<CompressedBitmap> showsOfGenre;
+
+    /**
+     * Shows in the position of their ids
+     */
+    private final List<Show> shows;
+
+    /**
+     * Creates a new empty index
+     */
+    public GenreIndex() {
+        genreIds = new HashMap<>();
+        showsOfGenre = new ArrayList<>();
+        shows = new ArrayList<>();
+    }
+
+    /**
+     * Adds a new show to the bitmaps of its genres
+     *
+     * @param show show to add, that was not added before
+     */
+    public void add(Show show) {
+        int showId = shows.size();
+        shows.add(show);
+        Iterator<String> genres = show.getGenres();
+        while (genres.hasNext()) {
+            String genre = genres.next();
+            Integer genreId = genreIds.get(genre);
+            if (genreId == null) {
+                genreId = showsOfGenre.size();
+                genreIds.put(genre, genreId);
+                showsOfGenre.add(new CompressedBitmap());
+            }
+            showsOfGenre.get(genreId).add(showId);
+        }
+    }
+
+    /**
+     * Gets the shows that have every one of the given genres, by intersecting their bitmaps from the smallest one
+     *
+     * @param genres names of the genres, at least one
+     * @return the shows that have every genre, in their order of creation
+     */
+    public List<Show> getShowsWithAll(List<String> genres) {
+        List<CompressedBitmap> bitmaps = new ArrayList<>();
+        for (String genre : genres) {
+            Integer genreId = genreIds.get(genre);
+            if (genreId == null) return Collections.emptyList();
+            bitmaps.add(showsOfGenre.get(genreId));
+        }
+        bitmaps.sort(Comparator.comparingInt(CompressedBitmap::cardinality));
+
+        CompressedBitmap matching = bitmaps.get(0);
+        for (int i = 1; i < bitmaps.size() && !matching.isEmpty(); i++)
+            matching = matching.and(bitmaps.get(i));
+
+        int[] ids = matching.toArray();
+        List<Show> result = new ArrayList<>(ids.length);
+        for (int id : ids)
+            result.add(shows.get(id));
+        return result;
+    }
+}
@@ -0,0 +1,414 @@
+package cinereviews.index;
+
+import show.Show;
+import util.MergingIterator;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indexes of the shows ordered by score: one with every show, one for each year of release and one for each genre.
+ * The sets keep each show with the score it had when it was last placed, so a show whose score changed is still
+ * found where it was, and is moved to the position of its new score afterwards.
+ * A concurrent index lets different shows move at the same time and its readers iterate it without blocking.
+ * A show that moves is added at its new position before it leaves the old one, and the old position is only
+ * removed once no reader that started before the move is still running, so every reader finds every show,
+ * once or twice, and keeps only the first. It is slower, so it is only used when needed
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ShowScoreIndex {
+
+    /**
+     * Comparator shared by every set of the index: by score descending, then by year of release descending
+     * and by title
+     */
+    private static final Comparator<Placement> BY_SCORE = (first, second) -> {
+        int byScore = Float.compare(second.score, first.score);
+        if (byScore != 0) return byScore;
+        int byYear = Integer.compare(second.show.getYearOfRelease(), first.show.getYearOfRelease());
+        if (byYear != 0) return byYear;
+        return first.show.getTitle().compareTo(second.show.getTitle());
+    };
+
+    /**
+     * Every show ordered by score
+     */
+    private final SortedSet<Placement> allShows;
+
+    /**
+     * Shows of each year ordered by score. releaseYear -> collection of shows
+     */
+    private final NavigableMap<Integer, SortedSet<Placement>> showsByYear;
+
+    /**
+     * Shows of each genre ordered by score. genre -> collection of shows
+     */
+    private final Map<String, SortedSet<Placement>> showsByGenre;
+
+    /**
+     * Current position of each show of the index. show -> placement
+     */
+    private final Map<Show, Placement> placements;
+
+    /**
+     * Number of moves whose old position was retired, which stamps each retired position and each reader
+     */
+    private final AtomicLong moves;
+
+    /**
+     * Old positions of the moved shows waiting for the readers that may still need them. moves stamp -> placement
+     */
+    private final ConcurrentSkipListMap<Long, Placement> retired;
+
+    /**
+     * Readers running, by the number of moves when they started. moves stamp -> number of readers
+     */
+    private final Map<Long, Integer> readers;
+
+    /**
+     * true if the sets of the index are concurrent
+     */
+    private final boolean concurrent;
+
+    /**
+     * Creates a new empty index, used by one thread at a time
+     */
+    public ShowScoreIndex() {
+        this(false);
+    }
+
+    /**
+     * Creates a new empty index
+     *
+     * @param concurrent true if different shows may be added, moved and read by several threads at the same time
+     */
+    public ShowScoreIndex(boolean concurrent) {
+        this.concurrent = concurrent;
+        allShows = newSet();
+        showsByYear = concurrent ? new ConcurrentSkipListMap<>() : new TreeMap<>();
+        showsByGenre = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        placements = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        moves = new AtomicLong();
+        retired = new ConcurrentSkipListMap<>();
+        readers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds a show to every set it belongs to, with its current score
+     *
+     * @param show show to add
+     */
+    public void add(Show show) {
+        Placement placement = new Placement(show, show.getScore());
+        placements.put(show, placement);
+        insert(placement);
+    }
+
+    /**
+     * Moves a show to the position of its current score in every set it belongs to, adding it if it is not
+     * in the index. The new position is added before the old one is removed, and moves of the same show
+     * run one at a time
+     *
+     * @param show show whose score changed
+     */
+    public void move(Show show) {
+        Placement[] old = new Placement[1];
+        placements.compute(show, (key, placement) -> {
+            Placement moved = new Placement(show, show.getScore());
+            if (placement != null && BY_SCORE.compare(placement, moved) == 0) return placement;
+            insert(moved);
+            old[0] = placement;
+            return moved;
+        });
+        if (old[0] != null) retire(old[0]);
+    }
+
+    /**
+     * Removes a show from every set it belongs to
+     *
+     * @param show show to remove
+     */
+    public void remove(Show show) {
+        Placement placement = placements.remove(show);
+        if (placement != null) delete(placement);
+    }
+
+    /**
+     * Gets every show ordered by score
+     *
+     * @return the shows ordered by score
+     */
+    public Collection<Show> getAllShows() {
+        return read(allShows);
+    }
+
+    /**
+     * Gets the shows released on a given year ordered by score
+     *
+     * @param year year of release
+     * @return the shows of the year ordered by score, empty if there are none
+     */
+    public Collection<Show> getShowsOfYear(int year) {
+        SortedSet<Placement> yearShows = showsByYear.get(year);
+        if (yearShows == null) return Collections.emptyList();
+        return read(yearShows);
+    }
+
+    /**
+     * Gets the shows released between two years ordered by score.
+     * The buckets of the years are merged lazily, so the first shows are available without going through the range.
+     * A concurrent index merges them all at once, so that its moved shows are only retired after the merge
+     *
+     * @param from first year of the range
+     * @param to   last year of the range
+     * @return the iterator of the shows of the range ordered by score, empty if there are none
+     */
+    public Iterator<Show> getShowsOfYears(int from, int to) {
+        if (from > to) return Collections.emptyIterator();
+        Collection<SortedSet<Placement>> buckets = showsByYear.subMap(from, true, to, true).values();
+        if (!concurrent) return new ShowIterator(merge(buckets));
+
+        long start = startReading();
+        try {
+            return distinctShows(merge(buckets)).iterator();
+        } finally {
+            stopReading(start);
+        }
+    }
+
+    /**
+     * Gets the shows of a given genre ordered by score
+     *
+     * @param genre name of the genre
+     * @return the shows of the genre ordered by score, empty if there are none
+     */
+    public Collection<Show> getShowsOfGenre(String genre) {
+        SortedSet<Placement> genreShows = showsByGenre.get(genre);
+        if (genreShows == null) return Collections.emptyList();
+        return read(genreShows);
+    }
+
+    /**
+     * Reads the shows of a set in order. A set of a concurrent index is copied at once, as a reader
+     * that holds on to it would keep the moved shows from being retired
+     *
+     * @param placements set of the index
+     * @return a view of the shows of the set, or a copy of them if the index is concurrent
+     */
+    private Collection<Show> read(SortedSet<Placement> placements) {
+        if (!concurrent) return new ShowView(placements);
+        long start = startReading();
+        try {
+            return distinctShows(placements.iterator());
+        } finally {
+            stopReading(start);
+        }
+    }
+
+    /**
+     * Copies the shows of some positions in order, keeping only the first position of a show that is moving
+     *
+     * @param it iterator of the positions
+     * @return the shows, each once
+     */
+    private static List<Show> distinctShows(Iterator<Placement> it) {
+        List<Show> shows = new ArrayList<>();
+        Set<String> titles = new HashSet<>();
+        while (it.hasNext()) {
+            Show show = it.next().show;
+            if (titles.add(show.getTitle())) shows.add(show);
+        }
+        return shows;
+    }
+
+    /**
+     * Merges the positions of some buckets by score
+     *
+     * @param buckets sets of the index
+     * @return the iterator of the positions of every bucket ordered by score
+     */
+    private static Iterator<Placement> merge(Collection<SortedSet<Placement>> buckets) {
+        List<Iterator<Placement>> sources = new ArrayList<>(buckets.size());
+        for (SortedSet<Placement> bucket : buckets)
+            sources.add(bucket.iterator());
+        return new MergingIterator<>(sources, BY_SCORE);
+    }
+
+    /**
+     * Adds the position of a show to every set it belongs to
+     *
+     * @param placement position of the show
+     */
+    private void insert(Placement placement) {
+        Show show = placement.show;
+        allShows.add(placement);
+        showsByYear.computeIfAbsent(show.getYearOfRelease(), year -> newSet()).add(placement);
+        Iterator<String> genres = show.getGenres();
+        while (genres.hasNext())
+            showsByGenre.computeIfAbsent(genres.next(), genre -> newSet()).add(placement);
+    }
+
+    /**
+     * Removes the position of a show from every set it belongs to
+     *
+     * @param placement position of the show
+     */
+    private void delete(Placement placement) {
+        Show show = placement.show;
+        allShows.remove(placement);
+        showsByYear.get(show.getYearOfRelease()).remove(placement);
+        Iterator<String> genres = show.getGenres();
+        while (genres.hasNext())
+            showsByGenre.get(genres.next()).remove(placement);
+    }
+
+    /**
+     * Removes the old position of a moved show, at once if the index is not concurrent, or else once every reader
+     * that started before the move has finished
+     *
+     * @param placement old position of the show
+     */
+    private void retire(Placement placement) {
+        if (!concurrent) {
+            delete(placement);
+            return;
+        }
+        retired.put(moves.incrementAndGet(), placement);
+        reclaim();
+    }
+
+    /**
+     * Registers a reader of a concurrent index. A reader stamped with an older number of moves only keeps
+     * more old positions than needed, so the stamp is not checked again
+     *
+     * @return the stamp of the reader
+     */
+    private long startReading() {
+        long start = moves.get();
+        readers.merge(start, 1, Integer::sum);
+        return start;
+    }
+
+    /**
+     * Unregisters a reader of a concurrent index and removes the old positions it was the last to need
+     *
+     * @param start stamp of the reader
+     */
+    private void stopReading(long start) {
+        readers.computeIfPresent(start, (stamp, count) -> count == 1 ? null : count - 1);
+        reclaim();
+    }
+
+    /**
+     * Removes the old positions retired before every running reader started, as each of those readers
+     * already finds the show at a newer position
+     */
+    private void reclaim() {
+        long bound = moves.get();
+        for (long start : readers.keySet())
+            bound = Math.min(bound, start);
+        Map.Entry<Long, Placement> oldest;
+        while ((oldest = retired.firstEntry()) != null && oldest.getKey() <= bound)
+            if (retired.remove(oldest.getKey(), oldest.getValue())) delete(oldest.getValue());
+    }
+
+    /**
+     * Creates an empty set of shows ordered by score
+     *
+     * @return the set, concurrent if the index is
+     */
+    private SortedSet<Placement> newSet() {
+        return concurrent ? new ConcurrentSkipListSet<>(BY_SCORE) : new TreeSet<>(BY_SCORE);
+    }
+
+    /**
+     * Position of a show in the sets of the index, with the score it had when it was placed
+     */
+    private static class Placement {
+
+        /**
+         * Show placed
+         */
+        private final Show show;
+
+        /**
+         * Score of the show when it was placed
+         */
+        private final float score;
+
+        /**
+         * Creates a new position of a show
+         *
+         * @param show  show placed
+         * @param score score of the show
+         */
+        Placement(Show show, float score) {
+            this.show = show;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Read-only view of the shows of a set of an index used by one thread
+     */
+    private static class ShowView extends AbstractCollection<Show> {
+
+        /**
+         * Set of the index
+         */
+        private final SortedSet<Placement> placements;
+
+        /**
+         * Creates a new view of the shows of a set
+         *
+         * @param placements set of the index
+         */
+        ShowView(SortedSet<Placement> placements) {
+            this.placements = placements;
+        }
+
+        @Override
+        public Iterator<Show> iterator() {
+            return new ShowIterator(placements.iterator());
+        }
+
+        @Override
+        public int size() {
+            return placements.size();
+        }
+    }
+
+    /**
+     * Read-only iterator of the shows of some positions
+     */
+    private static class ShowIterator implements Iterator<Show> {
+
+        /**
+         * Iterator of the positions
+         */
+        private final Iterator<Placement> placements;
+
+        /**
+         * Creates a new iterator of the shows of some positions
+         *
+         * @param placements iterator of the positions
+         */
+        ShowIterator(Iterator<Placement> placements) {
+            this.placements = placements;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return placements.hasNext();
+        }
+
+        @Override
+        public Show next() {
+            return placements.next().show;
+        }
+    }
+}
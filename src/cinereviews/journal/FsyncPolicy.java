@@ -0,0 +1,27 @@
+package cinereviews.journal;
+
+/**
+ * When the changes written to the journal are forced to the storage device
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Every change is forced before it is acknowledged. Changes that arrive while a batch is being forced
+     * are forced together in the next one, so there is one force per batch and not per change
+     */
+    ALWAYS,
+
+    /**
+     * Every change is written before it is acknowledged, and the changes written are forced in the background
+     * once per time window, so a crash of the machine loses at most the changes of the last window
+     */
+    INTERVAL,
+
+    /**
+     * Every change is written before it is acknowledged and forcing is left to the operating system,
+     * so only a crash of the application is survived
+     */
+    NEVER
+}
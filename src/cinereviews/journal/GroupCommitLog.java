@@ -0,0 +1,414 @@
+package cinereviews.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Log of the changes of the catalog, split in segments named after the sequence number of their first change.
+ * <pre>
+ * segment: magic  version  firstSequence  record*
+ * record:  length  checksum  sequence  entry
+ * </pre>
+ * The checksum is the CRC32 of the sequence and the entry, so that an incomplete record at the end of the last
+ * segment can be told apart from a complete one.
+ * Appending a change only buffers it. Syncing a change writes it with every change buffered before it: the first
+ * thread to sync becomes the leader and writes the whole buffer, with a single force if the policy asks for one,
+ * while the threads that sync in the meantime wait for it and have their changes written by the next leader.
+ * So changes that arrive together are committed together, with one write and one force per batch
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+class GroupCommitLog implements Closeable {
+
+    static final int MAGIC = 0x43524a4c;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 8;
+    private static final long SEGMENT_SIZE = 16L << 20;
+    private static final long FORCE_INTERVAL = 50;
+
+    /**
+     * Directory of the segments
+     */
+    private final Path directory;
+
+    /**
+     * When the changes written are forced
+     */
+    private final FsyncPolicy policy;
+
+    /**
+     * Records appended and not yet written
+     */
+    private final ByteArrayOutputStream pending;
+
+    /**
+     * Stream of the records appended and not yet written
+     */
+    private final DataOutputStream pendingOut;
+
+    /**
+     * Buffer where an entry is serialised before its checksum is known
+     */
+    private final ByteArrayOutputStream record;
+
+    /**
+     * Stream of the buffer of a record
+     */
+    private final DataOutputStream recordOut;
+
+    /**
+     * Checksum of a record
+     */
+    private final CRC32 checksum;
+
+    /**
+     * Forces the changes written once per time window, null unless the policy is INTERVAL
+     */
+    private final ScheduledExecutorService forcer;
+
+    /**
+     * Channel of the segment being written. Only used by the thread holding the right to write
+     */
+    private FileChannel channel;
+
+    /**
+     * Sequence number of the first change of the segment being written
+     */
+    private long segmentStart;
+
+    /**
+     * Sequence number of the last change appended
+     */
+    private long appended;
+
+    /**
+     * Sequence number of the last change written
+     */
+    private long written;
+
+    /**
+     * Sequence number of the last change forced
+     */
+    private long forced;
+
+    /**
+     * Number of bytes written since the log was created
+     */
+    private long bytesWritten;
+
+    /**
+     * true while a thread holds the right to write, force or rotate the segment
+     */
+    private boolean writing;
+
+    /**
+     * First failure writing the log, after which no change is acknowledged
+     */
+    private IOException failure;
+
+    /**
+     * true once the log is closed
+     */
+    private boolean closed;
+
+    /**
+     * Creates a log that appends to a segment
+     *
+     * @param directory    directory of the segments
+     * @param policy       when the changes written are forced
+     * @param channel      channel of the segment, positioned after its last complete record
+     * @param segmentStart sequence number of the first change of the segment
+     * @param last         sequence number of the last change already in the log
+     */
+    GroupCommitLog(Path directory, FsyncPolicy policy, FileChannel channel, long segmentStart, long last) {
+        this.directory = directory;
+        this.policy = policy;
+        this.pending = new ByteArrayOutputStream();
+        this.pendingOut = new DataOutputStream(pending);
+        this.record = new ByteArrayOutputStream();
+        this.recordOut = new DataOutputStream(record);
+        this.checksum = new CRC32();
+        this.channel = channel;
+        this.segmentStart = segmentStart;
+        this.appended = last;
+        this.written = last;
+        this.forced = last;
+        if (policy == FsyncPolicy.INTERVAL) {
+            forcer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "journal-forcer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            forcer.scheduleWithFixedDelay(this::forceWritten, FORCE_INTERVAL, FORCE_INTERVAL, TimeUnit.MILLISECONDS);
+        } else
+            forcer = null;
+    }
+
+    /**
+     * Appends a change to the log, without writing it
+     *
+     * @param entry change to append
+     * @return sequence number of the change
+     * @throws IOException if the log has failed or is closed
+     */
+    synchronized long append(JournalEntry entry) throws IOException {
+        checkFailure();
+        long sequence = appended + 1;
+        record.reset();
+        recordOut.writeLong(sequence);
+        entry.write(recordOut);
+        checksum.reset();
+        checksum.update(record.toByteArray());
+        pendingOut.writeInt(record.size());
+        pendingOut.writeInt((int) checksum.getValue());
+        record.writeTo(pendingOut);
+        appended = sequence;
+        return sequence;
+    }
+
+    /**
+     * Waits until a change is written, and forced if the policy is ALWAYS, writing it with every change appended
+     * before it if no other thread is writing
+     *
+     * @param sequence sequence number of the change
+     * @throws IOException if the log has failed or is closed
+     */
+    void sync(long sequence) throws IOException {
+        byte[] batch;
+        long last;
+        synchronized (this) {
+            while (!isDurable(sequence) && writing)
+                await();
+            if (isDurable(sequence)) return;
+            writing = true;
+            batch = pending.toByteArray();
+            pending.reset();
+            last = appended;
+        }
+        IOException error = null;
+        try {
+            write(batch);
+            if (policy == FsyncPolicy.ALWAYS)
+                channel.force(false);
+            if (channel.size() >= SEGMENT_SIZE)
+                startSegment(last + 1);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            release(error, last, policy == FsyncPolicy.ALWAYS ? last : forced);
+        }
+        if (error != null) throw error;
+    }
+
+    /**
+     * Writes every change appended and starts a new segment, unless the current one has no changes,
+     * so that every change up to the returned sequence number is in previous segments
+     *
+     * @return sequence number of the last change of the previous segments
+     * @throws IOException if the log has failed or is closed
+     */
+    long rotate() throws IOException {
+        sync(getAppended());
+        long last;
+        synchronized (this) {
+            while (writing)
+                await();
+            checkFailure();
+            writing = true;
+            last = written;
+        }
+        IOException error = null;
+        try {
+            if (last >= segmentStart)
+                startSegment(last + 1);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            release(error, last, policy == FsyncPolicy.NEVER ? forced : last);
+        }
+        if (error != null) throw error;
+        return last;
+    }
+
+    /**
+     * Gets the number of bytes written since the log was created
+     *
+     * @return the number of bytes written
+     */
+    synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Writes and forces every change appended, unless the policy is NEVER, and closes the segment.
+     * The log can not be used after it is closed
+     *
+     * @throws IOException if the changes can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (forcer != null)
+            forcer.shutdownNow();
+        try {
+            sync(getAppended());
+            synchronized (this) {
+                while (writing)
+                    await();
+                checkFailure();
+                if (policy != FsyncPolicy.NEVER && forced < written)
+                    channel.force(false);
+                forced = written;
+            }
+        } finally {
+            synchronized (this) {
+                closed = true;
+                channel.close();
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Forces the changes written and not yet forced, run once per time window when the policy is INTERVAL
+     */
+    private void forceWritten() {
+        long last;
+        synchronized (this) {
+            if (writing || closed || failure != null || forced == written) return;
+            writing = true;
+            last = written;
+        }
+        IOException error = null;
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            release(error, written, last);
+        }
+    }
+
+    /**
+     * Gets the sequence number of the last change appended
+     *
+     * @return the sequence number of the last change appended
+     */
+    private synchronized long getAppended() {
+        return appended;
+    }
+
+    /**
+     * Gives up the right to write and wakes the waiting threads
+     *
+     * @param error   failure of the writer, or null
+     * @param written sequence number of the last change written
+     * @param forced  sequence number of the last change forced
+     */
+    private void release(IOException error, long written, long forced) {
+        writing = false;
+        if (error == null) {
+            this.written = written;
+            this.forced = forced;
+        } else if (failure == null)
+            failure = error;
+        notifyAll();
+    }
+
+    /**
+     * Checks if a change was written, and forced if the policy is ALWAYS
+     *
+     * @param sequence sequence number of the change
+     * @return true if the change is durable
+     * @throws IOException if the log has failed or is closed
+     */
+    private boolean isDurable(long sequence) throws IOException {
+        checkFailure();
+        return (policy == FsyncPolicy.ALWAYS ? forced : written) >= sequence;
+    }
+
+    /**
+     * Throws the failure of the log, if there is one
+     *
+     * @throws IOException if the log has failed or is closed
+     */
+    private void checkFailure() throws IOException {
+        if (failure != null) throw new IOException("journal has failed", failure);
+        if (closed) throw new IOException("journal is closed");
+    }
+
+    /**
+     * Waits for the thread holding the right to write
+     *
+     * @throws InterruptedIOException if the thread is interrupted
+     */
+    private void await() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Writes a batch of records to the segment
+     *
+     * @param batch records to write
+     * @throws IOException if the records can not be written
+     */
+    private void write(byte[] batch) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(batch);
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        synchronized (this) {
+            bytesWritten += batch.length;
+        }
+    }
+
+    /**
+     * Closes the segment being written, forcing it unless the policy is NEVER, and starts a new one
+     *
+     * @param start sequence number of the first change of the new segment
+     * @throws IOException if the segments can not be written
+     */
+    private void startSegment(long start) throws IOException {
+        if (policy != FsyncPolicy.NEVER)
+            channel.force(false);
+        channel.close();
+        channel = createSegment(directory, start);
+        segmentStart = start;
+    }
+
+    /**
+     * Creates an empty segment, replacing any file with its name
+     *
+     * @param directory directory of the segments
+     * @param start     sequence number of the first change of the segment
+     * @return channel of the segment, positioned after its header
+     * @throws IOException if the segment can not be created
+     */
+    static FileChannel createSegment(Path directory, long start) throws IOException {
+        FileChannel channel = FileChannel.open(Journal.segmentFile(directory, start), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(start).flip();
+        while (header.hasRemaining())
+            channel.write(header);
+        return channel;
+    }
+}
@@ -0,0 +1,355 @@
+package cinereviews.journal;
+
+import cinereviews.exceptions.InvalidJournalException;
+import util.DurableFiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static cinereviews.journal.GroupCommitLog.*;
+
+/**
+ * Write-ahead journal of the catalog, kept in a directory with the latest snapshot of the catalog
+ * and the log of the changes made after it. Each file is named after a sequence number: a snapshot after
+ * the last change it has, and a segment of the log after its first change.
+ * Recovering the catalog loads the latest snapshot and replays the changes of the log that are not in it,
+ * skipping the segments it covers entirely. The last segment may end with an incomplete record, left by a crash
+ * while it was written, which is discarded, but any other missing or corrupted change makes the journal invalid.
+ * A checkpoint starts a new segment, saves a snapshot with every change before it and deletes the older
+ * snapshots and segments, so the journal does not grow forever
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class Journal implements Closeable {
+
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d{20})\\.snapshot");
+    private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d{20})\\.log");
+    private static final String SNAPSHOT_FORMAT = "snapshot-%020d.snapshot";
+    private static final String SEGMENT_FORMAT = "journal-%020d.log";
+    private static final long CHECKPOINT_SIZE = 64L << 20;
+
+    /**
+     * Directory of the journal
+     */
+    private final Path directory;
+
+    /**
+     * When the changes written are forced
+     */
+    private final FsyncPolicy policy;
+
+    /**
+     * Snapshots of the directory, by the sequence number of their last change
+     */
+    private final TreeMap<Long, Path> snapshots;
+
+    /**
+     * Segments of the directory, by the sequence number of their first change
+     */
+    private final TreeMap<Long, Path> segments;
+
+    /**
+     * Log where the changes are appended, null until the journal is replayed
+     */
+    private GroupCommitLog log;
+
+    /**
+     * Number of bytes of the log written before the last checkpoint
+     */
+    private long checkpointedBytes;
+
+    /**
+     * Sequence number of the last change of the checkpoint being made, -1 if there is none
+     */
+    private long checkpoint;
+
+    /**
+     * Creates a journal over the files of its directory
+     *
+     * @param directory directory of the journal
+     * @param policy    when the changes written are forced
+     * @param snapshots snapshots of the directory
+     * @param segments  segments of the directory
+     */
+    private Journal(Path directory, FsyncPolicy policy, TreeMap<Long, Path> snapshots, TreeMap<Long, Path> segments) {
+        this.directory = directory;
+        this.policy = policy;
+        this.snapshots = snapshots;
+        this.segments = segments;
+        this.checkpoint = -1;
+    }
+
+    /**
+     * Opens the journal of a directory, creating the directory if it does not exist.
+     * The journal must be replayed before changes are appended to it
+     *
+     * @param directory directory of the journal
+     * @param policy    when the changes written are forced
+     * @return the journal
+     * @throws IOException if the directory can not be read
+     */
+    public static Journal open(Path directory, FsyncPolicy policy) throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        list(directory, snapshots, segments);
+        return new Journal(directory, policy, snapshots, segments);
+    }
+
+    /**
+     * Gets the latest snapshot of the journal
+     *
+     * @return the file of the latest snapshot, or null if there is none
+     */
+    public Path getSnapshot() {
+        return snapshots.isEmpty() ? null : snapshots.lastEntry().getValue();
+    }
+
+    /**
+     * Gives every change of the log that is not in the latest snapshot, in order, and opens the log for appending
+     * after the last complete one. An incomplete record at the end of the last segment is discarded
+     *
+     * @param consumer consumer of the changes
+     * @return the number of changes given
+     * @throws IOException             if the log can not be read or written
+     * @throws InvalidJournalException if a change is corrupted or missing
+     */
+    public int replay(Consumer<JournalEntry> consumer) throws IOException, InvalidJournalException {
+        if (log != null) throw new IllegalStateException("journal was already replayed");
+        long base = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+        List<Long> starts = new ArrayList<>(segments.keySet());
+        int first = 0;
+        // A segment is covered by the snapshot when the next one starts right after it
+        while (first + 1 < starts.size() && starts.get(first + 1) - 1 <= base)
+            first++;
+        if (first < starts.size() && starts.get(first) > base + 1) throw new InvalidJournalException();
+
+        int replayed = 0;
+        long last = base;
+        for (int i = first; i < starts.size(); i++) {
+            long start = starts.get(i);
+            if (i > first && start != last + 1) throw new InvalidJournalException();
+            boolean tail = i == starts.size() - 1;
+            Path file = segments.get(start);
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (tail && buffer.limit() < HEADER_SIZE) {
+                openLog(GroupCommitLog.createSegment(directory, start), start, last);
+                return replayed;
+            }
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != start)
+                throw new InvalidJournalException();
+
+            long sequence = start - 1;
+            int end = buffer.position();
+            CRC32 checksum = new CRC32();
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int expected = buffer.getInt();
+                if (length < Long.BYTES || length > buffer.remaining()) break;
+                checksum.reset();
+                checksum.update(buffer.array(), buffer.position(), length);
+                if ((int) checksum.getValue() != expected) {
+                    // A record written entirely is followed by the next one, so only the last one can be torn
+                    if (buffer.position() + length < buffer.limit()) throw new InvalidJournalException();
+                    break;
+                }
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array(), buffer.position(), length));
+                buffer.position(buffer.position() + length);
+                if (in.readLong() != sequence + 1) throw new InvalidJournalException();
+                sequence++;
+                JournalEntry entry;
+                try {
+                    entry = JournalEntry.read(in);
+                } catch (IOException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+                    throw new InvalidJournalException();
+                }
+                if (sequence > base) {
+                    consumer.accept(entry);
+                    replayed++;
+                }
+                end = buffer.position();
+            }
+            if (end != buffer.limit() && !tail) throw new InvalidJournalException();
+            last = Math.max(last, sequence);
+            if (tail) {
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                channel.truncate(end);
+                channel.position(end);
+                openLog(channel, start, last);
+            }
+        }
+        if (log == null)
+            openLog(GroupCommitLog.createSegment(directory, base + 1), base + 1, base);
+        return replayed;
+    }
+
+    /**
+     * Appends a change to the journal, without writing it
+     *
+     * @param entry change to append
+     * @return sequence number of the change
+     * @throws IOException if the journal has failed or is closed
+     */
+    public long append(JournalEntry entry) throws IOException {
+        return replayedLog().append(entry);
+    }
+
+    /**
+     * Waits until a change, and every change before it, is written as the policy of the journal asks,
+     * committing it together with the changes appended at the same time
+     *
+     * @param sequence sequence number of the change
+     * @throws IOException if the journal has failed or is closed
+     */
+    public void sync(long sequence) throws IOException {
+        replayedLog().sync(sequence);
+    }
+
+    /**
+     * Checks if enough changes were written since the last checkpoint for a new one to be worth it
+     *
+     * @return true if a checkpoint should be made
+     */
+    public boolean needsCheckpoint() {
+        return log != null && log.getBytesWritten() - checkpointedBytes >= CHECKPOINT_SIZE;
+    }
+
+    /**
+     * Starts a checkpoint, writing every change appended and starting a new segment.
+     * A snapshot of the catalog with every change appended must then be saved in the returned file,
+     * before the checkpoint is finished
+     *
+     * @return the file where the snapshot must be saved
+     * @throws IOException if the journal has failed or is closed
+     */
+    public Path beginCheckpoint() throws IOException {
+        checkpoint = replayedLog().rotate();
+        return snapshotFile(checkpoint);
+    }
+
+    /**
+     * Finishes a checkpoint whose snapshot was saved, deleting the older snapshots and the segments it covers.
+     * The snapshot and the directory are forced first, so that the changes of the segments are never lost
+     * by a crash while the snapshot that has them is not yet on the device
+     *
+     * @throws IOException if the snapshot can not be forced or a file can not be deleted
+     */
+    public void endCheckpoint() throws IOException {
+        if (checkpoint < 0) throw new IllegalStateException("no checkpoint was started");
+        long sequence = checkpoint;
+        DurableFiles.forceFile(snapshotFile(sequence));
+        DurableFiles.forceDirectory(directory);
+        checkpoint = -1;
+        checkpointedBytes = log.getBytesWritten();
+        // The segments started by the log since the journal was opened are only known from the directory
+        snapshots.clear();
+        segments.clear();
+        list(directory, snapshots, segments);
+        while (snapshots.firstKey() < sequence)
+            Files.deleteIfExists(snapshots.pollFirstEntry().getValue());
+        while (segments.firstKey() <= sequence)
+            Files.deleteIfExists(segments.pollFirstEntry().getValue());
+    }
+
+    /**
+     * Gets the directory of the journal
+     *
+     * @return the directory of the journal
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Writes every change appended and closes the log. The journal can not be used after it is closed
+     *
+     * @throws IOException if the changes can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (log != null)
+            log.close();
+    }
+
+    /**
+     * Gets the file of a segment
+     *
+     * @param directory directory of the journal
+     * @param start     sequence number of the first change of the segment
+     * @return the file of the segment
+     */
+    static Path segmentFile(Path directory, long start) {
+        return directory.resolve(String.format(SEGMENT_FORMAT, start));
+    }
+
+    /**
+     * Gets the file of a snapshot of the journal
+     *
+     * @param sequence sequence number of the last change of the snapshot
+     * @return the file of the snapshot
+     */
+    private Path snapshotFile(long sequence) {
+        return directory.resolve(String.format(SNAPSHOT_FORMAT, sequence));
+    }
+
+    /**
+     * Lists the snapshots and the segments of the directory of a journal, ignoring any other file
+     *
+     * @param directory directory of the journal
+     * @param snapshots where the snapshots are put, by the sequence number of their last change
+     * @param segments  where the segments are put, by the sequence number of their first change
+     * @throws IOException if the directory can not be read
+     */
+    private static void list(Path directory, TreeMap<Long, Path> snapshots, TreeMap<Long, Path> segments)
+            throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                Matcher snapshot = SNAPSHOT_NAME.matcher(name);
+                Matcher segment = SEGMENT_NAME.matcher(name);
+                if (snapshot.matches())
+                    snapshots.put(Long.parseLong(snapshot.group(1)), file);
+                else if (segment.matches())
+                    segments.put(Long.parseLong(segment.group(1)), file);
+            }
+        }
+    }
+
+    /**
+     * Opens the log for appending
+     *
+     * @param channel channel of the last segment, positioned after its last complete record
+     * @param start   sequence number of the first change of the last segment
+     * @param last    sequence number of the last change of the journal
+     */
+    private void openLog(FileChannel channel, long start, long last) {
+        segments.put(start, segmentFile(directory, start));
+        log = new GroupCommitLog(directory, policy, channel, start, last);
+    }
+
+    /**
+     * Gets the log, which only exists once the journal is replayed
+     *
+     * @return the log
+     */
+    private GroupCommitLog replayedLog() {
+        if (log == null) throw new IllegalStateException("journal was not replayed");
+        return log;
+    }
+}
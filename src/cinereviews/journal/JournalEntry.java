@@ -0,0 +1,284 @@
+package cinereviews.journal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Change of the catalog kept in the journal, with the arguments of the operation that made it,
+ * so that replaying it through the same operation makes the same change
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class JournalEntry {
+
+    private static final int NO_STRING = -1;
+
+    /**
+     * Operation of an entry
+     */
+    public enum Kind {
+        USER, MOVIE, SERIES, ARTIST, REVIEW
+    }
+
+    /**
+     * Operation of the entry
+     */
+    private final Kind kind;
+
+    /**
+     * Text arguments of the operation, in the order they are given to it
+     */
+    private final String[] fields;
+
+    /**
+     * Duration of a movie or number of seasons of a series, 0 for the other kinds
+     */
+    private final int length;
+
+    /**
+     * Release year of a movie or series, 0 for the other kinds
+     */
+    private final int releaseYear;
+
+    /**
+     * Genres of a movie or series, empty for the other kinds
+     */
+    private final List<String> genres;
+
+    /**
+     * Cast of a movie or series, empty for the other kinds
+     */
+    private final List<String> cast;
+
+    /**
+     * Creates a new entry
+     *
+     * @param kind        operation of the entry
+     * @param fields      text arguments of the operation
+     * @param length      duration or number of seasons of a show
+     * @param releaseYear release year of a show
+     * @param genres      genres of a show
+     * @param cast        cast of a show
+     */
+    private JournalEntry(Kind kind, String[] fields, int length, int releaseYear, List<String> genres, List<String> cast) {
+        this.kind = kind;
+        this.fields = fields;
+        this.length = length;
+        this.releaseYear = releaseYear;
+        this.genres = genres;
+        this.cast = cast;
+    }
+
+    /**
+     * Creates the entry of a user registration
+     *
+     * @param type     type of the user
+     * @param name     name of the user
+     * @param password password of the user, null if it is not an admin
+     * @return the entry
+     */
+    public static JournalEntry user(String type, String name, String password) {
+        return new JournalEntry(Kind.USER, new String[]{type, name, password}, 0, 0, List.of(), List.of());
+    }
+
+    /**
+     * Creates the entry of a new movie or series
+     *
+     * @param kind             MOVIE or SERIES
+     * @param adminName        name of the admin that added the show
+     * @param password         password of the admin
+     * @param title            title of the show
+     * @param director         director of the show
+     * @param length           duration of the movie or number of seasons of the series
+     * @param ageCertification age certification of the show
+     * @param releaseYear      release year of the show
+     * @param genres           genres of the show
+     * @param cast             cast of the show
+     * @return the entry
+     */
+    public static JournalEntry show(Kind kind, String adminName, String password, String title, String director, int length,
+                                    String ageCertification, int releaseYear, List<String> genres, List<String> cast) {
+        return new JournalEntry(kind, new String[]{adminName, password, title, director, ageCertification},
+                length, releaseYear, genres, cast);
+    }
+
+    /**
+     * Creates the entry of the bio of an artist
+     *
+     * @param name         name of the artist
+     * @param dateOfBirth  date of birth of the artist
+     * @param placeOfBirth place of birth of the artist
+     * @return the entry
+     */
+    public static JournalEntry artist(String name, String dateOfBirth, String placeOfBirth) {
+        return new JournalEntry(Kind.ARTIST, new String[]{name, dateOfBirth, placeOfBirth}, 0, 0, List.of(), List.of());
+    }
+
+    /**
+     * Creates the entry of a review
+     *
+     * @param username name of the user
+     * @param review   text of the review
+     * @param showName title of the show
+     * @param score    classification of the review
+     * @return the entry
+     */
+    public static JournalEntry review(String username, String review, String showName, String score) {
+        return new JournalEntry(Kind.REVIEW, new String[]{username, review, showName, score}, 0, 0, List.of(), List.of());
+    }
+
+    /**
+     * Gets the operation of the entry
+     *
+     * @return the operation of the entry
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets a text argument of the operation
+     *
+     * @param index position of the argument
+     * @return the argument
+     */
+    public String getField(int index) {
+        return fields[index];
+    }
+
+    /**
+     * Gets the duration of a movie or the number of seasons of a series
+     *
+     * @return the duration or the number of seasons
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the release year of a movie or series
+     *
+     * @return the release year
+     */
+    public int getReleaseYear() {
+        return releaseYear;
+    }
+
+    /**
+     * Gets the genres of a movie or series
+     *
+     * @return iterator of the genres
+     */
+    public Iterator<String> getGenres() {
+        return genres.iterator();
+    }
+
+    /**
+     * Gets the cast of a movie or series
+     *
+     * @return iterator of the cast
+     */
+    public Iterator<String> getCast() {
+        return cast.iterator();
+    }
+
+    /**
+     * Writes the entry
+     *
+     * @param out output of the entry
+     * @throws IOException if the entry can not be written
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeByte(kind.ordinal());
+        out.writeByte(fields.length);
+        for (String field : fields)
+            writeString(out, field);
+        out.writeInt(length);
+        out.writeInt(releaseYear);
+        writeStrings(out, genres);
+        writeStrings(out, cast);
+    }
+
+    /**
+     * Reads an entry written by write
+     *
+     * @param in input of the entry
+     * @return the entry
+     * @throws IOException if the entry can not be read
+     */
+    static JournalEntry read(DataInput in) throws IOException {
+        Kind kind = Kind.values()[in.readUnsignedByte()];
+        String[] fields = new String[in.readUnsignedByte()];
+        for (int i = 0; i < fields.length; i++)
+            fields[i] = readString(in);
+        int length = in.readInt();
+        int releaseYear = in.readInt();
+        return new JournalEntry(kind, fields, length, releaseYear, readStrings(in), readStrings(in));
+    }
+
+    /**
+     * Writes a String as the length of its UTF-8 bytes followed by them, which, unlike writeUTF, allows null
+     * and any length
+     *
+     * @param out   output of the String
+     * @param value String to write, or null
+     * @throws IOException if the String can not be written
+     */
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NO_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a String written by writeString
+     *
+     * @param in input of the String
+     * @return the String, or null
+     * @throws IOException if the String can not be read
+     */
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == NO_STRING) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a list of Strings preceded by its size
+     *
+     * @param out    output of the list
+     * @param values list to write
+     * @throws IOException if the list can not be written
+     */
+    private static void writeStrings(DataOutput out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values)
+            writeString(out, value);
+    }
+
+    /**
+     * Reads a list of Strings written by writeStrings
+     *
+     * @param in input of the list
+     * @return the list
+     * @throws IOException if the list can not be read
+     */
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<String> values = new ArrayList<>(Math.min(size, 1 << 10));
+        for (int i = 0; i < size; i++)
+            values.add(readString(in));
+        return values;
+    }
+}
@@ -0,0 +1,255 @@
+package cinereviews.partition;
+
+import cinereviews.CineReviews;
+import cinereviews.exceptions.JournalFailedException;
+import cinereviews.index.ShowScoreIndex;
+import review.exceptions.InvalidClassificationException;
+import review.exceptions.UserAlreadyReviewedException;
+import show.Show;
+import show.exceptions.UnknownShowException;
+import user.exceptions.IsAdminException;
+import user.exceptions.UnknownUserException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Partition of the shows of a catalog, with its own thread, which is the only one that touches its shows,
+ * their reviews and their indexes by score, year and genre. Reviews of shows of different partitions run in parallel,
+ * each on the thread of its partition, while the reviews and queries of one partition run one at a time, in the order
+ * they were made, so its indexes need no lock. Queries return copies of the shows of the partition, in the order of
+ * the query, to be merged with those of the other partitions
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class ShowPartition implements AutoCloseable {
+
+    /**
+     * Catalog the reviews are added to, which checks them and logs them to its journal
+     */
+    private final CineReviews catalog;
+
+    /**
+     * Thread of the partition, that runs its tasks in order
+     */
+    private final ExecutorService thread;
+
+    /**
+     * Shows of the partition, by title. title -> show
+     */
+    private final SortedMap<String, Show> shows;
+
+    /**
+     * Shows of the partition ordered by score, overall, by year of release and by genre
+     */
+    private ShowScoreIndex scores;
+
+    /**
+     * Creates a new empty partition
+     *
+     * @param number  number of the partition, which names its thread
+     * @param catalog catalog the reviews are added to
+     */
+    public ShowPartition(int number, CineReviews catalog) {
+        this.catalog = catalog;
+        this.shows = new TreeMap<>();
+        this.scores = new ShowScoreIndex();
+        this.thread = Executors.newSingleThreadExecutor(task -> {
+            Thread partitionThread = new Thread(task, "cinereviews-partition-" + number);
+            partitionThread.setDaemon(true);
+            return partitionThread;
+        });
+    }
+
+    /**
+     * Adds a new show to the partition, without waiting for it, as every later task of the partition runs after it
+     *
+     * @param show show to add
+     */
+    public void add(Show show) {
+        thread.execute(() -> {
+            shows.put(show.getTitle(), show);
+            scores.add(show);
+        });
+    }
+
+    /**
+     * Places a show of the partition at the position of its current score, adding it if the partition does not
+     * have it yet, after it was added or reviewed outside of the partition, without waiting for it
+     *
+     * @param show show added or reviewed
+     */
+    public void update(Show show) {
+        thread.execute(() -> {
+            shows.put(show.getTitle(), show);
+            scores.move(show);
+        });
+    }
+
+    /**
+     * Replaces the shows of the partition and indexes them again with their current scores,
+     * after their reviews were changed outside of the partition, without waiting for it
+     *
+     * @param partitionShows every show of the partition
+     */
+    public void reindex(Collection<Show> partitionShows) {
+        List<Show> copy = new ArrayList<>(partitionShows);
+        thread.execute(() -> {
+            shows.clear();
+            scores = new ShowScoreIndex();
+            for (Show show : copy) {
+                shows.put(show.getTitle(), show);
+                scores.add(show);
+            }
+        });
+    }
+
+    /**
+     * Adds a review to a show of the partition on its thread, moving the show in the indexes, and waits for it.
+     * A caller that is interrupted still waits, as the review is added anyway, and keeps its interrupt status
+     *
+     * @param username name of the user
+     * @param review   text of the review
+     * @param showName title of the show
+     * @param score    classification of the review
+     * @return the number of reviews of the show with this one
+     * @throws UnknownUserException           exception when the user does not exist
+     * @throws IsAdminException               exception when the user is an admin
+     * @throws UnknownShowException           exception when the show does not exist
+     * @throws UserAlreadyReviewedException   exception when the user already reviewed the show
+     * @throws InvalidClassificationException exception when the classification does not exist
+     * @throws JournalFailedException         exception when the review can not be written to the journal
+     */
+    public int review(String username, String review, String showName, String score)
+            throws UnknownUserException, IsAdminException, UnknownShowException, UserAlreadyReviewedException,
+            InvalidClassificationException, JournalFailedException {
+        Future<Integer> reviews = thread.submit(() -> {
+            Show show = shows.get(showName);
+            // The catalog checks the user before the show, so an unknown show is left for it to report
+            if (show == null) return catalog.reviewShow(username, review, showName, score);
+            try {
+                return catalog.reviewShow(username, review, showName, score);
+            } finally {
+                scores.move(show);
+            }
+        });
+        try {
+            return await(reviews);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UnknownUserException) throw (UnknownUserException) cause;
+            if (cause instanceof IsAdminException) throw (IsAdminException) cause;
+            if (cause instanceof UnknownShowException) throw (UnknownShowException) cause;
+            if (cause instanceof UserAlreadyReviewedException) throw (UserAlreadyReviewedException) cause;
+            if (cause instanceof InvalidClassificationException) throw (InvalidClassificationException) cause;
+            if (cause instanceof JournalFailedException) throw (JournalFailedException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Gets every show of the partition by title
+     *
+     * @return future of the shows ordered by title
+     */
+    public CompletableFuture<List<Show>> showsByTitle() {
+        return CompletableFuture.supplyAsync(() -> new ArrayList<>(shows.values()), thread);
+    }
+
+    /**
+     * Gets the shows of the partition released on a year, by score
+     *
+     * @param year year of release
+     * @return future of the shows ordered by score
+     */
+    public CompletableFuture<List<Show>> showsOfYear(int year) {
+        return CompletableFuture.supplyAsync(() -> new ArrayList<>(scores.getShowsOfYear(year)), thread);
+    }
+
+    /**
+     * Gets the shows of the partition released between two years, by score
+     *
+     * @param from first year of the range
+     * @param to   last year of the range
+     * @return future of the shows ordered by score
+     */
+    public CompletableFuture<List<Show>> showsOfYears(int from, int to) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Show> result = new ArrayList<>();
+            scores.getShowsOfYears(from, to).forEachRemaining(result::add);
+            return result;
+        }, thread);
+    }
+
+    /**
+     * Gets the shows of the partition that have every given genre, by score, or every show if no genre is given
+     *
+     * @param genres genres of the shows
+     * @return future of the shows ordered by score
+     */
+    public CompletableFuture<List<Show>> showsOfGenres(List<String> genres) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (genres.isEmpty()) return new ArrayList<>(scores.getAllShows());
+            // The smallest genre is walked in order of score and only its shows with the other genres are kept
+            Collection<Show> smallest = scores.getShowsOfGenre(genres.get(0));
+            for (String genre : genres) {
+                Collection<Show> genreShows = scores.getShowsOfGenre(genre);
+                if (genreShows.size() < smallest.size()) smallest = genreShows;
+            }
+            List<Show> result = new ArrayList<>();
+            for (Show show : smallest)
+                if (hasGenres(show, genres)) result.add(show);
+            return result;
+        }, thread);
+    }
+
+    /**
+     * Stops the thread of the partition once the tasks already made have run
+     */
+    @Override
+    public void close() {
+        thread.shutdown();
+    }
+
+    /**
+     * Checks if a show has every given genre
+     *
+     * @param show   show to check
+     * @param genres genres the show must have
+     * @return true if the show has every genre
+     */
+    private static boolean hasGenres(Show show, List<String> genres) {
+        for (String genre : genres)
+            if (!show.hasGenre(genre)) return false;
+        return true;
+    }
+
+    /**
+     * Waits for the result of a task, even if the waiting thread is interrupted, whose interrupt status is then kept
+     *
+     * @param task task to wait for
+     * @param <T>  type of the result of the task
+     * @return the result of the task
+     * @throws ExecutionException if the task failed
+     */
+    private static <T> T await(Future<T> task) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package cinereviews.server;
+
+import cinereviews.exceptions.InvalidAddressException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server that accepts clients on a local TCP port or Unix-domain socket and serves each one in a session of its own,
+ * run by a SessionHandler on a thread of its own: a virtual thread when the JDK has them, as JDK 21 does,
+ * or a platform thread otherwise. A session reads the commands of its client as they arrive and writes their output
+ * whenever it runs out of commands to read, so a client may send many commands without waiting for their output,
+ * and gets it back in order, in as few writes as possible.
+ * Addresses are written as tcp:port, tcp:host:port or unix:path, and a TCP server without a host only listens
+ * on the loopback address
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class CommandServer implements Closeable {
+
+    private static final String TCP = "tcp:";
+    private static final String UNIX = "unix:";
+    private static final char PORT_SEPARATOR = ':';
+    private static final int MAX_PORT = 0xFFFF;
+    private static final int BACKLOG = 1024;
+    private static final long CLOSE_TIMEOUT = 10;
+
+    /**
+     * Channel where the clients are accepted
+     */
+    private final ServerSocketChannel channel;
+
+    /**
+     * Address the server listens on, as tcp:host:port or unix:path
+     */
+    private final String address;
+
+    /**
+     * File of the Unix-domain socket, deleted when the server is closed, null for a TCP server
+     */
+    private final Path socketFile;
+
+    /**
+     * Serves the session of each client
+     */
+    private final SessionHandler handler;
+
+    /**
+     * Runs each session on a thread of its own
+     */
+    private final ExecutorService sessions;
+
+    /**
+     * Connections of the sessions running, closed with the server
+     */
+    private final Set<SocketChannel> connections;
+
+    /**
+     * Thread that accepts the clients
+     */
+    private final Thread acceptor;
+
+    /**
+     * true once the server is closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates a server over a bound channel
+     *
+     * @param channel    channel where the clients are accepted
+     * @param address    address the server listens on
+     * @param socketFile file of the Unix-domain socket, or null
+     * @param handler    serves the session of each client
+     */
+    private CommandServer(ServerSocketChannel channel, String address, Path socketFile, SessionHandler handler) {
+        this.channel = channel;
+        this.address = address;
+        this.socketFile = socketFile;
+        this.handler = handler;
+        this.sessions = newSessionExecutor();
+        this.connections = ConcurrentHashMap.newKeySet();
+        this.acceptor = new Thread(this::acceptClients, "cinereviews-acceptor");
+        acceptor.setDaemon(true);
+    }
+
+    /**
+     * Opens a server on an address, which does not accept clients until it is started
+     *
+     * @param address address to listen on, as tcp:port, tcp:host:port or unix:path
+     * @param handler serves the session of each client
+     * @return the server
+     * @throws InvalidAddressException exception when the address is not a TCP port or a Unix-domain socket path
+     * @throws IOException             if the server can not listen on the address
+     */
+    public static CommandServer open(String address, SessionHandler handler) throws InvalidAddressException, IOException {
+        if (address.startsWith(UNIX)) return openUnix(address, handler);
+        if (address.startsWith(TCP)) return openTcp(address, handler);
+        throw new InvalidAddressException(address);
+    }
+
+    /**
+     * Starts accepting clients
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    /**
+     * Gets the address the server listens on, with the port chosen by the system if port 0 was asked for
+     *
+     * @return the address, as tcp:host:port or unix:path
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Stops accepting clients and ends every session, closing its connection, waiting for the command it is running
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            channel.close();
+            for (SocketChannel connection : connections)
+                closeQuietly(connection);
+            sessions.shutdown();
+            if (!sessions.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS))
+                sessions.shutdownNow();
+        } catch (InterruptedException e) {
+            sessions.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            if (socketFile != null)
+                Files.deleteIfExists(socketFile);
+        }
+    }
+
+    /**
+     * Opens a server on a Unix-domain socket
+     *
+     * @param address address to listen on, as unix:path
+     * @param handler serves the session of each client
+     * @return the server
+     * @throws InvalidAddressException exception when the path is not valid
+     * @throws IOException             if the socket can not be created, as when its file already exists
+     */
+    private static CommandServer openUnix(String address, SessionHandler handler)
+            throws InvalidAddressException, IOException {
+        Path file;
+        try {
+            file = Path.of(address.substring(UNIX.length()));
+        } catch (InvalidPathException e) {
+            throw new InvalidAddressException(address);
+        }
+        if (file.toString().isEmpty()) throw new InvalidAddressException(address);
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.bind(UnixDomainSocketAddress.of(file), BACKLOG);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new CommandServer(channel, UNIX + file, file, handler);
+    }
+
+    /**
+     * Opens a server on a TCP port
+     *
+     * @param address address to listen on, as tcp:port or tcp:host:port
+     * @param handler serves the session of each client
+     * @return the server
+     * @throws InvalidAddressException exception when the port is not a number or the host is unknown
+     * @throws IOException             if the port can not be bound
+     */
+    private static CommandServer openTcp(String address, SessionHandler handler)
+            throws InvalidAddressException, IOException {
+        String hostAndPort = address.substring(TCP.length());
+        int separator = hostAndPort.lastIndexOf(PORT_SEPARATOR);
+        InetSocketAddress socket;
+        try {
+            int port = Integer.parseInt(hostAndPort.substring(separator + 1));
+            if (port < 0 || port > MAX_PORT) throw new InvalidAddressException(address);
+            socket = separator < 0 ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+                    : new InetSocketAddress(hostAndPort.substring(0, separator), port);
+        } catch (NumberFormatException e) {
+            throw new InvalidAddressException(address);
+        }
+        if (socket.isUnresolved()) throw new InvalidAddressException(address);
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        InetSocketAddress bound;
+        try {
+            channel.bind(socket, BACKLOG);
+            bound = (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new CommandServer(channel, TCP + bound.getHostString() + PORT_SEPARATOR + bound.getPort(), null, handler);
+    }
+
+    /**
+     * Accepts clients until the server is closed, starting the session of each one
+     */
+    private void acceptClients() {
+        while (!closed) {
+            SocketChannel connection;
+            try {
+                connection = channel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                // Only the client that could not be accepted is lost, as when the process runs out of descriptors
+                continue;
+            }
+            connections.add(connection);
+            // A connection accepted while the server was closing may have been missed by close
+            if (closed) closeQuietly(connection);
+            try {
+                sessions.execute(() -> serve(connection));
+            } catch (RejectedExecutionException e) {
+                connections.remove(connection);
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    /**
+     * Serves the session of a client and closes its connection
+     *
+     * @param connection connection to the client
+     */
+    private void serve(SocketChannel connection) {
+        try {
+            if (connection.supportedOptions().contains(StandardSocketOptions.TCP_NODELAY))
+                connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            handler.serve(connection);
+        } catch (IOException | UncheckedIOException e) {
+            // A client that goes away only ends its own session. Malformed commands are answered by the session,
+            // and any other failure is left to the thread of the session to report
+        } finally {
+            connections.remove(connection);
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Closes a connection, ignoring any failure, as there is nothing left to do with it
+     *
+     * @param connection connection to close
+     */
+    private static void closeQuietly(SocketChannel connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // The connection is unusable either way
+        }
+    }
+
+    /**
+     * Creates the executor of the sessions, which starts a virtual thread per session when the JDK has them,
+     * and otherwise a platform thread per session, reused by later sessions once it ends
+     *
+     * @return the executor of the sessions
+     */
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // JDK 17 has no virtual threads, and JDK 19 and 20 only have them as a preview feature
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "cinereviews-session");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package cinereviews.server;
+
+import java.nio.channels.ByteChannel;
+
+/**
+ * Serves the session of a client connected to a CommandServer
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+@FunctionalInterface
+public interface SessionHandler {
+
+    /**
+     * Serves a session, reading the commands of the client and writing their output, until the client ends it
+     * or closes the connection. The connection is closed by the server once the session returns or fails
+     *
+     * @param connection connection to the client
+     */
+    void serve(ByteChannel connection);
+}
@@ -0,0 +1,723 @@
+package cinereviews.snapshot;
+
+import artist.Artist;
+import artist.ArtistPair;
+import artist.comparators.ArtistComparatorByName;
+import cinereviews.avoiders.ArtistOrigin;
+import cinereviews.avoiders.CollaborationGraph;
+import cinereviews.exceptions.InvalidSnapshotException;
+import review.Review;
+import show.Movie;
+import show.Series;
+import show.Show;
+import user.AdminUser;
+import user.CriticUser;
+import user.OrdinaryUser;
+import user.User;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntFunction;
+
+import static cinereviews.snapshot.SnapshotWriter.NO_STRING;
+
+/**
+ * Layout of the catalog in the body of a snapshot, made to be read in place.
+ * <pre>
+ * lists  users  artists  artistNames  shows  collaborations
+ * </pre>
+ * Users, artists and shows are records of a fixed number of ints, so the record of an id is found without
+ * reading the ones before it. The lists of each record, as the credits and collaborators of an artist or the
+ * genres, cast and reviews of a show, come first and the records keep their offsets. Users and shows are in
+ * alphabetical order, and the artists, that keep the order of their ids, are followed by their ids in alphabetical
+ * order, so any of them is found by name with a binary search. The collaborations are kept twice, in the list of
+ * each artist and once per pair for the collaboration graph and the index of the best friends
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class CatalogLayout {
+
+    static final int ADMIN_TYPE = 0;
+    static final int CRITIC_TYPE = 1;
+    static final int AUDIENCE_TYPE = 2;
+    static final int MOVIE_KIND = 0;
+    static final int SERIES_KIND = 1;
+    private static final int INITIAL_COLLABORATIONS = 64;
+
+    // Sections of the body
+    private static final int USERS = 0;
+    private static final int ARTISTS = 1;
+    private static final int ARTIST_NAMES = 2;
+    private static final int SHOWS = 3;
+    private static final int COLLABORATIONS = 4;
+    private static final int SECTIONS = 5;
+
+    // Fields of the records of the users
+    private static final int USER_NAME = 0;
+    private static final int USER_TYPE = 1;
+    private static final int USER_PASSWORD = 2;
+    private static final int USER_COUNTER = 3;
+    private static final int USER_FIELDS = 4;
+
+    // Fields of the records of the artists
+    private static final int ARTIST_NAME = 0;
+    private static final int ARTIST_ORIGIN = 1;
+    private static final int ARTIST_DATE_OF_BIRTH = 2;
+    private static final int ARTIST_PLACE_OF_BIRTH = 3;
+    private static final int ARTIST_CREDITS = 4;
+    private static final int ARTIST_COLLABORATORS = 5;
+    private static final int ARTIST_FIELDS = 6;
+
+    // Fields of the records of the shows
+    private static final int SHOW_KIND = 0;
+    private static final int SHOW_TITLE = 1;
+    private static final int SHOW_DIRECTOR = 2;
+    private static final int SHOW_LENGTH = 3;
+    private static final int SHOW_AGE_CERTIFICATION = 4;
+    private static final int SHOW_YEAR = 5;
+    private static final int SHOW_GENRES = 6;
+    private static final int SHOW_CAST = 7;
+    private static final int SHOW_REVIEWS = 8;
+    private static final int SHOW_FIELDS = 9;
+
+    // Ints of each element of the lists
+    static final int COLLABORATOR_WIDTH = 2;
+    static final int REVIEW_WIDTH = 3;
+    static final int COLLABORATION_WIDTH = 3;
+
+    /**
+     * Reader of the snapshot
+     */
+    private final SnapshotReader reader;
+
+    /**
+     * Number of users
+     */
+    private final int userCount;
+
+    /**
+     * Number of artists
+     */
+    private final int artistCount;
+
+    /**
+     * Number of shows
+     */
+    private final int showCount;
+
+    /**
+     * Number of pairs of artists that have worked together
+     */
+    private final int collaborationCount;
+
+    /**
+     * Creates the layout of a snapshot, reading only the number of records of each section
+     *
+     * @param reader reader of the snapshot
+     * @throws InvalidSnapshotException if the snapshot does not have the sections of a catalog
+     */
+    public CatalogLayout(SnapshotReader reader) throws InvalidSnapshotException {
+        this.reader = reader;
+        if (reader.getSectionCount() != SECTIONS) throw new InvalidSnapshotException();
+        try {
+            userCount = reader.getInt(reader.getSection(USERS));
+            artistCount = reader.getInt(reader.getSection(ARTISTS));
+            showCount = reader.getInt(reader.getSection(SHOWS));
+            collaborationCount = reader.getInt(reader.getSection(COLLABORATIONS));
+        } catch (IndexOutOfBoundsException e) {
+            throw new InvalidSnapshotException();
+        }
+        if (userCount < 0 || artistCount < 0 || showCount < 0 || collaborationCount < 0)
+            throw new InvalidSnapshotException();
+    }
+
+    /**
+     * Checks the checksum of the snapshot, reading every byte of it
+     *
+     * @throws InvalidSnapshotException if the snapshot is corrupted
+     */
+    public void verifyChecksum() throws InvalidSnapshotException {
+        reader.verifyChecksum();
+    }
+
+    /**
+     * Gets the number of users
+     *
+     * @return the number of users
+     */
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * Finds a user by name
+     *
+     * @param name name of the user
+     * @return the id of the user, or -1 if there is none
+     */
+    public int findUser(String name) {
+        return find(name, userCount, this::getUserName);
+    }
+
+    /**
+     * Gets the name of a user
+     *
+     * @param id id of the user
+     * @return the name of the user
+     */
+    public String getUserName(int id) {
+        return reader.getString(getUserField(id, USER_NAME));
+    }
+
+    /**
+     * Gets the type of a user
+     *
+     * @param id id of the user
+     * @return ADMIN_TYPE, CRITIC_TYPE or AUDIENCE_TYPE
+     */
+    int getUserType(int id) {
+        return getUserField(id, USER_TYPE);
+    }
+
+    /**
+     * Gets the password of a user
+     *
+     * @param id id of the user
+     * @return the password of the user, or null if it is not an admin
+     */
+    String getUserPassword(int id) {
+        return reader.getString(getUserField(id, USER_PASSWORD));
+    }
+
+    /**
+     * Gets the number of shows posted by an admin, or of reviews made by any other user
+     *
+     * @param id id of the user
+     * @return the number of shows or reviews of the user
+     */
+    int getUserCounter(int id) {
+        return getUserField(id, USER_COUNTER);
+    }
+
+    /**
+     * Gets the number of artists
+     *
+     * @return the number of artists
+     */
+    public int getArtistCount() {
+        return artistCount;
+    }
+
+    /**
+     * Finds an artist by name
+     *
+     * @param name name of the artist
+     * @return the id of the artist, or -1 if there is none
+     */
+    public int findArtist(String name) {
+        int position = find(name, artistCount, i -> getArtistName(getArtistByName(i)));
+        return position < 0 ? position : getArtistByName(position);
+    }
+
+    /**
+     * Gets the name of an artist
+     *
+     * @param id id of the artist
+     * @return the name of the artist
+     */
+    public String getArtistName(int id) {
+        return reader.getString(getArtistField(id, ARTIST_NAME));
+    }
+
+    /**
+     * Gets how an artist was created
+     *
+     * @param id id of the artist
+     * @return the origin of the artist
+     */
+    ArtistOrigin getArtistOrigin(int id) {
+        return ArtistOrigin.values()[getArtistField(id, ARTIST_ORIGIN)];
+    }
+
+    /**
+     * Gets the date of birth of an artist
+     *
+     * @param id id of the artist
+     * @return the date of birth of the artist, or null if it has no bio
+     */
+    String getDateOfBirth(int id) {
+        return reader.getString(getArtistField(id, ARTIST_DATE_OF_BIRTH));
+    }
+
+    /**
+     * Gets the place of birth of an artist
+     *
+     * @param id id of the artist
+     * @return the place of birth of the artist, or null if it has no bio
+     */
+    String getPlaceOfBirth(int id) {
+        return reader.getString(getArtistField(id, ARTIST_PLACE_OF_BIRTH));
+    }
+
+    /**
+     * Gets the shows of an artist
+     *
+     * @param id id of the artist
+     * @return the ids of the shows
+     */
+    int[] getCredits(int id) {
+        return readList(getArtistField(id, ARTIST_CREDITS), 1);
+    }
+
+    /**
+     * Gets the artists an artist has worked with
+     *
+     * @param id id of the artist
+     * @return the id of each artist followed by the number of times they have worked together
+     */
+    int[] getCollaborators(int id) {
+        return readList(getArtistField(id, ARTIST_COLLABORATORS), COLLABORATOR_WIDTH);
+    }
+
+    /**
+     * Gets the number of shows
+     *
+     * @return the number of shows
+     */
+    public int getShowCount() {
+        return showCount;
+    }
+
+    /**
+     * Finds a show by title
+     *
+     * @param title title of the show
+     * @return the id of the show, or -1 if there is none
+     */
+    public int findShow(String title) {
+        return find(title, showCount, this::getShowTitle);
+    }
+
+    /**
+     * Gets the title of a show
+     *
+     * @param id id of the show
+     * @return the title of the show
+     */
+    public String getShowTitle(int id) {
+        return reader.getString(getShowField(id, SHOW_TITLE));
+    }
+
+    /**
+     * Gets the kind of a show
+     *
+     * @param id id of the show
+     * @return MOVIE_KIND or SERIES_KIND
+     */
+    int getShowKind(int id) {
+        return getShowField(id, SHOW_KIND);
+    }
+
+    /**
+     * Gets the director of a show
+     *
+     * @param id id of the show
+     * @return the id of the director
+     */
+    int getDirector(int id) {
+        return getShowField(id, SHOW_DIRECTOR);
+    }
+
+    /**
+     * Gets the duration of a movie or the number of seasons of a series
+     *
+     * @param id id of the show
+     * @return the duration or number of seasons of the show
+     */
+    int getShowLength(int id) {
+        return getShowField(id, SHOW_LENGTH);
+    }
+
+    /**
+     * Gets the age certification of a show
+     *
+     * @param id id of the show
+     * @return the age certification of the show
+     */
+    String getAgeCertification(int id) {
+        return reader.getString(getShowField(id, SHOW_AGE_CERTIFICATION));
+    }
+
+    /**
+     * Gets the year of release of a show
+     *
+     * @param id id of the show
+     * @return the year of release of the show
+     */
+    int getReleaseYear(int id) {
+        return getShowField(id, SHOW_YEAR);
+    }
+
+    /**
+     * Gets the genres of a show
+     *
+     * @param id id of the show
+     * @return the genres of the show, in order
+     */
+    List<String> getGenres(int id) {
+        int[] ids = readList(getShowField(id, SHOW_GENRES), 1);
+        List<String> genres = new ArrayList<>(ids.length);
+        for (int genre : ids)
+            genres.add(reader.getString(genre));
+        return genres;
+    }
+
+    /**
+     * Gets the cast of a show, without the director
+     *
+     * @param id id of the show
+     * @return the ids of the artists of the cast, in order
+     */
+    int[] getCast(int id) {
+        return readList(getShowField(id, SHOW_CAST), 1);
+    }
+
+    /**
+     * Gets the reviews of a show
+     *
+     * @param id id of the show
+     * @return the id of the user of each review, followed by the ids of its classification and description
+     */
+    int[] getReviews(int id) {
+        return readList(getShowField(id, SHOW_REVIEWS), REVIEW_WIDTH);
+    }
+
+    /**
+     * Decodes a String of the snapshot
+     *
+     * @param id id of the String
+     * @return the String
+     */
+    String getString(int id) {
+        return reader.getString(id);
+    }
+
+    /**
+     * Gets the pairs of artists that have worked together, each one once
+     *
+     * @return the ids of both artists of each pair, the smaller first, followed by the number of times
+     * they have worked together
+     */
+    int[] getCollaborations() {
+        int offset = reader.getSection(COLLABORATIONS) + Integer.BYTES;
+        int[] pairs = new int[collaborationCount * COLLABORATION_WIDTH];
+        for (int i = 0; i < collaborationCount; i++)
+            for (int field = 0; field < COLLABORATION_WIDTH; field++)
+                pairs[i * COLLABORATION_WIDTH + field] = reader.getInt(offset + (field * collaborationCount + i) * Integer.BYTES);
+        return pairs;
+    }
+
+    /**
+     * Saves a catalog to a snapshot
+     *
+     * @param file           file where the snapshot is saved
+     * @param users          the users, in alphabetical order
+     * @param artists        the artists
+     * @param shows          the shows, in alphabetical order
+     * @param collaborations the artists that have worked together
+     * @throws IOException if the snapshot can not be written
+     */
+    public static void write(Path file, Collection<User> users, Collection<Artist> artists, Collection<Show> shows,
+                             CollaborationGraph collaborations) throws IOException {
+        Artist[] artistsById = new Artist[collaborations.size()];
+        for (Artist artist : artists)
+            artistsById[artist.getId()] = artist;
+        Map<String, Integer> userIds = new HashMap<>();
+        for (User user : users)
+            userIds.put(user.getName(), userIds.size());
+        Map<String, Integer> showIds = new HashMap<>();
+        for (Show show : shows)
+            showIds.put(show.getTitle(), showIds.size());
+
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            int[] sections = new int[SECTIONS];
+            int[][] artistLists = writeArtistLists(writer, artistsById, showIds);
+            int[][] showLists = writeShowLists(writer, shows, userIds);
+
+            sections[USERS] = writer.getOffset();
+            writer.writeInt(users.size());
+            for (User user : users) {
+                writer.writeString(user.getName());
+                if (user instanceof AdminUser admin) {
+                    writer.writeInt(ADMIN_TYPE);
+                    writer.writeString(admin.getPassword());
+                    writer.writeInt(admin.getNumberOfPostedShows());
+                } else {
+                    writer.writeInt(user instanceof CriticUser ? CRITIC_TYPE : AUDIENCE_TYPE);
+                    writer.writeInt(NO_STRING);
+                    writer.writeInt(((OrdinaryUser) user).getReviewsCount());
+                }
+            }
+
+            sections[ARTISTS] = writer.getOffset();
+            writer.writeInt(artistsById.length);
+            for (Artist artist : artistsById) {
+                writer.writeString(artist.getName());
+                writer.writeInt(collaborations.getOrigin(artist.getId()).ordinal());
+                writer.writeString(artist.hasBio() ? artist.getDateOfBirth() : null);
+                writer.writeString(artist.hasBio() ? artist.getPlaceOfBirth() : null);
+                writer.writeInt(artistLists[0][artist.getId()]);
+                writer.writeInt(artistLists[1][artist.getId()]);
+            }
+            sections[ARTIST_NAMES] = writer.getOffset();
+            Artist[] byName = artistsById.clone();
+            Arrays.sort(byName, new ArtistComparatorByName());
+            for (Artist artist : byName)
+                writer.writeInt(artist.getId());
+
+            sections[SHOWS] = writer.getOffset();
+            writer.writeInt(shows.size());
+            int id = 0;
+            for (Show show : shows) {
+                writer.writeInt(show instanceof Movie ? MOVIE_KIND : SERIES_KIND);
+                writer.writeString(show.getTitle());
+                // The director is the last artist of the cast with the director
+                List<Artist> castWithDirector = new ArrayList<>();
+                show.getCastWithDirector().forEachRemaining(castWithDirector::add);
+                writer.writeInt(castWithDirector.get(castWithDirector.size() - 1).getId());
+                writer.writeInt(show instanceof Movie movie ? movie.getDuration() : ((Series) show).getNumberOfSeasons());
+                writer.writeString(show.getAgeCertification());
+                writer.writeInt(show.getYearOfRelease());
+                writer.writeInt(showLists[0][id]);
+                writer.writeInt(showLists[1][id]);
+                writer.writeInt(showLists[2][id]);
+                id++;
+            }
+
+            sections[COLLABORATIONS] = writer.getOffset();
+            writeCollaborations(writer, artistsById);
+            writer.commit(sections);
+        }
+    }
+
+    /**
+     * Writes the credits and the collaborators of each artist
+     *
+     * @param writer      writer of the snapshot
+     * @param artistsById the artists by id
+     * @param showIds     id of each show in the snapshot. title -> id
+     * @return the offsets of the credits and of the collaborators of each artist, by id
+     * @throws IOException if the snapshot can not be written
+     */
+    private static int[][] writeArtistLists(SnapshotWriter writer, Artist[] artistsById, Map<String, Integer> showIds)
+            throws IOException {
+        int[][] offsets = new int[2][artistsById.length];
+        List<Integer> values = new ArrayList<>();
+        for (Artist artist : artistsById) {
+            offsets[0][artist.getId()] = writer.getOffset();
+            values.clear();
+            Iterator<Show> shows = artist.getShows();
+            while (shows.hasNext())
+                values.add(showIds.get(shows.next().getTitle()));
+            writeList(writer, values, 1);
+
+            offsets[1][artist.getId()] = writer.getOffset();
+            values.clear();
+            Iterator<ArtistPair> pairs = artist.getTopCollaborators(Integer.MAX_VALUE);
+            while (pairs.hasNext()) {
+                ArtistPair pair = pairs.next();
+                values.add((pair.getFirst() == artist ? pair.getSecond() : pair.getFirst()).getId());
+                values.add(pair.getTimesWorked());
+            }
+            writeList(writer, values, COLLABORATOR_WIDTH);
+        }
+        return offsets;
+    }
+
+    /**
+     * Writes the genres, the cast without the director and the reviews of each show
+     *
+     * @param writer  writer of the snapshot
+     * @param shows   the shows, in alphabetical order
+     * @param userIds id of each user in the snapshot. name -> id
+     * @return the offsets of the genres, of the cast and of the reviews of each show, by id
+     * @throws IOException if the snapshot can not be written
+     */
+    private static int[][] writeShowLists(SnapshotWriter writer, Collection<Show> shows, Map<String, Integer> userIds)
+            throws IOException {
+        int[][] offsets = new int[3][shows.size()];
+        List<Integer> values = new ArrayList<>();
+        int id = 0;
+        for (Show show : shows) {
+            offsets[0][id] = writer.getOffset();
+            values.clear();
+            Iterator<String> genres = show.getGenres();
+            while (genres.hasNext())
+                values.add(writer.getStringId(genres.next()));
+            writeList(writer, values, 1);
+
+            offsets[1][id] = writer.getOffset();
+            values.clear();
+            Iterator<Artist> cast = show.getCastWithDirector();
+            while (cast.hasNext())
+                values.add(cast.next().getId());
+            values.remove(values.size() - 1);
+            writeList(writer, values, 1);
+
+            offsets[2][id] = writer.getOffset();
+            values.clear();
+            Iterator<Review> reviews = show.getReviews();
+            while (reviews.hasNext()) {
+                Review review = reviews.next();
+                values.add(userIds.get(review.getUserName()));
+                values.add(writer.getStringId(review.getClassification()));
+                values.add(writer.getStringId(review.getDescription()));
+            }
+            writeList(writer, values, REVIEW_WIDTH);
+            id++;
+        }
+        return offsets;
+    }
+
+    /**
+     * Writes the number of times each pair of artists has worked together, as arrays of the ids
+     * of both artists, the one with the smaller id first, and of the number of times
+     *
+     * @param writer      writer of the snapshot
+     * @param artistsById the artists by id
+     * @throws IOException if the snapshot can not be written
+     */
+    private static void writeCollaborations(SnapshotWriter writer, Artist[] artistsById) throws IOException {
+        int[] first = new int[INITIAL_COLLABORATIONS];
+        int[] second = new int[INITIAL_COLLABORATIONS];
+        int[] times = new int[INITIAL_COLLABORATIONS];
+        int count = 0;
+        for (Artist artist : artistsById) {
+            Iterator<ArtistPair> it = artist.getTopCollaborators(Integer.MAX_VALUE);
+            while (it.hasNext()) {
+                ArtistPair pair = it.next();
+                Artist other = pair.getFirst() == artist ? pair.getSecond() : pair.getFirst();
+                if (other.getId() < artist.getId()) continue;
+                if (count == first.length) {
+                    first = Arrays.copyOf(first, count * 2);
+                    second = Arrays.copyOf(second, count * 2);
+                    times = Arrays.copyOf(times, count * 2);
+                }
+                first[count] = artist.getId();
+                second[count] = other.getId();
+                times[count] = pair.getTimesWorked();
+                count++;
+            }
+        }
+        writer.writeInt(count);
+        writer.writeInts(first, count);
+        writer.writeInts(second, count);
+        writer.writeInts(times, count);
+    }
+
+    /**
+     * Writes a list as the number of its elements followed by their ints
+     *
+     * @param writer writer of the snapshot
+     * @param values ints of the elements
+     * @param width  number of ints of each element
+     * @throws IOException if the snapshot can not be written
+     */
+    private static void writeList(SnapshotWriter writer, List<Integer> values, int width) throws IOException {
+        writer.writeInt(values.size() / width);
+        for (int value : values)
+            writer.writeInt(value);
+    }
+
+    /**
+     * Reads a list written by writeList
+     *
+     * @param offset offset of the list
+     * @param width  number of ints of each element
+     * @return the ints of the elements
+     */
+    private int[] readList(int offset, int width) {
+        int[] values = new int[reader.getInt(offset) * width];
+        for (int i = 0; i < values.length; i++)
+            values[i] = reader.getInt(offset + (i + 1) * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Gets the id of the artist in a position of the alphabetical order
+     *
+     * @param position position in the alphabetical order
+     * @return the id of the artist
+     */
+    private int getArtistByName(int position) {
+        return reader.getInt(reader.getSection(ARTIST_NAMES) + position * Integer.BYTES);
+    }
+
+    /**
+     * Reads a field of the record of a user
+     *
+     * @param id    id of the user
+     * @param field position of the field in the record
+     * @return the value of the field
+     */
+    private int getUserField(int id, int field) {
+        return getField(USERS, USER_FIELDS, id, field);
+    }
+
+    /**
+     * Reads a field of the record of an artist
+     *
+     * @param id    id of the artist
+     * @param field position of the field in the record
+     * @return the value of the field
+     */
+    private int getArtistField(int id, int field) {
+        return getField(ARTISTS, ARTIST_FIELDS, id, field);
+    }
+
+    /**
+     * Reads a field of the record of a show
+     *
+     * @param id    id of the show
+     * @param field position of the field in the record
+     * @return the value of the field
+     */
+    private int getShowField(int id, int field) {
+        return getField(SHOWS, SHOW_FIELDS, id, field);
+    }
+
+    /**
+     * Reads a field of a record, after the number of records at the start of its section
+     *
+     * @param section section of the records
+     * @param fields  number of fields of each record
+     * @param id      id of the record
+     * @param field   position of the field in the record
+     * @return the value of the field
+     */
+    private int getField(int section, int fields, int id, int field) {
+        return reader.getInt(reader.getSection(section) + (1 + id * fields + field) * Integer.BYTES);
+    }
+
+    /**
+     * Binary search of a name among records sorted by name
+     *
+     * @param name   name to find
+     * @param count  number of records
+     * @param nameOf name of the record in each position
+     * @return the position of the name, or -1 if it is not there
+     */
+    private static int find(String name, int count, IntFunction<String> nameOf) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comp = nameOf.apply(middle).compareTo(name);
+            if (comp < 0) low = middle + 1;
+            else if (comp > 0) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,110 @@
+package cinereviews.snapshot;
+
+import artist.Artist;
+import artist.ArtistClass;
+import artist.ArtistPair;
+import artist.BestFriendsIndex;
+import show.Show;
+
+import java.util.Iterator;
+
+/**
+ * Artist of an opened snapshot, created with only its name and bio.
+ * Its credits and collaborators are read from the snapshot the first time any of them is used,
+ * so finding an artist does not materialise every show and artist it is connected to
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class LazyArtist extends ArtistClass {
+
+    /**
+     * Catalog from where the credits and collaborators are read, null once they are
+     */
+    private LazyCatalog catalog;
+
+    /**
+     * Creates a new artist without any bio
+     *
+     * @param id          id of the artist in the snapshot
+     * @param name        name of the artist
+     * @param bestFriends index of the pairs of artists that have worked together the most times
+     * @param catalog     catalog from where the credits and collaborators are read
+     */
+    public LazyArtist(int id, String name, BestFriendsIndex bestFriends, LazyCatalog catalog) {
+        super(id, name, bestFriends);
+        this.catalog = catalog;
+    }
+
+    /**
+     * Creates a new artist with bio
+     *
+     * @param id           id of the artist in the snapshot
+     * @param name         name of the artist
+     * @param dateOfBirth  date of birth of the artist
+     * @param placeOfBirth place of birth of the artist
+     * @param bestFriends  index of the pairs of artists that have worked together the most times
+     * @param catalog      catalog from where the credits and collaborators are read
+     */
+    public LazyArtist(int id, String name, String dateOfBirth, String placeOfBirth, BestFriendsIndex bestFriends,
+                      LazyCatalog catalog) {
+        super(id, name, dateOfBirth, placeOfBirth, bestFriends);
+        this.catalog = catalog;
+    }
+
+    @Override
+    public Iterator<Show> getShows() {
+        load();
+        return super.getShows();
+    }
+
+    @Override
+    public void addShow(Show show) {
+        load();
+        super.addShow(show);
+    }
+
+    @Override
+    public void addCredit(Show show) {
+        load();
+        super.addCredit(show);
+    }
+
+    @Override
+    public void restoreCollaboration(Artist artist, int timesWorked) {
+        load();
+        super.restoreCollaboration(artist, timesWorked);
+    }
+
+    @Override
+    public int getMostTimesWorked() {
+        load();
+        return super.getMostTimesWorked();
+    }
+
+    @Override
+    public Iterator<Artist> getFriends() {
+        load();
+        return super.getFriends();
+    }
+
+    @Override
+    public Iterator<ArtistPair> getTopCollaborators(int amount) {
+        load();
+        return super.getTopCollaborators(amount);
+    }
+
+    /**
+     * Reads the credits and the collaborators of the artist from the snapshot, if they were not read yet.
+     * They are restored as they were saved, without being counted again in the index of the best friends
+     */
+    void load() {
+        if (catalog == null) return;
+        LazyCatalog source = catalog;
+        catalog = null;
+        for (int show : source.getLayout().getCredits(getId()))
+            super.addCredit(source.getShow(show));
+        int[] collaborators = source.getLayout().getCollaborators(getId());
+        for (int i = 0; i < collaborators.length; i += CatalogLayout.COLLABORATOR_WIDTH)
+            super.restoreCollaboration(source.getArtist(collaborators[i]), collaborators[i + 1]);
+    }
+}
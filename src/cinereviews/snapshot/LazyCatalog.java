@@ -0,0 +1,231 @@
+package cinereviews.snapshot;
+
+import artist.Artist;
+import artist.BestFriendsIndex;
+import cinereviews.avoiders.CollaborationGraph;
+import review.ReviewClass;
+import show.MovieClass;
+import show.SeriesClass;
+import show.Show;
+import user.*;
+
+import java.util.*;
+
+import static cinereviews.snapshot.CatalogLayout.*;
+
+/**
+ * Catalog of an opened snapshot, whose users, artists and shows are materialised one by one when they are first used.
+ * A show is materialised with its cast and reviews, while its artists only get their name and bio until their
+ * credits or collaborators are used. Each entity is materialised once, so the same id is always the same object
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class LazyCatalog {
+
+    /**
+     * Layout of the snapshot
+     */
+    private final CatalogLayout layout;
+
+    /**
+     * Index of the pairs of artists that have worked together the most times, shared by all artists
+     */
+    private final BestFriendsIndex bestFriends;
+
+    /**
+     * Users already materialised, by id
+     */
+    private final User[] usersById;
+
+    /**
+     * Artists already materialised, by id
+     */
+    private final LazyArtist[] artistsById;
+
+    /**
+     * Shows already materialised, by id
+     */
+    private final Show[] showsById;
+
+    /**
+     * Users by name, in alphabetical order
+     */
+    private final LazyMap<User> users;
+
+    /**
+     * Artists by name
+     */
+    private final LazyMap<Artist> artists;
+
+    /**
+     * Shows by title, in alphabetical order
+     */
+    private final LazyMap<Show> shows;
+
+    /**
+     * Creates the catalog of an opened snapshot, without materialising anything
+     *
+     * @param layout      layout of the snapshot
+     * @param bestFriends index of the pairs of artists that have worked together the most times
+     */
+    public LazyCatalog(CatalogLayout layout, BestFriendsIndex bestFriends) {
+        this.layout = layout;
+        this.bestFriends = bestFriends;
+        this.usersById = new User[layout.getUserCount()];
+        this.artistsById = new LazyArtist[layout.getArtistCount()];
+        this.showsById = new Show[layout.getShowCount()];
+        this.users = new LazyMap<>(new TreeMap<>(), usersById.length, layout::findUser, layout::getUserName, this::getUser);
+        this.artists = new LazyMap<>(new HashMap<>(), artistsById.length, layout::findArtist, layout::getArtistName, this::getArtist);
+        this.shows = new LazyMap<>(new TreeMap<>(), showsById.length, layout::findShow, layout::getShowTitle, this::getShow);
+    }
+
+    /**
+     * Gets the users of the catalog
+     *
+     * @return the users by name, in alphabetical order
+     */
+    public Map<String, User> getUsers() {
+        return users;
+    }
+
+    /**
+     * Gets the artists of the catalog
+     *
+     * @return the artists by name
+     */
+    public Map<String, Artist> getArtists() {
+        return artists;
+    }
+
+    /**
+     * Gets the shows of the catalog
+     *
+     * @return the shows by title, in alphabetical order
+     */
+    public Map<String, Show> getShows() {
+        return shows;
+    }
+
+    /**
+     * Gets the layout of the snapshot
+     *
+     * @return the layout of the snapshot
+     */
+    CatalogLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Gets a user of the snapshot, materialising it if it was not yet
+     *
+     * @param id id of the user
+     * @return the user
+     */
+    User getUser(int id) {
+        if (usersById[id] == null) {
+            String name = layout.getUserName(id);
+            int counter = layout.getUserCounter(id);
+            switch (layout.getUserType(id)) {
+                case ADMIN_TYPE -> {
+                    AdminUser admin = new AdminUserClass(name, layout.getUserPassword(id));
+                    for (int posted = counter; posted > 0; posted--)
+                        admin.incrementPostedShows();
+                    usersById[id] = admin;
+                }
+                case CRITIC_TYPE -> usersById[id] = withReviews(new CriticUserClass(name), counter);
+                default -> usersById[id] = withReviews(new AudienceUserClass(name), counter);
+            }
+        }
+        return usersById[id];
+    }
+
+    /**
+     * Gets an artist of the snapshot, materialising it with its name and bio if it was not yet
+     *
+     * @param id id of the artist
+     * @return the artist
+     */
+    Artist getArtist(int id) {
+        if (artistsById[id] == null) {
+            String dateOfBirth = layout.getDateOfBirth(id);
+            if (dateOfBirth != null)
+                artistsById[id] = new LazyArtist(id, layout.getArtistName(id), dateOfBirth, layout.getPlaceOfBirth(id),
+                        bestFriends, this);
+            else
+                artistsById[id] = new LazyArtist(id, layout.getArtistName(id), bestFriends, this);
+        }
+        return artistsById[id];
+    }
+
+    /**
+     * Gets a show of the snapshot, materialising it with its cast and reviews if it was not yet
+     *
+     * @param id id of the show
+     * @return the show
+     */
+    Show getShow(int id) {
+        if (showsById[id] == null) {
+            String title = layout.getShowTitle(id);
+            Artist director = getArtist(layout.getDirector(id));
+            List<Artist> cast = new ArrayList<>();
+            for (int artist : layout.getCast(id))
+                cast.add(getArtist(artist));
+            Show show;
+            if (layout.getShowKind(id) == MOVIE_KIND)
+                show = new MovieClass(title, director, layout.getShowLength(id), layout.getAgeCertification(id),
+                        layout.getReleaseYear(id), layout.getGenres(id).iterator(), cast.iterator());
+            else
+                show = new SeriesClass(title, director, layout.getShowLength(id), layout.getAgeCertification(id),
+                        layout.getReleaseYear(id), layout.getGenres(id).iterator(), cast.iterator());
+            // The number of reviews of each user is restored with the user, so it is not counted again
+            int[] reviews = layout.getReviews(id);
+            for (int i = 0; i < reviews.length; i += REVIEW_WIDTH)
+                show.addReview(new ReviewClass((OrdinaryUser) getUser(reviews[i]), layout.getString(reviews[i + 2]),
+                        layout.getString(reviews[i + 1])));
+            showsById[id] = show;
+        }
+        return showsById[id];
+    }
+
+    /**
+     * Restores the artists of the snapshot in the collaboration graph, with the same ids and origins,
+     * the pairs of artists that have worked together and the index of the best friends.
+     * The artists of the pairs are materialised, but not their credits nor collaborators
+     *
+     * @param graph empty collaboration graph
+     */
+    public void restoreCollaborations(CollaborationGraph graph) {
+        for (int id = 0; id < artistsById.length; id++)
+            graph.addArtist(layout.getArtistOrigin(id));
+        int[] collaborations = layout.getCollaborations();
+        for (int i = 0; i < collaborations.length; i += COLLABORATION_WIDTH) {
+            graph.addCollaboration(collaborations[i], collaborations[i + 1]);
+            bestFriends.restore(getArtist(collaborations[i]), getArtist(collaborations[i + 1]), collaborations[i + 2]);
+        }
+    }
+
+    /**
+     * Materialises every user, artist and show of the snapshot, with the credits and collaborators of every artist,
+     * after which the snapshot is no longer read
+     */
+    public void loadAll() {
+        users.loadAll();
+        artists.loadAll();
+        shows.loadAll();
+        for (LazyArtist artist : artistsById)
+            artist.load();
+    }
+
+    /**
+     * Restores the number of reviews of a user
+     *
+     * @param user    new user
+     * @param reviews number of reviews of the user
+     * @return the user
+     */
+    private static User withReviews(OrdinaryUser user, int reviews) {
+        for (int i = 0; i < reviews; i++)
+            user.incrementReviewCount();
+        return user;
+    }
+}
@@ -0,0 +1,113 @@
+package cinereviews.snapshot;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Map of the users, artists or shows of an opened snapshot, that reads each one only when it is first used.
+ * An entry found by name is materialised and kept in the backing map, which also keeps the entries added after
+ * the snapshot was opened, so the snapshot itself is never changed. Anything that needs every entry, as iterating
+ * or counting them, materialises the ones that were not read yet, and from then on the map is the backing map alone
+ *
+ * @param <V> type of the values
+ * @author Filipe Corista / João Rodrigues
+ */
+public class LazyMap<V> extends AbstractMap<String, V> {
+
+    /**
+     * Entries already materialised and entries added after the snapshot was opened
+     */
+    private final Map<String, V> loaded;
+
+    /**
+     * Number of entries of the snapshot
+     */
+    private final int count;
+
+    /**
+     * Finds the id of a name in the snapshot, -1 if it is not there. null once every entry is loaded
+     */
+    private ToIntFunction<String> finder;
+
+    /**
+     * Gets the name of an id of the snapshot. null once every entry is loaded
+     */
+    private IntFunction<String> keys;
+
+    /**
+     * Materialises the entry of an id of the snapshot, always returning the same value for the same id.
+     * null once every entry is loaded
+     */
+    private IntFunction<V> materializer;
+
+    /**
+     * Creates a new map over the entries of a snapshot
+     *
+     * @param loaded       backing map, which defines the order of iteration
+     * @param count        number of entries of the snapshot
+     * @param finder       finds the id of a name in the snapshot, -1 if it is not there
+     * @param keys         gets the name of an id of the snapshot
+     * @param materializer materialises the entry of an id of the snapshot
+     */
+    public LazyMap(Map<String, V> loaded, int count, ToIntFunction<String> finder, IntFunction<String> keys,
+                   IntFunction<V> materializer) {
+        this.loaded = loaded;
+        this.count = count;
+        this.finder = finder;
+        this.keys = keys;
+        this.materializer = materializer;
+    }
+
+    @Override
+    public V get(Object key) {
+        V value = loaded.get(key);
+        if (value != null || materializer == null || !(key instanceof String name)) return value;
+        int id = finder.applyAsInt(name);
+        if (id < 0) return null;
+        value = materializer.apply(id);
+        loaded.put(name, value);
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(String key, V value) {
+        return loaded.put(key, value);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0 && loaded.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        loadAll();
+        return loaded.size();
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        loadAll();
+        return loaded.entrySet();
+    }
+
+    /**
+     * Materialises every entry of the snapshot that was not read yet
+     */
+    public void loadAll() {
+        if (materializer == null) return;
+        for (int id = 0; id < count; id++)
+            loaded.putIfAbsent(keys.apply(id), materializer.apply(id));
+        finder = null;
+        keys = null;
+        materializer = null;
+    }
+}
@@ -0,0 +1,139 @@
+package cinereviews.snapshot;
+
+import cinereviews.exceptions.InvalidSnapshotException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import static cinereviews.snapshot.SnapshotWriter.*;
+
+/**
+ * Reader of a binary snapshot written by the SnapshotWriter.
+ * The file is mapped into memory instead of being read, and its values are read in place by offset,
+ * so opening a snapshot only checks its header and trailer, whatever its size. The pages of the file are
+ * read by the operating system when they are first used and are not part of the heap.
+ * The checksum covers every byte, so it is only checked when asked for
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class SnapshotReader {
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int TRAILER_SIZE = 3 * Integer.BYTES;
+
+    /**
+     * Bytes of the snapshot, mapped from the file
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Offset of each section of the body
+     */
+    private final int[] sections;
+
+    /**
+     * Offset of the table of Strings
+     */
+    private final int stringsOffset;
+
+    /**
+     * Number of Strings in the table
+     */
+    private final int stringCount;
+
+    /**
+     * Opens a snapshot, mapping its file and checking its header and trailer
+     *
+     * @param file file of the snapshot
+     * @throws IOException              if the file can not be read
+     * @throws InvalidSnapshotException if the file is not a snapshot of a supported version
+     */
+    public SnapshotReader(Path file) throws IOException, InvalidSnapshotException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + Integer.BYTES + TRAILER_SIZE || size > Integer.MAX_VALUE)
+                throw new InvalidSnapshotException();
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) throw new InvalidSnapshotException();
+
+        int end = buffer.limit() - TRAILER_SIZE;
+        stringsOffset = buffer.getInt(end + Integer.BYTES);
+        int sectionCount = buffer.getInt(end);
+        if (sectionCount < 0 || sectionCount > (end - HEADER_SIZE) / Integer.BYTES) throw new InvalidSnapshotException();
+        int sectionsOffset = end - sectionCount * Integer.BYTES;
+        if (stringsOffset < HEADER_SIZE || stringsOffset > sectionsOffset - Integer.BYTES) throw new InvalidSnapshotException();
+        stringCount = buffer.getInt(stringsOffset);
+        if (stringCount < 0 || stringCount > (sectionsOffset - stringsOffset) / Integer.BYTES) throw new InvalidSnapshotException();
+
+        sections = new int[sectionCount];
+        for (int i = 0; i < sectionCount; i++) {
+            sections[i] = buffer.getInt(sectionsOffset + i * Integer.BYTES);
+            if (sections[i] < HEADER_SIZE || sections[i] > stringsOffset) throw new InvalidSnapshotException();
+        }
+    }
+
+    /**
+     * Checks the checksum of the snapshot, reading every byte of it
+     *
+     * @throws InvalidSnapshotException if the snapshot is corrupted
+     */
+    public void verifyChecksum() throws InvalidSnapshotException {
+        int end = buffer.limit() - Integer.BYTES;
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate().position(0).limit(end));
+        if ((int) checksum.getValue() != buffer.getInt(end)) throw new InvalidSnapshotException();
+    }
+
+    /**
+     * Gets the number of sections of the body
+     *
+     * @return the number of sections
+     */
+    public int getSectionCount() {
+        return sections.length;
+    }
+
+    /**
+     * Gets the offset of a section of the body
+     *
+     * @param section position of the section in the trailer
+     * @return the offset of the section
+     */
+    public int getSection(int section) {
+        return sections[section];
+    }
+
+    /**
+     * Reads an int
+     *
+     * @param offset offset of the int
+     * @return the int at the offset
+     * @throws IndexOutOfBoundsException if the offset is outside the snapshot
+     */
+    public int getInt(int offset) {
+        return buffer.getInt(offset);
+    }
+
+    /**
+     * Decodes a String of the table of Strings
+     *
+     * @param id id of the String
+     * @return the String with the id, or null if the id is NO_STRING
+     * @throws IndexOutOfBoundsException if the id or the String are outside the snapshot
+     */
+    public String getString(int id) {
+        if (id == NO_STRING) return null;
+        if (id < 0 || id >= stringCount) throw new IndexOutOfBoundsException(id);
+        int offset = buffer.getInt(stringsOffset + (id + 1) * Integer.BYTES);
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,242 @@
+package cinereviews.snapshot;
+
+import util.DurableFiles;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writer of a binary snapshot of the catalog.
+ * <pre>
+ * magic  version  body  strings  sections  sectionCount  stringsOffset  checksum
+ * </pre>
+ * The body is written as it is given, with every String replaced by its id in a table of distinct Strings,
+ * so that names repeated across users, artists, shows and reviews are stored once. The table is only known
+ * at the end, so it follows the body, with the offset of each String before the Strings themselves. The trailer
+ * keeps the offsets of the sections of the body, so that they can be read in place without reading what is
+ * before them, and ends with the CRC32 of every previous byte. Offsets are ints, which limits a snapshot to 2 GiB.
+ * The snapshot is written to a temporary file that replaces the target once it is complete and forced,
+ * and the directory is forced after the rename, so that a crash leaves either the old or the new snapshot
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class SnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x43525653;
+    static final int VERSION = 2;
+    static final int NO_STRING = -1;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * File that is replaced by the snapshot once it is complete
+     */
+    private final Path file;
+
+    /**
+     * Temporary file where the snapshot is written
+     */
+    private final Path temporary;
+
+    /**
+     * Checksum of every byte written so far
+     */
+    private final CRC32 checksum;
+
+    /**
+     * Channel of the temporary file, forced before it replaces the target
+     */
+    private final FileChannel channel;
+
+    /**
+     * Stream of the temporary file
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Id of each String written so far. String -> id
+     */
+    private final Map<String, Integer> stringIds;
+
+    /**
+     * Strings written so far, by id
+     */
+    private final List<String> strings;
+
+    /**
+     * Number of bytes written so far
+     */
+    private long offset;
+
+    /**
+     * true once the snapshot has replaced the target file
+     */
+    private boolean committed;
+
+    /**
+     * Creates a new writer, starting the snapshot with its header
+     *
+     * @param file file where the snapshot is saved
+     * @throws IOException if the temporary file can not be written
+     */
+    public SnapshotWriter(Path file) throws IOException {
+        this.file = file;
+        this.temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+        this.checksum = new CRC32();
+        this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)), checksum));
+        this.stringIds = new HashMap<>();
+        this.strings = new ArrayList<>();
+        this.committed = false;
+        writeInt(MAGIC);
+        writeInt(VERSION);
+    }
+
+    /**
+     * Gets the offset of the next value written, so that it can be kept in a record or in the trailer
+     *
+     * @return the number of bytes written so far
+     * @throws IOException if the snapshot is too large for its offsets
+     */
+    public int getOffset() throws IOException {
+        if (offset > Integer.MAX_VALUE) throw new IOException("Snapshot is larger than 2 GiB");
+        return (int) offset;
+    }
+
+    /**
+     * Writes an int
+     *
+     * @param value int to write
+     * @throws IOException if the snapshot can not be written
+     */
+    public void writeInt(int value) throws IOException {
+        out.writeInt(value);
+        offset += Integer.BYTES;
+    }
+
+    /**
+     * Writes the id of a String, adding it to the table of Strings if it is new
+     *
+     * @param value String to write, or null
+     * @throws IOException if the snapshot can not be written
+     */
+    public void writeString(String value) throws IOException {
+        writeInt(getStringId(value));
+    }
+
+    /**
+     * Gets the id of a String, adding it to the table of Strings if it is new,
+     * so that Strings can be written inside arrays of ints
+     *
+     * @param value String to look up, or null
+     * @return the id of the String, or NO_STRING if it is null
+     */
+    public int getStringId(String value) {
+        if (value == null) return NO_STRING;
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(value, id);
+            strings.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * Writes the first values of an array of ints, without their count
+     *
+     * @param values array of ints
+     * @param count  number of values to write
+     * @throws IOException if the snapshot can not be written
+     */
+    public void writeInts(int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++)
+            out.writeInt(values[i]);
+        offset += (long) count * Integer.BYTES;
+    }
+
+    /**
+     * Writes the first values of an array of bytes, without their count
+     *
+     * @param values array of bytes
+     * @param count  number of values to write
+     * @throws IOException if the snapshot can not be written
+     */
+    public void writeBytes(byte[] values, int count) throws IOException {
+        out.write(values, 0, count);
+        offset += count;
+    }
+
+    /**
+     * Ends the snapshot with the table of Strings and the trailer, and replaces the target file with it,
+     * forcing the snapshot before the rename and its directory after it
+     *
+     * @param sections offsets of the sections of the body, kept in the trailer
+     * @throws IOException if the snapshot can not be written
+     */
+    public void commit(int... sections) throws IOException {
+        int stringsOffset = getOffset();
+        byte[][] encoded = new byte[strings.size()][];
+        for (int i = 0; i < encoded.length; i++)
+            encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+        writeInt(encoded.length);
+        // Each String is found through its offset, so that it can be decoded alone
+        long position = offset + (long) encoded.length * Integer.BYTES;
+        for (byte[] bytes : encoded) {
+            if (position > Integer.MAX_VALUE) throw new IOException("Snapshot is larger than 2 GiB");
+            writeInt((int) position);
+            position += Integer.BYTES + bytes.length;
+        }
+        for (byte[] bytes : encoded) {
+            writeInt(bytes.length);
+            writeBytes(bytes, bytes.length);
+        }
+        for (int section : sections)
+            writeInt(section);
+        writeInt(sections.length);
+        writeInt(stringsOffset);
+        // The whole file, with the checksum, must be addressable by an int
+        if (offset + Integer.BYTES > Integer.MAX_VALUE) throw new IOException("Snapshot is larger than 2 GiB");
+        out.flush();
+        out.writeInt((int) checksum.getValue());
+        out.flush();
+        // The contents must be on the device before the rename makes them the snapshot
+        channel.force(true);
+        out.close();
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+        DurableFiles.forceDirectory(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Closes the temporary file, deleting it if the snapshot was not committed
+     *
+     * @throws IOException if the temporary file can not be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed) return;
+        out.close();
+        Files.deleteIfExists(temporary);
+    }
+}
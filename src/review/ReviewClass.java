@@ -26,6 +26,11 @@ public class ReviewClass implements Review {
      */
     private final String description;
 
+    /**
+     * Value of the classification, parsed once when the review is created
+     */
+    private final int score;
+
     /**
      * Creates a new review
      *
@@ -37,6 +42,7 @@ public class ReviewClass implements Review {
         this.reviewer = reviewer;
         this.description = description;
         this.classification = classification;
+        this.score = Classification.valueOf(classification.toUpperCase()).getValue();
     }
 
     @Override
@@ -46,9 +52,7 @@ public class ReviewClass implements Review {
 
     @Override
     public int getScore() {
-        return Classification
-                .valueOf(classification.toUpperCase())
-                .getValue();
+        return score;
     }
 
     @Override
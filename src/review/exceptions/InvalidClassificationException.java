@@ -0,0 +1,11 @@
+package review.exceptions;
+
+/**
+ * Exception when a review is given a classification that does not exist
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class InvalidClassificationException extends Exception {
+    public InvalidClassificationException() {
+    }
+}
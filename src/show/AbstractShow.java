@@ -6,6 +6,10 @@ import review.comparators.ReviewComparator;
 import user.User;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Class that implements the behavior of a Show
@@ -18,15 +22,46 @@ public abstract class AbstractShow implements Show {
     private static final String CREATOR = "creator";
     private static final String ACTOR = "actor";
 
+    private static final int CRITIC_WEIGHT = 5;
+    private static final int AUDIENCE_WEIGHT = 1;
+
     /**
-     * Map to store the reviews. Username -> Review
+     * Map to store the reviews. Username -> Review.
+     * A review is only added if its reviewer has none, in a single atomic step, so any number of threads may add them
      */
     private final Map<String, Review> reviews;
 
     /**
-     * Collection of the reviews of this show
+     * Reviews of this show sorted by ReviewComparator, null until they are first read. Only used while holding the lock of the show
+     */
+    private SortedSet<Review> sortedReviews;
+
+    /**
+     * Reviews added since the sorted reviews were last read, only kept once they were read for the first time
+     */
+    private final Queue<Review> pendingReviews;
+
+    /**
+     * true once the sorted reviews were read for the first time, after which every review added is also queued for them
+     */
+    private volatile boolean reviewsRead;
+
+    /**
+     * Copy of the sorted reviews handed to the readers, null when a review was replaced after it was made
+     */
+    private volatile List<Review> reviewsView;
+
+    /**
+     * Number of reviews of this show, counted as they are added so that each one gets its own position
      */
-    private final Set<Review> sortedReviews;
+    private final AtomicInteger reviewCount;
+
+    /**
+     * Sum of the scores of the reviews, each one multiplied by the weight of its reviewer, in the high 32 bits,
+     * and sum of the weights of the reviewers in the low 32 bits. Each review adds both at once to one cell of the adder,
+     * so a reader never sees one updated without the other, and threads adding reviews rarely touch the same cell
+     */
+    private final LongAdder scoreTotals;
 
     /**
      * Title of the show
@@ -58,6 +93,12 @@ public abstract class AbstractShow implements Show {
      */
     private final List<Artist> cast;
 
+    /**
+     * Collection of the show's cast followed by the director/creator, built once so that it is not copied
+     * every time the collaborations of the show are counted
+     */
+    private final List<Artist> castWithDirector;
+
     /**
      * Creates a new show, being Movie or Series
      *
@@ -76,26 +117,54 @@ public abstract class AbstractShow implements Show {
         this.yearOfRelease = yearOfRelease;
         this.genres = new ArrayList<>();
         this.cast = new ArrayList<>();
-        this.sortedReviews = new TreeSet<>(new ReviewComparator());
+        this.pendingReviews = new ConcurrentLinkedQueue<>();
+        this.reviewCount = new AtomicInteger();
+        this.scoreTotals = new LongAdder();
         addCast(cast);
         addGenres(genres);
-        reviews = new HashMap<>();
+        List<Artist> directorCast = new ArrayList<>(this.cast);
+        directorCast.add(creator);
+        this.castWithDirector = Collections.unmodifiableList(directorCast);
+        reviews = new ConcurrentHashMap<>();
     }
 
+    /**
+     * Gets the reviews of this show sorted by ReviewComparator. They are only sorted when first read, and the reviews added
+     * in the meantime are merged into them when they are read again, so adding a review never sorts anything
+     */
     @Override
     public Iterator<Review> getReviews() {
-        return sortedReviews.iterator();
+        List<Review> view = reviewsView;
+        if (view == null || !pendingReviews.isEmpty())
+            view = sortReviews();
+        return view.iterator();
     }
 
     @Override
     public void addReview(Review review) {
-        reviews.put(review.getReviewer().getName(), review);
-        sortedReviews.add(review);
+        if (addReviewIfAbsent(review) > 0) return;
+        Review previous = reviews.put(review.getReviewer().getName(), review);
+        scoreTotals.add(-getTotals(previous));
+        synchronized (this) {
+            pendingReviews.remove(previous);
+            if (sortedReviews != null) sortedReviews.remove(previous);
+            reviewsView = null;
+        }
+        if (reviewsRead) pendingReviews.add(review);
+        scoreTotals.add(getTotals(review));
+    }
+
+    @Override
+    public int addReviewIfAbsent(Review review) {
+        if (reviews.putIfAbsent(review.getReviewer().getName(), review) != null) return 0;
+        if (reviewsRead) pendingReviews.add(review);
+        scoreTotals.add(getTotals(review));
+        return reviewCount.incrementAndGet();
     }
 
     @Override
     public int getReviewsCount() {
-        return reviews.size();
+        return reviewCount.get();
     }
 
     @Override
@@ -128,22 +197,20 @@ public abstract class AbstractShow implements Show {
         return genres.get(0);
     }
 
+    @Override
+    public Iterator<String> getGenres() {
+        return Collections.unmodifiableList(genres).iterator();
+    }
+
     @Override
     public float getScore() {
-        if (reviews.size() == 0) return 0;
-
-        float totalscore = 0;
-        int divider = 0;
-        for (Review review : reviews.values()) {
-            int multiplier = 1;
-            if (review.madeByCritic())
-                multiplier = 5;
-            totalscore += review.getScore() * multiplier;
-            divider += multiplier;
-        }
-        totalscore = totalscore / divider;
-        totalscore = (float) Math.round(totalscore * 10) / 10;
-        return totalscore;
+        long totals = scoreTotals.sum();
+        int weightedScore = (int) (totals >> 32);
+        int totalWeight = (int) totals;
+        if (totalWeight == 0) return 0;
+
+        float totalscore = (float) weightedScore / totalWeight;
+        return (float) Math.round(totalscore * 10) / 10;
     }
 
     @Override
@@ -161,9 +228,7 @@ public abstract class AbstractShow implements Show {
 
     @Override
     public Iterator<Artist> getCastWithDirector() {
-        List<Artist> directorCast = new ArrayList<>(cast);
-        directorCast.add(creator);
-        return directorCast.iterator();
+        return castWithDirector.iterator();
     }
 
     @Override
@@ -180,6 +245,50 @@ public abstract class AbstractShow implements Show {
         return genres.contains(genre);
     }
 
+    /**
+     * Gets the weight of a review in the score of the show
+     *
+     * @param review review of the show
+     * @return CRITIC_WEIGHT if the review was made by a critic, AUDIENCE_WEIGHT otherwise
+     */
+    private static int getWeight(Review review) {
+        return review.madeByCritic() ? CRITIC_WEIGHT : AUDIENCE_WEIGHT;
+    }
+
+    /**
+     * Gets what a review adds to the score totals of the show
+     *
+     * @param review review of the show
+     * @return the weighted score of the review in the high 32 bits and the weight of its reviewer in the low 32 bits
+     */
+    private static long getTotals(Review review) {
+        return (long) review.getScore() * getWeight(review) << 32 | getWeight(review);
+    }
+
+    /**
+     * Merges the reviews added since the sorted reviews were last read into them, sorting every review the first time,
+     * and copies them for the readers if they changed
+     *
+     * @return the copy of the sorted reviews
+     */
+    private synchronized List<Review> sortReviews() {
+        boolean changed = reviewsView == null;
+        if (sortedReviews == null) {
+            sortedReviews = new TreeSet<>(new ReviewComparator());
+            // Reviews added from now on are queued, and the ones added before are in the map, if not in both
+            reviewsRead = true;
+            sortedReviews.addAll(reviews.values());
+        }
+        Review review;
+        while ((review = pendingReviews.poll()) != null) {
+            sortedReviews.add(review);
+            changed = true;
+        }
+        if (changed)
+            reviewsView = Collections.unmodifiableList(new ArrayList<>(sortedReviews));
+        return reviewsView;
+    }
+
     /**
      * Adds the cast of artists to the show
      *
@@ -34,6 +34,15 @@ public interface Show {
      */
     void addReview(Review review);
 
+    /**
+     * Adds a new review to the show, unless its reviewer already reviewed it, in a single atomic step,
+     * so that any number of threads may add reviews at the same time
+     *
+     * @param review review that will be added to the show
+     * @return the number of reviews of the show with this one, or 0 if the reviewer already reviewed the show
+     */
+    int addReviewIfAbsent(Review review);
+
     /**
      * Checks if a user has already reviewed this show
      *
@@ -84,6 +93,13 @@ public interface Show {
      */
     String getMainGenre();
 
+    /**
+     * Gets the genres of the show, starting with the main genre
+     *
+     * @return the iterator of the genres of the show
+     */
+    Iterator<String> getGenres();
+
     /**
      * Gets the cast of the show
      *
@@ -1,5 +1,7 @@
 package user;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Abstract class for the user
  *
@@ -11,9 +13,9 @@ public abstract class AbstractOrdinaryUser extends UserClass implements Ordinary
     private static final String CRITIC = "critic";
 
     /**
-     * Stores the number of reviews of the
+     * Stores the number of reviews of the user, which may review different shows at the same time
      */
-    private int reviewCount;
+    private final AtomicInteger reviewCount;
 
     /**
      * Creates a new Ordinary User, being Critic or Audience type
@@ -22,17 +24,17 @@ public abstract class AbstractOrdinaryUser extends UserClass implements Ordinary
      */
     public AbstractOrdinaryUser(String name) {
         super(name);
-        reviewCount = 0;
+        reviewCount = new AtomicInteger();
     }
 
     @Override
     public int getReviewsCount() {
-        return reviewCount;
+        return reviewCount.get();
     }
 
     @Override
     public void incrementReviewCount() {
-        reviewCount++;
+        reviewCount.incrementAndGet();
     }
 
     @Override
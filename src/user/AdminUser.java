@@ -26,4 +26,11 @@ public interface AdminUser extends User {
      * Increments the number of posted shows by one
      */
     void incrementPostedShows();
+
+    /**
+     * Gets the password of the admin, so that it can be saved in a snapshot
+     *
+     * @return the password of the admin
+     */
+    String getPassword();
 }
@@ -43,4 +43,9 @@ public class AdminUserClass extends UserClass implements AdminUser {
     public void incrementPostedShows() {
         addedShowAmount++;
     }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
 }
@@ -31,4 +31,17 @@ public enum Classification {
         return value;
     }
 
+    /**
+     * Checks if a name is the name of a classification, in any case
+     *
+     * @param name name of the classification
+     * @return true if the classification exists
+     */
+    public static boolean exists(String name) {
+        String upper = name.toUpperCase();
+        for (Classification classification : values())
+            if (classification.name().equals(upper)) return true;
+        return false;
+    }
+
 }
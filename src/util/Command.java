@@ -19,6 +19,12 @@ public enum Command {
     RELEASED("lists shows released in a given year"),
     AVOIDERS("lists artists that have no common projects"),
     FRIENDS("lists artists that have more projects together"),
+    IMPORT("imports shows, bios and reviews from catalog files"),
+    SAVE("saves the catalog to a snapshot file"),
+    LOAD("replaces the catalog with the one of a snapshot file"),
+    OPEN("replaces the catalog with a snapshot file read as it is used"),
+    JOURNAL("recovers the catalog from a journal directory and logs every change to it"),
+    CHECKPOINT("saves the catalog to a snapshot of its journal and compacts it"),
     HELP("shows the available commands"),
     EXIT("terminates the execution of the program"),
     UNKNOWN("unknown command");
@@ -0,0 +1,321 @@
+package util;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * Reader of the commands of the application, that replaces Scanner with the same next, nextInt and nextLine grammar.
+ * Input is read from a channel into a large buffer and split into tokens and lines byte by byte, without regular
+ * expressions, and the commands and integers are parsed straight from the bytes without creating Strings
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class CommandReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int INITIAL_TOKEN_SIZE = 64;
+    private static final int END_OF_INPUT = -1;
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final int CASE_BIT = 0x20;
+
+    /**
+     * Commands with the same length as their position, with the name in upper case ASCII
+     */
+    private static final Command[][] COMMANDS_BY_LENGTH = commandsByLength();
+
+    /**
+     * Channel from where the input is read
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * Output flushed before waiting for more input, so that every answer is seen before the next command is typed
+     */
+    private final Flushable output;
+
+    /**
+     * Buffer of the input, valid from position to limit
+     */
+    private final byte[] buffer;
+
+    /**
+     * Wrapper of the buffer used to read from the channel
+     */
+    private final ByteBuffer byteBuffer;
+
+    /**
+     * Position of the next byte of the buffer to read
+     */
+    private int position;
+
+    /**
+     * Number of valid bytes of the buffer
+     */
+    private int limit;
+
+    /**
+     * true once the channel has no more input
+     */
+    private boolean endOfInput;
+
+    /**
+     * Bytes of the last token or line read
+     */
+    private byte[] token;
+
+    /**
+     * Charset used to decode the tokens, the same as Scanner uses by default
+     */
+    private final Charset charset;
+
+    /**
+     * Creates a new reader of a stream
+     *
+     * @param in     stream of the commands
+     * @param output output flushed before waiting for more input
+     */
+    public CommandReader(InputStream in, Flushable output) {
+        this(Channels.newChannel(in), output);
+    }
+
+    /**
+     * Creates a new reader of a channel
+     *
+     * @param channel channel of the commands
+     * @param output  output flushed before waiting for more input
+     */
+    public CommandReader(ReadableByteChannel channel, Flushable output) {
+        this.channel = channel;
+        this.output = output;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.byteBuffer = ByteBuffer.wrap(buffer);
+        this.position = 0;
+        this.limit = 0;
+        this.endOfInput = false;
+        this.token = new byte[INITIAL_TOKEN_SIZE];
+        this.charset = Charset.defaultCharset();
+    }
+
+    /**
+     * Reads the next command. The name is compared ignoring the case, without creating a String
+     *
+     * @return the command with the name of the next token, or Command.UNKNOWN if there is none
+     * @throws NoSuchElementException if there are no more tokens
+     */
+    public Command nextCommand() {
+        int length = readToken();
+        if (length >= COMMANDS_BY_LENGTH.length) return Command.UNKNOWN;
+        for (Command command : COMMANDS_BY_LENGTH[length])
+            if (matchesIgnoringCase(command.name(), length)) return command;
+        return Command.UNKNOWN;
+    }
+
+    /**
+     * Reads the next token, skipping the whitespace before it, as Scanner.next
+     *
+     * @return the next token
+     * @throws NoSuchElementException if there are no more tokens
+     */
+    public String next() {
+        int length = readToken();
+        return new String(token, 0, length, charset);
+    }
+
+    /**
+     * Reads the next token as an int, as Scanner.nextInt
+     *
+     * @return the int value of the next token
+     * @throws InputMismatchException if the token is not an int
+     * @throws NoSuchElementException if there are no more tokens
+     */
+    public int nextInt() {
+        int length = readToken();
+        int i = 0;
+        boolean negative = token[0] == '-';
+        if (negative || token[0] == '+') i++;
+        if (i == length) throw new InputMismatchException(new String(token, 0, length, charset));
+        // Accumulated as a negative number so that Integer.MIN_VALUE fits
+        int value = 0;
+        for (; i < length; i++) {
+            int digit = token[i] - '0';
+            if (digit < 0 || digit > 9 || value < (Integer.MIN_VALUE + digit) / 10)
+                throw new InputMismatchException(new String(token, 0, length, charset));
+            value = value * 10 - digit;
+        }
+        if (!negative && value == Integer.MIN_VALUE)
+            throw new InputMismatchException(new String(token, 0, length, charset));
+        return negative ? value : -value;
+    }
+
+    /**
+     * Reads the rest of the current line, without the line terminator, as Scanner.nextLine
+     *
+     * @return the rest of the current line
+     * @throws NoSuchElementException if there is no more input
+     */
+    public String nextLine() {
+        if (!hasNextLine()) throw new NoSuchElementException("No line found");
+        int length = 0;
+        int next;
+        while ((next = read()) != END_OF_INPUT && next != LINE_FEED && next != CARRIAGE_RETURN)
+            length = append(length, next);
+        if (next == CARRIAGE_RETURN && peek() == LINE_FEED) read();
+        return new String(token, 0, length, charset);
+    }
+
+    /**
+     * Checks if there is more input, as Scanner.hasNextLine
+     *
+     * @return true if there is more input, false otherwise
+     */
+    public boolean hasNextLine() {
+        return fill();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the next token into the token buffer, skipping the whitespace before it
+     *
+     * @return the length of the token
+     * @throws NoSuchElementException if there are no more tokens
+     */
+    private int readToken() {
+        int next = read();
+        while (next != END_OF_INPUT && isWhitespace(next))
+            next = read();
+        if (next == END_OF_INPUT) throw new NoSuchElementException();
+        int length = 0;
+        while (next != END_OF_INPUT && !isWhitespace(next)) {
+            length = append(length, next);
+            next = peek();
+            if (next != END_OF_INPUT && !isWhitespace(next)) read();
+        }
+        return length;
+    }
+
+    /**
+     * Appends a byte to the token buffer, growing it if needed
+     *
+     * @param length current length of the token
+     * @param value  byte to append
+     * @return the new length of the token
+     */
+    private int append(int length, int value) {
+        if (length == token.length) {
+            byte[] grown = new byte[length * 2];
+            System.arraycopy(token, 0, grown, 0, length);
+            token = grown;
+        }
+        token[length] = (byte) value;
+        return length + 1;
+    }
+
+    /**
+     * Compares the token with the name of a command, ignoring the case of the ASCII letters
+     *
+     * @param name   name of the command, in upper case
+     * @param length length of the token, equal to the length of the name
+     * @return true if the token is the name of the command, false otherwise
+     */
+    private boolean matchesIgnoringCase(String name, int length) {
+        for (int i = 0; i < length; i++) {
+            int c = token[i];
+            if (c >= 'a' && c <= 'z') c ^= CASE_BIT;
+            if (c != name.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next byte
+     *
+     * @return the next byte, or END_OF_INPUT if there is no more input
+     */
+    private int read() {
+        return fill() ? buffer[position++] & 0xFF : END_OF_INPUT;
+    }
+
+    /**
+     * Gets the next byte without reading it
+     *
+     * @return the next byte, or END_OF_INPUT if there is no more input
+     */
+    private int peek() {
+        return fill() ? buffer[position] & 0xFF : END_OF_INPUT;
+    }
+
+    /**
+     * Reads more input from the channel if the buffer has been read, flushing the output first
+     *
+     * @return true if there are bytes in the buffer, false if there is no more input
+     */
+    private boolean fill() {
+        if (position < limit) return true;
+        if (endOfInput) return false;
+        try {
+            output.flush();
+            int read;
+            do {
+                byteBuffer.clear();
+                read = channel.read(byteBuffer);
+            } while (read == 0);
+            if (read < 0) {
+                endOfInput = true;
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks if a byte is whitespace, as the ASCII characters that are whitespace for Scanner
+     *
+     * @param value byte to check
+     * @return true if the byte is whitespace, false otherwise
+     */
+    private static boolean isWhitespace(int value) {
+        return value == ' ' || (value >= '\t' && value <= CARRIAGE_RETURN) || (value >= 0x1C && value <= 0x1F);
+    }
+
+    /**
+     * Groups the commands by the length of their names
+     *
+     * @return the commands with each length in the position of the length
+     */
+    private static Command[][] commandsByLength() {
+        int longest = 0;
+        for (Command command : Command.values())
+            longest = Math.max(longest, command.name().length());
+        Command[][] byLength = new Command[longest + 1][0];
+        for (Command command : Command.values()) {
+            Command[] same = byLength[command.name().length()];
+            Command[] grown = new Command[same.length + 1];
+            System.arraycopy(same, 0, grown, 0, same.length);
+            grown[same.length] = command;
+            byLength[command.name().length()] = grown;
+        }
+        return byLength;
+    }
+}
@@ -0,0 +1,349 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non negative ints. The values are split in chunks of 65536 by their high 16 bits, and
+ * each chunk stores its low 16 bits either as a sorted array, while it has few values, or as a plain bitmap
+ * once it has more than ARRAY_LIMIT of them. Sparse sets cost 2 bytes per value and dense ones 1 bit per value
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class CompressedBitmap {
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int LOW_MASK = 0xFFFF;
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = 63;
+    private static final int BITMAP_WORDS = (LOW_MASK + 1) >>> WORD_SHIFT;
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * High 16 bits of the values of each chunk, ascending
+     */
+    private char[] keys;
+
+    /**
+     * Sorted low 16 bits of each chunk stored as an array, null if the chunk is stored as a bitmap
+     */
+    private char[][] arrays;
+
+    /**
+     * Bitmap of the low 16 bits of each chunk stored as a bitmap, null if the chunk is stored as an array
+     */
+    private long[][] bitmaps;
+
+    /**
+     * Number of values of each chunk
+     */
+    private int[] cardinalities;
+
+    /**
+     * Number of chunks in use
+     */
+    private int chunks;
+
+    /**
+     * Creates a new empty bitmap
+     */
+    public CompressedBitmap() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty bitmap with room for some chunks
+     *
+     * @param capacity number of chunks with room reserved
+     */
+    private CompressedBitmap(int capacity) {
+        keys = new char[capacity];
+        arrays = new char[capacity][];
+        bitmaps = new long[capacity][];
+        cardinalities = new int[capacity];
+        chunks = 0;
+    }
+
+    /**
+     * Adds a value to the set
+     *
+     * @param value value to add, not negative
+     */
+    public void add(int value) {
+        char key = (char) (value >>> CHUNK_SHIFT);
+        char low = (char) (value & LOW_MASK);
+        int chunk = findChunk(key);
+        if (chunk < 0) {
+            chunk = -chunk - 1;
+            insertChunk(chunk, key);
+        }
+        if (bitmaps[chunk] != null) {
+            addToBitmap(chunk, low);
+            return;
+        }
+        char[] array = arrays[chunk];
+        int size = cardinalities[chunk];
+        // Values are usually added in ascending order, so the end of the array is checked first
+        int position = size == 0 || array[size - 1] < low ? size : Arrays.binarySearch(array, 0, size, low);
+        if (position >= 0 && position < size) return;
+        if (position < 0) position = -position - 1;
+        if (size == ARRAY_LIMIT) {
+            toBitmap(chunk);
+            addToBitmap(chunk, low);
+            return;
+        }
+        if (size == array.length)
+            arrays[chunk] = array = Arrays.copyOf(array, Math.min(ARRAY_LIMIT, Math.max(INITIAL_CAPACITY, size * 2)));
+        System.arraycopy(array, position, array, position + 1, size - position);
+        array[position] = low;
+        cardinalities[chunk]++;
+    }
+
+    /**
+     * Checks if a value is in the set
+     *
+     * @param value value to look for
+     * @return true if the value is in the set, false otherwise
+     */
+    public boolean contains(int value) {
+        if (value < 0) return false;
+        int chunk = findChunk((char) (value >>> CHUNK_SHIFT));
+        if (chunk < 0) return false;
+        char low = (char) (value & LOW_MASK);
+        if (bitmaps[chunk] != null) return (bitmaps[chunk][low >>> WORD_SHIFT] & (1L << (low & WORD_MASK))) != 0;
+        return Arrays.binarySearch(arrays[chunk], 0, cardinalities[chunk], low) >= 0;
+    }
+
+    /**
+     * Gets the number of values in the set
+     *
+     * @return the number of values in the set
+     */
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < chunks; i++)
+            total += cardinalities[i];
+        return total;
+    }
+
+    /**
+     * Checks if the set has no values
+     *
+     * @return true if the set has no values, false otherwise
+     */
+    public boolean isEmpty() {
+        return chunks == 0;
+    }
+
+    /**
+     * Creates the intersection of this set with another one. Neither set is changed
+     *
+     * @param other the other set
+     * @return a new set with the values that are in both sets
+     */
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(INITIAL_CAPACITY, Math.min(chunks, other.chunks)));
+        int i = 0;
+        int j = 0;
+        while (i < chunks && j < other.chunks) {
+            if (keys[i] < other.keys[j]) i++;
+            else if (keys[i] > other.keys[j]) j++;
+            else {
+                if (bitmaps[i] != null && other.bitmaps[j] != null)
+                    result.appendBitmapIntersection(keys[i], bitmaps[i], other.bitmaps[j]);
+                else if (bitmaps[i] != null)
+                    result.appendProbed(keys[i], other.arrays[j], other.cardinalities[j], bitmaps[i]);
+                else if (other.bitmaps[j] != null)
+                    result.appendProbed(keys[i], arrays[i], cardinalities[i], other.bitmaps[j]);
+                else
+                    result.appendArrayIntersection(keys[i], arrays[i], cardinalities[i], other.arrays[j], other.cardinalities[j]);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the values of the set
+     *
+     * @return a new array with the values of the set in ascending order
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int n = 0;
+        for (int i = 0; i < chunks; i++) {
+            int high = keys[i] << CHUNK_SHIFT;
+            if (bitmaps[i] != null) {
+                long[] bitmap = bitmaps[i];
+                for (int w = 0; w < BITMAP_WORDS; w++)
+                    for (long word = bitmap[w]; word != 0; word &= word - 1)
+                        values[n++] = high | (w << WORD_SHIFT) | Long.numberOfTrailingZeros(word);
+            } else {
+                for (int k = 0; k < cardinalities[i]; k++)
+                    values[n++] = high | arrays[i][k];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Finds the chunk with the given high bits
+     *
+     * @param key high 16 bits of the values of the chunk
+     * @return the position of the chunk, or (-(insertion point) - 1) if there is none
+     */
+    private int findChunk(char key) {
+        if (chunks > 0 && keys[chunks - 1] == key) return chunks - 1;
+        return Arrays.binarySearch(keys, 0, chunks, key);
+    }
+
+    /**
+     * Inserts a new empty array chunk
+     *
+     * @param position position of the new chunk
+     * @param key      high 16 bits of the values of the chunk
+     */
+    private void insertChunk(int position, char key) {
+        ensureRoomForChunk();
+        int moved = chunks - position;
+        System.arraycopy(keys, position, keys, position + 1, moved);
+        System.arraycopy(arrays, position, arrays, position + 1, moved);
+        System.arraycopy(bitmaps, position, bitmaps, position + 1, moved);
+        System.arraycopy(cardinalities, position, cardinalities, position + 1, moved);
+        keys[position] = key;
+        arrays[position] = new char[INITIAL_CAPACITY];
+        bitmaps[position] = null;
+        cardinalities[position] = 0;
+        chunks++;
+    }
+
+    /**
+     * Doubles the room for chunks if every chunk with room reserved is in use
+     */
+    private void ensureRoomForChunk() {
+        if (chunks < keys.length) return;
+        int capacity = chunks * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        arrays = Arrays.copyOf(arrays, capacity);
+        bitmaps = Arrays.copyOf(bitmaps, capacity);
+        cardinalities = Arrays.copyOf(cardinalities, capacity);
+    }
+
+    /**
+     * Adds the low bits of a value to a chunk stored as a bitmap
+     *
+     * @param chunk position of the chunk
+     * @param low   low 16 bits of the value
+     */
+    private void addToBitmap(int chunk, char low) {
+        long bit = 1L << (low & WORD_MASK);
+        long[] bitmap = bitmaps[chunk];
+        if ((bitmap[low >>> WORD_SHIFT] & bit) == 0) {
+            bitmap[low >>> WORD_SHIFT] |= bit;
+            cardinalities[chunk]++;
+        }
+    }
+
+    /**
+     * Changes a chunk stored as an array to a bitmap
+     *
+     * @param chunk position of the chunk
+     */
+    private void toBitmap(int chunk) {
+        long[] bitmap = new long[BITMAP_WORDS];
+        char[] array = arrays[chunk];
+        for (int k = 0; k < cardinalities[chunk]; k++)
+            bitmap[array[k] >>> WORD_SHIFT] |= 1L << (array[k] & WORD_MASK);
+        bitmaps[chunk] = bitmap;
+        arrays[chunk] = null;
+    }
+
+    /**
+     * Appends a chunk after the last one, unless it is empty. The chunk takes the given storage,
+     * so nothing is shifted nor allocated for it
+     *
+     * @param key         high 16 bits of the values of the chunk
+     * @param array       sorted low bits, or null if the chunk is a bitmap
+     * @param bitmap      bitmap of the low bits, or null if the chunk is an array
+     * @param cardinality number of values of the chunk
+     */
+    private void appendChunk(char key, char[] array, long[] bitmap, int cardinality) {
+        if (cardinality == 0) return;
+        ensureRoomForChunk();
+        keys[chunks] = key;
+        arrays[chunks] = array;
+        bitmaps[chunks] = bitmap;
+        cardinalities[chunks] = cardinality;
+        chunks++;
+    }
+
+    /**
+     * Appends the intersection of two array chunks, by merging them
+     *
+     * @param key   high 16 bits of the values of both chunks
+     * @param a     sorted low bits of the first chunk
+     * @param aSize number of values of the first chunk
+     * @param b     sorted low bits of the second chunk
+     * @param bSize number of values of the second chunk
+     */
+    private void appendArrayIntersection(char key, char[] a, int aSize, char[] b, int bSize) {
+        char[] result = new char[Math.min(aSize, bSize)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < aSize && j < bSize) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        appendChunk(key, result, null, n);
+    }
+
+    /**
+     * Appends the intersection of an array chunk and a bitmap chunk, by probing the bitmap with each value
+     *
+     * @param key    high 16 bits of the values of both chunks
+     * @param array  sorted low bits of the array chunk
+     * @param size   number of values of the array chunk
+     * @param bitmap bitmap of the low bits of the bitmap chunk
+     */
+    private void appendProbed(char key, char[] array, int size, long[] bitmap) {
+        char[] result = new char[size];
+        int n = 0;
+        for (int k = 0; k < size; k++)
+            if ((bitmap[array[k] >>> WORD_SHIFT] & (1L << (array[k] & WORD_MASK))) != 0)
+                result[n++] = array[k];
+        appendChunk(key, result, null, n);
+    }
+
+    /**
+     * Appends the intersection of two bitmap chunks, stored as an array if it is small enough
+     *
+     * @param key high 16 bits of the values of both chunks
+     * @param a   bitmap of the low bits of the first chunk
+     * @param b   bitmap of the low bits of the second chunk
+     */
+    private void appendBitmapIntersection(char key, long[] a, long[] b) {
+        long[] result = new long[BITMAP_WORDS];
+        int cardinality = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            result[w] = a[w] & b[w];
+            cardinality += Long.bitCount(result[w]);
+        }
+        if (cardinality > ARRAY_LIMIT) {
+            appendChunk(key, null, result, cardinality);
+            return;
+        }
+        char[] array = new char[cardinality];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++)
+            for (long word = result[w]; word != 0; word &= word - 1)
+                array[n++] = (char) ((w << WORD_SHIFT) | Long.numberOfTrailingZeros(word));
+        appendChunk(key, array, null, cardinality);
+    }
+}
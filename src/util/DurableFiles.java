@@ -0,0 +1,48 @@
+package util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Forces files and directories to the storage device. A file replaced by a rename is only durable once its
+ * contents are forced before the rename and its directory is forced after it, since the rename is a change
+ * of the directory and not of the file
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class DurableFiles {
+
+    /**
+     * Forces the contents and metadata of a file
+     *
+     * @param file file to force
+     * @throws IOException if the file can not be opened or forced
+     */
+    public static void forceFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Forces the entries of a directory, so that the files created, renamed or deleted in it survive a crash.
+     * Some platforms, as Windows, can not open a directory, so nothing more than forcing the files
+     * can be done there
+     *
+     * @param directory directory to force
+     * @throws IOException if the directory is opened but can not be forced
+     */
+    public static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory.toAbsolutePath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from non negative long keys to int values, that does not box
+ * its entries. Missing keys have the value 0
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class LongIntHashMap {
+
+    private static final long EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 8;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Keys of the map, EMPTY in the free slots
+     */
+    private long[] keys;
+
+    /**
+     * Values of the map, in the same slots as their keys
+     */
+    private int[] values;
+
+    /**
+     * Number of entries in the map
+     */
+    private int size;
+
+    /**
+     * Creates a new empty map
+     */
+    public LongIntHashMap() {
+        keys = new long[INITIAL_CAPACITY];
+        values = new int[INITIAL_CAPACITY];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Gets the value of a key
+     *
+     * @param key key to look for, not negative
+     * @return the value of the key or 0 if it is not in the map
+     */
+    public int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask)
+            if (keys[slot] == key) return values[slot];
+        return 0;
+    }
+
+    /**
+     * Sets the value of a key, adding the key if it is not in the map
+     *
+     * @param key   key to change, not negative
+     * @param value new value of the key
+     */
+    public void put(long key, int value) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 3 > keys.length * 2) rehash();
+    }
+
+    /**
+     * Gets the number of entries in the map
+     *
+     * @return the number of entries in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the first slot where a key may be
+     *
+     * @param key  key to look for
+     * @param mask capacity of the map minus one
+     * @return the first slot where the key may be
+     */
+    private static int slotOf(long key, int mask) {
+        long hash = key * HASH_MULTIPLIER;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Doubles the capacity of the map and puts every entry in its new slot
+     */
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slotOf(oldKeys[i], mask);
+            while (keys[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
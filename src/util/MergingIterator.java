@@ -0,0 +1,69 @@
+package util;
+
+import java.util.*;
+
+/**
+ * Iterator that merges several sorted iterators into one sorted iterator.
+ * Only the next element of each source is held, in a heap, so the sources are read lazily as the merge advances
+ *
+ * @param <E> type of the elements
+ * @author Filipe Corista / João Rodrigues
+ */
+public class MergingIterator<E> implements Iterator<E> {
+
+    /**
+     * Next element of each source that is not exhausted, with the smallest at the top
+     */
+    private final PriorityQueue<Head<E>> heads;
+
+    /**
+     * Creates a new merge of sorted sources
+     *
+     * @param sources    iterators sorted by the comparator
+     * @param comparator order of the sources and of the merge
+     */
+    public MergingIterator(Collection<Iterator<E>> sources, Comparator<? super E> comparator) {
+        heads = new PriorityQueue<>(Math.max(1, sources.size()), (h1, h2) -> comparator.compare(h1.element, h2.element));
+        for (Iterator<E> source : sources)
+            if (source.hasNext()) heads.add(new Head<>(source.next(), source));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public E next() {
+        Head<E> head = heads.poll();
+        if (head == null) throw new NoSuchElementException();
+        E element = head.element;
+        if (head.source.hasNext()) {
+            head.element = head.source.next();
+            heads.add(head);
+        }
+        return element;
+    }
+
+    /**
+     * Next element of a source, together with the rest of the source
+     *
+     * @param <E> type of the elements
+     */
+    private static class Head<E> {
+
+        private E element;
+        private final Iterator<E> source;
+
+        /**
+         * Creates a new head
+         *
+         * @param element next element of the source
+         * @param source  rest of the source
+         */
+        Head(E element, Iterator<E> source) {
+            this.element = element;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package util;
+
+import java.io.Flushable;
+import java.io.PrintStream;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renderer of the output of the application, that replaces System.out.printf with the same text.
+ * Format strings are split once into Templates, and each line is appended to a reusable buffer
+ * that is written to the stream in large chunks, so that no format string is parsed and no argument is boxed
+ *
+ * @author Filipe Corista / João Rodrigues
+ */
+public class OutputRenderer implements Flushable {
+
+    private static final int FLUSH_THRESHOLD = 1 << 13;
+    private static final int TENTHS = 10;
+
+    /**
+     * Stream where the output is written
+     */
+    private final PrintStream out;
+
+    /**
+     * Output that was not written to the stream yet
+     */
+    private final StringBuilder buffer;
+
+    /**
+     * Line separator used by println
+     */
+    private final String lineSeparator;
+
+    /**
+     * Decimal separator used by printf in the default locale
+     */
+    private final char decimalSeparator;
+
+    /**
+     * Zero digit used by printf in the default locale
+     */
+    private final char zeroDigit;
+
+    /**
+     * Template of the line being rendered, null if there is none
+     */
+    private Template template;
+
+    /**
+     * Number of arguments of the template already rendered
+     */
+    private int argument;
+
+    /**
+     * Creates a new renderer
+     *
+     * @param out stream where the output is written
+     */
+    public OutputRenderer(PrintStream out) {
+        this.out = out;
+        this.buffer = new StringBuilder(FLUSH_THRESHOLD * 2);
+        this.lineSeparator = System.lineSeparator();
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.zeroDigit = symbols.getZeroDigit();
+        this.template = null;
+    }
+
+    /**
+     * Appends a text followed by a line separator, as System.out.println
+     *
+     * @param text text to append
+     */
+    public void line(CharSequence text) {
+        buffer.append(text).append(lineSeparator);
+        flushIfFull();
+    }
+
+    /**
+     * Starts rendering a template. Its arguments must follow in order, and end must be called after the last one
+     *
+     * @param template template to render
+     * @return this renderer
+     */
+    public OutputRenderer format(Template template) {
+        this.template = template;
+        this.argument = 0;
+        return this;
+    }
+
+    /**
+     * Renders the next argument of the template as %s
+     *
+     * @param value value of the argument
+     * @return this renderer
+     */
+    public OutputRenderer text(CharSequence value) {
+        startArgument(Template.TEXT);
+        buffer.append(value);
+        return this;
+    }
+
+    /**
+     * Renders the next argument of the template as %d
+     *
+     * @param value value of the argument
+     * @return this renderer
+     */
+    public OutputRenderer number(int value) {
+        startArgument(Template.NUMBER);
+        appendNumber(value);
+        return this;
+    }
+
+    /**
+     * Renders the next argument of the template as %.1f. The score is rendered from its tenths,
+     * so it must already be rounded to one decimal place as the scores of the shows are
+     *
+     * @param value value of the argument
+     * @return this renderer
+     */
+    public OutputRenderer score(float value) {
+        startArgument(Template.SCORE);
+        int tenths = Math.round(value * TENTHS);
+        if (tenths < 0) {
+            buffer.append('-');
+            tenths = -tenths;
+        }
+        appendNumber(tenths / TENTHS);
+        buffer.append(decimalSeparator).append((char) (zeroDigit + tenths % TENTHS));
+        return this;
+    }
+
+    /**
+     * Ends the template being rendered, appending the text after its last argument
+     */
+    public void end() {
+        if (argument != template.kinds.length)
+            throw new IllegalStateException("Missing arguments of " + template);
+        buffer.append(template.literals[argument]);
+        template = null;
+        flushIfFull();
+    }
+
+    /**
+     * Writes the buffered output to the stream
+     */
+    @Override
+    public void flush() {
+        if (buffer.length() > 0) {
+            out.append(buffer);
+            buffer.setLength(0);
+        }
+        out.flush();
+    }
+
+    /**
+     * Appends the text before the next argument of the template, checking that the argument has the expected type
+     *
+     * @param kind type of the argument
+     */
+    private void startArgument(char kind) {
+        if (argument == template.kinds.length || template.kinds[argument] != kind)
+            throw new IllegalStateException("Unexpected argument " + (argument + 1) + " of " + template);
+        buffer.append(template.literals[argument++]);
+    }
+
+    /**
+     * Appends an int with the digits of the default locale
+     *
+     * @param value int to append
+     */
+    private void appendNumber(int value) {
+        int start = buffer.length();
+        buffer.append(value);
+        if (zeroDigit != '0')
+            for (int i = start; i < buffer.length(); i++)
+                if (Character.isDigit(buffer.charAt(i)))
+                    buffer.setCharAt(i, (char) (zeroDigit + buffer.charAt(i) - '0'));
+    }
+
+    /**
+     * Writes the buffered output to the stream once it is large enough
+     */
+    private void flushIfFull() {
+        if (buffer.length() >= FLUSH_THRESHOLD) flush();
+    }
+
+    /**
+     * Format string split into the text between its arguments. Only %s, %d and %.1f are supported
+     */
+    public static class Template {
+
+        private static final char TEXT = 's';
+        private static final char NUMBER = 'd';
+        private static final char SCORE = 'f';
+        private static final String SCORE_FORMAT = ".1f";
+
+        /**
+         * Format string of the template
+         */
+        private final String format;
+
+        /**
+         * Text before each argument, followed by the text after the last one
+         */
+        private final String[] literals;
+
+        /**
+         * Type of each argument
+         */
+        private final char[] kinds;
+
+        /**
+         * Creates a new template
+         *
+         * @param format   format string of the template
+         * @param literals text before each argument, followed by the text after the last one
+         * @param kinds    type of each argument
+         */
+        private Template(String format, String[] literals, char[] kinds) {
+            this.format = format;
+            this.literals = literals;
+            this.kinds = kinds;
+        }
+
+        /**
+         * Splits a format string into a template
+         *
+         * @param format format string with %s, %d and %.1f arguments
+         * @return the template of the format string
+         * @throws IllegalArgumentException if the format string has any other conversion
+         */
+        public static Template of(String format) {
+            StringBuilder kinds = new StringBuilder();
+            List<String> literals = new ArrayList<>();
+            int start = 0;
+            int percent;
+            while ((percent = format.indexOf('%', start)) >= 0) {
+                literals.add(format.substring(start, percent));
+                if (format.startsWith(SCORE_FORMAT, percent + 1)) {
+                    kinds.append(SCORE);
+                    start = percent + 1 + SCORE_FORMAT.length();
+                } else if (percent + 1 < format.length()
+                        && (format.charAt(percent + 1) == TEXT || format.charAt(percent + 1) == NUMBER)) {
+                    kinds.append(format.charAt(percent + 1));
+                    start = percent + 2;
+                } else {
+                    throw new IllegalArgumentException("Unsupported conversion in " + format);
+                }
+            }
+            literals.add(format.substring(start));
+            return new Template(format, literals.toArray(new String[0]), kinds.toString().toCharArray());
+        }
+
+        @Override
+        public String toString() {
+            return format;
+        }
+    }
+}